@@ -59,4 +59,5 @@ dependencies {
     implementation("net.fabricmc:sponge-mixin:$mixinVersion")
     implementation("gradle.plugin.com.mendhak.gradlecrowdin:plugin:0.1.0")
     implementation("org.enginehub.gradle:gradle-codecov-plugin:0.1.0")
+    implementation("me.champeau.gradle:jmh-gradle-plugin:0.5.0")
 }
@@ -8,6 +8,7 @@ object Versions {
     const val JUNIT = "5.6.1"
     const val MOCKITO = "3.3.3"
     const val LOGBACK = "1.2.3"
+    const val JMH = "1.23"
 }
 
 // Properties that need a project reference to resolve:
@@ -121,6 +121,12 @@ public int schedule(long delay, long period, Runnable task) {
         return Bukkit.getScheduler().scheduleSyncRepeatingTask(plugin, task, delay, period);
     }
 
+    @Override
+    public boolean cancelTask(int taskId) {
+        Bukkit.getScheduler().cancelTask(taskId);
+        return true;
+    }
+
     @Override
     public Watchdog getWatchdog() {
         return watchdog.getValue();
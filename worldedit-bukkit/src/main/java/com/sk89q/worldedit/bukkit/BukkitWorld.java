@@ -28,6 +28,8 @@
 import com.sk89q.worldedit.blocks.BaseItemStack;
 import com.sk89q.worldedit.bukkit.adapter.BukkitImplAdapter;
 import com.sk89q.worldedit.entity.BaseEntity;
+import com.sk89q.worldedit.extent.ChunkSectionBatch;
+import com.sk89q.worldedit.internal.block.BlockStateIdAccess;
 import com.sk89q.worldedit.internal.wna.WorldNativeAccess;
 import com.sk89q.worldedit.math.BlockVector2;
 import com.sk89q.worldedit.math.BlockVector3;
@@ -41,14 +43,18 @@
 import com.sk89q.worldedit.world.biome.BiomeType;
 import com.sk89q.worldedit.world.block.BaseBlock;
 import com.sk89q.worldedit.world.block.BlockStateHolder;
+import com.sk89q.worldedit.world.block.BlockTypes;
 import com.sk89q.worldedit.world.weather.WeatherType;
 import com.sk89q.worldedit.world.weather.WeatherTypes;
+import org.bukkit.Bukkit;
+import org.bukkit.ChunkSnapshot;
 import org.bukkit.Effect;
 import org.bukkit.TreeType;
 import org.bukkit.World;
 import org.bukkit.block.Block;
 import org.bukkit.block.BlockState;
 import org.bukkit.block.Chest;
+import org.bukkit.block.data.BlockData;
 import org.bukkit.entity.Entity;
 import org.bukkit.inventory.DoubleChestInventory;
 import org.bukkit.inventory.Inventory;
@@ -65,7 +71,10 @@
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 public class BukkitWorld extends AbstractWorld {
@@ -79,8 +88,15 @@ public class BukkitWorld extends AbstractWorld {
         }
     }
 
+    /**
+     * The most chunk snapshots that are kept for bulk reads.
+     */
+    private static final int MAX_SNAPSHOTS = 64;
+
     private final WeakReference<World> worldRef;
     private final WorldNativeAccess<?, ?, ?> worldNativeAccess;
+    private final Map<Long, ChunkSnapshot> snapshots = new ConcurrentHashMap<>();
+    private final AtomicBoolean snapshotExpiryScheduled = new AtomicBoolean();
 
     /**
      * Construct the object.
@@ -403,6 +419,7 @@ public BlockVector3 getSpawnPosition() {
 
     @Override
     public void simulateBlockMine(BlockVector3 pt) {
+        forgetSnapshot(pt.getBlockX() >> 4, pt.getBlockZ() >> 4, SideEffectSet.defaults());
         getWorld().getBlockAt(pt.getBlockX(), pt.getBlockY(), pt.getBlockZ()).breakNaturally();
     }
 
@@ -427,6 +444,7 @@ public com.sk89q.worldedit.world.block.BlockState getBlock(BlockVector3 position
 
     @Override
     public <B extends BlockStateHolder<B>> boolean setBlock(BlockVector3 position, B block, SideEffectSet sideEffects) {
+        forgetSnapshot(position.getBlockX() >> 4, position.getBlockZ() >> 4, sideEffects);
         if (worldNativeAccess != null) {
             try {
                 return worldNativeAccess.setBlock(position, block, sideEffects);
@@ -444,6 +462,96 @@ public <B extends BlockStateHolder<B>> boolean setBlock(BlockVector3 position, B
         return true;
     }
 
+    @Override
+    public int setBlocks(ChunkSectionBatch batch, SideEffectSet sideEffects) throws WorldEditException {
+        forgetSnapshot(batch.getChunkX(), batch.getChunkZ(), sideEffects);
+        if (worldNativeAccess != null) {
+            try {
+                return worldNativeAccess.setBlocks(batch, sideEffects);
+            } catch (Exception e) {
+                logger.warn("Failed to set blocks via adapter, falling back to generic", e);
+            }
+        }
+        return super.setBlocks(batch, sideEffects);
+    }
+
+    @Override
+    public void getBlockStateIds(BlockVector3 min, BlockVector3 max, int[] ids) {
+        int sizeX = max.getBlockX() - min.getBlockX() + 1;
+        int sizeZ = max.getBlockZ() - min.getBlockZ() + 1;
+        checkArgument(ids.length >= (long) sizeX * sizeZ * (max.getBlockY() - min.getBlockY() + 1),
+                "ids is too small for the cuboid");
+        World world = getWorld();
+        int maxHeight = world.getMaxHeight();
+        int airId = BlockStateIdAccess.getBlockStateId(BlockTypes.AIR.getDefaultState());
+        // adapting block data is slow, so only do it once per distinct state
+        Map<BlockData, Integer> idCache = new HashMap<>();
+        // a chunk snapshot is much cheaper to read than the chunk itself, and
+        // callers read a chunk a section at a time, so snapshots are reused
+        for (int chunkX = min.getBlockX() >> 4; chunkX <= max.getBlockX() >> 4; chunkX++) {
+            int fromX = Math.max(min.getBlockX(), chunkX << 4);
+            int toX = Math.min(max.getBlockX(), (chunkX << 4) + 15);
+            for (int chunkZ = min.getBlockZ() >> 4; chunkZ <= max.getBlockZ() >> 4; chunkZ++) {
+                int fromZ = Math.max(min.getBlockZ(), chunkZ << 4);
+                int toZ = Math.min(max.getBlockZ(), (chunkZ << 4) + 15);
+                ChunkSnapshot snapshot = getSnapshot(world, chunkX, chunkZ);
+                for (int y = min.getBlockY(); y <= max.getBlockY(); y++) {
+                    boolean inWorld = y >= 0 && y < maxHeight;
+                    for (int z = fromZ; z <= toZ; z++) {
+                        int index = ((y - min.getBlockY()) * sizeZ + (z - min.getBlockZ())) * sizeX - min.getBlockX();
+                        for (int x = fromX; x <= toX; x++) {
+                            ids[index + x] = inWorld
+                                    ? idCache.computeIfAbsent(snapshot.getBlockData(x & 15, y, z & 15),
+                                        data -> BlockStateIdAccess.getBlockStateId(BukkitAdapter.adapt(data)))
+                                    : airId;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Get a snapshot of a chunk, taking it only if there is none since the
+     * last tick or the last change to the chunk.
+     *
+     * @param world the world
+     * @param chunkX the chunk X coordinate
+     * @param chunkZ the chunk Z coordinate
+     * @return the snapshot
+     */
+    private ChunkSnapshot getSnapshot(World world, int chunkX, int chunkZ) {
+        long key = BlockVector2.toLongPackedForm(chunkX, chunkZ);
+        ChunkSnapshot snapshot = snapshots.get(key);
+        if (snapshot == null) {
+            snapshot = world.getChunkAt(chunkX, chunkZ).getChunkSnapshot(false, false, false);
+            if (snapshots.size() >= MAX_SNAPSHOTS) {
+                snapshots.clear();
+            }
+            snapshots.put(key, snapshot);
+            // other plugins and players change the world between ticks
+            if (snapshotExpiryScheduled.compareAndSet(false, true)) {
+                Bukkit.getScheduler().runTask(WorldEditPlugin.getInstance(), () -> {
+                    snapshotExpiryScheduled.set(false);
+                    snapshots.clear();
+                });
+            }
+        }
+        return snapshot;
+    }
+
+    private void forgetSnapshot(int chunkX, int chunkZ, SideEffectSet sideEffects) {
+        if (snapshots.isEmpty()) {
+            return;
+        }
+        if (sideEffects.doesApplyAny()) {
+            // updates may spread into neighbouring chunks
+            snapshots.clear();
+        } else {
+            snapshots.remove(BlockVector2.toLongPackedForm(chunkX, chunkZ));
+        }
+    }
+
     @Override
     public BaseBlock getFullBlock(BlockVector3 position) {
         BukkitImplAdapter adapter = WorldEditPlugin.getInstance().getBukkitImplAdapter();
@@ -457,6 +565,8 @@ public BaseBlock getFullBlock(BlockVector3 position) {
     @Override
     public Set<SideEffect> applySideEffects(BlockVector3 position, com.sk89q.worldedit.world.block.BlockState previousType,
             SideEffectSet sideEffectSet) {
+        // updates may spread into neighbouring chunks
+        snapshots.clear();
         if (worldNativeAccess != null) {
             worldNativeAccess.applySideEffects(position, previousType, sideEffectSet);
             return Sets.intersection(
@@ -149,6 +149,11 @@ public BaseBlock getFullBlock(BlockVector3 position) {
         return clipboard.getFullBlock(position);
     }
 
+    @Override
+    public void getBlockStateIds(BlockVector3 min, BlockVector3 max, int[] ids) {
+        clipboard.getBlockStateIds(min, max, ids);
+    }
+
     @Override
     public BiomeType getBiome(BlockVector2 position) {
         return clipboard.getBiome(position);
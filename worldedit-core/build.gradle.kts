@@ -2,6 +2,7 @@ import net.minecrell.gradle.licenser.LicenseExtension
 import org.gradle.plugins.ide.idea.model.IdeaModel
 import com.mendhak.gradlecrowdin.DownloadTranslationsTask
 import com.mendhak.gradlecrowdin.UploadSourceFileTask
+import me.champeau.gradle.JMHPluginExtension
 
 plugins {
     id("java-library")
@@ -9,6 +10,7 @@ plugins {
     id("net.ltgt.apt-idea")
     id("antlr")
     id("com.mendhak.gradlecrowdin")
+    id("me.champeau.gradle.jmh")
 }
 
 applyPlatformAndCoreConfiguration()
@@ -49,6 +51,19 @@ tasks.named<Test>("test") {
     maxHeapSize = "1G"
 }
 
+// Run with `./gradlew :worldedit-core:jmh`, optionally with `-Pjmh.include=<regex>`
+configure<JMHPluginExtension> {
+    jmhVersion = Versions.JMH
+    if (project.hasProperty("jmh.include")) {
+        include = listOf(project.property("jmh.include").toString())
+    }
+    fork = 1
+    resultFormat = "JSON"
+    // keyed by version, so that results can be compared across versions
+    resultsFile = project.file("build/reports/jmh/results-${project.version}.json")
+    jvmArgs = listOf("-Xmx2G")
+}
+
 tasks.withType<JavaCompile>().configureEach {
     dependsOn(":worldedit-libs:build")
     options.compilerArgs.add("-Aarg.name.key.prefix=")
@@ -0,0 +1,185 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.benchmark;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.sk89q.worldedit.LocalConfiguration;
+import com.sk89q.worldedit.WorldEdit;
+import com.sk89q.worldedit.entity.Player;
+import com.sk89q.worldedit.extension.platform.AbstractPlatform;
+import com.sk89q.worldedit.extension.platform.Capability;
+import com.sk89q.worldedit.extension.platform.Preference;
+import com.sk89q.worldedit.internal.block.BlockStateIdAccess;
+import com.sk89q.worldedit.util.SideEffect;
+import com.sk89q.worldedit.world.World;
+import com.sk89q.worldedit.world.block.BlockState;
+import com.sk89q.worldedit.world.block.BlockType;
+import com.sk89q.worldedit.world.registry.BundledRegistries;
+import com.sk89q.worldedit.world.registry.Registries;
+import org.enginehub.piston.CommandManager;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.Nullable;
+
+/**
+ * A platform for benchmarks, with a fixed set of block types and no game.
+ */
+public final class BenchmarkPlatform extends AbstractPlatform {
+
+    /**
+     * The block types that are registered, besides air.
+     */
+    public static final ImmutableList<String> BLOCK_IDS = ImmutableList.of(
+        "minecraft:stone", "minecraft:granite", "minecraft:diorite", "minecraft:andesite",
+        "minecraft:dirt", "minecraft:coarse_dirt", "minecraft:cobblestone", "minecraft:oak_planks",
+        "minecraft:spruce_planks", "minecraft:birch_planks", "minecraft:sand", "minecraft:gravel",
+        "minecraft:gold_ore", "minecraft:iron_ore", "minecraft:coal_ore", "minecraft:glass"
+    );
+
+    private static final List<BlockState> states = new ArrayList<>();
+    @Nullable
+    private static BenchmarkPlatform instance;
+
+    /**
+     * Register the benchmark platform with WorldEdit, if it isn't already.
+     */
+    public static synchronized void install() {
+        if (instance != null) {
+            return;
+        }
+        instance = new BenchmarkPlatform();
+        WorldEdit.getInstance().getPlatformManager().register(instance);
+        registerBlock("minecraft:air");
+        for (String id : BLOCK_IDS) {
+            states.add(registerBlock(id));
+        }
+    }
+
+    private static BlockState registerBlock(String id) {
+        BlockType type = new BlockType(id);
+        BlockType.REGISTRY.register(id, type);
+        BlockState state = type.getDefaultState();
+        BlockStateIdAccess.register(state, BlockStateIdAccess.invalidId());
+        return state;
+    }
+
+    /**
+     * Get the default states of the registered block types, besides air.
+     *
+     * @return the states
+     */
+    public static List<BlockState> getStates() {
+        return states;
+    }
+
+    private final LocalConfiguration configuration = new LocalConfiguration() {
+        @Override
+        public void load() {
+        }
+    };
+
+    private BenchmarkPlatform() {
+    }
+
+    @Override
+    public Registries getRegistries() {
+        return BundledRegistries.getInstance();
+    }
+
+    @Override
+    public int getDataVersion() {
+        return 2230;
+    }
+
+    @Override
+    public boolean isValidMobType(String type) {
+        return false;
+    }
+
+    @Override
+    public void reload() {
+    }
+
+    @Override
+    public List<? extends World> getWorlds() {
+        return ImmutableList.of();
+    }
+
+    @Nullable
+    @Override
+    public Player matchPlayer(Player player) {
+        return null;
+    }
+
+    @Nullable
+    @Override
+    public World matchWorld(World world) {
+        return null;
+    }
+
+    @Override
+    public void registerCommands(CommandManager manager) {
+    }
+
+    @Override
+    public void registerGameHooks() {
+    }
+
+    @Override
+    public LocalConfiguration getConfiguration() {
+        return configuration;
+    }
+
+    @Override
+    public String getVersion() {
+        return "benchmark";
+    }
+
+    @Override
+    public String getPlatformName() {
+        return "Benchmark";
+    }
+
+    @Override
+    public String getPlatformVersion() {
+        return "benchmark";
+    }
+
+    @Override
+    public Map<Capability, Preference> getCapabilities() {
+        Map<Capability, Preference> capabilities = new EnumMap<>(Capability.class);
+        capabilities.put(Capability.CONFIGURATION, Preference.PREFERRED);
+        capabilities.put(Capability.GAME_HOOKS, Preference.PREFERRED);
+        capabilities.put(Capability.WORLD_EDITING, Preference.PREFERRED);
+        return capabilities;
+    }
+
+    @Override
+    public Set<SideEffect> getSupportedSideEffects() {
+        return ImmutableSet.of();
+    }
+
+}
@@ -0,0 +1,98 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.benchmark;
+
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.util.collection.BlockMap;
+import com.sk89q.worldedit.world.block.BaseBlock;
+import com.sk89q.worldedit.world.block.BlockState;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link BlockMap} with positions spread over a number of chunks.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class BlockMapBenchmark {
+
+    @Param({"10000", "1000000"})
+    public int count;
+
+    private BlockVector3[] positions;
+    private BaseBlock[] blocks;
+    private BlockMap<BaseBlock> filled;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        BenchmarkPlatform.install();
+        List<BlockState> states = BenchmarkPlatform.getStates();
+        Random random = new Random(42);
+        positions = new BlockVector3[count];
+        blocks = new BaseBlock[count];
+        for (int i = 0; i < count; i++) {
+            positions[i] = BlockVector3.at(random.nextInt(1024) - 512, random.nextInt(256), random.nextInt(1024) - 512);
+            blocks[i] = states.get(random.nextInt(states.size())).toBaseBlock();
+        }
+        filled = BlockMap.createForBaseBlock();
+        for (int i = 0; i < count; i++) {
+            filled.put(positions[i], blocks[i]);
+        }
+    }
+
+    @Benchmark
+    public BlockMap<BaseBlock> put() {
+        BlockMap<BaseBlock> map = BlockMap.createForBaseBlock();
+        for (int i = 0; i < count; i++) {
+            map.put(positions[i], blocks[i]);
+        }
+        return map;
+    }
+
+    @Benchmark
+    public void get(Blackhole blackhole) {
+        for (BlockVector3 position : positions) {
+            blackhole.consume(filled.get(position));
+        }
+    }
+
+    @Benchmark
+    public void iterate(Blackhole blackhole) {
+        filled.forEach((position, block) -> blackhole.consume(block));
+    }
+
+}
@@ -0,0 +1,130 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.benchmark;
+
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.math.Vector3;
+import com.sk89q.worldedit.regions.ConvexPolyhedralRegion;
+import com.sk89q.worldedit.regions.polyhedron.Triangle;
+import com.sk89q.worldedit.world.World;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures containment tests on a {@link ConvexPolyhedralRegion} built from
+ * points on a sphere, against testing the triangles of the hull one by one.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ConvexPolyhedralBenchmark {
+
+    private static final double RADIUS = 40;
+
+    @Param({"16", "256"})
+    public int vertices;
+
+    private ConvexPolyhedralRegion region;
+    private List<Triangle> triangles;
+
+    @Setup(Level.Invocation)
+    public void setup() {
+        // a new region per invocation, so every measurement includes compiling the hull
+        region = new ConvexPolyhedralRegion((World) null);
+        double golden = Math.PI * (3 - Math.sqrt(5));
+        for (int i = 0; i < vertices; i++) {
+            double y = 1 - (i + 0.5) * 2 / vertices;
+            double r = Math.sqrt(1 - y * y);
+            double theta = golden * i;
+            region.addVertex(Vector3.at(Math.cos(theta) * r, y, Math.sin(theta) * r).multiply(RADIUS).toBlockPoint());
+        }
+        triangles = new ArrayList<>(region.getTriangles());
+    }
+
+    @Benchmark
+    public int contains() {
+        BlockVector3 min = region.getMinimumPoint();
+        BlockVector3 max = region.getMaximumPoint();
+        int count = 0;
+        for (int x = min.getBlockX(); x <= max.getBlockX(); x++) {
+            for (int y = min.getBlockY(); y <= max.getBlockY(); y++) {
+                for (int z = min.getBlockZ(); z <= max.getBlockZ(); z++) {
+                    if (region.contains(BlockVector3.at(x, y, z))) {
+                        count++;
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int containsByTriangles() {
+        // how contains() used to test blocks, for comparison
+        BlockVector3 min = region.getMinimumPoint();
+        BlockVector3 max = region.getMaximumPoint();
+        int count = 0;
+        Triangle lastTriangle = null;
+        for (int x = min.getBlockX(); x <= max.getBlockX(); x++) {
+            for (int y = min.getBlockY(); y <= max.getBlockY(); y++) {
+                positions:
+                for (int z = min.getBlockZ(); z <= max.getBlockZ(); z++) {
+                    Vector3 position = Vector3.at(x, y, z);
+                    if (lastTriangle != null && lastTriangle.above(position)) {
+                        continue;
+                    }
+                    for (Triangle triangle : triangles) {
+                        if (triangle.above(position)) {
+                            lastTriangle = triangle;
+                            continue positions;
+                        }
+                    }
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int iterate() {
+        int count = 0;
+        for (BlockVector3 ignored : region) {
+            count++;
+        }
+        return count;
+    }
+
+}
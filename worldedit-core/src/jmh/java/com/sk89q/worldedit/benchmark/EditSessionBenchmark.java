@@ -0,0 +1,104 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.benchmark;
+
+import com.sk89q.worldedit.EditSession;
+import com.sk89q.worldedit.WorldEdit;
+import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.function.operation.ForwardExtentCopy;
+import com.sk89q.worldedit.function.operation.Operations;
+import com.sk89q.worldedit.function.pattern.RandomPattern;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.regions.CuboidRegion;
+import com.sk89q.worldedit.world.block.BlockState;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures edits that go through the whole {@link EditSession} extent stack,
+ * including the commit of the reordering extents when the session is closed.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class EditSessionBenchmark {
+
+    @Param({"32", "128"})
+    public int size;
+
+    @Param({"NONE", "MULTI_STAGE", "FAST"})
+    public EditSession.ReorderMode reorderMode;
+
+    private MemoryWorld world;
+    private CuboidRegion region;
+    private RandomPattern pattern;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        BenchmarkPlatform.install();
+        region = new CuboidRegion(BlockVector3.ZERO, BlockVector3.at(size - 1, size - 1, size - 1));
+        pattern = new RandomPattern();
+        for (BlockState state : BenchmarkPlatform.getStates()) {
+            pattern.add(state, 1);
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void createWorld() {
+        // room for the region and a copy of it next to it
+        world = new MemoryWorld(new CuboidRegion(BlockVector3.ZERO, BlockVector3.at(size * 2 - 1, size - 1, size - 1)));
+    }
+
+    private EditSession createEditSession() {
+        EditSession editSession = WorldEdit.getInstance().getEditSessionFactory().getEditSession(world, -1);
+        editSession.setReorderMode(reorderMode);
+        return editSession;
+    }
+
+    @Benchmark
+    public int setBlocks() throws WorldEditException {
+        try (EditSession editSession = createEditSession()) {
+            return editSession.setBlocks(region, pattern);
+        }
+    }
+
+    @Benchmark
+    public int forwardExtentCopy() throws WorldEditException {
+        try (EditSession editSession = createEditSession()) {
+            ForwardExtentCopy copy = new ForwardExtentCopy(editSession, region, editSession, BlockVector3.at(size, 0, 0));
+            Operations.complete(copy);
+            return copy.getAffected();
+        }
+    }
+
+}
@@ -0,0 +1,88 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.benchmark;
+
+import com.sk89q.worldedit.internal.expression.Expression;
+import com.sk89q.worldedit.internal.expression.ExpressionException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures compiling expressions, and evaluating them over a grid the way
+ * //generate does.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ExpressionBenchmark {
+
+    private static final int SIZE = 32;
+
+    @Param({
+        "x * x + y * y + z * z < 0.8",
+        "(sin(x * 3) + cos(z * 3)) * 0.5 > y",
+        "a = abs(x) + abs(z); b = 0; while (a > 0.1) { a = a / 2; b++; } b > 3 && y < 0"
+    })
+    public String source;
+
+    private Expression expression;
+
+    @Setup(Level.Trial)
+    public void setup() throws ExpressionException {
+        expression = Expression.compile(source, "x", "y", "z");
+    }
+
+    @Benchmark
+    public Expression compile() throws ExpressionException {
+        return Expression.compile(source, "x", "y", "z");
+    }
+
+    @Benchmark
+    public int evaluate() throws ExpressionException {
+        int matches = 0;
+        for (int y = 0; y < SIZE; y++) {
+            double scaledY = y * 2.0 / (SIZE - 1) - 1;
+            for (int z = 0; z < SIZE; z++) {
+                double scaledZ = z * 2.0 / (SIZE - 1) - 1;
+                for (int x = 0; x < SIZE; x++) {
+                    double scaledX = x * 2.0 / (SIZE - 1) - 1;
+                    if (expression.evaluate(scaledX, scaledY, scaledZ) > 0) {
+                        matches++;
+                    }
+                }
+            }
+        }
+        return matches;
+    }
+
+}
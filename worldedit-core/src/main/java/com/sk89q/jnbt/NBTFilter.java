@@ -0,0 +1,75 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.jnbt;
+
+import com.google.common.collect.ImmutableSet;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Decides which tags of a compound are read by an {@link NBTStreamReader}.
+ * Tags that are not read are skipped without being decoded.
+ */
+@FunctionalInterface
+public interface NBTFilter {
+
+    /**
+     * A filter that reads every tag.
+     */
+    NBTFilter ALL = (path, name) -> true;
+
+    /**
+     * Create a filter that skips the tags at the given paths.
+     *
+     * <p>Paths are the names of the compounds leading to the tag, separated
+     * by dots, without the name of the root tag. Lists don't add to the path,
+     * so {@code Level.Sections.SkyLight} matches the {@code SkyLight} tag of
+     * every compound in the {@code Sections} list.</p>
+     *
+     * @param paths the paths to skip
+     * @return the filter
+     */
+    static NBTFilter skipping(String... paths) {
+        return new SkippingNBTFilter(paths);
+    }
+
+    /**
+     * Create a filter that only reads the given tags of the root compound.
+     *
+     * @param names the names of the tags to read
+     * @return the filter
+     */
+    static NBTFilter onlyTopLevel(String... names) {
+        Set<String> kept = ImmutableSet.copyOf(names);
+        return (path, name) -> !path.isEmpty() || kept.contains(name);
+    }
+
+    /**
+     * Return whether a tag should be read.
+     *
+     * @param path the names of the compounds and lists containing the tag,
+     *     starting below the root tag
+     * @param name the name of the tag
+     * @return true to read the tag, false to skip it
+     */
+    boolean shouldRead(List<String> path, String name);
+
+}
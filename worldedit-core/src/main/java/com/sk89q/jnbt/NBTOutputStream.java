@@ -68,18 +68,89 @@ public void writeNamedTag(String name, Tag tag) throws IOException {
         checkNotNull(name);
         checkNotNull(tag);
 
-        int type = NBTUtils.getTypeCode(tag.getClass());
-        byte[] nameBytes = name.getBytes(NBTConstants.CHARSET);
+        writeTagHeader(NBTUtils.getTypeCode(tag.getClass()), name);
+        writeTagPayload(tag);
+    }
 
+    /**
+     * Writes the type and name of a tag, without its payload. The payload
+     * must be written next, using the methods below.
+     *
+     * <p>This allows large tags to be written without creating {@link Tag}
+     * objects for their contents. Compound payloads are written as a number
+     * of named tags, followed by {@link #writeEndTag()}.</p>
+     *
+     * @param type
+     *            The type of the tag.
+     * @param name
+     *            The name of the tag.
+     * @throws IOException
+     *             if an I/O error occurs.
+     */
+    public void writeTagHeader(int type, String name) throws IOException {
+        checkNotNull(name);
+        if (type == NBTConstants.TYPE_END) {
+            throw new IOException("Named TAG_End not permitted.");
+        }
+        byte[] nameBytes = name.getBytes(NBTConstants.CHARSET);
         os.writeByte(type);
         os.writeShort(nameBytes.length);
         os.write(nameBytes);
+    }
 
-        if (type == NBTConstants.TYPE_END) {
-            throw new IOException("Named TAG_End not permitted.");
-        }
+    /**
+     * Writes the end of a compound payload.
+     *
+     * @throws IOException
+     *             if an I/O error occurs.
+     */
+    public void writeEndTag() throws IOException {
+        os.writeByte(NBTConstants.TYPE_END);
+    }
 
-        writeTagPayload(tag);
+    /**
+     * Writes the header of a list payload. The given number of payloads of
+     * the element type must be written next.
+     *
+     * @param type
+     *            The type of the elements.
+     * @param length
+     *            The number of elements.
+     * @throws IOException
+     *             if an I/O error occurs.
+     */
+    public void writeListHeader(int type, int length) throws IOException {
+        os.writeByte(type);
+        os.writeInt(length);
+    }
+
+    /**
+     * Writes the length of an array payload. The given number of elements
+     * must be written next.
+     *
+     * @param length
+     *            The number of elements.
+     * @throws IOException
+     *             if an I/O error occurs.
+     */
+    public void writeArrayLength(int length) throws IOException {
+        os.writeInt(length);
+    }
+
+    /**
+     * Writes raw bytes, such as the elements of a byte array payload.
+     *
+     * @param bytes
+     *            The bytes.
+     * @param offset
+     *            The offset of the first byte to write.
+     * @param length
+     *            The number of bytes to write.
+     * @throws IOException
+     *             if an I/O error occurs.
+     */
+    public void writeBytes(byte[] bytes, int offset, int length) throws IOException {
+        os.write(bytes, offset, length);
     }
 
     /**
@@ -90,7 +161,7 @@ public void writeNamedTag(String name, Tag tag) throws IOException {
      * @throws IOException
      *             if an I/O error occurs.
      */
-    private void writeTagPayload(Tag tag) throws IOException {
+    public void writeTagPayload(Tag tag) throws IOException {
         int type = NBTUtils.getTypeCode(tag.getClass());
         switch (type) {
         case NBTConstants.TYPE_END:
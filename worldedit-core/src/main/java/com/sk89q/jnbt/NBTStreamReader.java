@@ -0,0 +1,428 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.jnbt;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+/**
+ * Reads NBT data one tag at a time, without building the whole tree.
+ *
+ * <p>Callers read the header of a tag with {@link #readTagHeader()}, and
+ * then either read its payload with one of the {@code read} methods, or
+ * skip it with {@link #skipPayload(int)}. Compound payloads are read by
+ * calling {@link #readTagHeader()} until it returns
+ * {@link NBTConstants#TYPE_END}, and list payloads by reading the number of
+ * elements given by {@link #readListHeader()}.</p>
+ *
+ * <p>Tag names are only decoded when {@link #getName()} is called, and
+ * skipped payloads are never decoded. Parts of the tree can also be
+ * materialised as {@link Tag}s, optionally leaving out tags with an
+ * {@link NBTFilter}.</p>
+ */
+public final class NBTStreamReader implements Closeable {
+
+    private final DataInputStream is;
+    private byte[] nameBytes = new byte[32];
+    private int nameLength;
+    @Nullable
+    private String name = "";
+    private int listType = NBTConstants.TYPE_END;
+
+    /**
+     * Creates a new reader, which will source its data from the specified
+     * input stream.
+     *
+     * @param is the input stream
+     */
+    public NBTStreamReader(InputStream is) {
+        checkNotNull(is);
+        this.is = is instanceof DataInputStream ? (DataInputStream) is : new DataInputStream(is);
+    }
+
+    /**
+     * Read the type and name of the next tag.
+     *
+     * @return the type of the tag, or {@link NBTConstants#TYPE_END} at the
+     *     end of a compound
+     * @throws IOException if an I/O error occurs
+     */
+    public int readTagHeader() throws IOException {
+        int type = is.readByte() & 0xFF;
+        if (type == NBTConstants.TYPE_END) {
+            nameLength = 0;
+            name = "";
+            return type;
+        }
+        nameLength = is.readUnsignedShort();
+        if (nameBytes.length < nameLength) {
+            nameBytes = new byte[Math.max(nameLength, nameBytes.length * 2)];
+        }
+        is.readFully(nameBytes, 0, nameLength);
+        name = null;
+        return type;
+    }
+
+    /**
+     * Get the name of the tag whose header was read last.
+     *
+     * @return the name
+     */
+    public String getName() {
+        if (name == null) {
+            name = new String(nameBytes, 0, nameLength, NBTConstants.CHARSET);
+        }
+        return name;
+    }
+
+    /**
+     * Check whether the tag whose header was read last has the given name,
+     * without decoding the name if possible.
+     *
+     * @param other the name to compare to
+     * @return true if the names are equal
+     */
+    public boolean nameEquals(String other) {
+        if (name != null) {
+            return name.equals(other);
+        }
+        int length = other.length();
+        if (length != nameLength) {
+            // a name with multi-byte characters can still be equal
+            return length < nameLength && getName().equals(other);
+        }
+        for (int i = 0; i < length; i++) {
+            char c = other.charAt(i);
+            if (c >= 0x80) {
+                return getName().equals(other);
+            }
+            if (nameBytes[i] != (byte) c) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Read the header of a list payload.
+     *
+     * @return the number of elements
+     * @throws IOException if an I/O error occurs
+     * @see #getListType()
+     */
+    public int readListHeader() throws IOException {
+        listType = is.readByte();
+        return is.readInt();
+    }
+
+    /**
+     * Get the element type of the list whose header was read last.
+     *
+     * @return the element type
+     */
+    public int getListType() {
+        return listType;
+    }
+
+    public byte readByte() throws IOException {
+        return is.readByte();
+    }
+
+    public short readShort() throws IOException {
+        return is.readShort();
+    }
+
+    public int readInt() throws IOException {
+        return is.readInt();
+    }
+
+    public long readLong() throws IOException {
+        return is.readLong();
+    }
+
+    public float readFloat() throws IOException {
+        return is.readFloat();
+    }
+
+    public double readDouble() throws IOException {
+        return is.readDouble();
+    }
+
+    /**
+     * Read a string payload.
+     *
+     * @return the string
+     * @throws IOException if an I/O error occurs
+     */
+    public String readString() throws IOException {
+        int length = is.readUnsignedShort();
+        byte[] bytes = new byte[length];
+        is.readFully(bytes);
+        return new String(bytes, NBTConstants.CHARSET);
+    }
+
+    /**
+     * Read a byte array payload.
+     *
+     * @return the array
+     * @throws IOException if an I/O error occurs
+     */
+    public byte[] readByteArray() throws IOException {
+        byte[] bytes = new byte[is.readInt()];
+        is.readFully(bytes);
+        return bytes;
+    }
+
+    /**
+     * Read an int array payload.
+     *
+     * @return the array
+     * @throws IOException if an I/O error occurs
+     */
+    public int[] readIntArray() throws IOException {
+        int[] data = new int[is.readInt()];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = is.readInt();
+        }
+        return data;
+    }
+
+    /**
+     * Read a long array payload.
+     *
+     * @return the array
+     * @throws IOException if an I/O error occurs
+     */
+    public long[] readLongArray() throws IOException {
+        long[] data = new long[is.readInt()];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = is.readLong();
+        }
+        return data;
+    }
+
+    /**
+     * Skip the payload of a tag.
+     *
+     * @param type the type of the tag
+     * @throws IOException if an I/O error occurs
+     */
+    public void skipPayload(int type) throws IOException {
+        switch (type) {
+        case NBTConstants.TYPE_END:
+            break;
+        case NBTConstants.TYPE_BYTE:
+            skip(1);
+            break;
+        case NBTConstants.TYPE_SHORT:
+            skip(2);
+            break;
+        case NBTConstants.TYPE_INT:
+        case NBTConstants.TYPE_FLOAT:
+            skip(4);
+            break;
+        case NBTConstants.TYPE_LONG:
+        case NBTConstants.TYPE_DOUBLE:
+            skip(8);
+            break;
+        case NBTConstants.TYPE_BYTE_ARRAY:
+            skip(is.readInt());
+            break;
+        case NBTConstants.TYPE_STRING:
+            skip(is.readUnsignedShort());
+            break;
+        case NBTConstants.TYPE_LIST:
+            int childType = is.readByte();
+            int length = is.readInt();
+            long elementSize = getFixedSize(childType);
+            if (elementSize >= 0) {
+                skip(elementSize * length);
+            } else {
+                for (int i = 0; i < length; i++) {
+                    skipPayload(childType);
+                }
+            }
+            break;
+        case NBTConstants.TYPE_COMPOUND:
+            int entryType;
+            while ((entryType = readTagHeader()) != NBTConstants.TYPE_END) {
+                skipPayload(entryType);
+            }
+            break;
+        case NBTConstants.TYPE_INT_ARRAY:
+            skip(4L * is.readInt());
+            break;
+        case NBTConstants.TYPE_LONG_ARRAY:
+            skip(8L * is.readInt());
+            break;
+        default:
+            throw new IOException("Invalid tag type: " + type + ".");
+        }
+    }
+
+    private static long getFixedSize(int type) {
+        switch (type) {
+        case NBTConstants.TYPE_END:
+            return 0;
+        case NBTConstants.TYPE_BYTE:
+            return 1;
+        case NBTConstants.TYPE_SHORT:
+            return 2;
+        case NBTConstants.TYPE_INT:
+        case NBTConstants.TYPE_FLOAT:
+            return 4;
+        case NBTConstants.TYPE_LONG:
+        case NBTConstants.TYPE_DOUBLE:
+            return 8;
+        default:
+            return -1;
+        }
+    }
+
+    private void skip(long bytes) throws IOException {
+        long remaining = bytes;
+        while (remaining > 0) {
+            int skipped = is.skipBytes((int) Math.min(remaining, Integer.MAX_VALUE));
+            if (skipped <= 0) {
+                // skipBytes gives up at the end of the stream, or if the stream can't skip
+                if (is.read() < 0) {
+                    throw new EOFException();
+                }
+                skipped = 1;
+            }
+            remaining -= skipped;
+        }
+    }
+
+    /**
+     * Read a whole named tag.
+     *
+     * @return the tag
+     * @throws IOException if an I/O error occurs
+     */
+    public NamedTag readNamedTag() throws IOException {
+        return readNamedTag(NBTFilter.ALL);
+    }
+
+    /**
+     * Read a named tag, leaving out the tags the filter doesn't accept.
+     *
+     * @param filter the filter
+     * @return the tag
+     * @throws IOException if an I/O error occurs
+     */
+    public NamedTag readNamedTag(NBTFilter filter) throws IOException {
+        checkNotNull(filter);
+        int type = readTagHeader();
+        String tagName = getName();
+        return new NamedTag(tagName, readPayload(type, 0, filter, new ArrayList<>()));
+    }
+
+    /**
+     * Read the payload of a tag as a {@link Tag}.
+     *
+     * @param type the type of the tag
+     * @return the tag
+     * @throws IOException if an I/O error occurs
+     */
+    public Tag readPayload(int type) throws IOException {
+        return readPayload(type, 1, NBTFilter.ALL, new ArrayList<>());
+    }
+
+    private Tag readPayload(int type, int depth, NBTFilter filter, List<String> path) throws IOException {
+        switch (type) {
+        case NBTConstants.TYPE_END:
+            if (depth == 0) {
+                throw new IOException(
+                        "TAG_End found without a TAG_Compound/TAG_List tag preceding it.");
+            } else {
+                return new EndTag();
+            }
+        case NBTConstants.TYPE_BYTE:
+            return new ByteTag(is.readByte());
+        case NBTConstants.TYPE_SHORT:
+            return new ShortTag(is.readShort());
+        case NBTConstants.TYPE_INT:
+            return new IntTag(is.readInt());
+        case NBTConstants.TYPE_LONG:
+            return new LongTag(is.readLong());
+        case NBTConstants.TYPE_FLOAT:
+            return new FloatTag(is.readFloat());
+        case NBTConstants.TYPE_DOUBLE:
+            return new DoubleTag(is.readDouble());
+        case NBTConstants.TYPE_BYTE_ARRAY:
+            return new ByteArrayTag(readByteArray());
+        case NBTConstants.TYPE_STRING:
+            return new StringTag(readString());
+        case NBTConstants.TYPE_LIST:
+            int length = readListHeader();
+            int childType = listType;
+
+            List<Tag> tagList = new ArrayList<>(Math.min(length, 1024));
+            for (int i = 0; i < length; ++i) {
+                Tag tag = readPayload(childType, depth + 1, filter, path);
+                if (tag instanceof EndTag) {
+                    throw new IOException("TAG_End not permitted in a list.");
+                }
+                tagList.add(tag);
+            }
+
+            return new ListTag(NBTUtils.getTypeClass(childType), tagList);
+        case NBTConstants.TYPE_COMPOUND:
+            Map<String, Tag> tagMap = new HashMap<>();
+            int entryType;
+            while ((entryType = readTagHeader()) != NBTConstants.TYPE_END) {
+                String entryName = getName();
+                if (filter != NBTFilter.ALL && !filter.shouldRead(path, entryName)) {
+                    skipPayload(entryType);
+                    continue;
+                }
+                path.add(entryName);
+                tagMap.put(entryName, readPayload(entryType, depth + 1, filter, path));
+                path.remove(path.size() - 1);
+            }
+
+            return new CompoundTag(tagMap);
+        case NBTConstants.TYPE_INT_ARRAY:
+            return new IntArrayTag(readIntArray());
+        case NBTConstants.TYPE_LONG_ARRAY:
+            return new LongArrayTag(readLongArray());
+        default:
+            throw new IOException("Invalid tag type: " + type + ".");
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        is.close();
+    }
+
+}
@@ -0,0 +1,61 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.jnbt;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Skips tags by their path, using a tree of the paths to skip.
+ */
+final class SkippingNBTFilter implements NBTFilter {
+
+    private final Node root = new Node();
+
+    SkippingNBTFilter(String... paths) {
+        for (String path : paths) {
+            Node node = root;
+            for (String part : path.split("\\.")) {
+                node = node.children.computeIfAbsent(part, k -> new Node());
+            }
+            node.skip = true;
+        }
+    }
+
+    @Override
+    public boolean shouldRead(List<String> path, String name) {
+        Node node = root;
+        for (String part : path) {
+            node = node.children.get(part);
+            if (node == null) {
+                return true;
+            }
+        }
+        Node child = node.children.get(name);
+        return child == null || !child.skip;
+    }
+
+    private static final class Node {
+        private final Map<String, Node> children = new HashMap<>();
+        private boolean skip;
+    }
+
+}
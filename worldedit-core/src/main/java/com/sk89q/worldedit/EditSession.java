@@ -30,7 +30,7 @@
 import com.sk89q.worldedit.extent.MaskingExtent;
 import com.sk89q.worldedit.extent.NullExtent;
 import com.sk89q.worldedit.extent.buffer.ForgetfulExtentBuffer;
-import com.sk89q.worldedit.extent.cache.LastAccessExtentCache;
+import com.sk89q.worldedit.extent.cache.SectionReadCache;
 import com.sk89q.worldedit.extent.inventory.BlockBag;
 import com.sk89q.worldedit.extent.inventory.BlockBagExtent;
 import com.sk89q.worldedit.extent.reorder.ChunkBatchingExtent;
@@ -67,6 +67,8 @@
 import com.sk89q.worldedit.function.operation.Operation;
 import com.sk89q.worldedit.function.operation.OperationQueue;
 import com.sk89q.worldedit.function.operation.Operations;
+import com.sk89q.worldedit.function.operation.RunContext;
+import com.sk89q.worldedit.function.operation.TimedRunContext;
 import com.sk89q.worldedit.function.pattern.Pattern;
 import com.sk89q.worldedit.function.pattern.WaterloggedRemover;
 import com.sk89q.worldedit.function.util.RegionOffset;
@@ -74,11 +76,13 @@
 import com.sk89q.worldedit.function.visitor.FlatRegionVisitor;
 import com.sk89q.worldedit.function.visitor.LayerVisitor;
 import com.sk89q.worldedit.function.visitor.NonRisingVisitor;
+import com.sk89q.worldedit.function.visitor.ParallelRegionVisitor;
 import com.sk89q.worldedit.function.visitor.RecursiveVisitor;
 import com.sk89q.worldedit.function.visitor.RegionVisitor;
 import com.sk89q.worldedit.history.UndoContext;
-import com.sk89q.worldedit.history.changeset.BlockOptimizedHistory;
 import com.sk89q.worldedit.history.changeset.ChangeSet;
+import com.sk89q.worldedit.history.changeset.SpillingBlockHistory;
+import com.sk89q.worldedit.internal.expression.EvaluationException;
 import com.sk89q.worldedit.internal.expression.Expression;
 import com.sk89q.worldedit.internal.expression.ExpressionException;
 import com.sk89q.worldedit.internal.expression.ExpressionTimeoutException;
@@ -108,6 +112,9 @@
 import com.sk89q.worldedit.util.TreeGenerator;
 import com.sk89q.worldedit.util.collection.DoubleArrayList;
 import com.sk89q.worldedit.util.eventbus.EventBus;
+import com.sk89q.worldedit.util.task.Task;
+import com.sk89q.worldedit.util.task.progress.Progress;
+import com.sk89q.worldedit.util.task.progress.ProgressObservable;
 import com.sk89q.worldedit.world.NullWorld;
 import com.sk89q.worldedit.world.World;
 import com.sk89q.worldedit.world.biome.BiomeType;
@@ -122,6 +129,8 @@
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nullable;
+import java.io.Closeable;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -129,6 +138,7 @@
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -149,6 +159,11 @@ public class EditSession implements Extent, AutoCloseable {
 
     private static final Logger log = LoggerFactory.getLogger(EditSession.class);
 
+    /**
+     * How many positions {@link #deformRegion(Region, Vector3, Vector3, Expression, int)} evaluates at once.
+     */
+    private static final int DEFORM_BATCH_SIZE = 4096;
+
     /**
      * Used by {@link EditSession#setBlock(BlockVector3, BlockStateHolder, Stage)} to
      * determine which {@link Extent}s should be bypassed.
@@ -184,9 +199,12 @@ public String getDisplayName() {
 
     @SuppressWarnings("ProtectedField")
     protected final World world;
-    private final ChangeSet changeSet = new BlockOptimizedHistory();
+    private final ChangeSet changeSet = new SpillingBlockHistory(
+        WorldEdit.getInstance().getConfiguration().historyMemoryLimit * 1024L * 1024L);
 
     private @Nullable SideEffectExtent sideEffectExtent;
+    private @Nullable SectionReadCache readCache;
+    private @Nullable ChunkLoadingExtent chunkLoadingExtent;
     private final SurvivalModeExtent survivalExtent;
     private @Nullable ChunkBatchingExtent chunkBatchingExtent;
     private final BlockBagExtent blockBagExtent;
@@ -201,6 +219,9 @@ public String getDisplayName() {
 
     private ReorderMode reorderMode = ReorderMode.MULTI_STAGE;
 
+    private @Nullable Task<Operation> lastScheduled;
+    private volatile boolean remembered;
+
     private Mask oldMask;
 
     /**
@@ -234,8 +255,9 @@ public String getDisplayName() {
             }
             extent = survivalExtent = new SurvivalModeExtent(extent, world);
             extent = new BlockQuirkExtent(extent, world);
-            extent = new ChunkLoadingExtent(extent, world);
-            extent = new LastAccessExtentCache(extent);
+            extent = chunkLoadingExtent = new ChunkLoadingExtent(extent, world);
+            // full block reads, such as the previous block read for the history, bypass the cache
+            extent = readCache = new SectionReadCache(extent);
             extent = blockBagExtent = new BlockBagExtent(extent, blockBag);
             extent = wrapExtent(extent, eventBus, event, Stage.BEFORE_CHANGE);
             this.bypassReorderHistory = new DataValidatorExtent(extent, world);
@@ -618,14 +640,29 @@ public boolean setBiome(BlockVector2 position, BiomeType biome) {
 
     @Override
     public BlockState getBlock(BlockVector3 position) {
+        if (readCache != null) {
+            return readCache.getBlock(position);
+        }
         return world.getBlock(position);
     }
 
     @Override
     public BaseBlock getFullBlock(BlockVector3 position) {
+        if (readCache != null) {
+            return readCache.getFullBlock(position);
+        }
         return world.getFullBlock(position);
     }
 
+    @Override
+    public void getBlockStateIds(BlockVector3 min, BlockVector3 max, int[] ids) {
+        if (readCache != null) {
+            readCache.getBlockStateIds(min, max, ids);
+        } else {
+            world.getBlockStateIds(min, max, ids);
+        }
+    }
+
     /**
      * Returns the highest solid 'terrain' block.
      *
@@ -815,10 +852,44 @@ public List<? extends Entity> getEntities() {
 
     /**
      * Closing an EditSession {@linkplain #flushSession() flushes its buffers}.
+     *
+     * <p>If the session was not {@linkplain LocalSession#remember(EditSession)
+     * remembered} before, its history is released too, so it should be
+     * remembered before it is closed.</p>
      */
     @Override
     public void close() {
+        if (hasPendingOperations()) {
+            lastScheduled = WorldEdit.getInstance().getOperationScheduler()
+                .submit(new DeferredCommit(true), "Commit", this);
+            return;
+        }
         flushSession();
+        if (!remembered) {
+            releaseHistory();
+        }
+    }
+
+    /**
+     * Mark this session as kept in an undo history, which then releases its
+     * history when it is forgotten.
+     */
+    void markRemembered() {
+        remembered = true;
+    }
+
+    /**
+     * Release the resources held by the history of this session, such as
+     * temporary files. The history is empty afterwards.
+     */
+    void releaseHistory() {
+        if (changeSet instanceof Closeable) {
+            try {
+                ((Closeable) changeSet).close();
+            } catch (IOException e) {
+                log.warn("Failed to release edit session history", e);
+            }
+        }
     }
 
     /**
@@ -826,7 +897,132 @@ public void close() {
      * and that it should apply them to the world.
      */
     public void flushSession() {
+        if (hasPendingOperations()) {
+            // commit once the queued operations have placed their blocks
+            lastScheduled = WorldEdit.getInstance().getOperationScheduler()
+                .submit(new DeferredCommit(false), "Commit", this);
+            return;
+        }
         Operations.completeBlindly(commit());
+        // side effects, e.g. neighbour updates, changed the world below the cache
+        clearReadCache();
+    }
+
+    private void clearReadCache() {
+        if (readCache != null) {
+            readCache.clear();
+        }
+    }
+
+    /**
+     * Check whether operations of this session are still queued on the
+     * {@link com.sk89q.worldedit.function.operation.OperationScheduler}.
+     *
+     * @return true if there are unfinished operations
+     */
+    public boolean hasPendingOperations() {
+        return lastScheduled != null && !lastScheduled.isDone();
+    }
+
+    /**
+     * Complete an operation that changes blocks, spreading it over the
+     * following ticks if {@link LocalConfiguration#spreadEdits} is enabled.
+     *
+     * <p>When spread, the operation first runs for one tick budget, and
+     * whatever is left is queued on the scheduler behind this session's
+     * earlier operations. Counts read from the operation afterwards then
+     * only cover the blocks changed so far.</p>
+     *
+     * @param operation the operation
+     * @param name the name of the queued task
+     * @throws MaxChangedBlocksException thrown if too many blocks are changed
+     */
+    private void completeSpread(Operation operation, String name) throws MaxChangedBlocksException {
+        LocalConfiguration config = WorldEdit.getInstance().getConfiguration();
+        if (!config.spreadEdits) {
+            Operations.completeLegacy(operation);
+            return;
+        }
+        Operation remaining = operation;
+        if (!hasPendingOperations()) {
+            RunContext run = new TimedRunContext(config.operationTickBudget, TimeUnit.MILLISECONDS);
+            while (remaining != null && run.shouldContinue()) {
+                try {
+                    remaining = remaining.resume(run);
+                } catch (MaxChangedBlocksException e) {
+                    throw e;
+                } catch (WorldEditException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        }
+        if (remaining != null) {
+            lastScheduled = WorldEdit.getInstance().getOperationScheduler()
+                .submit(new CacheClearingOperation(remaining), name, this);
+        }
+    }
+
+    private final class DeferredCommit implements Operation {
+
+        private final boolean closing;
+
+        private DeferredCommit(boolean closing) {
+            this.closing = closing;
+        }
+
+        @Override
+        public Operation resume(RunContext run) throws WorldEditException {
+            Operation commit = commit();
+            clearReadCache();
+            // the queued operations are done, so nothing is added to the history any more
+            if (closing && !remembered) {
+                releaseHistory();
+            }
+            return commit == null ? null : new CacheClearingOperation(commit);
+        }
+
+        @Override
+        public void cancel() {
+        }
+
+    }
+
+    /**
+     * Clears the read cache around every resume of a queued operation, since
+     * the world can change between ticks.
+     */
+    private final class CacheClearingOperation implements Operation, ProgressObservable {
+
+        private Operation operation;
+
+        private CacheClearingOperation(Operation operation) {
+            this.operation = operation;
+        }
+
+        @Override
+        public Operation resume(RunContext run) throws WorldEditException {
+            clearReadCache();
+            try {
+                operation = operation.resume(run);
+            } finally {
+                clearReadCache();
+            }
+            return operation == null ? null : this;
+        }
+
+        @Override
+        public void cancel() {
+            operation.cancel();
+        }
+
+        @Override
+        public Progress getProgress() {
+            if (operation instanceof ProgressObservable) {
+                return ((ProgressObservable) operation).getProgress();
+            }
+            return Progress.indeterminate();
+        }
+
     }
 
     @Override
@@ -854,6 +1050,12 @@ public int countBlocks(Region region, Set<BaseBlock> searchBlocks) {
      * @return the number of blocks that matched the mask
      */
     public int countBlocks(Region region, Mask searchMask) {
+        if (WorldEdit.getInstance().getConfiguration().parallelWorldReads && Masks.isThreadSafe(searchMask)) {
+            Counter count = new Counter(searchMask);
+            Operations.completeBlindly(new ParallelRegionVisitor(region, count));
+            return count.getCount();
+        }
+
         Counter count = new Counter();
         RegionMaskingFilter filter = new RegionMaskingFilter(searchMask, count);
         RegionVisitor visitor = new RegionVisitor(region, filter);
@@ -998,6 +1200,10 @@ public <B extends BlockStateHolder<B>> int setBlocks(Region region, B block) thr
     /**
      * Sets all the blocks inside a region to a given pattern.
      *
+     * <p>With {@link LocalConfiguration#spreadEdits} enabled, the change
+     * may continue over the following ticks, and the returned count only
+     * covers the blocks changed before this method returned.</p>
+     *
      * @param region the region
      * @param pattern the pattern that provides the replacement block
      * @return number of blocks affected
@@ -1007,9 +1213,10 @@ public int setBlocks(Region region, Pattern pattern) throws MaxChangedBlocksExce
         checkNotNull(region);
         checkNotNull(pattern);
 
+        loadChunks(region);
         BlockReplace replace = new BlockReplace(this, pattern);
         RegionVisitor visitor = new RegionVisitor(region, replace);
-        Operations.completeLegacy(visitor);
+        completeSpread(visitor, "Set blocks");
         return visitor.getAffected();
     }
 
@@ -1046,6 +1253,10 @@ public int replaceBlocks(Region region, Set<BaseBlock> filter, Pattern pattern)
      * Replaces all the blocks matching a given mask, within a given region, to a block
      * returned by a given pattern.
      *
+     * <p>With {@link LocalConfiguration#spreadEdits} enabled, the change
+     * may continue over the following ticks, and the returned count only
+     * covers the blocks changed before this method returned.</p>
+     *
      * @param region the region to replace the blocks within
      * @param mask the mask that blocks must match
      * @param pattern the pattern that provides the new blocks
@@ -1057,13 +1268,34 @@ public int replaceBlocks(Region region, Mask mask, Pattern pattern) throws MaxCh
         checkNotNull(mask);
         checkNotNull(pattern);
 
+        loadChunks(region);
+        // a single block is immutable, so every shard can share it as the pattern
+        if (pattern instanceof BlockStateHolder && WorldEdit.getInstance().getConfiguration().parallelWorldReads
+                && Masks.isThreadSafe(mask)) {
+            ParallelRegionVisitor visitor = ParallelRegionVisitor.buffered(region, this,
+                buffer -> new RegionMaskingFilter(mask, new BlockReplace(buffer, pattern)));
+            completeSpread(visitor, "Replace blocks");
+            return visitor.getAffected();
+        }
+
         BlockReplace replace = new BlockReplace(this, pattern);
         RegionMaskingFilter filter = new RegionMaskingFilter(mask, replace);
         RegionVisitor visitor = new RegionVisitor(region, filter);
-        Operations.completeLegacy(visitor);
+        completeSpread(visitor, "Replace blocks");
         return visitor.getAffected();
     }
 
+    /**
+     * Load the chunks of a region before an operation writes to all of it.
+     *
+     * @param region the region
+     */
+    private void loadChunks(Region region) {
+        if (chunkLoadingExtent != null) {
+            chunkLoadingExtent.loadChunks(region);
+        }
+    }
+
     /**
      * Sets the blocks at the center of the given region to the given pattern.
      * If the center sits between two blocks on a certain axis, then two blocks
@@ -2031,8 +2263,11 @@ public int makeForest(Region region, double density, TreeGenerator.TreeType tree
      */
     public List<Countable<BlockState>> getBlockDistribution(Region region, boolean separateStates) {
         BlockDistributionCounter count = new BlockDistributionCounter(this, separateStates);
-        RegionVisitor visitor = new RegionVisitor(region, count);
-        Operations.completeBlindly(visitor);
+        if (WorldEdit.getInstance().getConfiguration().parallelWorldReads) {
+            Operations.completeBlindly(new ParallelRegionVisitor(region, count));
+        } else {
+            count.countRegion(region);
+        }
         return count.getDistribution();
     }
 
@@ -2086,12 +2321,8 @@ public int makeShape(final Region region, final Vector3 zero, final Vector3 unit
                          final Pattern pattern, final Expression expression, final boolean hollow, final int timeout)
             throws ExpressionException, MaxChangedBlocksException {
 
-        expression.getSlots().getVariable("x")
-            .orElseThrow(IllegalStateException::new);
-        expression.getSlots().getVariable("y")
-            .orElseThrow(IllegalStateException::new);
-        expression.getSlots().getVariable("z")
-            .orElseThrow(IllegalStateException::new);
+        // the coordinates are passed by position, but the expression must still declare them
+        requireVariables(expression, "x", "y", "z");
 
         final Variable typeVariable = expression.getSlots().getVariable("type")
             .orElseThrow(IllegalStateException::new);
@@ -2102,6 +2333,7 @@ public int makeShape(final Region region, final Vector3 zero, final Vector3 unit
         expression.setEnvironment(environment);
 
         final int[] timedOut = {0};
+        final double[] values = new double[5];
         final ArbitraryShape shape = new ArbitraryShape(region) {
             @Override
             protected BaseBlock getMaterial(int x, int y, int z, BaseBlock defaultMaterial) {
@@ -2119,7 +2351,12 @@ protected BaseBlock getMaterial(int x, int y, int z, BaseBlock defaultMaterial)
                             dataVar = legacy[1];
                         }
                     }
-                    if (expression.evaluate(new double[]{scaled.getX(), scaled.getY(), scaled.getZ(), typeVar, dataVar}, timeout) <= 0) {
+                    values[0] = scaled.getX();
+                    values[1] = scaled.getY();
+                    values[2] = scaled.getZ();
+                    values[3] = typeVar;
+                    values[4] = dataVar;
+                    if (expression.evaluate(values, timeout) <= 0) {
                         return null;
                     }
                     int newType = (int) typeVariable.getValue();
@@ -2198,33 +2435,30 @@ public int deformRegion(final Region region, final Vector3 zero, final Vector3 u
      */
     public int deformRegion(final Region region, final Vector3 zero, final Vector3 unit, final Expression expression,
                             final int timeout) throws ExpressionException, MaxChangedBlocksException {
-        final Variable x = expression.getSlots().getVariable("x")
-            .orElseThrow(IllegalStateException::new);
-        final Variable y = expression.getSlots().getVariable("y")
-            .orElseThrow(IllegalStateException::new);
-        final Variable z = expression.getSlots().getVariable("z")
-            .orElseThrow(IllegalStateException::new);
+        // the coordinates are passed by position, but the expression must still declare them
+        requireVariables(expression, "x", "y", "z");
 
         final WorldEditExpressionEnvironment environment = new WorldEditExpressionEnvironment(this, unit, zero);
         expression.setEnvironment(environment);
 
         final DoubleArrayList<BlockVector3, BaseBlock> queue = new DoubleArrayList<>(false);
 
+        final BlockVector3[] positions = new BlockVector3[DEFORM_BATCH_SIZE];
+        final double[][] coordinates = new double[3][DEFORM_BATCH_SIZE];
+        final double[] results = new double[DEFORM_BATCH_SIZE];
+        int count = 0;
         for (BlockVector3 position : region) {
             // offset, scale
-            final Vector3 scaled = position.toVector3().subtract(zero).divide(unit);
-
-            // transform
-            expression.evaluate(new double[]{scaled.getX(), scaled.getY(), scaled.getZ()}, timeout);
-
-            final BlockVector3 sourcePosition = environment.toWorld(x.getValue(), y.getValue(), z.getValue());
-
-            // read block from world
-            final BaseBlock material = world.getFullBlock(sourcePosition);
-
-            // queue operation
-            queue.put(position, material);
+            positions[count] = position;
+            coordinates[0][count] = (position.getX() - zero.getX()) / unit.getX();
+            coordinates[1][count] = (position.getY() - zero.getY()) / unit.getY();
+            coordinates[2][count] = (position.getZ() - zero.getZ()) / unit.getZ();
+            if (++count == DEFORM_BATCH_SIZE) {
+                queueDeformed(expression, environment, positions, coordinates, results, count, timeout, queue);
+                count = 0;
+            }
         }
+        queueDeformed(expression, environment, positions, coordinates, results, count, timeout, queue);
 
         int affected = 0;
         for (Map.Entry<BlockVector3, BaseBlock> entry : queue) {
@@ -2240,6 +2474,23 @@ public int deformRegion(final Region region, final Vector3 zero, final Vector3 u
         return affected;
     }
 
+    private void queueDeformed(Expression expression, WorldEditExpressionEnvironment environment,
+                               BlockVector3[] positions, double[][] coordinates, double[] results, int count,
+                               int timeout, DoubleArrayList<BlockVector3, BaseBlock> queue) throws EvaluationException {
+        // transform
+        expression.evaluateBatch(coordinates, results, count, timeout);
+
+        for (int i = 0; i < count; ++i) {
+            final BlockVector3 sourcePosition = environment.toWorld(coordinates[0][i], coordinates[1][i], coordinates[2][i]);
+
+            // read block from world
+            final BaseBlock material = world.getFullBlock(sourcePosition);
+
+            // queue operation
+            queue.put(positions[i], material);
+        }
+    }
+
     /**
      * Hollows out the region (Semi-well-defined for non-cuboid selections).
      *
@@ -2450,6 +2701,13 @@ public int drawSpline(Pattern pattern, List<BlockVector3> nodevectors, double te
         return setBlocks(vset, pattern);
     }
 
+    private static void requireVariables(Expression expression, String... names) {
+        for (String name : names) {
+            expression.getSlots().getVariable(name)
+                .orElseThrow(IllegalStateException::new);
+        }
+    }
+
     private static double hypot(double... pars) {
         double sum = 0;
         for (double d : pars) {
@@ -80,6 +80,11 @@ public abstract class LocalConfiguration {
     public int navigationWandMaxDistance = 50;
     public int scriptTimeout = 3000;
     public int calculationTimeout = 100;
+    public int historyMemoryLimit = 64;
+    public int operationTickBudget = 10;
+    public boolean parallelWorldReads = false;
+    public boolean spreadRelighting = true;
+    public boolean spreadEdits = false;
     public int maxCalculationTimeout = 300;
     public Set<String> allowedDataCycleBlocks = new HashSet<>();
     public String saveDir = "schematics";
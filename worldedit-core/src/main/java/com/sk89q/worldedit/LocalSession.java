@@ -94,6 +94,7 @@ public class LocalSession {
     private transient Map<ItemType, Tool> tools = new HashMap<>();
     private transient int maxBlocksChanged = -1;
     private transient int maxTimeoutTime;
+    private transient @Nullable Long randomSeed;
     private transient boolean useInventory;
     private transient com.sk89q.worldedit.world.snapshot.Snapshot snapshot;
     private transient Snapshot snapshotExperimental;
@@ -203,6 +204,7 @@ public void setTimezone(ZoneId timezone) {
      * Clear history.
      */
     public void clearHistory() {
+        history.forEach(EditSession::releaseHistory);
         history.clear();
         historyPointer = 0;
     }
@@ -221,11 +223,12 @@ public void remember(EditSession editSession) {
 
         // Destroy any sessions after this undo point
         while (historyPointer < history.size()) {
-            history.remove(historyPointer);
+            history.remove(historyPointer).releaseHistory();
         }
         history.add(editSession);
+        editSession.markRemembered();
         while (history.size() > MAX_HISTORY_SIZE) {
-            history.remove(0);
+            history.remove(0).releaseHistory();
         }
         historyPointer = history.size();
     }
@@ -471,6 +474,25 @@ public void setTimeout(int timeout) {
         this.maxTimeoutTime = timeout;
     }
 
+    /**
+     * Get the seed that random patterns use, so that the same pattern places
+     * the same blocks every time.
+     *
+     * @return the seed, or null to pick differently every time
+     */
+    public @Nullable Long getRandomSeed() {
+        return randomSeed;
+    }
+
+    /**
+     * Set the seed that random patterns use.
+     *
+     * @param randomSeed the seed, or null to pick differently every time
+     */
+    public void setRandomSeed(@Nullable Long randomSeed) {
+        this.randomSeed = randomSeed;
+    }
+
     /**
      * Checks whether the super pick axe is enabled.
      *
@@ -42,6 +42,7 @@
 import com.sk89q.worldedit.extension.platform.PlatformManager;
 import com.sk89q.worldedit.extent.inventory.BlockBag;
 import com.sk89q.worldedit.function.mask.Mask;
+import com.sk89q.worldedit.function.operation.OperationScheduler;
 import com.sk89q.worldedit.function.pattern.Pattern;
 import com.sk89q.worldedit.internal.expression.invoke.ReturnException;
 import com.sk89q.worldedit.math.BlockVector3;
@@ -117,6 +118,7 @@ public final class WorldEdit {
     private final ListeningExecutorService executorService = MoreExecutors.listeningDecorator(
             EvenMoreExecutors.newBoundedCachedThreadPool(0, 1, 20, "WorldEdit Task Executor - %s"));
     private final Supervisor supervisor = new SimpleSupervisor();
+    private final OperationScheduler operationScheduler = new OperationScheduler(this);
     private final TranslationManager translationManager = new TranslationManager(this);
 
     private final BlockFactory blockFactory = new BlockFactory(this);
@@ -175,6 +177,15 @@ public Supervisor getSupervisor() {
         return supervisor;
     }
 
+    /**
+     * Get the operation scheduler. Internal, not for API use.
+     *
+     * @return the operation scheduler
+     */
+    public OperationScheduler getOperationScheduler() {
+        return operationScheduler;
+    }
+
     /**
      * Get the executor service. Internal, not for API use.
      *
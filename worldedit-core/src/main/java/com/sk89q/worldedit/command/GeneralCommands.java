@@ -33,6 +33,7 @@
 import com.sk89q.worldedit.extension.platform.Actor;
 import com.sk89q.worldedit.extension.platform.Capability;
 import com.sk89q.worldedit.function.mask.Mask;
+import com.sk89q.worldedit.function.mask.MaskOptimizer;
 import com.sk89q.worldedit.util.SideEffect;
 import com.sk89q.worldedit.util.SideEffectSet;
 import com.sk89q.worldedit.util.formatting.component.PaginationBox;
@@ -131,6 +132,23 @@ public void timeout(Actor actor, LocalSession session,
         actor.printInfo(component);
     }
 
+    @Command(
+        name = "/seed",
+        desc = "Set the seed that random patterns use"
+    )
+    @CommandPermissions("worldedit.seed")
+    public void seed(Actor actor, LocalSession session,
+                     @Arg(desc = "The seed to use, or nothing to pick differently every time", def = "")
+                         Integer seed) {
+        if (seed == null) {
+            session.setRandomSeed(null);
+            actor.printInfo(TranslatableComponent.of("worldedit.seed.cleared"));
+        } else {
+            session.setRandomSeed((long) seed);
+            actor.printInfo(TranslatableComponent.of("worldedit.seed.set", TextComponent.of(seed)));
+        }
+    }
+
     @Command(
         name = "/fast",
         desc = "Toggle fast mode side effects"
@@ -292,6 +310,21 @@ public void gmask(Actor actor, LocalSession session,
         }
     }
 
+    @Command(
+        name = "maskinfo",
+        aliases = {"/maskinfo"},
+        desc = "Show how a mask is tested after it is optimized"
+    )
+    @CommandPermissions("worldedit.mask-info")
+    public void maskInfo(Actor actor,
+                         @Arg(desc = "The mask to show")
+                             Mask mask) {
+        actor.printInfo(TranslatableComponent.of("worldedit.maskinfo.header"));
+        for (String line : MaskOptimizer.describe(mask)) {
+            actor.print(TextComponent.of(line, TextColor.GRAY));
+        }
+    }
+
     @Command(
         name = "toggleplace",
         aliases = {"/toggleplace"},
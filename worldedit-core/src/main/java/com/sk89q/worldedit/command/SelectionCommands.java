@@ -37,10 +37,11 @@
 import com.sk89q.worldedit.extension.platform.Locatable;
 import com.sk89q.worldedit.extension.platform.permission.ActorSelectorLimits;
 import com.sk89q.worldedit.extent.clipboard.Clipboard;
+import com.sk89q.worldedit.extent.clipboard.SectionedClipboard;
 import com.sk89q.worldedit.function.block.BlockDistributionCounter;
 import com.sk89q.worldedit.function.mask.Mask;
 import com.sk89q.worldedit.function.operation.Operations;
-import com.sk89q.worldedit.function.visitor.RegionVisitor;
+import com.sk89q.worldedit.function.visitor.ParallelRegionVisitor;
 import com.sk89q.worldedit.internal.annotation.Chunk3d;
 import com.sk89q.worldedit.internal.annotation.Direction;
 import com.sk89q.worldedit.internal.annotation.MultiDirection;
@@ -465,6 +466,13 @@ public void size(Actor actor, World world, LocalSession session,
 
             BlockVector3 origin = clipboard.getOrigin();
             actor.printInfo(TranslatableComponent.of("worldedit.size.offset", TextComponent.of(origin.toString())));
+
+            if (clipboard instanceof SectionedClipboard) {
+                long memory = ((SectionedClipboard) clipboard).estimateBlockMemoryUsage();
+                actor.printInfo(TranslatableComponent.of("worldedit.size.memory",
+                    TextComponent.of(memory),
+                    TextComponent.of(String.format("%.2f", (double) memory / region.getArea()))));
+            }
         } else {
             region = session.getSelection(world);
 
@@ -514,7 +522,8 @@ public void distr(Actor actor, World world, LocalSession session,
             if (clipboardDistr) {
                 Clipboard clipboard = session.getClipboard().getClipboard(); // throws if missing
                 BlockDistributionCounter count = new BlockDistributionCounter(clipboard, separateStates);
-                RegionVisitor visitor = new RegionVisitor(clipboard.getRegion(), count);
+                // clipboards are safe to read from several threads
+                ParallelRegionVisitor visitor = new ParallelRegionVisitor(clipboard.getRegion(), count);
                 Operations.completeBlindly(visitor);
                 distribution = count.getDistribution();
             } else {
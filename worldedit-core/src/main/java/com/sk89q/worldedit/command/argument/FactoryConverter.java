@@ -117,6 +117,7 @@ public ConversionResult<T> convert(String argument, InjectedValueAccess context)
         }
         parserContext.setSession(session);
         parserContext.setRestricted(true);
+        parserContext.setRandomSeed(session.getRandomSeed());
 
         if (contextTweaker != null) {
             contextTweaker.accept(parserContext);
@@ -37,6 +37,7 @@
 import com.sk89q.worldedit.extension.input.ParserContext;
 import com.sk89q.worldedit.function.mask.Mask;
 import com.sk89q.worldedit.function.mask.MaskIntersection;
+import com.sk89q.worldedit.function.mask.MaskOptimizer;
 import com.sk89q.worldedit.internal.registry.AbstractFactory;
 import com.sk89q.worldedit.internal.registry.InputParser;
 
@@ -107,9 +108,9 @@ public Mask parseFromInput(String input, ParserContext context) throws InputPars
             case 0:
                 throw new NoMatchException("No match for '" + input + "'");
             case 1:
-                return masks.get(0);
+                return MaskOptimizer.optimize(masks.get(0));
             default:
-                return new MaskIntersection(masks);
+                return MaskOptimizer.optimize(new MaskIntersection(masks));
         }
     }
 
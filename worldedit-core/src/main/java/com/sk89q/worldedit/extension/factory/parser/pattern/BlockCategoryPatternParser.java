@@ -60,7 +60,8 @@ public Pattern parseFromInput(String input, ParserContext context) throws InputP
         if (category == null) {
             throw new InputParseException("Unknown block tag: " + tag);
         }
-        RandomPattern randomPattern = new RandomPattern();
+        Long seed = context.nextRandomSeed();
+        RandomPattern randomPattern = seed == null ? new RandomPattern() : new RandomPattern(seed);
 
         Set<BlockType> blocks = category.getAll();
         if (blocks.isEmpty()) {
@@ -60,13 +60,14 @@ public Stream<String> getSuggestions(String input) {
 
     @Override
     public Pattern parseFromInput(String input, ParserContext context) throws InputParseException {
-        RandomPattern randomPattern = new RandomPattern();
-
         String[] splits = input.split(",", -1);
         List<String> patterns = StringUtil.parseListInQuotes(splits, ',', '[', ']', true);
         if (patterns.size() == 1) {
             return null; // let a 'single'-pattern parser handle it
         }
+        // taken before the inner patterns are parsed, so that they get other seeds
+        Long seed = context.nextRandomSeed();
+        RandomPattern randomPattern = seed == null ? new RandomPattern() : new RandomPattern(seed);
         for (String token : patterns) {
             double chance;
             Pattern innerPattern;
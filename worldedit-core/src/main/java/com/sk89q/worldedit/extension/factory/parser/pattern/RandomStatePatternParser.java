@@ -61,7 +61,9 @@ public Pattern parseFromInput(String input, ParserContext context) throws InputP
             // they requested random with *, but didn't leave any states empty - simplify
             return block;
         } else if (block.toImmutableState() instanceof FuzzyBlockState) {
-            return new RandomStatePattern((FuzzyBlockState) block.toImmutableState());
+            FuzzyBlockState state = (FuzzyBlockState) block.toImmutableState();
+            Long seed = context.nextRandomSeed();
+            return seed == null ? new RandomStatePattern(state) : new RandomStatePattern(state, seed);
         } else {
             return null; // only should happen if parseLogic changes
         }
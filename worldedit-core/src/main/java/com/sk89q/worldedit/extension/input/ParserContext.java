@@ -23,6 +23,7 @@
 import com.sk89q.worldedit.extension.factory.MaskFactory;
 import com.sk89q.worldedit.extension.platform.Actor;
 import com.sk89q.worldedit.extent.Extent;
+import com.sk89q.worldedit.internal.util.PositionRandom;
 import com.sk89q.worldedit.world.World;
 
 import javax.annotation.Nullable;
@@ -42,6 +43,8 @@ public class ParserContext {
     private boolean restricted = true;
     private boolean tryLegacy = true;
     private boolean preferringWildcard;
+    private @Nullable Long randomSeed;
+    private int randomSalt;
 
     /**
      * Create a new instance.
@@ -62,6 +65,8 @@ public ParserContext(ParserContext other) {
         setRestricted(other.isRestricted());
         setPreferringWildcard(other.isPreferringWildcard());
         setTryLegacy(other.isTryingLegacy());
+        setRandomSeed(other.getRandomSeed());
+        this.randomSalt = other.randomSalt;
     }
 
     /**
@@ -248,4 +253,42 @@ public void setTryLegacy(boolean tryLegacy) {
     public boolean isTryingLegacy() {
         return tryLegacy;
     }
+
+    /**
+     * Get the seed that random patterns should use, so that the same input
+     * places the same blocks every time.
+     *
+     * @return the seed, or null to use a different one every time
+     */
+    public @Nullable Long getRandomSeed() {
+        return randomSeed;
+    }
+
+    /**
+     * Set the seed that random patterns should use.
+     *
+     * @param randomSeed the seed, or null to use a different one every time
+     */
+    public void setRandomSeed(@Nullable Long randomSeed) {
+        this.randomSeed = randomSeed;
+        this.randomSalt = 0;
+    }
+
+    /**
+     * Get the seed for the next random pattern that is created while
+     * parsing.
+     *
+     * <p>Each call salts the {@linkplain #getRandomSeed() random seed}
+     * differently, so that nested random patterns pick independently of
+     * each other, while parsing the same input again gives the same
+     * seeds.</p>
+     *
+     * @return the seed, or null to use a different one every time
+     */
+    public @Nullable Long nextRandomSeed() {
+        if (randomSeed == null) {
+            return null;
+        }
+        return PositionRandom.salted(randomSeed, randomSalt++);
+    }
 }
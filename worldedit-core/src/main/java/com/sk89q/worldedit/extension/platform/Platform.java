@@ -86,6 +86,16 @@ public interface Platform {
      */
     int schedule(long delay, long period, Runnable task);
 
+    /**
+     * Cancel a task that was scheduled with {@link #schedule(long, long, Runnable)}.
+     *
+     * @param taskId the task id returned when scheduling
+     * @return true if the task was cancelled, false if the platform can't cancel tasks
+     */
+    default boolean cancelTask(int taskId) {
+        return false;
+    }
+
     /**
      * Get the watchdog service.
      *
@@ -0,0 +1,164 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.extent;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.world.block.BaseBlock;
+
+import java.util.Arrays;
+
+/**
+ * A batch of blocks to be set in one 16 by 16 by 16 section of a chunk.
+ *
+ * <p>Blocks are held by their index within the section, in Y, Z, X order.
+ * Each index should appear at most once in a batch. A batch is meant to be
+ * reused: call {@link #reset(int, int, int)} before filling it with the
+ * blocks of the next section.</p>
+ */
+public final class ChunkSectionBatch {
+
+    /**
+     * The number of blocks in a section.
+     */
+    public static final int SECTION_VOLUME = 16 * 16 * 16;
+
+    private final short[] indices = new short[SECTION_VOLUME];
+    private final BaseBlock[] blocks = new BaseBlock[SECTION_VOLUME];
+    private int chunkX;
+    private int chunkZ;
+    private int sectionY;
+    private int size;
+
+    /**
+     * Get the section index of a position, in Y, Z, X order.
+     *
+     * @param x the X coordinate
+     * @param y the Y coordinate
+     * @param z the Z coordinate
+     * @return the index within the section
+     */
+    public static int getSectionIndex(int x, int y, int z) {
+        return (y & 15) << 8 | (z & 15) << 4 | (x & 15);
+    }
+
+    /**
+     * Empty this batch and move it to another section.
+     *
+     * @param chunkX the X coordinate of the chunk
+     * @param sectionY the Y coordinate of the section, in sections
+     * @param chunkZ the Z coordinate of the chunk
+     */
+    public void reset(int chunkX, int sectionY, int chunkZ) {
+        clear();
+        this.chunkX = chunkX;
+        this.sectionY = sectionY;
+        this.chunkZ = chunkZ;
+    }
+
+    /**
+     * Remove all blocks from this batch, keeping its section.
+     */
+    public void clear() {
+        Arrays.fill(blocks, 0, size, null);
+        size = 0;
+    }
+
+    /**
+     * Check whether a position is in the section of this batch.
+     *
+     * @param x the X coordinate
+     * @param y the Y coordinate
+     * @param z the Z coordinate
+     * @return true if the position is in the section
+     */
+    public boolean isInSection(int x, int y, int z) {
+        return x >> 4 == chunkX && y >> 4 == sectionY && z >> 4 == chunkZ;
+    }
+
+    /**
+     * Add a block to this batch.
+     *
+     * @param index the index of the block within the section
+     * @param block the block
+     */
+    public void add(int index, BaseBlock block) {
+        checkArgument(index >= 0 && index < SECTION_VOLUME, "index out of range");
+        checkNotNull(block);
+        checkState(size < SECTION_VOLUME, "batch is full");
+        indices[size] = (short) index;
+        blocks[size] = block;
+        size++;
+    }
+
+    public int getChunkX() {
+        return chunkX;
+    }
+
+    public int getChunkZ() {
+        return chunkZ;
+    }
+
+    public int getSectionY() {
+        return sectionY;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Get the section index of the n-th block of this batch.
+     *
+     * @param n the number of the block in this batch
+     * @return the index within the section
+     */
+    public int getIndex(int n) {
+        return indices[n];
+    }
+
+    public int getX(int n) {
+        return chunkX << 4 | indices[n] & 15;
+    }
+
+    public int getY(int n) {
+        return sectionY << 4 | indices[n] >>> 8;
+    }
+
+    public int getZ(int n) {
+        return chunkZ << 4 | (indices[n] >>> 4) & 15;
+    }
+
+    public BlockVector3 getPosition(int n) {
+        return BlockVector3.at(getX(n), getY(n), getZ(n));
+    }
+
+    public BaseBlock getBlock(int n) {
+        return blocks[n];
+    }
+
+}
@@ -19,7 +19,10 @@
 
 package com.sk89q.worldedit.extent;
 
+import static com.google.common.base.Preconditions.checkArgument;
+
 import com.sk89q.worldedit.function.pattern.Pattern;
+import com.sk89q.worldedit.internal.block.BlockStateIdAccess;
 import com.sk89q.worldedit.math.BlockVector2;
 import com.sk89q.worldedit.math.BlockVector3;
 import com.sk89q.worldedit.world.biome.BiomeType;
@@ -55,6 +58,36 @@ public interface InputExtent {
      */
     BaseBlock getFullBlock(BlockVector3 position);
 
+    /**
+     * Read the blocks of a cuboid as block state IDs, as given by
+     * {@link BlockStateIdAccess#getBlockStateId(BlockState)}.
+     *
+     * <p>The array is filled in Y, Z, X order: the block at {@code (x, y, z)}
+     * is stored at {@code ((y - minY) * sizeZ + (z - minZ)) * sizeX + (x - minX)}.
+     * Positions out of the bounds of the extent are treated the same as by
+     * {@link #getBlock(BlockVector3)}.</p>
+     *
+     * <p>By default, this calls {@link #getBlock(BlockVector3)} for every
+     * position. Extents that can read many blocks at once should override
+     * it.</p>
+     *
+     * @param min the minimum point of the cuboid
+     * @param max the maximum point of the cuboid
+     * @param ids the array to fill, at least as long as the volume of the cuboid
+     */
+    default void getBlockStateIds(BlockVector3 min, BlockVector3 max, int[] ids) {
+        long volume = (long) (max.getX() - min.getX() + 1) * (max.getY() - min.getY() + 1) * (max.getZ() - min.getZ() + 1);
+        checkArgument(ids.length >= volume, "ids is too small for the cuboid");
+        int index = 0;
+        for (int y = min.getY(); y <= max.getY(); y++) {
+            for (int z = min.getZ(); z <= max.getZ(); z++) {
+                for (int x = min.getX(); x <= max.getX(); x++) {
+                    ids[index++] = BlockStateIdAccess.getBlockStateId(getBlock(BlockVector3.at(x, y, z)));
+                }
+            }
+        }
+    }
+
     /**
      * Get the biome at the given location.
      *
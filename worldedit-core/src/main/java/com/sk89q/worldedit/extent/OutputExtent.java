@@ -52,6 +52,27 @@ public interface OutputExtent {
      */
     <T extends BlockStateHolder<T>> boolean setBlock(BlockVector3 position, T block) throws WorldEditException;
 
+    /**
+     * Change a batch of blocks in one chunk section.
+     *
+     * <p>By default, this calls {@link #setBlock(BlockVector3, BlockStateHolder)}
+     * for every block in the batch. Extents that can pass the batch on
+     * as a whole, or write it in bulk, may override this.</p>
+     *
+     * @param batch the blocks to set
+     * @return the number of blocks that were probably set
+     * @throws WorldEditException thrown on an error
+     */
+    default int setBlocks(ChunkSectionBatch batch) throws WorldEditException {
+        int changed = 0;
+        for (int i = 0; i < batch.size(); i++) {
+            if (setBlock(batch.getPosition(i), batch.getBlock(i))) {
+                changed++;
+            }
+        }
+        return changed;
+    }
+
     /**
      * Set the biome.
      *
@@ -21,6 +21,7 @@
 
 import com.sk89q.worldedit.WorldEditException;
 import com.sk89q.worldedit.extent.AbstractDelegateExtent;
+import com.sk89q.worldedit.extent.ChunkSectionBatch;
 import com.sk89q.worldedit.extent.Extent;
 import com.sk89q.worldedit.math.BlockVector3;
 import com.sk89q.worldedit.world.block.BaseBlock;
@@ -30,7 +31,10 @@
 /**
  * Returns the same cached {@link BlockState} for repeated calls to
  * {@link #getBlock(BlockVector3)} with the same position.
+ *
+ * @deprecated use {@link SectionReadCache}, which caches whole sections
  */
+@Deprecated
 public class LastAccessExtentCache extends AbstractDelegateExtent {
 
     private CachedBlock<BlockState> lastBlock;
@@ -84,6 +88,14 @@ public <T extends BlockStateHolder<T>> boolean setBlock(BlockVector3 location, T
         return false;
     }
 
+    @Override
+    public int setBlocks(ChunkSectionBatch batch) throws WorldEditException {
+        int changed = getExtent().setBlocks(batch);
+        lastBlock = null;
+        lastFullBlock = null;
+        return changed;
+    }
+
     private static class CachedBlock<B extends BlockStateHolder<B>> {
         private final BlockVector3 position;
         private final B block;
@@ -0,0 +1,327 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.extent.cache;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.extent.AbstractDelegateExtent;
+import com.sk89q.worldedit.extent.ChunkSectionBatch;
+import com.sk89q.worldedit.extent.Extent;
+import com.sk89q.worldedit.function.operation.Operation;
+import com.sk89q.worldedit.internal.block.BlockStateIdAccess;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.world.block.BaseBlock;
+import com.sk89q.worldedit.world.block.BlockState;
+import com.sk89q.worldedit.world.block.BlockStateHolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.annotation.Nullable;
+
+/**
+ * Caches the {@link BlockState}s read through {@link #getBlock(BlockVector3)},
+ * grouped by 16 by 16 by 16 chunk section.
+ *
+ * <p>Each cached section is an array of block state IDs, filled in as
+ * blocks are read. Once enough blocks of a section have been read one at a
+ * time, the rest of it is read at once with
+ * {@link #getBlockStateIds(BlockVector3, BlockVector3, int[])}. A bounded
+ * number of sections is kept, and the least recently used section is
+ * dropped first. Blocks written through this
+ * extent are dropped from the cache, but changes made to the world by other
+ * means, such as block updates, are not seen until the cache is cleared.
+ * That happens on every commit, and the owner should also clear it whenever
+ * the world may have changed below it, such as between ticks.</p>
+ *
+ * <p>The cache is confined to one thread, the first one to use it, which
+ * owns it until it calls {@link #clear()}. Other threads read and write
+ * straight through to the underlying extent, so they can use this extent
+ * concurrently, e.g. from a parallel region visitor. Their writes make the
+ * owner drop the whole cache on its next access.</p>
+ *
+ * <p>Full blocks, including NBT data, are not cached, but reading one
+ * updates the cached state of its position.</p>
+ */
+public class SectionReadCache extends AbstractDelegateExtent {
+
+    private static final Logger log = LoggerFactory.getLogger(SectionReadCache.class);
+
+    /**
+     * The default number of sections to keep, about 4 MB worth.
+     */
+    public static final int DEFAULT_MAX_SECTIONS = 256;
+
+    private static final int UNKNOWN = BlockStateIdAccess.invalidId();
+    // the number of misses in a section after which it is read in full
+    private static final int FILL_THRESHOLD = 64;
+    // the miss count is kept after the IDs of a section
+    private static final int MISSES = ChunkSectionBatch.SECTION_VOLUME;
+
+    private final Map<Long, int[]> sections;
+    private final AtomicReference<Thread> owner = new AtomicReference<>();
+    private volatile boolean stale;
+    private long lastKey;
+    @Nullable
+    private int[] lastSection;
+    @Nullable
+    private int[] fillBuffer;
+    private long hits;
+    private long misses;
+
+    /**
+     * Create a new instance that keeps {@link #DEFAULT_MAX_SECTIONS} sections.
+     *
+     * @param extent the extent
+     */
+    public SectionReadCache(Extent extent) {
+        this(extent, DEFAULT_MAX_SECTIONS);
+    }
+
+    /**
+     * Create a new instance.
+     *
+     * @param extent the extent
+     * @param maxSections the maximum number of sections to keep
+     */
+    public SectionReadCache(Extent extent, int maxSections) {
+        super(extent);
+        checkArgument(maxSections > 0, "maxSections must be positive");
+        this.sections = new LinkedHashMap<Long, int[]>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, int[]> eldest) {
+                return size() > maxSections;
+            }
+        };
+    }
+
+    private static long sectionKey(int x, int y, int z) {
+        return ((long) (x >> 4) & 0x3FFFFFF) << 38 | ((long) (z >> 4) & 0x3FFFFFF) << 12 | (y >> 4) & 0xFFF;
+    }
+
+    /**
+     * Check whether the current thread may use the cache, claiming it if it
+     * has no owner yet.
+     *
+     * @return true if the current thread owns the cache
+     */
+    private boolean claim() {
+        Thread current = Thread.currentThread();
+        if (owner.get() != current && !owner.compareAndSet(null, current)) {
+            return false;
+        }
+        if (stale) {
+            stale = false;
+            clearSections();
+        }
+        return true;
+    }
+
+    @Nullable
+    private int[] getSection(int x, int y, int z, boolean create) {
+        long key = sectionKey(x, y, z);
+        int[] section = lastSection;
+        if (section != null && key == lastKey) {
+            return section;
+        }
+        section = sections.get(key);
+        if (section == null) {
+            if (!create) {
+                return null;
+            }
+            section = new int[ChunkSectionBatch.SECTION_VOLUME + 1];
+            Arrays.fill(section, 0, MISSES, UNKNOWN);
+            sections.put(key, section);
+        }
+        lastKey = key;
+        lastSection = section;
+        return section;
+    }
+
+    @Override
+    public BlockState getBlock(BlockVector3 position) {
+        if (!claim()) {
+            return super.getBlock(position);
+        }
+        int x = position.getX();
+        int y = position.getY();
+        int z = position.getZ();
+        int[] section = getSection(x, y, z, true);
+        int index = ChunkSectionBatch.getSectionIndex(x, y, z);
+        int id = section[index];
+        if (id != UNKNOWN) {
+            BlockState state = BlockStateIdAccess.getBlockStateById(id);
+            if (state != null) {
+                hits++;
+                return state;
+            }
+        }
+        misses++;
+        if (++section[MISSES] == FILL_THRESHOLD) {
+            fill(section, x & ~15, y & ~15, z & ~15);
+            BlockState state = BlockStateIdAccess.getBlockStateById(section[index]);
+            if (state != null) {
+                return state;
+            }
+        }
+        BlockState state = super.getBlock(position);
+        // states without an ID are simply not cached
+        section[index] = BlockStateIdAccess.getBlockStateId(state);
+        return state;
+    }
+
+    private void fill(int[] section, int x, int y, int z) {
+        int[] buffer = fillBuffer;
+        if (buffer == null) {
+            buffer = fillBuffer = new int[ChunkSectionBatch.SECTION_VOLUME];
+        }
+        // the section index order matches the order of the bulk read
+        getExtent().getBlockStateIds(BlockVector3.at(x, y, z), BlockVector3.at(x + 15, y + 15, z + 15), buffer);
+        for (int i = 0; i < ChunkSectionBatch.SECTION_VOLUME; i++) {
+            if (section[i] == UNKNOWN) {
+                section[i] = buffer[i];
+            }
+        }
+    }
+
+    @Override
+    public void getBlockStateIds(BlockVector3 min, BlockVector3 max, int[] ids) {
+        // bulk reads are already cheap, so they are not cached
+        getExtent().getBlockStateIds(min, max, ids);
+    }
+
+    @Override
+    public BaseBlock getFullBlock(BlockVector3 position) {
+        BaseBlock block = super.getFullBlock(position);
+        if (claim()) {
+            int x = position.getX();
+            int y = position.getY();
+            int z = position.getZ();
+            int[] section = getSection(x, y, z, false);
+            if (section != null) {
+                // keep getBlock() in agreement with what was just read
+                section[ChunkSectionBatch.getSectionIndex(x, y, z)] = BlockStateIdAccess.getBlockStateId(block.toImmutableState());
+            }
+        }
+        return block;
+    }
+
+    @Override
+    public <T extends BlockStateHolder<T>> boolean setBlock(BlockVector3 location, T block) throws WorldEditException {
+        if (claim()) {
+            // the world may not end up with exactly this block, so read it again later
+            forget(location.getX(), location.getY(), location.getZ());
+        } else {
+            stale = true;
+        }
+        return super.setBlock(location, block);
+    }
+
+    @Override
+    public int setBlocks(ChunkSectionBatch batch) throws WorldEditException {
+        if (!claim()) {
+            stale = true;
+        } else {
+            int[] section = getSection(batch.getChunkX() << 4, batch.getSectionY() << 4, batch.getChunkZ() << 4, false);
+            if (section != null) {
+                for (int i = 0; i < batch.size(); i++) {
+                    section[batch.getIndex(i)] = UNKNOWN;
+                }
+            }
+        }
+        return getExtent().setBlocks(batch);
+    }
+
+    private void forget(int x, int y, int z) {
+        int[] section = getSection(x, y, z, false);
+        if (section != null) {
+            section[ChunkSectionBatch.getSectionIndex(x, y, z)] = UNKNOWN;
+        }
+    }
+
+    /**
+     * Remove all cached sections.
+     *
+     * <p>When called by the owning thread, this also gives up ownership, so
+     * the next thread to read through this extent owns the cache. When
+     * called by another thread, the owner drops the cache on its next
+     * access instead.</p>
+     */
+    public void clear() {
+        if (owner.get() == Thread.currentThread()) {
+            stale = false;
+            clearSections();
+            owner.set(null);
+        } else {
+            stale = true;
+        }
+    }
+
+    private void clearSections() {
+        sections.clear();
+        lastSection = null;
+    }
+
+    /**
+     * Get the number of reads that were answered from the cache. Reads made
+     * by threads other than the owner are not counted.
+     *
+     * @return the number of hits
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * Get the number of reads that had to go to the underlying extent.
+     *
+     * @return the number of misses
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Get the fraction of reads that were answered from the cache.
+     *
+     * @return the hit rate, between 0 and 1
+     */
+    public double getHitRate() {
+        long total = hits + misses;
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    @Override
+    protected Operation commitBefore() {
+        if (owner.get() == Thread.currentThread() && hits + misses > 0) {
+            log.debug("Cleared {} cached sections ({} hits, {} misses so far, {}% hit rate)",
+                sections.size(), hits, misses, Math.round(getHitRate() * 100));
+        }
+        // blocks may change after the commit, e.g. by block updates
+        clear();
+        return null;
+    }
+
+}
@@ -19,14 +19,17 @@
 
 package com.sk89q.worldedit.extent.clipboard;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 import com.sk89q.worldedit.WorldEditException;
 import com.sk89q.worldedit.entity.BaseEntity;
 import com.sk89q.worldedit.entity.Entity;
 import com.sk89q.worldedit.function.operation.Operation;
+import com.sk89q.worldedit.internal.block.BlockStateIdAccess;
 import com.sk89q.worldedit.math.BlockVector2;
 import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.regions.CuboidRegion;
 import com.sk89q.worldedit.regions.Region;
 import com.sk89q.worldedit.util.Location;
 import com.sk89q.worldedit.world.biome.BiomeType;
@@ -150,6 +153,32 @@ public BaseBlock getFullBlock(BlockVector3 position) {
         return BlockTypes.AIR.getDefaultState().toBaseBlock();
     }
 
+    @Override
+    public void getBlockStateIds(BlockVector3 min, BlockVector3 max, int[] ids) {
+        int sizeX = max.getX() - min.getX() + 1;
+        int sizeZ = max.getZ() - min.getZ() + 1;
+        checkArgument(ids.length >= (long) sizeX * (max.getY() - min.getY() + 1) * sizeZ, "ids is too small for the cuboid");
+        BlockVector3 regionMin = region.getMinimumPoint();
+        BlockVector3 regionMax = region.getMaximumPoint();
+        // a cuboid fills its array, so only the bounds need to be checked
+        boolean cuboid = region instanceof CuboidRegion;
+        int air = BlockStateIdAccess.getBlockStateId(BlockTypes.AIR.getDefaultState());
+        int index = 0;
+        for (int y = min.getY(); y <= max.getY(); y++) {
+            for (int z = min.getZ(); z <= max.getZ(); z++) {
+                for (int x = min.getX(); x <= max.getX(); x++) {
+                    BaseBlock block = null;
+                    if (x >= regionMin.getX() && y >= regionMin.getY() && z >= regionMin.getZ()
+                            && x <= regionMax.getX() && y <= regionMax.getY() && z <= regionMax.getZ()
+                            && (cuboid || region.contains(BlockVector3.at(x, y, z)))) {
+                        block = blocks[x - regionMin.getX()][y - regionMin.getY()][z - regionMin.getZ()];
+                    }
+                    ids[index++] = block == null ? air : BlockStateIdAccess.getBlockStateId(block.toImmutableState());
+                }
+            }
+        }
+    }
+
     @Override
     public <B extends BlockStateHolder<B>> boolean setBlock(BlockVector3 position, B block) throws WorldEditException {
         if (region.contains(position)) {
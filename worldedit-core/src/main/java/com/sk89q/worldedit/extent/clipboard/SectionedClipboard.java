@@ -0,0 +1,578 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.extent.clipboard;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.entity.BaseEntity;
+import com.sk89q.worldedit.entity.Entity;
+import com.sk89q.worldedit.function.operation.Operation;
+import com.sk89q.worldedit.internal.block.BlockStateIdAccess;
+import com.sk89q.worldedit.math.BlockVector2;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.regions.CuboidRegion;
+import com.sk89q.worldedit.regions.Region;
+import com.sk89q.worldedit.util.Location;
+import com.sk89q.worldedit.util.collection.BlockMap;
+import com.sk89q.worldedit.world.biome.BiomeType;
+import com.sk89q.worldedit.world.biome.BiomeTypes;
+import com.sk89q.worldedit.world.block.BaseBlock;
+import com.sk89q.worldedit.world.block.BlockState;
+import com.sk89q.worldedit.world.block.BlockStateHolder;
+import com.sk89q.worldedit.world.block.BlockTypes;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.annotation.Nullable;
+
+/**
+ * Stores block data in 16x16x16 sections of bit-packed palette indices,
+ * where the palette holds internal block state IDs.
+ *
+ * <p>Sections that only contain air are never allocated. Blocks with NBT
+ * data, or block states without an internal ID, are kept in a sparse map
+ * next to the sections.</p>
+ */
+public class SectionedClipboard implements Clipboard {
+
+    private static final int SECTION_SHIFT = 4;
+    private static final int SECTION_MASK = (1 << SECTION_SHIFT) - 1;
+    private static final int SECTION_VOLUME = 1 << (SECTION_SHIFT * 3);
+
+    /**
+     * Rough per-object overhead used for memory estimates.
+     */
+    private static final int OBJECT_OVERHEAD = 16;
+
+    private final Region region;
+    private BlockVector3 origin;
+    private final int minX;
+    private final int minY;
+    private final int minZ;
+    private final int sizeX;
+    private final int sizeY;
+    private final int sizeZ;
+    private final int sectionsX;
+    private final int sectionsZ;
+    private final Section[] sections;
+    private final BlockMap<BaseBlock> fullBlocks = BlockMap.create();
+    private BiomeType[][] biomes = null;
+    private final List<ClipboardEntity> entities = new ArrayList<>();
+
+    /**
+     * Create a new instance.
+     *
+     * <p>The origin will be placed at the region's lowest minimum point.</p>
+     *
+     * @param region the bounding region
+     */
+    public SectionedClipboard(Region region) {
+        checkNotNull(region);
+        this.region = region.clone();
+        this.origin = region.getMinimumPoint();
+
+        BlockVector3 min = region.getMinimumPoint();
+        BlockVector3 dimensions = getDimensions();
+        this.minX = min.getBlockX();
+        this.minY = min.getBlockY();
+        this.minZ = min.getBlockZ();
+        this.sizeX = dimensions.getBlockX();
+        this.sizeY = dimensions.getBlockY();
+        this.sizeZ = dimensions.getBlockZ();
+        this.sectionsX = sectionCount(sizeX);
+        this.sectionsZ = sectionCount(sizeZ);
+        this.sections = new Section[sectionsX * sectionCount(sizeY) * sectionsZ];
+    }
+
+    private static int sectionCount(int size) {
+        return (size + SECTION_MASK) >> SECTION_SHIFT;
+    }
+
+    @Override
+    public Region getRegion() {
+        return region;
+    }
+
+    @Override
+    public BlockVector3 getOrigin() {
+        return origin;
+    }
+
+    @Override
+    public void setOrigin(BlockVector3 origin) {
+        this.origin = origin;
+    }
+
+    @Override
+    public BlockVector3 getDimensions() {
+        return region.getMaximumPoint().subtract(region.getMinimumPoint()).add(1, 1, 1);
+    }
+
+    @Override
+    public BlockVector3 getMinimumPoint() {
+        return region.getMinimumPoint();
+    }
+
+    @Override
+    public BlockVector3 getMaximumPoint() {
+        return region.getMaximumPoint();
+    }
+
+    @Override
+    public List<? extends Entity> getEntities(Region region) {
+        List<Entity> filtered = new ArrayList<>();
+        for (Entity entity : entities) {
+            if (region.contains(entity.getLocation().toVector().toBlockPoint())) {
+                filtered.add(entity);
+            }
+        }
+        return Collections.unmodifiableList(filtered);
+    }
+
+    @Override
+    public List<? extends Entity> getEntities() {
+        return Collections.unmodifiableList(entities);
+    }
+
+    @Nullable
+    @Override
+    public Entity createEntity(Location location, BaseEntity entity) {
+        ClipboardEntity ret = new ClipboardEntity(location, entity);
+        entities.add(ret);
+        return ret;
+    }
+
+    /**
+     * Check if the given position is inside the bounding box of this clipboard,
+     * which is cheaper than a full {@link Region#contains(BlockVector3)}.
+     */
+    private boolean inBounds(int x, int y, int z) {
+        return x >= 0 && y >= 0 && z >= 0 && x < sizeX && y < sizeY && z < sizeZ;
+    }
+
+    private int sectionIndex(int x, int y, int z) {
+        return ((y >> SECTION_SHIFT) * sectionsZ + (z >> SECTION_SHIFT)) * sectionsX + (x >> SECTION_SHIFT);
+    }
+
+    private static int blockIndex(int x, int y, int z) {
+        return (((y & SECTION_MASK) << SECTION_SHIFT) | (z & SECTION_MASK)) << SECTION_SHIFT | (x & SECTION_MASK);
+    }
+
+    /**
+     * Get the state at a position relative to the minimum point, without
+     * consulting the full block map. The position must be in bounds.
+     *
+     * @return the state, or {@code null} if it is held in the full block map
+     */
+    @Nullable
+    private BlockState getRelativeState(int x, int y, int z) {
+        Section section = sections[sectionIndex(x, y, z)];
+        if (section == null) {
+            return BlockTypes.AIR.getDefaultState();
+        }
+        return section.getState(blockIndex(x, y, z));
+    }
+
+    @Override
+    public BlockState getBlock(BlockVector3 position) {
+        int x = position.getBlockX() - minX;
+        int y = position.getBlockY() - minY;
+        int z = position.getBlockZ() - minZ;
+        if (inBounds(x, y, z) && region.contains(position)) {
+            BlockState state = getRelativeState(x, y, z);
+            if (state != null) {
+                return state;
+            }
+            BaseBlock block = fullBlocks.get(position);
+            if (block != null) {
+                return block.toImmutableState();
+            }
+        }
+
+        return BlockTypes.AIR.getDefaultState();
+    }
+
+    @Override
+    public BaseBlock getFullBlock(BlockVector3 position) {
+        int x = position.getBlockX() - minX;
+        int y = position.getBlockY() - minY;
+        int z = position.getBlockZ() - minZ;
+        if (inBounds(x, y, z) && region.contains(position)) {
+            BlockState state = getRelativeState(x, y, z);
+            if (state != null) {
+                return state.toBaseBlock();
+            }
+            BaseBlock block = fullBlocks.get(position);
+            if (block != null) {
+                return block;
+            }
+        }
+
+        return BlockTypes.AIR.getDefaultState().toBaseBlock();
+    }
+
+    @Override
+    public void getBlockStateIds(BlockVector3 min, BlockVector3 max, int[] ids) {
+        int sizeX = max.getX() - min.getX() + 1;
+        int sizeZ = max.getZ() - min.getZ() + 1;
+        checkArgument(ids.length >= (long) sizeX * (max.getY() - min.getY() + 1) * sizeZ, "ids is too small for the cuboid");
+        boolean cuboid = region instanceof CuboidRegion;
+        int air = BlockStateIdAccess.getBlockStateId(BlockTypes.AIR.getDefaultState());
+        int index = 0;
+        for (int y = min.getY(); y <= max.getY(); y++) {
+            for (int z = min.getZ(); z <= max.getZ(); z++) {
+                for (int x = min.getX(); x <= max.getX(); x++) {
+                    int rx = x - minX;
+                    int ry = y - minY;
+                    int rz = z - minZ;
+                    int id = air;
+                    if (inBounds(rx, ry, rz) && (cuboid || region.contains(BlockVector3.at(x, y, z)))) {
+                        Section section = sections[sectionIndex(rx, ry, rz)];
+                        int paletteIndex = section == null ? Section.AIR_INDEX : section.get(blockIndex(rx, ry, rz));
+                        if (paletteIndex == Section.FULL_INDEX) {
+                            BaseBlock block = fullBlocks.get(BlockVector3.at(x, y, z));
+                            if (block != null) {
+                                id = BlockStateIdAccess.getBlockStateId(block.toImmutableState());
+                            }
+                        } else if (paletteIndex != Section.AIR_INDEX) {
+                            id = section.palette[paletteIndex];
+                        }
+                    }
+                    ids[index++] = id;
+                }
+            }
+        }
+    }
+
+    /**
+     * Write the blocks of a cuboid from block state IDs, laid out in the same
+     * Y, Z, X order as {@link #getBlockStateIds(BlockVector3, BlockVector3, int[])}.
+     *
+     * <p>This has the same effect as calling
+     * {@link #setBlock(BlockVector3, BlockStateHolder)} with the state of
+     * every ID, but skips the per-block conversions, and looks up the palette
+     * index only once for each run of equal IDs in a section. Positions
+     * outside of the clipboard are skipped.</p>
+     *
+     * @param min the minimum point of the cuboid
+     * @param max the maximum point of the cuboid
+     * @param ids valid internal block state IDs
+     */
+    public void setBlockStateIds(BlockVector3 min, BlockVector3 max, int[] ids) {
+        int sizeX = max.getX() - min.getX() + 1;
+        int sizeZ = max.getZ() - min.getZ() + 1;
+        checkArgument(ids.length >= (long) sizeX * (max.getY() - min.getY() + 1) * sizeZ, "ids is too small for the cuboid");
+        boolean cuboid = region instanceof CuboidRegion;
+        int air = BlockStateIdAccess.getBlockStateId(BlockTypes.AIR.getDefaultState());
+        Section lastSection = null;
+        int lastId = air;
+        int lastPaletteIndex = Section.AIR_INDEX;
+        int index = 0;
+        for (int y = min.getY(); y <= max.getY(); y++) {
+            for (int z = min.getZ(); z <= max.getZ(); z++) {
+                for (int x = min.getX(); x <= max.getX(); x++) {
+                    int id = ids[index++];
+                    int rx = x - minX;
+                    int ry = y - minY;
+                    int rz = z - minZ;
+                    if (!inBounds(rx, ry, rz) || (!cuboid && !region.contains(BlockVector3.at(x, y, z)))) {
+                        continue;
+                    }
+                    int sectionIndex = sectionIndex(rx, ry, rz);
+                    Section section = sections[sectionIndex];
+                    if (section == null) {
+                        if (id == air) {
+                            // never written, so it's already air
+                            continue;
+                        }
+                        sections[sectionIndex] = section = new Section();
+                    }
+                    int paletteIndex;
+                    if (id == air) {
+                        paletteIndex = Section.AIR_INDEX;
+                    } else if (id == lastId && section == lastSection) {
+                        paletteIndex = lastPaletteIndex;
+                    } else {
+                        checkArgument(BlockStateIdAccess.isValidInternalId(id), "Invalid block state ID at index %s", index - 1);
+                        paletteIndex = section.indexOf(id);
+                        lastSection = section;
+                        lastId = id;
+                        lastPaletteIndex = paletteIndex;
+                    }
+                    int blockIndex = blockIndex(rx, ry, rz);
+                    if (!fullBlocks.isEmpty() && section.get(blockIndex) == Section.FULL_INDEX) {
+                        fullBlocks.remove(BlockVector3.at(x, y, z));
+                    }
+                    section.set(blockIndex, paletteIndex);
+                }
+            }
+        }
+    }
+
+    @Override
+    public <B extends BlockStateHolder<B>> boolean setBlock(BlockVector3 position, B block) throws WorldEditException {
+        int x = position.getBlockX() - minX;
+        int y = position.getBlockY() - minY;
+        int z = position.getBlockZ() - minZ;
+        if (!inBounds(x, y, z) || !region.contains(position)) {
+            return false;
+        }
+
+        BaseBlock baseBlock = block.toBaseBlock();
+        BlockState state = baseBlock.toImmutableState();
+        int stateId = BlockStateIdAccess.getBlockStateId(state);
+        boolean air = state == BlockTypes.AIR.getDefaultState();
+        // Blocks with NBT and states without an ID are stored only in the full block map,
+        // and marked in the section so that reads know to look there
+        boolean storeFull = baseBlock.hasNbtData() || (!air && !BlockStateIdAccess.isValidInternalId(stateId));
+
+        int sectionIndex = sectionIndex(x, y, z);
+        Section section = sections[sectionIndex];
+        if (section == null) {
+            if (air && !storeFull) {
+                // never written, so it's already air
+                return true;
+            }
+            sections[sectionIndex] = section = new Section();
+        }
+        int paletteIndex;
+        if (storeFull) {
+            paletteIndex = Section.FULL_INDEX;
+            fullBlocks.put(position, baseBlock);
+        } else {
+            paletteIndex = air ? Section.AIR_INDEX : section.indexOf(stateId);
+            if (!fullBlocks.isEmpty()) {
+                fullBlocks.remove(position);
+            }
+        }
+        section.set(blockIndex(x, y, z), paletteIndex);
+        return true;
+    }
+
+    @Override
+    public boolean hasBiomes() {
+        return biomes != null;
+    }
+
+    @Override
+    public BiomeType getBiome(BlockVector2 position) {
+        if (biomes != null
+                && position.containedWithin(getMinimumPoint().toBlockVector2(), getMaximumPoint().toBlockVector2())) {
+            BlockVector2 v = position.subtract(region.getMinimumPoint().toBlockVector2());
+            BiomeType biomeType = biomes[v.getBlockX()][v.getBlockZ()];
+            if (biomeType != null) {
+                return biomeType;
+            }
+        }
+
+        return BiomeTypes.OCEAN;
+    }
+
+    @Override
+    public boolean setBiome(BlockVector2 position, BiomeType biome) {
+        if (position.containedWithin(getMinimumPoint().toBlockVector2(), getMaximumPoint().toBlockVector2())) {
+            BlockVector2 v = position.subtract(region.getMinimumPoint().toBlockVector2());
+            if (biomes == null) {
+                biomes = new BiomeType[region.getWidth()][region.getLength()];
+            }
+            biomes[v.getBlockX()][v.getBlockZ()] = biome;
+            return true;
+        }
+        return false;
+    }
+
+    @Nullable
+    @Override
+    public Operation commit() {
+        return null;
+    }
+
+    /**
+     * Estimate the number of bytes of heap used by the block data of this
+     * clipboard. Entities and biomes are not included.
+     *
+     * @return the estimated size in bytes
+     */
+    public long estimateBlockMemoryUsage() {
+        long total = OBJECT_OVERHEAD + (long) sections.length * Integer.BYTES;
+        for (Section section : sections) {
+            if (section != null) {
+                total += section.estimateMemoryUsage();
+            }
+        }
+        // entry, key vector and block for each full block
+        total += (long) fullBlocks.size() * OBJECT_OVERHEAD * 4;
+        return total;
+    }
+
+    /**
+     * A 16x16x16 section of palette indices.
+     *
+     * <p>Indices are packed into longs without spanning across two longs.
+     * Index {@code 0} is always air, so a fresh section is entirely air.</p>
+     */
+    private static final class Section {
+
+        static final int AIR_INDEX = 0;
+        /**
+         * Marks a block that must be read from the full block map.
+         */
+        static final int FULL_INDEX = 1;
+        private static final int FIRST_STATE_INDEX = 2;
+        /**
+         * Palette size after which a hash lookup is used to find indices.
+         */
+        private static final int LINEAR_SEARCH_LIMIT = 16;
+
+        private int[] palette = new int[4];
+        private int paletteSize = FIRST_STATE_INDEX;
+        @Nullable
+        private Int2IntOpenHashMap reversePalette;
+        private int bits;
+        private int valuesPerLong;
+        private long valueMask;
+        private long[] data;
+
+        Section() {
+            resize(1);
+        }
+
+        private void resize(int newBits) {
+            int newValuesPerLong = 64 / newBits;
+            long[] newData = new long[(SECTION_VOLUME + newValuesPerLong - 1) / newValuesPerLong];
+            if (data != null) {
+                for (int i = 0; i < SECTION_VOLUME; i++) {
+                    long value = get(i);
+                    if (value != 0) {
+                        newData[i / newValuesPerLong] |= value << ((i % newValuesPerLong) * newBits);
+                    }
+                }
+            }
+            this.bits = newBits;
+            this.valuesPerLong = newValuesPerLong;
+            this.valueMask = (1L << newBits) - 1;
+            this.data = newData;
+        }
+
+        int get(int index) {
+            return (int) ((data[index / valuesPerLong] >>> ((index % valuesPerLong) * bits)) & valueMask);
+        }
+
+        void set(int index, int value) {
+            int shift = (index % valuesPerLong) * bits;
+            int word = index / valuesPerLong;
+            data[word] = (data[word] & ~(valueMask << shift)) | ((long) value << shift);
+        }
+
+        /**
+         * Get the state at the given index.
+         *
+         * @return the state, or {@code null} if it is held in the full block map
+         */
+        @Nullable
+        BlockState getState(int index) {
+            int paletteIndex = get(index);
+            if (paletteIndex == AIR_INDEX) {
+                return BlockTypes.AIR.getDefaultState();
+            }
+            if (paletteIndex == FULL_INDEX) {
+                return null;
+            }
+            return BlockStateIdAccess.getBlockStateById(palette[paletteIndex]);
+        }
+
+        /**
+         * Find or allocate the palette index for a state ID.
+         */
+        int indexOf(int stateId) {
+            if (reversePalette != null) {
+                int index = reversePalette.get(stateId);
+                if (index != -1) {
+                    return index;
+                }
+            } else {
+                for (int i = FIRST_STATE_INDEX; i < paletteSize; i++) {
+                    if (palette[i] == stateId) {
+                        return i;
+                    }
+                }
+            }
+
+            int index = paletteSize++;
+            if (index == palette.length) {
+                int[] newPalette = new int[palette.length * 2];
+                System.arraycopy(palette, 0, newPalette, 0, palette.length);
+                palette = newPalette;
+            }
+            palette[index] = stateId;
+            if (reversePalette != null) {
+                reversePalette.put(stateId, index);
+            } else if (paletteSize > LINEAR_SEARCH_LIMIT) {
+                reversePalette = new Int2IntOpenHashMap(paletteSize * 2);
+                reversePalette.defaultReturnValue(-1);
+                for (int i = FIRST_STATE_INDEX; i < paletteSize; i++) {
+                    reversePalette.put(palette[i], i);
+                }
+            }
+            if (index > valueMask) {
+                resize(bits + 1);
+            }
+            return index;
+        }
+
+        long estimateMemoryUsage() {
+            long total = OBJECT_OVERHEAD * 3
+                + (long) data.length * Long.BYTES
+                + (long) palette.length * Integer.BYTES;
+            if (reversePalette != null) {
+                // keys and values, at the default load factor
+                total += OBJECT_OVERHEAD + (long) reversePalette.size() * Integer.BYTES * 2 * 2;
+            }
+            return total;
+        }
+
+    }
+
+    /**
+     * Stores entity data.
+     */
+    private class ClipboardEntity extends StoredEntity {
+        ClipboardEntity(Location location, BaseEntity entity) {
+            super(location, entity);
+        }
+
+        @Override
+        public boolean remove() {
+            return entities.remove(this);
+        }
+
+        @Nullable
+        @Override
+        public <T> T getFacet(Class<? extends T> cls) {
+            return null;
+        }
+    }
+
+}
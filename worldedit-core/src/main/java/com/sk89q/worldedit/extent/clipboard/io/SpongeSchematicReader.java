@@ -19,12 +19,14 @@
 
 package com.sk89q.worldedit.extent.clipboard.io;
 
+import com.google.common.base.Throwables;
 import com.google.common.collect.Maps;
 import com.sk89q.jnbt.ByteArrayTag;
 import com.sk89q.jnbt.CompoundTag;
 import com.sk89q.jnbt.IntArrayTag;
 import com.sk89q.jnbt.IntTag;
 import com.sk89q.jnbt.ListTag;
+import com.sk89q.jnbt.NBTFilter;
 import com.sk89q.jnbt.NBTInputStream;
 import com.sk89q.jnbt.NamedTag;
 import com.sk89q.jnbt.ShortTag;
@@ -37,8 +39,9 @@
 import com.sk89q.worldedit.extension.input.ParserContext;
 import com.sk89q.worldedit.extension.platform.Capability;
 import com.sk89q.worldedit.extension.platform.Platform;
-import com.sk89q.worldedit.extent.clipboard.BlockArrayClipboard;
 import com.sk89q.worldedit.extent.clipboard.Clipboard;
+import com.sk89q.worldedit.extent.clipboard.SectionedClipboard;
+import com.sk89q.worldedit.internal.block.BlockStateIdAccess;
 import com.sk89q.worldedit.math.BlockVector2;
 import com.sk89q.worldedit.math.BlockVector3;
 import com.sk89q.worldedit.regions.CuboidRegion;
@@ -52,16 +55,21 @@
 import com.sk89q.worldedit.world.entity.EntityType;
 import com.sk89q.worldedit.world.entity.EntityTypes;
 import com.sk89q.worldedit.world.storage.NBTConversions;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.OptionalInt;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import javax.annotation.Nullable;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
@@ -71,6 +79,11 @@
 public class SpongeSchematicReader extends NBTSchematicReader {
 
     private static final Logger log = LoggerFactory.getLogger(SpongeSchematicReader.class);
+    /**
+     * Upper bound on block palette indices, to keep a corrupt palette from
+     * allocating a huge lookup array.
+     */
+    private static final int MAX_PALETTE_LENGTH = 1 << 20;
     private final NBTInputStream inputStream;
     private DataFixer fixer = null;
     private int schematicVersion = -1;
@@ -88,7 +101,7 @@ public SpongeSchematicReader(NBTInputStream inputStream) {
 
     @Override
     public Clipboard read() throws IOException {
-        CompoundTag schematicTag = getBaseTag();
+        CompoundTag schematicTag = getBaseTag(NBTFilter.ALL);
         Map<String, Tag> schematic = schematicTag.getValue();
 
         final Platform platform = WorldEdit.getInstance().getPlatformManager()
@@ -115,7 +128,7 @@ public Clipboard read() throws IOException {
                 }
             }
 
-            BlockArrayClipboard clip = readVersion1(schematicTag);
+            SectionedClipboard clip = readVersion1(schematicTag);
             return readVersion2(clip, schematicTag);
         }
         throw new IOException("This schematic version is currently not supported");
@@ -124,7 +137,8 @@ public Clipboard read() throws IOException {
     @Override
     public OptionalInt getDataVersion() {
         try {
-            CompoundTag schematicTag = getBaseTag();
+            // skip the block data, only the version tags are needed
+            CompoundTag schematicTag = getBaseTag(NBTFilter.onlyTopLevel("Version", "DataVersion"));
             Map<String, Tag> schematic = schematicTag.getValue();
             if (schematicVersion == 1) {
                 return OptionalInt.of(1631);
@@ -137,8 +151,8 @@ public OptionalInt getDataVersion() {
         }
     }
 
-    private CompoundTag getBaseTag() throws IOException {
-        NamedTag rootTag = inputStream.readNamedTag();
+    private CompoundTag getBaseTag(NBTFilter filter) throws IOException {
+        NamedTag rootTag = inputStream.readNamedTag(filter);
         if (!rootTag.getName().equals("Schematic")) {
             throw new IOException("Tag 'Schematic' does not exist or is not first");
         }
@@ -151,7 +165,7 @@ private CompoundTag getBaseTag() throws IOException {
         return schematicTag;
     }
 
-    private BlockArrayClipboard readVersion1(CompoundTag schematicTag) throws IOException {
+    private SectionedClipboard readVersion1(CompoundTag schematicTag) throws IOException {
         BlockVector3 origin;
         Region region;
         Map<String, Tag> schematic = schematicTag.getValue();
@@ -194,15 +208,27 @@ private BlockArrayClipboard readVersion1(CompoundTag schematicTag) throws IOExce
             throw new IOException("Block palette size does not match expected size.");
         }
 
-        Map<Integer, BlockState> palette = new HashMap<>();
-
         ParserContext parserContext = new ParserContext();
         parserContext.setRestricted(false);
         parserContext.setTryLegacy(false);
         parserContext.setPreferringWildcard(false);
 
-        for (String palettePart : paletteObject.keySet()) {
-            int id = requireTag(paletteObject, palettePart, IntTag.class).getValue();
+        int paletteLength = 0;
+        for (Tag idTag : paletteObject.values()) {
+            if (!(idTag instanceof IntTag)) {
+                throw new IOException("Block mapped to non-Int tag.");
+            }
+            int id = ((IntTag) idTag).getValue();
+            if (id < 0 || id >= MAX_PALETTE_LENGTH) {
+                throw new IOException("Invalid block palette index " + id);
+            }
+            paletteLength = Math.max(paletteLength, id + 1);
+        }
+
+        // Indexed directly by the values in the block data
+        BlockState[] palette = new BlockState[paletteLength];
+        for (Entry<String, Tag> entry : paletteObject.entrySet()) {
+            String palettePart = entry.getKey();
             if (fixer != null) {
                 palettePart = fixer.fixUp(DataFixer.FixTypes.BLOCK_STATE, palettePart, dataVersion);
             }
@@ -213,53 +239,39 @@ private BlockArrayClipboard readVersion1(CompoundTag schematicTag) throws IOExce
                 log.warn("Invalid BlockState in palette: " + palettePart + ". Block will be replaced with air.");
                 state = BlockTypes.AIR.getDefaultState();
             }
-            palette.put(id, state);
+            palette[((IntTag) entry.getValue()).getValue()] = state;
         }
 
         byte[] blocks = requireTag(schematic, "BlockData", ByteArrayTag.class).getValue();
 
-        Map<BlockVector3, Map<String, Tag>> tileEntitiesMap = new HashMap<>();
-        ListTag tileEntities = getTag(schematic, "BlockEntities", ListTag.class);
-        if (tileEntities == null) {
-            tileEntities = getTag(schematic, "TileEntities", ListTag.class);
-        }
-        if (tileEntities != null) {
-            List<Map<String, Tag>> tileEntityTags = tileEntities.getValue().stream()
-                    .map(tag -> (CompoundTag) tag)
-                    .map(CompoundTag::getValue)
-                    .collect(Collectors.toList());
-
-            for (Map<String, Tag> tileEntity : tileEntityTags) {
-                int[] pos = requireTag(tileEntity, "Pos", IntArrayTag.class).getValue();
-                final BlockVector3 pt = BlockVector3.at(pos[0], pos[1], pos[2]);
-                Map<String, Tag> values = Maps.newHashMap(tileEntity);
-                values.put("x", new IntTag(pt.getBlockX()));
-                values.put("y", new IntTag(pt.getBlockY()));
-                values.put("z", new IntTag(pt.getBlockZ()));
-                values.put("id", values.get("Id"));
-                values.remove("Id");
-                values.remove("Pos");
-                if (fixer != null) {
-                    tileEntity = fixer.fixUp(DataFixer.FixTypes.BLOCK_ENTITY, new CompoundTag(values), dataVersion).getValue();
-                } else {
-                    tileEntity = values;
-                }
-                tileEntitiesMap.put(pt, tileEntity);
-            }
-        }
+        int layerArea = width * length;
+        int volume = layerArea * height;
+
+        // Block entities are keyed by their index in the block data, and fixed on other
+        // threads while the block data is decoded
+        Int2ObjectOpenHashMap<Map<String, Tag>> tileEntitiesMap = readTileEntities(schematic, width, height, length);
+        int[] tileIndices = tileEntitiesMap.keySet().toIntArray();
+        Arrays.sort(tileIndices);
+        CompletableFuture<CompoundTag[]> fixedTileEntities = fixTileEntities(tileEntitiesMap, tileIndices);
+        BlockState[] tileStates = new BlockState[tileIndices.length];
+        int nextTile = 0;
 
-        BlockArrayClipboard clipboard = new BlockArrayClipboard(region);
+        SectionedClipboard clipboard = new SectionedClipboard(region);
         clipboard.setOrigin(origin);
+        BlockDataWriter writer = new BlockDataWriter(clipboard, palette, width, length, height);
 
         int index = 0;
         int i = 0;
         int value;
         int varintLength;
-        while (i < blocks.length) {
+        while (i < blocks.length && index < volume) {
             value = 0;
             varintLength = 0;
 
             while (true) {
+                if (i >= blocks.length) {
+                    throw new IOException("Block data ends in the middle of a VarInt (probably truncated data)");
+                }
                 value |= (blocks[i] & 127) << (varintLength++ * 7);
                 if (varintLength > 5) {
                     throw new IOException("VarInt too big (probably corrupted data)");
@@ -270,29 +282,204 @@ private BlockArrayClipboard readVersion1(CompoundTag schematicTag) throws IOExce
                 }
                 i++;
             }
-            // index = (y * length * width) + (z * width) + x
-            int y = index / (width * length);
-            int z = (index % (width * length)) / width;
-            int x = (index % (width * length)) % width;
-            BlockState state = palette.get(value);
-            BlockVector3 pt = BlockVector3.at(x, y, z);
+            if (value < 0 || value >= palette.length || palette[value] == null) {
+                throw new IOException("Block data refers to unknown palette index " + value);
+            }
+            if (nextTile < tileIndices.length && tileIndices[nextTile] == index) {
+                tileStates[nextTile++] = palette[value];
+            }
+            writer.add(value);
+            index++;
+        }
+        writer.flush();
+
+        CompoundTag[] tileEntities;
+        try {
+            tileEntities = fixedTileEntities.join();
+        } catch (CompletionException e) {
+            Throwables.throwIfUnchecked(e.getCause());
+            throw e;
+        }
+        for (int t = 0; t < tileIndices.length; t++) {
+            if (tileStates[t] == null) {
+                // the block data ended before this block
+                continue;
+            }
+            int tileIndex = tileIndices[t];
+            int y = tileIndex / layerArea;
+            int z = (tileIndex % layerArea) / width;
+            int x = (tileIndex % layerArea) % width;
             try {
-                if (tileEntitiesMap.containsKey(pt)) {
-                    clipboard.setBlock(clipboard.getMinimumPoint().add(pt), state.toBaseBlock(new CompoundTag(tileEntitiesMap.get(pt))));
-                } else {
-                    clipboard.setBlock(clipboard.getMinimumPoint().add(pt), state);
-                }
+                clipboard.setBlock(min.add(x, y, z), tileStates[t].toBaseBlock(tileEntities[t]));
             } catch (WorldEditException e) {
                 throw new IOException("Failed to load a block in the schematic");
             }
-
-            index++;
         }
 
         return clipboard;
     }
 
-    private Clipboard readVersion2(BlockArrayClipboard version1, CompoundTag schematicTag) throws IOException {
+    /**
+     * Read the block entities of the schematic, keyed by the index of their
+     * block in the block data. Block entities outside of the schematic are
+     * left out.
+     */
+    private Int2ObjectOpenHashMap<Map<String, Tag>> readTileEntities(Map<String, Tag> schematic,
+                                                                     int width, int height, int length) throws IOException {
+        Int2ObjectOpenHashMap<Map<String, Tag>> tileEntitiesMap = new Int2ObjectOpenHashMap<>();
+        ListTag tileEntities = getTag(schematic, "BlockEntities", ListTag.class);
+        if (tileEntities == null) {
+            tileEntities = getTag(schematic, "TileEntities", ListTag.class);
+        }
+        if (tileEntities == null) {
+            return tileEntitiesMap;
+        }
+        for (Tag tag : tileEntities.getValue()) {
+            Map<String, Tag> tileEntity = ((CompoundTag) tag).getValue();
+            int[] pos = requireTag(tileEntity, "Pos", IntArrayTag.class).getValue();
+            int x = pos[0];
+            int y = pos[1];
+            int z = pos[2];
+            if (x < 0 || y < 0 || z < 0 || x >= width || y >= height || z >= length) {
+                continue;
+            }
+            Map<String, Tag> values = Maps.newHashMap(tileEntity);
+            values.put("x", new IntTag(x));
+            values.put("y", new IntTag(y));
+            values.put("z", new IntTag(z));
+            values.put("id", values.get("Id"));
+            values.remove("Id");
+            values.remove("Pos");
+            tileEntitiesMap.put((y * length + z) * width + x, values);
+        }
+        return tileEntitiesMap;
+    }
+
+    /**
+     * Run the block entities through the data fixer, in parallel when there
+     * is one, as they are independent of each other.
+     *
+     * @return the fixed block entities, in the order of {@code tileIndices}
+     */
+    private CompletableFuture<CompoundTag[]> fixTileEntities(Int2ObjectOpenHashMap<Map<String, Tag>> tileEntitiesMap,
+                                                             int[] tileIndices) {
+        DataFixer fixer = this.fixer;
+        int dataVersion = this.dataVersion;
+        if (fixer == null || tileIndices.length == 0) {
+            return CompletableFuture.completedFuture(Arrays.stream(tileIndices)
+                    .mapToObj(index -> new CompoundTag(tileEntitiesMap.get(index)))
+                    .toArray(CompoundTag[]::new));
+        }
+        return CompletableFuture.supplyAsync(() -> Arrays.stream(tileIndices).parallel()
+                .mapToObj(index -> fixer.fixUp(DataFixer.FixTypes.BLOCK_ENTITY,
+                        new CompoundTag(tileEntitiesMap.get(index)), dataVersion))
+                .toArray(CompoundTag[]::new));
+    }
+
+    /**
+     * Collects decoded palette indices into slabs of whole layers, and writes
+     * each slab to the clipboard in one go.
+     */
+    private static final class BlockDataWriter {
+
+        /**
+         * Upper bound on the number of blocks buffered in a slab.
+         */
+        private static final int MAX_SLAB_VOLUME = 1 << 20;
+        /**
+         * Layers per slab, matching the height of a clipboard section.
+         */
+        private static final int MAX_SLAB_LAYERS = 16;
+
+        private final SectionedClipboard clipboard;
+        private final BlockState[] palette;
+        @Nullable
+        private final int[] paletteIds;
+        private final int width;
+        private final int length;
+        private final int height;
+        private final int slabLayers;
+        private final int[] slab;
+        private int slabSize;
+        private int slabY;
+
+        BlockDataWriter(SectionedClipboard clipboard, BlockState[] palette, int width, int length, int height) {
+            this.clipboard = clipboard;
+            this.palette = palette;
+            this.paletteIds = toStateIds(palette);
+            this.width = width;
+            this.length = length;
+            this.height = height;
+            int layerArea = Math.max(1, width * length);
+            this.slabLayers = Math.max(1, Math.min(MAX_SLAB_LAYERS, Math.min(height, MAX_SLAB_VOLUME / layerArea)));
+            this.slab = new int[slabLayers * width * length];
+        }
+
+        /**
+         * Map the palette to internal block state IDs.
+         *
+         * @return the IDs, or {@code null} if a state has no valid ID
+         */
+        @Nullable
+        private static int[] toStateIds(BlockState[] palette) {
+            int[] ids = new int[palette.length];
+            for (int i = 0; i < palette.length; i++) {
+                if (palette[i] == null) {
+                    continue;
+                }
+                ids[i] = BlockStateIdAccess.getBlockStateId(palette[i]);
+                if (!BlockStateIdAccess.isValidInternalId(ids[i])) {
+                    return null;
+                }
+            }
+            return ids;
+        }
+
+        void add(int paletteIndex) throws IOException {
+            slab[slabSize++] = paletteIndex;
+            if (slabSize == slab.length) {
+                flush();
+            }
+        }
+
+        void flush() throws IOException {
+            if (slabSize == 0) {
+                return;
+            }
+            int layers = Math.min(slabLayers, height - slabY);
+            BlockVector3 min = clipboard.getMinimumPoint();
+            if (paletteIds != null) {
+                for (int i = 0; i < slabSize; i++) {
+                    slab[i] = paletteIds[slab[i]];
+                }
+                // the rest of a partial slab was never written, so leave it as air
+                Arrays.fill(slab, slabSize, slab.length, BlockStateIdAccess.getBlockStateId(BlockTypes.AIR.getDefaultState()));
+                clipboard.setBlockStateIds(min.add(0, slabY, 0), min.add(width - 1, slabY + layers - 1, length - 1), slab);
+            } else {
+                int x = 0;
+                int y = slabY;
+                int z = 0;
+                try {
+                    for (int i = 0; i < slabSize; i++) {
+                        clipboard.setBlock(min.add(x, y, z), palette[slab[i]]);
+                        if (++x == width) {
+                            x = 0;
+                            if (++z == length) {
+                                z = 0;
+                                y++;
+                            }
+                        }
+                    }
+                } catch (WorldEditException e) {
+                    throw new IOException("Failed to load a block in the schematic");
+                }
+            }
+            slabY += layers;
+            slabSize = 0;
+        }
+    }
+
+    private Clipboard readVersion2(SectionedClipboard version1, CompoundTag schematicTag) throws IOException {
         Map<String, Tag> schematic = schematicTag.getValue();
         if (schematic.containsKey("BiomeData")) {
             readBiomes(version1, schematic);
@@ -303,7 +490,7 @@ private Clipboard readVersion2(BlockArrayClipboard version1, CompoundTag schemat
         return version1;
     }
 
-    private void readBiomes(BlockArrayClipboard clipboard, Map<String, Tag> schematic) throws IOException {
+    private void readBiomes(SectionedClipboard clipboard, Map<String, Tag> schematic) throws IOException {
         ByteArrayTag dataTag = requireTag(schematic, "BiomeData", ByteArrayTag.class);
         IntTag maxTag = requireTag(schematic, "BiomePaletteMax", IntTag.class);
         CompoundTag paletteTag = requireTag(schematic, "BiomePalette", CompoundTag.class);
@@ -343,6 +530,9 @@ private void readBiomes(BlockArrayClipboard clipboard, Map<String, Tag> schemati
             varIntLength = 0;
 
             while (true) {
+                if (biomeJ >= biomes.length) {
+                    throw new IOException("Biome data ends in the middle of a VarInt (probably truncated data)");
+                }
                 bVal |= (biomes[biomeJ] & 127) << (varIntLength++ * 7);
                 if (varIntLength > 5) {
                     throw new IOException("VarInt too big (probably corrupted data)");
@@ -361,7 +551,7 @@ private void readBiomes(BlockArrayClipboard clipboard, Map<String, Tag> schemati
         }
     }
 
-    private void readEntities(BlockArrayClipboard clipboard, Map<String, Tag> schematic) throws IOException {
+    private void readEntities(SectionedClipboard clipboard, Map<String, Tag> schematic) throws IOException {
         List<Tag> entList = requireTag(schematic, "Entities", ListTag.class).getValue();
         if (entList.isEmpty()) {
             return;
@@ -29,6 +29,7 @@
 import com.sk89q.jnbt.IntArrayTag;
 import com.sk89q.jnbt.IntTag;
 import com.sk89q.jnbt.ListTag;
+import com.sk89q.jnbt.NBTConstants;
 import com.sk89q.jnbt.NBTOutputStream;
 import com.sk89q.jnbt.ShortTag;
 import com.sk89q.jnbt.StringTag;
@@ -37,6 +38,7 @@
 import com.sk89q.worldedit.entity.BaseEntity;
 import com.sk89q.worldedit.extension.platform.Capability;
 import com.sk89q.worldedit.extent.clipboard.Clipboard;
+import com.sk89q.worldedit.internal.block.BlockStateIdAccess;
 import com.sk89q.worldedit.math.BlockVector2;
 import com.sk89q.worldedit.math.BlockVector3;
 import com.sk89q.worldedit.math.Vector3;
@@ -44,6 +46,8 @@
 import com.sk89q.worldedit.util.Location;
 import com.sk89q.worldedit.world.biome.BiomeType;
 import com.sk89q.worldedit.world.block.BaseBlock;
+import com.sk89q.worldedit.world.block.BlockState;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
@@ -77,16 +81,20 @@ public SpongeSchematicWriter(NBTOutputStream outputStream) {
     @Override
     public void write(Clipboard clipboard) throws IOException {
         // For now always write the latest version. Maybe provide support for earlier if more appear.
-        outputStream.writeNamedTag("Schematic", new CompoundTag(write2(clipboard)));
+        write2(clipboard);
     }
 
     /**
      * Writes a version 2 schematic file.
      *
+     * <p>The block data is streamed to the output in a second pass over the
+     * clipboard, after the palette has been collected in a first pass, so
+     * only the palette and the tile entities are kept in memory.</p>
+     *
      * @param clipboard The clipboard
-     * @return The schematic map
+     * @throws IOException if an I/O error occurs
      */
-    private Map<String, Tag> write2(Clipboard clipboard) {
+    private void write2(Clipboard clipboard) throws IOException {
         Region region = clipboard.getRegion();
         BlockVector3 origin = clipboard.getOrigin();
         BlockVector3 min = region.getMinimumPoint();
@@ -105,9 +113,24 @@ private Map<String, Tag> write2(Clipboard clipboard) {
             throw new IllegalArgumentException("Length of region too large for a .schematic");
         }
 
-        Map<String, Tag> schematic = new HashMap<>();
-        schematic.put("Version", new IntTag(CURRENT_VERSION));
-        schematic.put("DataVersion", new IntTag(
+        BlockPalette palette = new BlockPalette();
+        for (int y = 0; y < height; y++) {
+            int y0 = min.getBlockY() + y;
+            for (int z = 0; z < length; z++) {
+                int z0 = min.getBlockZ() + z;
+                for (int x = 0; x < width; x++) {
+                    int x0 = min.getBlockX() + x;
+                    palette.add(clipboard.getBlock(BlockVector3.at(x0, y0, z0)));
+                }
+            }
+        }
+        if (palette.dataLength > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Block data of region too large for a .schematic");
+        }
+
+        outputStream.writeTagHeader(NBTConstants.TYPE_COMPOUND, "Schematic");
+        outputStream.writeNamedTag("Version", new IntTag(CURRENT_VERSION));
+        outputStream.writeNamedTag("DataVersion", new IntTag(
                 WorldEdit.getInstance().getPlatformManager().queryCapability(Capability.WORLD_EDITING).getDataVersion()));
 
         Map<String, Tag> metadata = new HashMap<>();
@@ -115,25 +138,35 @@ private Map<String, Tag> write2(Clipboard clipboard) {
         metadata.put("WEOffsetY", new IntTag(offset.getBlockY()));
         metadata.put("WEOffsetZ", new IntTag(offset.getBlockZ()));
 
-        schematic.put("Metadata", new CompoundTag(metadata));
+        outputStream.writeNamedTag("Metadata", new CompoundTag(metadata));
 
-        schematic.put("Width", new ShortTag((short) width));
-        schematic.put("Height", new ShortTag((short) height));
-        schematic.put("Length", new ShortTag((short) length));
+        outputStream.writeNamedTag("Width", new ShortTag((short) width));
+        outputStream.writeNamedTag("Height", new ShortTag((short) height));
+        outputStream.writeNamedTag("Length", new ShortTag((short) length));
 
         // The Sponge format Offset refers to the 'min' points location in the world. That's our 'Origin'
-        schematic.put("Offset", new IntArrayTag(new int[]{
+        outputStream.writeNamedTag("Offset", new IntArrayTag(new int[]{
                 min.getBlockX(),
                 min.getBlockY(),
                 min.getBlockZ(),
         }));
 
-        int paletteMax = 0;
-        Map<String, Integer> palette = new HashMap<>();
+        outputStream.writeNamedTag("PaletteMax", new IntTag(palette.states.size()));
+
+        outputStream.writeTagHeader(NBTConstants.TYPE_COMPOUND, "Palette");
+        for (int i = 0; i < palette.states.size(); i++) {
+            outputStream.writeNamedTag(palette.states.get(i).getAsString(), new IntTag(i));
+        }
+        outputStream.writeEndTag();
 
         List<CompoundTag> tileEntities = new ArrayList<>();
 
-        ByteArrayOutputStream buffer = new ByteArrayOutputStream(width * height * length);
+        outputStream.writeTagHeader(NBTConstants.TYPE_BYTE_ARRAY, "BlockData");
+        outputStream.writeArrayLength((int) palette.dataLength);
+
+        byte[] buffer = new byte[8192];
+        int bufferSize = 0;
+        long written = 0;
 
         for (int y = 0; y < height; y++) {
             int y0 = min.getBlockY() + y;
@@ -163,35 +196,34 @@ private Map<String, Tag> write2(Clipboard clipboard) {
                         tileEntities.add(new CompoundTag(values));
                     }
 
-                    String blockKey = block.toImmutableState().getAsString();
-                    int blockId;
-                    if (palette.containsKey(blockKey)) {
-                        blockId = palette.get(blockKey);
-                    } else {
-                        blockId = paletteMax;
-                        palette.put(blockKey, blockId);
-                        paletteMax++;
+                    int blockId = palette.indexOf(block.toImmutableState());
+                    if (blockId == -1) {
+                        throw new IOException("Clipboard changed while it was being written");
                     }
 
+                    if (bufferSize > buffer.length - 5) {
+                        outputStream.writeBytes(buffer, 0, bufferSize);
+                        written += bufferSize;
+                        bufferSize = 0;
+                    }
                     while ((blockId & -128) != 0) {
-                        buffer.write(blockId & 127 | 128);
+                        buffer[bufferSize++] = (byte) (blockId & 127 | 128);
                         blockId >>>= 7;
                     }
-                    buffer.write(blockId);
+                    buffer[bufferSize++] = (byte) blockId;
                 }
             }
         }
+        outputStream.writeBytes(buffer, 0, bufferSize);
+        written += bufferSize;
+        if (written != palette.dataLength) {
+            throw new IOException("Clipboard changed while it was being written");
+        }
 
-        schematic.put("PaletteMax", new IntTag(paletteMax));
-
-        Map<String, Tag> paletteTag = new HashMap<>();
-        palette.forEach((key, value) -> paletteTag.put(key, new IntTag(value)));
-
-        schematic.put("Palette", new CompoundTag(paletteTag));
-        schematic.put("BlockData", new ByteArrayTag(buffer.toByteArray()));
-        schematic.put("BlockEntities", new ListTag(CompoundTag.class, tileEntities));
+        outputStream.writeNamedTag("BlockEntities", new ListTag(CompoundTag.class, tileEntities));
 
         // version 2 stuff
+        Map<String, Tag> schematic = new HashMap<>();
         if (clipboard.hasBiomes()) {
             writeBiomes(clipboard, schematic);
         }
@@ -200,7 +232,10 @@ private Map<String, Tag> write2(Clipboard clipboard) {
             writeEntities(clipboard, schematic);
         }
 
-        return schematic;
+        for (Map.Entry<String, Tag> entry : schematic.entrySet()) {
+            outputStream.writeNamedTag(entry.getKey(), entry.getValue());
+        }
+        outputStream.writeEndTag();
     }
 
     private void writeBiomes(Clipboard clipboard, Map<String, Tag> schematic) {
@@ -272,6 +307,54 @@ private void writeEntities(Clipboard clipboard, Map<String, Tag> schematic) {
         schematic.put("Entities", new ListTag(CompoundTag.class, entities));
     }
 
+    /**
+     * Assigns palette indices to block states by their internal ID, and
+     * counts the bytes needed to write the block data.
+     */
+    private static final class BlockPalette {
+
+        private final Int2IntOpenHashMap indexById = new Int2IntOpenHashMap();
+        private final Map<BlockState, Integer> indexByState = new HashMap<>();
+        private final List<BlockState> states = new ArrayList<>();
+        private long dataLength;
+
+        BlockPalette() {
+            indexById.defaultReturnValue(-1);
+        }
+
+        void add(BlockState state) {
+            int index = indexOf(state);
+            if (index == -1) {
+                index = states.size();
+                states.add(state);
+                int id = BlockStateIdAccess.getBlockStateId(state);
+                if (BlockStateIdAccess.isValidInternalId(id)) {
+                    indexById.put(id, index);
+                } else {
+                    indexByState.put(state, index);
+                }
+            }
+            dataLength += varIntSize(index);
+        }
+
+        int indexOf(BlockState state) {
+            int id = BlockStateIdAccess.getBlockStateId(state);
+            if (BlockStateIdAccess.isValidInternalId(id)) {
+                return indexById.get(id);
+            }
+            return indexByState.getOrDefault(state, -1);
+        }
+
+        private static int varIntSize(int value) {
+            int size = 1;
+            while ((value & -128) != 0) {
+                value >>>= 7;
+                size++;
+            }
+            return size;
+        }
+    }
+
     private Tag writeVector(Vector3 vector) {
         List<DoubleTag> list = new ArrayList<>();
         list.add(new DoubleTag(vector.getX()));
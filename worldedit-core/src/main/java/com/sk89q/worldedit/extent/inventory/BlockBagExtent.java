@@ -21,6 +21,7 @@
 
 import com.sk89q.worldedit.WorldEditException;
 import com.sk89q.worldedit.extent.AbstractDelegateExtent;
+import com.sk89q.worldedit.extent.ChunkSectionBatch;
 import com.sk89q.worldedit.extent.Extent;
 import com.sk89q.worldedit.math.BlockVector3;
 import com.sk89q.worldedit.world.block.BlockState;
@@ -113,4 +114,18 @@ public <B extends BlockStateHolder<B>> boolean setBlock(BlockVector3 position, B
 
         return super.setBlock(position, block);
     }
+
+    @Override
+    public void getBlockStateIds(BlockVector3 min, BlockVector3 max, int[] ids) {
+        getExtent().getBlockStateIds(min, max, ids);
+    }
+
+    @Override
+    public int setBlocks(ChunkSectionBatch batch) throws WorldEditException {
+        if (blockBag != null) {
+            // every block has to be taken from the bag
+            return super.setBlocks(batch);
+        }
+        return getExtent().setBlocks(batch);
+    }
 }
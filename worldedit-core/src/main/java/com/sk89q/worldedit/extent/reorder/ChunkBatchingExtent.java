@@ -21,19 +21,15 @@
 
 import com.sk89q.worldedit.WorldEditException;
 import com.sk89q.worldedit.extent.AbstractBufferingExtent;
+import com.sk89q.worldedit.extent.ChunkSectionBatch;
 import com.sk89q.worldedit.extent.Extent;
 import com.sk89q.worldedit.function.operation.Operation;
 import com.sk89q.worldedit.function.operation.RunContext;
-import com.sk89q.worldedit.internal.util.RegionOptimizedVectorSorter;
 import com.sk89q.worldedit.math.BlockVector3;
 import com.sk89q.worldedit.util.collection.BlockMap;
 import com.sk89q.worldedit.world.block.BaseBlock;
 import com.sk89q.worldedit.world.block.BlockStateHolder;
 
-import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.List;
-
 /**
  * A special extent that batches changes into Minecraft chunks. This helps
  * improve the speed of setting the blocks, since chunks do not need to be
@@ -88,24 +84,37 @@ protected Operation commitBefore() {
         return new Operation() {
 
             // we get modified between create/resume -- only create this on resume to prevent CME
-            private Iterator<BlockVector3> iterator;
+            private BlockMap.ChunkCursor<BaseBlock> cursor;
+            private final ChunkSectionBatch batch = new ChunkSectionBatch();
 
             @Override
             public Operation resume(RunContext run) throws WorldEditException {
-                if (iterator == null) {
-                    List<BlockVector3> blockVectors = new ArrayList<>(blockMap.keySet());
-                    RegionOptimizedVectorSorter.sort(blockVectors);
-                    iterator = blockVectors.iterator();
+                if (cursor == null) {
+                    cursor = blockMap.chunkCursor();
                 }
-                while (iterator.hasNext()) {
-                    BlockVector3 position = iterator.next();
-                    BaseBlock block = blockMap.get(position);
-                    getExtent().setBlock(position, block);
+                // the cursor finishes each section before moving on to the next
+                while (cursor.next()) {
+                    int x = cursor.getX();
+                    int y = cursor.getY();
+                    int z = cursor.getZ();
+                    if (!batch.isInSection(x, y, z)) {
+                        flush();
+                        batch.reset(x >> 4, y >> 4, z >> 4);
+                    }
+                    batch.add(cursor.getSectionIndex(), cursor.getValue());
                 }
+                flush();
                 blockMap.clear();
                 return null;
             }
 
+            private void flush() throws WorldEditException {
+                if (!batch.isEmpty()) {
+                    getExtent().setBlocks(batch);
+                    batch.clear();
+                }
+            }
+
             @Override
             public void cancel() {
             }
@@ -21,11 +21,11 @@
 
 import com.sk89q.worldedit.WorldEditException;
 import com.sk89q.worldedit.extent.AbstractBufferingExtent;
+import com.sk89q.worldedit.extent.ChunkSectionBatch;
 import com.sk89q.worldedit.extent.Extent;
 import com.sk89q.worldedit.function.operation.Operation;
-import com.sk89q.worldedit.function.operation.OperationQueue;
 import com.sk89q.worldedit.function.operation.RunContext;
-import com.sk89q.worldedit.function.operation.SetBlockMap;
+import com.sk89q.worldedit.internal.block.BlockStateIdAccess;
 import com.sk89q.worldedit.math.BlockVector3;
 import com.sk89q.worldedit.util.collection.BlockMap;
 import com.sk89q.worldedit.world.block.BaseBlock;
@@ -35,11 +35,12 @@
 import com.sk89q.worldedit.world.block.BlockType;
 import com.sk89q.worldedit.world.block.BlockTypes;
 
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import javax.annotation.Nullable;
+
 /**
  * Re-orders blocks into several stages.
  */
@@ -140,7 +141,15 @@ public class MultiStageReorder extends AbstractBufferingExtent implements Reorde
         priorityMap.put(BlockTypes.MOVING_PISTON, PlacementPriority.FINAL);
     }
 
-    private Map<PlacementPriority, BlockMap<BaseBlock>> stages = new HashMap<>();
+    private static final PlacementPriority[] PRIORITIES = PlacementPriority.values();
+    private static final int NO_STAGE = 0xF;
+    /**
+     * The most blocks that are read in bulk per buffered block, beyond
+     * which the blocks of a section are read one by one.
+     */
+    private static final int SPARSE_FACTOR = 4;
+
+    private final BlockMap<BaseBlock> buffer = BlockMap.createForBaseBlock();
 
     private boolean enabled;
 
@@ -172,10 +181,6 @@ public MultiStageReorder(Extent extent) {
     public MultiStageReorder(Extent extent, boolean enabled) {
         super(extent);
         this.enabled = enabled;
-
-        for (PlacementPriority priority : PlacementPriority.values()) {
-            stages.put(priority, BlockMap.createForBaseBlock());
-        }
     }
 
     /**
@@ -201,58 +206,68 @@ public boolean commitRequired() {
     }
 
     /**
-     * Gets the stage priority of the block.
+     * Gets the stage priority of a block type.
+     *
+     * <p>Subclasses may override this to place other blocks in other
+     * stages.</p>
      *
-     * @param block The block
+     * @param type The block type
      * @return The priority
      */
-    private <B extends BlockStateHolder<B>> PlacementPriority getPlacementPriority(B block) {
-        return priorityMap.getOrDefault(block.getBlockType(), PlacementPriority.FIRST);
+    protected PlacementPriority getPlacementPriority(BlockType type) {
+        return priorityMap.getOrDefault(type, PlacementPriority.FIRST);
     }
 
+    /**
+     * Gets the stage that clears a block before it is replaced, or
+     * {@link #NO_STAGE} if it can be replaced directly.
+     */
+    private static int getClearStage(PlacementPriority existing) {
+        switch (existing) {
+            case FINAL:
+                return PlacementPriority.CLEAR_FINAL.ordinal();
+            case LATE:
+                return PlacementPriority.CLEAR_LATE.ordinal();
+            case LAST:
+                return PlacementPriority.CLEAR_LAST.ordinal();
+            default:
+                return NO_STAGE;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>The block currently in the world is only looked up on commit, so
+     * this always returns {@code true} while re-ordering is enabled.</p>
+     */
     @Override
     public <B extends BlockStateHolder<B>> boolean setBlock(BlockVector3 location, B block) throws WorldEditException {
         if (!enabled) {
             return setDelegateBlock(location, block);
         }
+        buffer.put(location, block.toBaseBlock());
+        return true;
+    }
 
-        BlockState existing = getExtent().getBlock(location);
-        PlacementPriority priority = getPlacementPriority(block);
-        PlacementPriority srcPriority = getPlacementPriority(existing);
-
-        if (srcPriority != PlacementPriority.FIRST) {
-            BaseBlock replacement = (block.getBlockType().getMaterial().isAir() ? block : BlockTypes.AIR.getDefaultState()).toBaseBlock();
-
-            switch (srcPriority) {
-                case FINAL:
-                    stages.get(PlacementPriority.CLEAR_FINAL).put(location, replacement);
-                    break;
-                case LATE:
-                    stages.get(PlacementPriority.CLEAR_LATE).put(location, replacement);
-                    break;
-                case LAST:
-                    stages.get(PlacementPriority.CLEAR_LAST).put(location, replacement);
-                    break;
-            }
-
-            if (block.getBlockType().getMaterial().isAir()) {
-                return !existing.equalsFuzzy(block);
-            }
+    /**
+     * {@inheritDoc}
+     *
+     * <p>While re-ordering is enabled, the blocks of the batch are buffered
+     * one by one like single blocks, and are placed in batches again, stage
+     * by stage, on commit.</p>
+     */
+    @Override
+    public int setBlocks(ChunkSectionBatch batch) throws WorldEditException {
+        if (!enabled) {
+            return getExtent().setBlocks(batch);
         }
-
-        stages.get(priority).put(location, block.toBaseBlock());
-        return !existing.equalsFuzzy(block);
+        return super.setBlocks(batch);
     }
 
     @Override
     protected BaseBlock getBufferedFullBlock(BlockVector3 position) {
-        for (BlockMap<BaseBlock> blocks : stages.values()) {
-            BaseBlock baseBlock = blocks.get(position);
-            if (baseBlock != null) {
-                return baseBlock;
-            }
-        }
-        return null;
+        return buffer.get(position);
     }
 
     @Override
@@ -260,21 +275,196 @@ public Operation commitBefore() {
         if (!commitRequired()) {
             return null;
         }
-        List<Operation> operations = new ArrayList<>();
-        for (PlacementPriority priority : PlacementPriority.values()) {
-            BlockMap<BaseBlock> blocks = stages.get(priority);
-            operations.add(new SetBlockMap(getExtent(), blocks) {
-                @Override
-                public Operation resume(RunContext run) throws WorldEditException {
-                    Operation operation = super.resume(run);
-                    if (operation == null) {
-                        blocks.clear();
+        return new Operation() {
+            private final ChunkSectionBatch batch = new ChunkSectionBatch();
+            // the buffer may change until the first resume
+            private StagedBlocks staged;
+            private int stage;
+            private int index;
+
+            @Override
+            public Operation resume(RunContext run) throws WorldEditException {
+                if (staged == null) {
+                    staged = resolveStages();
+                }
+                while (stage < PRIORITIES.length) {
+                    boolean used = (staged.usedStages & 1 << stage) != 0;
+                    if (used) {
+                        // the blocks are in chunk order, so the blocks of a
+                        // stage come section by section
+                        while (index < staged.size) {
+                            BaseBlock block = staged.getBlockForStage(index, stage);
+                            if (block != null) {
+                                int x = staged.xs[index];
+                                int y = staged.ys[index];
+                                int z = staged.zs[index];
+                                if (!batch.isInSection(x, y, z)) {
+                                    if (flush() && !run.shouldContinue()) {
+                                        // this block starts the next run
+                                        return this;
+                                    }
+                                    batch.reset(x >> 4, y >> 4, z >> 4);
+                                }
+                                batch.add(ChunkSectionBatch.getSectionIndex(x, y, z), block);
+                            }
+                            index++;
+                        }
+                        flush();
+                    }
+                    stage++;
+                    index = 0;
+                    if (used && stage < PRIORITIES.length && !run.shouldContinue()) {
+                        return this;
                     }
-                    return operation;
                 }
-            });
+                buffer.clear();
+                return null;
+            }
+
+            private boolean flush() throws WorldEditException {
+                if (batch.isEmpty()) {
+                    return false;
+                }
+                getExtent().setBlocks(batch);
+                batch.clear();
+                return true;
+            }
+
+            @Override
+            public void cancel() {
+            }
+
+            @Override
+            public void addStatusMessages(List<String> messages) {
+            }
+        };
+    }
+
+    /**
+     * The buffered blocks in chunk order, with their stages.
+     */
+    private static final class StagedBlocks {
+        private final int size;
+        private final int[] xs;
+        private final int[] ys;
+        private final int[] zs;
+        private final BaseBlock[] blocks;
+        private final byte[] stages;
+        private int usedStages;
+
+        private StagedBlocks(int size) {
+            this.size = size;
+            this.xs = new int[size];
+            this.ys = new int[size];
+            this.zs = new int[size];
+            this.blocks = new BaseBlock[size];
+            this.stages = new byte[size];
+        }
+
+        /**
+         * Get the block to set at the n-th position in a stage.
+         *
+         * @return the block, or {@code null} if the stage does not set it
+         */
+        @Nullable
+        private BaseBlock getBlockForStage(int n, int stage) {
+            int tags = stages[n];
+            if ((tags >>> 4 & 0xF) == stage) {
+                // clear to air, unless another kind of air is being placed
+                return blocks[n].getBlockType().getMaterial().isAir()
+                    ? blocks[n] : BlockTypes.AIR.getDefaultState().toBaseBlock();
+            }
+            if ((tags & 0xF) == stage) {
+                return blocks[n];
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Work out the stages of every buffered block.
+     *
+     * <p>The lower four bits of each stage entry hold the stage that places
+     * the block, and the upper four bits the stage that clears the block
+     * that is in the world first, if any.</p>
+     *
+     * @return the blocks and their stages
+     */
+    private StagedBlocks resolveStages() {
+        StagedBlocks staged = new StagedBlocks(buffer.size());
+        BlockMap.ChunkCursor<BaseBlock> cursor = buffer.chunkCursor();
+        int i = 0;
+        while (cursor.next()) {
+            staged.xs[i] = cursor.getX();
+            staged.ys[i] = cursor.getY();
+            staged.zs[i] = cursor.getZ();
+            staged.blocks[i] = cursor.getValue();
+            i++;
         }
+        // the cursor finishes each section before moving on to the next
+        int[] ids = new int[ChunkSectionBatch.SECTION_VOLUME];
+        int start = 0;
+        while (start < staged.size) {
+            int end = start + 1;
+            while (end < staged.size && isSameSection(staged, start, end)) {
+                end++;
+            }
+            resolveSection(staged, start, end, ids);
+            start = end;
+        }
+        return staged;
+    }
+
+    private static boolean isSameSection(StagedBlocks staged, int a, int b) {
+        return staged.xs[a] >> 4 == staged.xs[b] >> 4
+            && staged.ys[a] >> 4 == staged.ys[b] >> 4
+            && staged.zs[a] >> 4 == staged.zs[b] >> 4;
+    }
 
-        return new OperationQueue(operations);
+    /**
+     * Work out the stages of the blocks of one section, reading the blocks
+     * in the world at once unless only a few of the section are buffered.
+     */
+    private void resolveSection(StagedBlocks staged, int start, int end, int[] ids) {
+        int minX = Integer.MAX_VALUE;
+        int minY = Integer.MAX_VALUE;
+        int minZ = Integer.MAX_VALUE;
+        int maxX = Integer.MIN_VALUE;
+        int maxY = Integer.MIN_VALUE;
+        int maxZ = Integer.MIN_VALUE;
+        for (int i = start; i < end; i++) {
+            minX = Math.min(minX, staged.xs[i]);
+            minY = Math.min(minY, staged.ys[i]);
+            minZ = Math.min(minZ, staged.zs[i]);
+            maxX = Math.max(maxX, staged.xs[i]);
+            maxY = Math.max(maxY, staged.ys[i]);
+            maxZ = Math.max(maxZ, staged.zs[i]);
+        }
+        int sizeX = maxX - minX + 1;
+        int sizeZ = maxZ - minZ + 1;
+        boolean bulk = sizeX * (maxY - minY + 1) * sizeZ <= (end - start) * SPARSE_FACTOR;
+        if (bulk) {
+            getExtent().getBlockStateIds(BlockVector3.at(minX, minY, minZ), BlockVector3.at(maxX, maxY, maxZ), ids);
+        }
+        for (int i = start; i < end; i++) {
+            BlockState existing = null;
+            if (bulk) {
+                existing = BlockStateIdAccess.getBlockStateById(
+                    ids[((staged.ys[i] - minY) * sizeZ + (staged.zs[i] - minZ)) * sizeX + (staged.xs[i] - minX)]);
+            }
+            if (existing == null) {
+                // states without an ID have to be read again
+                existing = getExtent().getBlock(BlockVector3.at(staged.xs[i], staged.ys[i], staged.zs[i]));
+            }
+            BaseBlock block = staged.blocks[i];
+            int clearStage = getClearStage(getPlacementPriority(existing.getBlockType()));
+            int placeStage = getPlacementPriority(block.getBlockType()).ordinal();
+            if (clearStage != NO_STAGE && block.getBlockType().getMaterial().isAir()) {
+                // clearing already places the air
+                placeStage = NO_STAGE;
+            }
+            staged.stages[i] = (byte) (clearStage << 4 | placeStage);
+            staged.usedStages |= 1 << clearStage | 1 << placeStage;
+        }
     }
 }
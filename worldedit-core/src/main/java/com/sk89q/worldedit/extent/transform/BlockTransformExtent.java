@@ -19,10 +19,15 @@
 
 package com.sk89q.worldedit.extent.transform;
 
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
 import com.google.common.collect.Sets;
 import com.sk89q.worldedit.WorldEditException;
 import com.sk89q.worldedit.extent.AbstractDelegateExtent;
 import com.sk89q.worldedit.extent.Extent;
+import com.sk89q.worldedit.internal.block.BlockStateIdAccess;
 import com.sk89q.worldedit.math.BlockVector3;
 import com.sk89q.worldedit.math.Vector3;
 import com.sk89q.worldedit.math.transform.AffineTransform;
@@ -38,6 +43,7 @@
 import com.sk89q.worldedit.world.block.BlockStateHolder;
 
 import javax.annotation.Nullable;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
@@ -54,7 +60,18 @@
  */
 public class BlockTransformExtent extends AbstractDelegateExtent {
 
+    /**
+     * Transformed states by transform, so that every paste of a clipboard
+     * holder with the same transform shares one table. Transforms don't
+     * implement equals(), and each rotation or flip creates a new one, so
+     * only the most recent are kept.
+     */
+    private static final LoadingCache<Transform, StateTable> STATE_TABLES = CacheBuilder.newBuilder()
+        .maximumSize(64)
+        .build(CacheLoader.from(StateTable::new));
+
     private final Transform transform;
+    private final StateTable stateTable;
 
     /**
      * Create a new instance.
@@ -65,6 +82,7 @@ public BlockTransformExtent(Extent extent, Transform transform) {
         super(extent);
         checkNotNull(transform);
         this.transform = transform;
+        this.stateTable = STATE_TABLES.getUnchecked(transform);
     }
 
     /**
@@ -84,7 +102,7 @@ public Transform getTransform() {
      * @return the same block
      */
     private <T extends BlockStateHolder<T>> T transformBlock(T block, boolean reverse) {
-        return transform(block, reverse ? transform.inverse() : transform);
+        return transform(block, reverse ? stateTable.inverse() : stateTable);
     }
 
     @Override
@@ -97,6 +115,15 @@ public BaseBlock getFullBlock(BlockVector3 position) {
         return transformBlock(super.getFullBlock(position), false);
     }
 
+    @Override
+    public void getBlockStateIds(BlockVector3 min, BlockVector3 max, int[] ids) {
+        getExtent().getBlockStateIds(min, max, ids);
+        int volume = (max.getX() - min.getX() + 1) * (max.getY() - min.getY() + 1) * (max.getZ() - min.getZ() + 1);
+        for (int i = 0; i < volume; i++) {
+            ids[i] = stateTable.apply(ids[i]);
+        }
+    }
+
     @Override
     public <B extends BlockStateHolder<B>> boolean setBlock(BlockVector3 location, B block) throws WorldEditException {
         return super.setBlock(location, transformBlock(block, true));
@@ -117,6 +144,29 @@ public static <B extends BlockStateHolder<B>> B transform(B block, Transform tra
         checkNotNull(block);
         checkNotNull(transform);
 
+        return transform(block, STATE_TABLES.getUnchecked(transform));
+    }
+
+    /**
+     * Transform the given block, looking its state up in the given table.
+     * Blocks of other classes than {@link BlockState} and {@link BaseBlock}
+     * may carry more than their state, so they are transformed directly.
+     */
+    @SuppressWarnings("unchecked")
+    private static <B extends BlockStateHolder<B>> B transform(B block, StateTable table) {
+        if (block.getClass() == BlockState.class) {
+            return (B) table.apply((BlockState) block);
+        }
+        if (block.getClass() == BaseBlock.class) {
+            BlockState state = block.toImmutableState();
+            BlockState result = table.apply(state);
+            return result == state ? block : (B) result.toBaseBlock(((BaseBlock) block).getNbtData());
+        }
+        return transformUncached(block, table.transform);
+    }
+
+    @VisibleForTesting
+    static <B extends BlockStateHolder<B>> B transformUncached(B block, Transform transform) {
         B result = block;
         List<? extends Property<?>> properties = block.getBlockType().getProperties();
 
@@ -282,4 +332,85 @@ private static Vector3 getNewStateValue(List<Direction> allowedStates, Transform
         }
     }
 
+    /**
+     * The transformed state of each block state, filled in as states are
+     * first transformed.
+     */
+    private static final class StateTable {
+
+        private final Transform transform;
+        /**
+         * Transformed states, indexed by the internal ID of the original
+         * state. Threads that race to fill or grow it only repeat work.
+         */
+        private volatile IdTable byId = new IdTable(BlockStateIdAccess.getGeneration(), new BlockState[0]);
+        @Nullable
+        private volatile StateTable inverse;
+
+        private StateTable(Transform transform) {
+            this.transform = transform;
+        }
+
+        /**
+         * Get the table of the inverse transform, which is created once so
+         * that its states are kept too.
+         */
+        StateTable inverse() {
+            StateTable table = inverse;
+            if (table == null) {
+                inverse = table = new StateTable(transform.inverse());
+            }
+            return table;
+        }
+
+        BlockState apply(BlockState state) {
+            int id = BlockStateIdAccess.getBlockStateId(state);
+            if (!BlockStateIdAccess.isValidInternalId(id)) {
+                return transformUncached(state, transform);
+            }
+            IdTable table = byId;
+            int generation = BlockStateIdAccess.getGeneration();
+            if (table.generation != generation) {
+                // the IDs were reassigned, so the table may hold other states
+                table = new IdTable(generation, new BlockState[0]);
+                byId = table;
+            }
+            BlockState[] states = table.states;
+            if (id < states.length) {
+                BlockState cached = states[id];
+                if (cached != null) {
+                    return cached;
+                }
+            } else {
+                states = Arrays.copyOf(states, Math.max(id + 1, states.length * 2));
+                byId = new IdTable(generation, states);
+            }
+            BlockState result = transformUncached(state, transform);
+            states[id] = result;
+            return result;
+        }
+
+        int apply(int id) {
+            if (!BlockStateIdAccess.isValidInternalId(id)) {
+                return id;
+            }
+            BlockState state = BlockStateIdAccess.getBlockStateById(id);
+            return state == null ? id : BlockStateIdAccess.getBlockStateId(apply(state));
+        }
+    }
+
+    /**
+     * Transformed states by internal ID, for one generation of the IDs.
+     */
+    private static final class IdTable {
+
+        private final int generation;
+        private final BlockState[] states;
+
+        private IdTable(int generation, BlockState[] states) {
+            this.generation = generation;
+            this.states = states;
+        }
+    }
+
 }
@@ -23,6 +23,7 @@
 
 import com.sk89q.worldedit.WorldEditException;
 import com.sk89q.worldedit.extent.AbstractDelegateExtent;
+import com.sk89q.worldedit.extent.ChunkSectionBatch;
 import com.sk89q.worldedit.extent.Extent;
 import com.sk89q.worldedit.math.BlockVector3;
 import com.sk89q.worldedit.world.World;
@@ -52,6 +53,24 @@ public BlockQuirkExtent(Extent extent, World world) {
 
     @Override
     public <B extends BlockStateHolder<B>> boolean setBlock(BlockVector3 position, B block) throws WorldEditException {
+        prepareReplace(position);
+        return super.setBlock(position, block);
+    }
+
+    @Override
+    public void getBlockStateIds(BlockVector3 min, BlockVector3 max, int[] ids) {
+        getExtent().getBlockStateIds(min, max, ids);
+    }
+
+    @Override
+    public int setBlocks(ChunkSectionBatch batch) throws WorldEditException {
+        for (int i = 0; i < batch.size(); i++) {
+            prepareReplace(batch.getPosition(i));
+        }
+        return getExtent().setBlocks(batch);
+    }
+
+    private void prepareReplace(BlockVector3 position) throws WorldEditException {
         BlockType existing = getExtent().getBlock(position).getBlockType();
 
         if (existing.getMaterial().hasContainer()) {
@@ -59,8 +78,6 @@ public <B extends BlockStateHolder<B>> boolean setBlock(BlockVector3 position, B
         } else if (existing == BlockTypes.ICE) {
             world.setBlock(position, BlockTypes.AIR.getDefaultState()); // Ice turns until water so this has to be done first
         }
-
-        return super.setBlock(position, block);
     }
 
 }
@@ -23,19 +23,28 @@
 
 import com.sk89q.worldedit.WorldEditException;
 import com.sk89q.worldedit.extent.AbstractDelegateExtent;
+import com.sk89q.worldedit.extent.ChunkSectionBatch;
 import com.sk89q.worldedit.extent.Extent;
 import com.sk89q.worldedit.math.BlockVector2;
 import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.regions.Region;
 import com.sk89q.worldedit.world.World;
 import com.sk89q.worldedit.world.biome.BiomeType;
 import com.sk89q.worldedit.world.block.BlockStateHolder;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
 
 /**
  * Automatically loads chunks when blocks are accessed.
+ *
+ * <p>Each chunk is only checked the first time it is accessed through this
+ * extent, so setting many blocks in the same chunk costs a single check.</p>
  */
 public class ChunkLoadingExtent extends AbstractDelegateExtent {
 
     private final World world;
+    private final LongSet checkedChunks = new LongOpenHashSet();
     private boolean enabled;
 
     /**
@@ -62,18 +71,56 @@ public ChunkLoadingExtent(Extent extent, World world) {
         this(extent, world, true);
     }
 
+    /**
+     * Load every chunk that the given region overlaps with up front.
+     *
+     * @param region the region
+     */
+    public void loadChunks(Region region) {
+        checkNotNull(region);
+        if (!enabled) {
+            return;
+        }
+        for (LongIterator it = region.getPackedChunks().iterator(); it.hasNext(); ) {
+            final long chunk = it.nextLong();
+            if (checkedChunks.add(chunk)) {
+                BlockVector2 position = BlockVector2.fromLongPackedForm(chunk);
+                world.checkLoadedChunk(BlockVector3.at(position.getX() << 4, 0, position.getZ() << 4));
+            }
+        }
+    }
+
+    private void checkLoadedChunk(int x, int y, int z) {
+        if (checkedChunks.add(BlockVector2.toLongPackedForm(x >> 4, z >> 4))) {
+            world.checkLoadedChunk(BlockVector3.at(x, y, z));
+        }
+    }
+
     @Override
     public <B extends BlockStateHolder<B>> boolean setBlock(BlockVector3 location, B block) throws WorldEditException {
         if (enabled) {
-            world.checkLoadedChunk(location);
+            checkLoadedChunk(location.getX(), location.getY(), location.getZ());
         }
         return super.setBlock(location, block);
     }
 
+    @Override
+    public void getBlockStateIds(BlockVector3 min, BlockVector3 max, int[] ids) {
+        getExtent().getBlockStateIds(min, max, ids);
+    }
+
+    @Override
+    public int setBlocks(ChunkSectionBatch batch) throws WorldEditException {
+        if (enabled) {
+            checkLoadedChunk(batch.getChunkX() << 4, batch.getSectionY() << 4, batch.getChunkZ() << 4);
+        }
+        return getExtent().setBlocks(batch);
+    }
+
     @Override
     public boolean setBiome(BlockVector2 position, BiomeType biome) {
         if (enabled) {
-            world.checkLoadedChunk(position.toBlockVector3());
+            checkLoadedChunk(position.getX(), 0, position.getZ());
         }
         return super.setBiome(position, biome);
     }
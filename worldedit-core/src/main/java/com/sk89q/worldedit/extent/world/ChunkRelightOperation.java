@@ -0,0 +1,149 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.extent.world;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.function.operation.Operation;
+import com.sk89q.worldedit.function.operation.RunContext;
+import com.sk89q.worldedit.math.BlockVector2;
+import com.sk89q.worldedit.util.task.progress.Progress;
+import com.sk89q.worldedit.util.task.progress.ProgressObservable;
+import com.sk89q.worldedit.world.World;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Fixes chunks with {@link World#fixAfterFastMode(Iterable)}, a batch of
+ * neighbouring chunks at a time.
+ *
+ * <p>Chunks are grouped into square tiles of chunks, and each tile is
+ * passed to the world in a single call, so that light spreading between
+ * neighbouring chunks is handled together. The operation yields between
+ * batches when the {@link RunContext} asks it to, which lets it be spread
+ * over several ticks by the
+ * {@link com.sk89q.worldedit.function.operation.OperationScheduler}.</p>
+ */
+public class ChunkRelightOperation implements Operation, ProgressObservable {
+
+    /**
+     * The default width of a tile, in chunks.
+     */
+    public static final int DEFAULT_TILE_SIZE = 4;
+
+    private final World world;
+    private final List<List<BlockVector2>> batches = new ArrayList<>();
+    private final int chunkCount;
+    private int nextBatch;
+    private int relit;
+
+    /**
+     * Create a new instance.
+     *
+     * @param world the world
+     * @param chunks the chunks to fix
+     */
+    public ChunkRelightOperation(World world, Collection<BlockVector2> chunks) {
+        this(world, chunks, DEFAULT_TILE_SIZE);
+    }
+
+    /**
+     * Create a new instance.
+     *
+     * @param world the world
+     * @param chunks the chunks to fix
+     * @param tileSize the width of a tile, in chunks, a power of two
+     */
+    public ChunkRelightOperation(World world, Collection<BlockVector2> chunks, int tileSize) {
+        checkNotNull(world);
+        checkNotNull(chunks);
+        checkArgument(tileSize > 0 && (tileSize & (tileSize - 1)) == 0, "tileSize must be a power of two");
+        this.world = world;
+        this.chunkCount = chunks.size();
+
+        int shift = Integer.numberOfTrailingZeros(tileSize);
+        List<BlockVector2> sorted = new ArrayList<>(chunks);
+        sorted.sort(Comparator.<BlockVector2>comparingInt(chunk -> chunk.getBlockX() >> shift)
+                .thenComparingInt(chunk -> chunk.getBlockZ() >> shift)
+                .thenComparing(BlockVector2.COMPARING_GRID_ARRANGEMENT));
+        List<BlockVector2> batch = null;
+        BlockVector2 last = null;
+        for (BlockVector2 chunk : sorted) {
+            if (batch == null
+                    || chunk.getBlockX() >> shift != last.getBlockX() >> shift
+                    || chunk.getBlockZ() >> shift != last.getBlockZ() >> shift) {
+                batch = new ArrayList<>();
+                batches.add(batch);
+            }
+            batch.add(chunk);
+            last = chunk;
+        }
+    }
+
+    /**
+     * Get the number of batches the chunks were grouped into.
+     *
+     * @return the number of batches
+     */
+    public int getBatchCount() {
+        return batches.size();
+    }
+
+    /**
+     * Get the number of chunks fixed so far.
+     *
+     * @return the number of chunks
+     */
+    public int getRelitChunks() {
+        return relit;
+    }
+
+    @Override
+    public Operation resume(RunContext run) throws WorldEditException {
+        while (nextBatch < batches.size()) {
+            List<BlockVector2> batch = batches.get(nextBatch);
+            // drop batches once done, so a long relight does not hold on to them
+            batches.set(nextBatch++, null);
+            world.fixAfterFastMode(batch);
+            relit += batch.size();
+
+            if (!run.shouldContinue()) {
+                return nextBatch < batches.size() ? this : null;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void cancel() {
+        nextBatch = batches.size();
+    }
+
+    @Override
+    public Progress getProgress() {
+        return chunkCount > 0 ? Progress.of(relit / (double) chunkCount) : Progress.completed();
+    }
+
+}
@@ -21,8 +21,10 @@
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
+import com.sk89q.worldedit.WorldEdit;
 import com.sk89q.worldedit.WorldEditException;
 import com.sk89q.worldedit.extent.AbstractDelegateExtent;
+import com.sk89q.worldedit.extent.ChunkSectionBatch;
 import com.sk89q.worldedit.function.operation.Operation;
 import com.sk89q.worldedit.function.operation.RunContext;
 import com.sk89q.worldedit.math.BlockVector2;
@@ -89,6 +91,26 @@ public <B extends BlockStateHolder<B>> boolean setBlock(BlockVector3 location, B
         return world.setBlock(location, block, postEditSimulation ? SideEffectSet.none() : sideEffectSet);
     }
 
+    @Override
+    public void getBlockStateIds(BlockVector3 min, BlockVector3 max, int[] ids) {
+        world.getBlockStateIds(min, max, ids);
+    }
+
+    @Override
+    public int setBlocks(ChunkSectionBatch batch) throws WorldEditException {
+        if (sideEffectSet.getState(SideEffect.LIGHTING) == SideEffect.State.DELAYED) {
+            dirtyChunks.add(BlockVector2.at(batch.getChunkX(), batch.getChunkZ()));
+        }
+        if (postEditSimulation) {
+            for (int i = 0; i < batch.size(); i++) {
+                BlockVector3 location = batch.getPosition(i);
+                positions.put(location, world.getBlock(location));
+            }
+        }
+
+        return world.setBlocks(batch, postEditSimulation ? SideEffectSet.none() : sideEffectSet);
+    }
+
     public boolean commitRequired() {
         return postEditSimulation || !dirtyChunks.isEmpty();
     }
@@ -98,11 +120,28 @@ protected Operation commitBefore() {
         if (!commitRequired()) {
             return null;
         }
+        Operation relight = null;
+        if (!dirtyChunks.isEmpty()) {
+            relight = new ChunkRelightOperation(world, dirtyChunks);
+            WorldEdit worldEdit = WorldEdit.getInstance();
+            if (worldEdit.getConfiguration().spreadRelighting) {
+                // relight over the following ticks instead of all at once
+                worldEdit.getOperationScheduler().submit(relight, "Relighting " + dirtyChunks.size() + " chunks", null);
+                relight = null;
+            }
+            dirtyChunks.clear();
+        }
+        Operation pendingRelight = relight;
         return new Operation() {
+            private Operation relight = pendingRelight;
+
             @Override
             public Operation resume(RunContext run) throws WorldEditException {
-                if (!dirtyChunks.isEmpty()) {
-                    world.fixAfterFastMode(dirtyChunks);
+                if (relight != null) {
+                    relight = relight.resume(run);
+                    if (relight != null) {
+                        return this;
+                    }
                 }
 
                 if (postEditSimulation) {
@@ -121,6 +160,9 @@ public Operation resume(RunContext run) throws WorldEditException {
 
             @Override
             public void cancel() {
+                if (relight != null) {
+                    relight.cancel();
+                }
             }
         };
     }
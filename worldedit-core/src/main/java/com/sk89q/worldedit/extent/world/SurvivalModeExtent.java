@@ -23,6 +23,7 @@
 
 import com.sk89q.worldedit.WorldEditException;
 import com.sk89q.worldedit.extent.AbstractDelegateExtent;
+import com.sk89q.worldedit.extent.ChunkSectionBatch;
 import com.sk89q.worldedit.extent.Extent;
 import com.sk89q.worldedit.math.BlockVector3;
 import com.sk89q.worldedit.world.World;
@@ -102,4 +103,18 @@ public <B extends BlockStateHolder<B>> boolean setBlock(BlockVector3 location, B
         }
     }
 
+    @Override
+    public void getBlockStateIds(BlockVector3 min, BlockVector3 max, int[] ids) {
+        getExtent().getBlockStateIds(min, max, ids);
+    }
+
+    @Override
+    public int setBlocks(ChunkSectionBatch batch) throws WorldEditException {
+        if (toolUse || stripNbt) {
+            // blocks need to be looked at one by one
+            return super.setBlocks(batch);
+        }
+        return getExtent().setBlocks(batch);
+    }
+
 }
@@ -24,6 +24,7 @@
 import com.sk89q.worldedit.entity.Entity;
 import com.sk89q.worldedit.extension.platform.Watchdog;
 import com.sk89q.worldedit.extent.AbstractDelegateExtent;
+import com.sk89q.worldedit.extent.ChunkSectionBatch;
 import com.sk89q.worldedit.extent.Extent;
 import com.sk89q.worldedit.math.BlockVector2;
 import com.sk89q.worldedit.math.BlockVector3;
@@ -80,6 +81,17 @@ public <T extends BlockStateHolder<T>> boolean setBlock(BlockVector3 location, T
         return super.setBlock(location, block);
     }
 
+    @Override
+    public void getBlockStateIds(BlockVector3 min, BlockVector3 max, int[] ids) {
+        getExtent().getBlockStateIds(min, max, ids);
+    }
+
+    @Override
+    public int setBlocks(ChunkSectionBatch batch) throws WorldEditException {
+        onOperation();
+        return getExtent().setBlocks(batch);
+    }
+
     @Nullable
     @Override
     public Entity createEntity(Location location, BaseEntity entity) {
@@ -0,0 +1,50 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.function;
+
+/**
+ * A {@link RegionFunction} that can be applied to several parts of a region
+ * at the same time.
+ *
+ * <p>Each thread applies its own copy from {@link #fork()}, and the copies
+ * are merged back with {@link #join(ForkableRegionFunction)} on the thread
+ * that started the visit once all of them are done.</p>
+ *
+ * @param <F> the type of the function
+ */
+public interface ForkableRegionFunction<F extends ForkableRegionFunction<F>> extends RegionFunction {
+
+    /**
+     * Create a copy of this function with empty results, which may be
+     * applied on another thread.
+     *
+     * @return the copy
+     */
+    F fork();
+
+    /**
+     * Merge the results of a copy made with {@link #fork()} into this
+     * function.
+     *
+     * @param fork the copy
+     */
+    void join(F fork);
+
+}
@@ -21,10 +21,15 @@
 
 import com.sk89q.worldedit.WorldEditException;
 import com.sk89q.worldedit.extent.Extent;
-import com.sk89q.worldedit.function.RegionFunction;
+import com.sk89q.worldedit.function.ForkableRegionFunction;
+import com.sk89q.worldedit.internal.block.BlockStateIdAccess;
 import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.regions.CuboidRegion;
+import com.sk89q.worldedit.regions.Region;
 import com.sk89q.worldedit.util.Countable;
 import com.sk89q.worldedit.world.block.BlockState;
+import it.unimi.dsi.fastutil.ints.Int2IntMap;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -32,7 +37,7 @@
 import java.util.List;
 import java.util.Map;
 
-public class BlockDistributionCounter implements RegionFunction {
+public class BlockDistributionCounter implements ForkableRegionFunction<BlockDistributionCounter> {
 
     private Extent extent;
     private boolean separateStates;
@@ -47,20 +52,96 @@ public BlockDistributionCounter(Extent extent, boolean separateStates) {
 
     @Override
     public boolean apply(BlockVector3 position) throws WorldEditException {
-        BlockState blk = extent.getBlock(position);
+        add(extent.getBlock(position), 1);
+        return true;
+    }
+
+    /**
+     * Count all blocks of a region, reading them from the extent a chunk
+     * section at a time with
+     * {@link Extent#getBlockStateIds(BlockVector3, BlockVector3, int[])}.
+     *
+     * @param region the region
+     */
+    public void countRegion(Region region) {
+        BlockVector3 min = region.getMinimumPoint();
+        BlockVector3 max = region.getMaximumPoint();
+        boolean cuboid = region instanceof CuboidRegion;
+        int[] ids = new int[16 * 16 * 16];
+        Int2IntOpenHashMap counts = new Int2IntOpenHashMap();
+        int lastId = BlockStateIdAccess.invalidId();
+        boolean lastKnown = false;
+        for (int sectionY = min.getBlockY() >> 4; sectionY <= max.getBlockY() >> 4; sectionY++) {
+            int fromY = Math.max(min.getBlockY(), sectionY << 4);
+            int toY = Math.min(max.getBlockY(), (sectionY << 4) + 15);
+            for (int chunkZ = min.getBlockZ() >> 4; chunkZ <= max.getBlockZ() >> 4; chunkZ++) {
+                int fromZ = Math.max(min.getBlockZ(), chunkZ << 4);
+                int toZ = Math.min(max.getBlockZ(), (chunkZ << 4) + 15);
+                for (int chunkX = min.getBlockX() >> 4; chunkX <= max.getBlockX() >> 4; chunkX++) {
+                    int fromX = Math.max(min.getBlockX(), chunkX << 4);
+                    int toX = Math.min(max.getBlockX(), (chunkX << 4) + 15);
+                    extent.getBlockStateIds(BlockVector3.at(fromX, fromY, fromZ), BlockVector3.at(toX, toY, toZ), ids);
+                    int index = 0;
+                    for (int y = fromY; y <= toY; y++) {
+                        for (int z = fromZ; z <= toZ; z++) {
+                            for (int x = fromX; x <= toX; x++) {
+                                int id = ids[index++];
+                                if (!cuboid && !region.contains(BlockVector3.at(x, y, z))) {
+                                    continue;
+                                }
+                                if (id != lastId) {
+                                    lastId = id;
+                                    lastKnown = BlockStateIdAccess.getBlockStateById(id) != null;
+                                }
+                                if (lastKnown) {
+                                    counts.addTo(id, 1);
+                                } else {
+                                    // states without an ID have to be read again
+                                    add(extent.getBlock(BlockVector3.at(x, y, z)), 1);
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        for (Int2IntMap.Entry entry : counts.int2IntEntrySet()) {
+            add(BlockStateIdAccess.getBlockStateById(entry.getIntKey()), entry.getIntValue());
+        }
+    }
+
+    private void add(BlockState blk, int amount) {
         if (!separateStates) {
             blk = blk.getBlockType().getDefaultState();
         }
 
-        if (map.containsKey(blk)) {
-            map.get(blk).increment();
+        Countable<BlockState> existing = map.get(blk);
+        if (existing != null) {
+            existing.setAmount(existing.getAmount() + amount);
         } else {
-            Countable<BlockState> c = new Countable<>(blk, 1);
+            Countable<BlockState> c = new Countable<>(blk, amount);
             map.put(blk, c);
             distribution.add(c);
         }
+    }
 
-        return true;
+    @Override
+    public BlockDistributionCounter fork() {
+        return new BlockDistributionCounter(extent, separateStates);
+    }
+
+    @Override
+    public void join(BlockDistributionCounter fork) {
+        for (Countable<BlockState> counted : fork.distribution) {
+            Countable<BlockState> existing = map.get(counted.getID());
+            if (existing == null) {
+                Countable<BlockState> c = new Countable<>(counted.getID(), counted.getAmount());
+                map.put(counted.getID(), c);
+                distribution.add(c);
+            } else {
+                existing.setAmount(existing.getAmount() + counted.getAmount());
+            }
+        }
     }
 
     /**
@@ -19,18 +19,40 @@
 
 package com.sk89q.worldedit.function.block;
 
+import static com.google.common.base.Preconditions.checkNotNull;
+
 import com.sk89q.worldedit.WorldEditException;
-import com.sk89q.worldedit.function.RegionFunction;
+import com.sk89q.worldedit.function.ForkableRegionFunction;
+import com.sk89q.worldedit.function.mask.Mask;
+import com.sk89q.worldedit.function.mask.Masks;
 import com.sk89q.worldedit.math.BlockVector3;
 
 /**
  * Keeps a count of the number of times that {@link #apply(BlockVector3)} is
- * called.
+ * called, optionally only for positions that match a mask.
  */
-public class Counter implements RegionFunction {
+public class Counter implements ForkableRegionFunction<Counter> {
 
+    private final Mask mask;
     private int count;
 
+    /**
+     * Create a counter that counts every position.
+     */
+    public Counter() {
+        this(Masks.alwaysTrue());
+    }
+
+    /**
+     * Create a counter that only counts positions that match a mask.
+     *
+     * @param mask the mask
+     */
+    public Counter(Mask mask) {
+        checkNotNull(mask);
+        this.mask = mask;
+    }
+
     /**
      * Returns the number of blocks that have been counted.
      *
@@ -42,8 +64,20 @@ public int getCount() {
 
     @Override
     public boolean apply(BlockVector3 position) throws WorldEditException {
-        count++;
+        if (mask.test(position)) {
+            count++;
+        }
         return false;
     }
 
+    @Override
+    public Counter fork() {
+        return new Counter(mask);
+    }
+
+    @Override
+    public void join(Counter fork) {
+        count += fork.count;
+    }
+
 }
\ No newline at end of file
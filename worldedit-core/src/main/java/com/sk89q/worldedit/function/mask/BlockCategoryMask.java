@@ -22,15 +22,14 @@
 import static com.google.common.base.Preconditions.checkNotNull;
 
 import com.sk89q.worldedit.extent.Extent;
-import com.sk89q.worldedit.math.BlockVector3;
 import com.sk89q.worldedit.world.block.BlockCategory;
-
-import javax.annotation.Nullable;
+import com.sk89q.worldedit.world.block.BlockState;
+import com.sk89q.worldedit.world.block.BlockType;
 
 /**
  * A mask that tests whether a block matches a given {@link BlockCategory}, or tag.
  */
-public class BlockCategoryMask extends AbstractExtentMask {
+public class BlockCategoryMask extends CompiledBlockMask {
 
     private BlockCategory category;
 
@@ -41,13 +40,12 @@ public BlockCategoryMask(Extent extent, BlockCategory category) {
     }
 
     @Override
-    public boolean test(BlockVector3 vector) {
-        return category.contains(getExtent().getBlock(vector));
+    protected boolean matches(BlockState state) {
+        return category.contains(state);
     }
 
-    @Nullable
     @Override
-    public Mask2D toMask2D() {
-        return null;
+    protected Iterable<BlockType> getCandidateTypes() {
+        return category.getAll();
     }
 }
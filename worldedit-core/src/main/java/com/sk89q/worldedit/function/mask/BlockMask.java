@@ -22,17 +22,15 @@
 import static com.google.common.base.Preconditions.checkNotNull;
 
 import com.sk89q.worldedit.extent.Extent;
-import com.sk89q.worldedit.math.BlockVector3;
 import com.sk89q.worldedit.world.block.BaseBlock;
 import com.sk89q.worldedit.world.block.BlockState;
+import com.sk89q.worldedit.world.block.BlockType;
 
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.Set;
 
-import javax.annotation.Nullable;
-
 /**
  * A mask that checks whether blocks at the given positions are matched by
  * a block in a list.
@@ -40,7 +38,7 @@
  * <p>This mask checks for both an exact block type and state value match,
  * respecting fuzzy status of the BlockState.</p>
  */
-public class BlockMask extends AbstractExtentMask {
+public class BlockMask extends CompiledBlockMask {
 
     private final Set<BaseBlock> blocks = new HashSet<>();
 
@@ -74,6 +72,7 @@ public BlockMask(Extent extent, BaseBlock... block) {
     public void add(Collection<BaseBlock> blocks) {
         checkNotNull(blocks);
         this.blocks.addAll(blocks);
+        invalidate();
     }
 
     /**
@@ -95,10 +94,9 @@ public Collection<BaseBlock> getBlocks() {
     }
 
     @Override
-    public boolean test(BlockVector3 vector) {
-        BlockState block = getExtent().getBlock(vector);
+    protected boolean matches(BlockState state) {
         for (BaseBlock testBlock : blocks) {
-            if (testBlock.equalsFuzzy(block)) {
+            if (testBlock.equalsFuzzy(state)) {
                 return true;
             }
         }
@@ -106,10 +104,13 @@ public boolean test(BlockVector3 vector) {
         return false;
     }
 
-    @Nullable
     @Override
-    public Mask2D toMask2D() {
-        return null;
+    protected Iterable<BlockType> getCandidateTypes() {
+        Set<BlockType> types = new HashSet<>();
+        for (BaseBlock block : blocks) {
+            types.add(block.getBlockType());
+        }
+        return types;
     }
 
 }
@@ -22,19 +22,17 @@
 import com.google.common.collect.Maps;
 import com.sk89q.worldedit.blocks.Blocks;
 import com.sk89q.worldedit.extent.Extent;
-import com.sk89q.worldedit.math.BlockVector3;
 import com.sk89q.worldedit.registry.state.Property;
 import com.sk89q.worldedit.world.block.BlockState;
 import com.sk89q.worldedit.world.block.BlockType;
 
-import javax.annotation.Nullable;
 import java.util.Map;
 
-public class BlockStateMask extends AbstractExtentMask {
+public class BlockStateMask extends CompiledBlockMask {
 
     private final Map<String, String> states;
     private final boolean strict;
-    private Map<BlockType, Map<Property<Object>, Object>> cache = Maps.newHashMap();
+    private final Map<BlockType, Map<Property<Object>, Object>> cache = Maps.newConcurrentMap();
 
     /**
      * Creates a mask that checks if a given block has the desired properties set to the desired value.
@@ -51,8 +49,7 @@ public BlockStateMask(Extent extent, Map<String, String> states, boolean strict)
     }
 
     @Override
-    public boolean test(BlockVector3 vector) {
-        BlockState block = getExtent().getBlock(vector);
+    protected boolean matches(BlockState block) {
         final Map<Property<Object>, Object> checkProps = cache
                 .computeIfAbsent(block.getBlockType(), (b -> Blocks.resolveProperties(states, b)));
         if (strict && checkProps.isEmpty()) {
@@ -61,10 +58,4 @@ public boolean test(BlockVector3 vector) {
         return checkProps.entrySet().stream()
                 .allMatch(entry -> block.getState(entry.getKey()) == entry.getValue());
     }
-
-    @Nullable
-    @Override
-    public Mask2D toMask2D() {
-        return null;
-    }
 }
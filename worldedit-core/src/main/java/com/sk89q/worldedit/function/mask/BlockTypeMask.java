@@ -22,7 +22,7 @@
 import static com.google.common.base.Preconditions.checkNotNull;
 
 import com.sk89q.worldedit.extent.Extent;
-import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.world.block.BlockState;
 import com.sk89q.worldedit.world.block.BlockType;
 
 import java.util.Arrays;
@@ -30,8 +30,6 @@
 import java.util.HashSet;
 import java.util.Set;
 
-import javax.annotation.Nullable;
-
 /**
  * A mask that checks whether blocks at the given positions are matched by
  * a block in a list.
@@ -39,7 +37,7 @@
  * <p>This mask checks for ONLY the block type. If state should also be checked,
  * use {@link BlockMask}.</p>
  */
-public class BlockTypeMask extends AbstractExtentMask {
+public class BlockTypeMask extends CompiledBlockMask {
 
     private final Set<BlockType> blocks = new HashSet<>();
 
@@ -73,6 +71,7 @@ public BlockTypeMask(Extent extent, BlockType... block) {
     public void add(Collection<BlockType> blocks) {
         checkNotNull(blocks);
         this.blocks.addAll(blocks);
+        invalidate();
     }
 
     /**
@@ -94,13 +93,12 @@ public Collection<BlockType> getBlocks() {
     }
 
     @Override
-    public boolean test(BlockVector3 vector) {
-        return blocks.contains(getExtent().getBlock(vector).getBlockType());
+    protected boolean matches(BlockState state) {
+        return blocks.contains(state.getBlockType());
     }
 
-    @Nullable
     @Override
-    public Mask2D toMask2D() {
-        return null;
+    protected Iterable<BlockType> getCandidateTypes() {
+        return blocks;
     }
 }
@@ -46,11 +46,34 @@ public BoundedHeightMask(int minY, int maxY) {
         this.maxY = maxY;
     }
 
+    /**
+     * Get the minimum Y.
+     *
+     * @return the minimum Y
+     */
+    public int getMinY() {
+        return minY;
+    }
+
+    /**
+     * Get the maximum Y.
+     *
+     * @return the maximum Y
+     */
+    public int getMaxY() {
+        return maxY;
+    }
+
     @Override
     public boolean test(BlockVector3 vector) {
         return vector.getY() >= minY && vector.getY() <= maxY;
     }
 
+    @Override
+    public boolean test(int x, int y, int z) {
+        return y >= minY && y <= maxY;
+    }
+
     @Nullable
     @Override
     public Mask2D toMask2D() {
@@ -0,0 +1,147 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.function.mask;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.collect.ImmutableList;
+import com.sk89q.worldedit.extent.Extent;
+import com.sk89q.worldedit.world.block.BlockState;
+import com.sk89q.worldedit.world.block.BlockType;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Combines several {@link CompiledBlockMask}s reading from the same extent,
+ * so that they are tested with a single compiled set of block states.
+ */
+public class CombinedBlockMask extends CompiledBlockMask {
+
+    /**
+     * How the combined masks are joined.
+     */
+    public enum Operator {
+        /**
+         * Matches states that all masks match.
+         */
+        ALL,
+        /**
+         * Matches states that any mask matches.
+         */
+        ANY,
+        /**
+         * Matches states that no mask matches.
+         */
+        NONE
+    }
+
+    private final List<CompiledBlockMask> masks;
+    private final Operator operator;
+
+    /**
+     * Create a new mask.
+     *
+     * @param extent the extent, which all masks must read from
+     * @param masks the masks to combine
+     * @param operator how the masks are joined
+     */
+    public CombinedBlockMask(Extent extent, Collection<? extends CompiledBlockMask> masks, Operator operator) {
+        super(extent);
+        checkNotNull(masks);
+        checkNotNull(operator);
+        checkArgument(!masks.isEmpty(), "no masks given");
+        for (CompiledBlockMask mask : masks) {
+            checkArgument(mask.getExtent() == extent, "all masks must read from the same extent");
+        }
+        this.masks = ImmutableList.copyOf(masks);
+        this.operator = operator;
+    }
+
+    /**
+     * Get the masks that are combined.
+     *
+     * @return the masks
+     */
+    public List<CompiledBlockMask> getMasks() {
+        return masks;
+    }
+
+    /**
+     * Get how the masks are joined.
+     *
+     * @return the operator
+     */
+    public Operator getOperator() {
+        return operator;
+    }
+
+    @Override
+    protected boolean matches(BlockState state) {
+        switch (operator) {
+            case ALL:
+                for (CompiledBlockMask mask : masks) {
+                    if (!mask.test(state)) {
+                        return false;
+                    }
+                }
+                return true;
+            case ANY:
+                for (CompiledBlockMask mask : masks) {
+                    if (mask.test(state)) {
+                        return true;
+                    }
+                }
+                return false;
+            case NONE:
+                for (CompiledBlockMask mask : masks) {
+                    if (mask.test(state)) {
+                        return false;
+                    }
+                }
+                return true;
+        }
+
+        throw new RuntimeException("New enum entry added that is unhandled here");
+    }
+
+    @Override
+    protected Iterable<BlockType> getCandidateTypes() {
+        switch (operator) {
+            case ALL:
+                // every matched state is matched by the first mask
+                return masks.get(0).getCandidateTypes();
+            case ANY:
+                Set<BlockType> types = new LinkedHashSet<>();
+                for (CompiledBlockMask mask : masks) {
+                    for (BlockType type : mask.getCandidateTypes()) {
+                        types.add(type);
+                    }
+                }
+                return types;
+            default:
+                return super.getCandidateTypes();
+        }
+    }
+
+}
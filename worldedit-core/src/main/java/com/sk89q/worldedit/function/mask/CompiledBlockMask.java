@@ -0,0 +1,134 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.function.mask;
+
+import com.sk89q.worldedit.extent.Extent;
+import com.sk89q.worldedit.internal.block.BlockStateIdAccess;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.world.block.BlockState;
+import com.sk89q.worldedit.world.block.BlockType;
+
+import java.util.BitSet;
+
+import javax.annotation.Nullable;
+
+/**
+ * A mask that only depends on the {@link BlockState} at each position.
+ *
+ * <p>The first time it is tested, the mask checks every state of
+ * {@link #getCandidateTypes()} with {@link #matches(BlockState)} and keeps
+ * the result as a bit set over block state IDs. From then on, each test is
+ * an ID lookup and a bit check. States without a valid ID are checked with
+ * {@link #matches(BlockState)} every time.</p>
+ */
+public abstract class CompiledBlockMask extends AbstractExtentMask {
+
+    @Nullable
+    private volatile BitSet stateIds;
+
+    /**
+     * Construct a new mask.
+     *
+     * @param extent the extent
+     */
+    protected CompiledBlockMask(Extent extent) {
+        super(extent);
+    }
+
+    /**
+     * Test whether a block state is matched by this mask.
+     *
+     * @param state the block state
+     * @return true if the state is matched
+     */
+    protected abstract boolean matches(BlockState state);
+
+    /**
+     * Get the block types whose states may be matched by this mask.
+     *
+     * <p>States of any other type are never matched. By default, this is
+     * every registered block type.</p>
+     *
+     * @return the block types
+     */
+    protected Iterable<BlockType> getCandidateTypes() {
+        return BlockType.REGISTRY;
+    }
+
+    /**
+     * Forget the compiled states, after the criteria of the mask changed.
+     */
+    protected void invalidate() {
+        stateIds = null;
+    }
+
+    /**
+     * Get the IDs of the block states that are matched by this mask, as
+     * given by {@link BlockStateIdAccess#getBlockStateId(BlockState)}.
+     *
+     * <p>The returned set must not be modified.</p>
+     *
+     * @return the set of matched IDs
+     */
+    public BitSet getStateIds() {
+        BitSet ids = stateIds;
+        if (ids == null) {
+            // building this twice from two threads is harmless
+            ids = new BitSet();
+            for (BlockType type : getCandidateTypes()) {
+                for (BlockState state : type.getAllStates()) {
+                    int id = BlockStateIdAccess.getBlockStateId(state);
+                    if (BlockStateIdAccess.isValidInternalId(id) && matches(state)) {
+                        ids.set(id);
+                    }
+                }
+            }
+            stateIds = ids;
+        }
+        return ids;
+    }
+
+    /**
+     * Test whether a block state is matched by this mask, using the
+     * compiled states when possible.
+     *
+     * @param state the block state
+     * @return true if the state is matched
+     */
+    public boolean test(BlockState state) {
+        int id = BlockStateIdAccess.getBlockStateId(state);
+        if (!BlockStateIdAccess.isValidInternalId(id)) {
+            return matches(state);
+        }
+        return getStateIds().get(id);
+    }
+
+    @Override
+    public boolean test(BlockVector3 vector) {
+        return test(getExtent().getBlock(vector));
+    }
+
+    @Nullable
+    @Override
+    public Mask2D toMask2D() {
+        return null;
+    }
+
+}
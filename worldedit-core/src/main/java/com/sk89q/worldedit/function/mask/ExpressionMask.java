@@ -21,6 +21,7 @@
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
+import com.sk89q.worldedit.WorldEdit;
 import com.sk89q.worldedit.internal.expression.Expression;
 import com.sk89q.worldedit.internal.expression.ExpressionException;
 import com.sk89q.worldedit.internal.expression.EvaluationException;
@@ -40,6 +41,7 @@ public class ExpressionMask extends AbstractMask {
 
     private final Expression expression;
     private final IntSupplier timeout;
+    private final double[] values = new double[3];
 
     /**
      * Create a new instance.
@@ -72,12 +74,13 @@ public boolean test(BlockVector3 vector) {
             if (expression.getEnvironment() instanceof WorldEditExpressionEnvironment) {
                 ((WorldEditExpressionEnvironment) expression.getEnvironment()).setCurrentBlock(vector.toVector3());
             }
-            if (timeout == null) {
-                return expression.evaluate(vector.getX(), vector.getY(), vector.getZ()) > 0;
-            } else {
-                return expression.evaluate(new double[]{vector.getX(), vector.getY(), vector.getZ()},
-                        timeout.getAsInt()) > 0;
-            }
+            values[0] = vector.getX();
+            values[1] = vector.getY();
+            values[2] = vector.getZ();
+            int timeLimit = timeout == null
+                ? WorldEdit.getInstance().getConfiguration().calculationTimeout
+                : timeout.getAsInt();
+            return expression.evaluate(values, timeLimit) > 0;
         } catch (EvaluationException e) {
             return false;
         }
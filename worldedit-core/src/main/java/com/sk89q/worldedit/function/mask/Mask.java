@@ -36,6 +36,22 @@ public interface Mask {
      */
     boolean test(BlockVector3 vector);
 
+    /**
+     * Returns true if the criteria is met at the given coordinates.
+     *
+     * <p>By default, this creates a vector and calls
+     * {@link #test(BlockVector3)}. Masks that don't need a vector should
+     * override it.</p>
+     *
+     * @param x the X coordinate
+     * @param y the Y coordinate
+     * @param z the Z coordinate
+     * @return true if the criteria is met
+     */
+    default boolean test(int x, int y, int z) {
+        return test(BlockVector3.at(x, y, z));
+    }
+
     /**
      * Get the 2D version of this mask if one exists.
      *
@@ -0,0 +1,366 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.function.mask;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.sk89q.worldedit.extent.Extent;
+import com.sk89q.worldedit.regions.CuboidRegion;
+import com.sk89q.worldedit.world.block.BlockType;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Rewrites trees of {@link MaskIntersection}s and {@link MaskUnion}s into
+ * cheaper equivalent masks.
+ *
+ * <p>Nested intersections and unions are flattened, constant masks and
+ * repeated children are removed, double negations are dropped, and block
+ * masks reading from the same extent are merged into a single
+ * {@link CombinedBlockMask}. The remaining children are ordered so that
+ * cheap masks that are likely to decide the result are tested first.</p>
+ *
+ * <p>Costs and pass rates are rough estimates. Masks that are not known
+ * to the optimizer are left as they are, and are assumed to be
+ * expensive.</p>
+ */
+public final class MaskOptimizer {
+
+    private static final double CONSTANT_COST = 0;
+    private static final double HEIGHT_COST = 1;
+    private static final double REGION_COST = 2;
+    private static final double BLOCK_COST = 10;
+    private static final double BIOME_COST = 15;
+    private static final double NOISE_COST = 20;
+    private static final double UNKNOWN_COST = 25;
+    private static final double EXPRESSION_COST = 50;
+
+    private static final double UNKNOWN_PASS_RATE = 0.5;
+    private static final double MIN_PASS_RATE = 0.01;
+    private static final double MAX_PASS_RATE = 0.99;
+    private static final int WORLD_HEIGHT = 256;
+
+    private MaskOptimizer() {
+    }
+
+    /**
+     * Get an optimized mask that matches the same positions as the given
+     * mask.
+     *
+     * <p>The given mask is not modified, but may be reused as part of
+     * the result.</p>
+     *
+     * @param mask the mask
+     * @return the optimized mask
+     */
+    public static Mask optimize(Mask mask) {
+        checkNotNull(mask);
+        if (mask instanceof Masks.NegatedMask) {
+            Mask inner = optimize(((Masks.NegatedMask) mask).getMask());
+            if (inner instanceof CompiledBlockMask) {
+                CompiledBlockMask blockMask = (CompiledBlockMask) inner;
+                return new CombinedBlockMask(blockMask.getExtent(), Collections.singletonList(blockMask),
+                        CombinedBlockMask.Operator.NONE);
+            }
+            return Masks.negate(inner);
+        } else if (mask instanceof OffsetMask) {
+            OffsetMask offsetMask = (OffsetMask) mask;
+            Mask inner = optimize(offsetMask.getMask());
+            if (isConstant(inner)) {
+                return inner;
+            }
+            return inner == offsetMask.getMask() ? mask : new OffsetMask(inner, offsetMask.getOffset());
+        } else if (mask.getClass() == MaskIntersection.class || mask.getClass() == MaskUnion.class) {
+            return optimizeGroup((MaskIntersection) mask);
+        }
+        return mask;
+    }
+
+    private static Mask optimizeGroup(MaskIntersection group) {
+        if (group.getMasks().isEmpty()) {
+            // an empty group never matches
+            return group;
+        }
+        boolean union = group instanceof MaskUnion;
+        Mask identity = union ? Masks.alwaysFalse() : Masks.alwaysTrue();
+        Mask absorbing = union ? Masks.alwaysTrue() : Masks.alwaysFalse();
+
+        List<Mask> children = new ArrayList<>();
+        flatten(group, union, children);
+        if (children.contains(absorbing)) {
+            return absorbing;
+        }
+        children.removeIf(child -> child == identity);
+
+        if (!union) {
+            mergeHeights(children);
+        }
+        mergeBlockMasks(children, union);
+        removeDuplicates(children);
+
+        if (children.contains(absorbing)) {
+            return absorbing;
+        } else if (children.isEmpty()) {
+            return identity;
+        } else if (children.size() == 1) {
+            return children.get(0);
+        }
+
+        // test the masks most likely to decide the result per unit of cost first
+        children.sort(Comparator.comparingDouble(child -> {
+            double decides = union ? estimatePassRate(child) : 1 - estimatePassRate(child);
+            return estimateCost(child) / decides;
+        }));
+        return union ? new MaskUnion(children) : new MaskIntersection(children);
+    }
+
+    private static void flatten(MaskIntersection group, boolean union, List<Mask> children) {
+        for (Mask child : group.getMasks()) {
+            Mask optimized = optimize(child);
+            if (optimized.getClass() == group.getClass()) {
+                flatten((MaskIntersection) optimized, union, children);
+            } else if (!children.contains(optimized)) {
+                children.add(optimized);
+            }
+        }
+    }
+
+    private static void mergeHeights(List<Mask> children) {
+        int minY = Integer.MIN_VALUE;
+        int maxY = Integer.MAX_VALUE;
+        int first = -1;
+        int count = 0;
+        for (int i = 0; i < children.size(); i++) {
+            Mask child = children.get(i);
+            if (child instanceof BoundedHeightMask) {
+                minY = Math.max(minY, ((BoundedHeightMask) child).getMinY());
+                maxY = Math.min(maxY, ((BoundedHeightMask) child).getMaxY());
+                if (first == -1) {
+                    first = i;
+                }
+                count++;
+            }
+        }
+        if (count < 2) {
+            return;
+        }
+        Mask merged = minY <= maxY ? new BoundedHeightMask(minY, maxY) : Masks.alwaysFalse();
+        children.set(first, merged);
+        children.removeIf(child -> child instanceof BoundedHeightMask && child != merged);
+    }
+
+    private static void mergeBlockMasks(List<Mask> children, boolean union) {
+        Map<Extent, List<CompiledBlockMask>> byExtent = new LinkedHashMap<>();
+        for (Mask child : children) {
+            if (child instanceof CompiledBlockMask) {
+                CompiledBlockMask blockMask = (CompiledBlockMask) child;
+                byExtent.computeIfAbsent(blockMask.getExtent(), extent -> new ArrayList<>()).add(blockMask);
+            }
+        }
+        for (Map.Entry<Extent, List<CompiledBlockMask>> entry : byExtent.entrySet()) {
+            List<CompiledBlockMask> masks = entry.getValue();
+            if (masks.size() < 2) {
+                continue;
+            }
+            CombinedBlockMask merged = new CombinedBlockMask(entry.getKey(), masks,
+                    union ? CombinedBlockMask.Operator.ANY : CombinedBlockMask.Operator.ALL);
+            children.set(children.indexOf(masks.get(0)), merged);
+            children.removeAll(masks);
+        }
+    }
+
+    private static void removeDuplicates(List<Mask> children) {
+        // these masks have no settings besides their extent
+        for (int i = 0; i < children.size(); i++) {
+            Mask child = children.get(i);
+            if (child instanceof ExistingBlockMask || child instanceof SolidBlockMask) {
+                Extent extent = ((AbstractExtentMask) child).getExtent();
+                for (int j = children.size() - 1; j > i; j--) {
+                    Mask other = children.get(j);
+                    if (other.getClass() == child.getClass() && ((AbstractExtentMask) other).getExtent() == extent) {
+                        children.remove(j);
+                    }
+                }
+            }
+        }
+    }
+
+    private static boolean isConstant(Mask mask) {
+        return mask == Masks.alwaysTrue() || mask == Masks.alwaysFalse();
+    }
+
+    /**
+     * Estimate the relative cost of testing a mask at one position.
+     *
+     * @param mask the mask
+     * @return the estimated cost
+     */
+    public static double estimateCost(Mask mask) {
+        checkNotNull(mask);
+        if (isConstant(mask)) {
+            return CONSTANT_COST;
+        } else if (mask instanceof BoundedHeightMask) {
+            return HEIGHT_COST;
+        } else if (mask instanceof RegionMask) {
+            return ((RegionMask) mask).getRegion() instanceof CuboidRegion ? REGION_COST : REGION_COST * 2;
+        } else if (mask instanceof CompiledBlockMask || mask instanceof ExistingBlockMask
+                || mask instanceof SolidBlockMask) {
+            return BLOCK_COST;
+        } else if (mask instanceof Masks.WrappedMask2D) {
+            return BIOME_COST;
+        } else if (mask instanceof NoiseFilter) {
+            return NOISE_COST;
+        } else if (mask instanceof ExpressionMask) {
+            return EXPRESSION_COST;
+        } else if (mask instanceof Masks.NegatedMask) {
+            return estimateCost(((Masks.NegatedMask) mask).getMask());
+        } else if (mask instanceof OffsetMask) {
+            return estimateCost(((OffsetMask) mask).getMask());
+        } else if (mask instanceof MaskIntersection) {
+            double cost = 0;
+            for (Mask child : ((MaskIntersection) mask).getMasks()) {
+                cost += estimateCost(child);
+            }
+            return cost;
+        }
+        return UNKNOWN_COST;
+    }
+
+    /**
+     * Estimate the chance that a mask matches a position.
+     *
+     * @param mask the mask
+     * @return the estimated chance, from 0 to 1
+     */
+    public static double estimatePassRate(Mask mask) {
+        checkNotNull(mask);
+        if (mask == Masks.alwaysTrue()) {
+            return 1;
+        } else if (mask == Masks.alwaysFalse()) {
+            return 0;
+        } else if (mask instanceof BoundedHeightMask) {
+            BoundedHeightMask heightMask = (BoundedHeightMask) mask;
+            return clamp((heightMask.getMaxY() - heightMask.getMinY() + 1) / (double) WORLD_HEIGHT);
+        } else if (mask instanceof CompiledBlockMask) {
+            int total = countStates();
+            return total > 0 ? clamp(((CompiledBlockMask) mask).getStateIds().cardinality() / (double) total) : UNKNOWN_PASS_RATE;
+        } else if (mask instanceof Masks.NegatedMask) {
+            return 1 - estimatePassRate(((Masks.NegatedMask) mask).getMask());
+        } else if (mask instanceof OffsetMask) {
+            return estimatePassRate(((OffsetMask) mask).getMask());
+        } else if (mask instanceof NoiseFilter) {
+            return clamp(((NoiseFilter) mask).getDensity());
+        } else if (mask instanceof MaskUnion) {
+            double missed = 1;
+            for (Mask child : ((MaskUnion) mask).getMasks()) {
+                missed *= 1 - estimatePassRate(child);
+            }
+            return 1 - missed;
+        } else if (mask instanceof MaskIntersection) {
+            double passed = 1;
+            for (Mask child : ((MaskIntersection) mask).getMasks()) {
+                passed *= estimatePassRate(child);
+            }
+            return passed;
+        }
+        return UNKNOWN_PASS_RATE;
+    }
+
+    private static double clamp(double passRate) {
+        return Math.max(MIN_PASS_RATE, Math.min(MAX_PASS_RATE, passRate));
+    }
+
+    private static int countStates() {
+        int count = 0;
+        for (BlockType type : BlockType.REGISTRY) {
+            count += type.getAllStates().size();
+        }
+        return count;
+    }
+
+    /**
+     * Describe the tree of a mask, one mask per line, with the estimated
+     * cost and pass rate of each.
+     *
+     * @param mask the mask
+     * @return the lines of the description
+     */
+    public static List<String> describe(Mask mask) {
+        checkNotNull(mask);
+        List<String> lines = new ArrayList<>();
+        describe(mask, "", lines);
+        return lines;
+    }
+
+    private static void describe(Mask mask, String indent, List<String> lines) {
+        lines.add(String.format("%s%s (cost %.0f, passes %.0f%%)",
+                indent, getName(mask), estimateCost(mask), estimatePassRate(mask) * 100));
+        String childIndent = indent + "  ";
+        if (mask instanceof MaskIntersection) {
+            for (Mask child : ((MaskIntersection) mask).getMasks()) {
+                describe(child, childIndent, lines);
+            }
+        } else if (mask instanceof Masks.NegatedMask) {
+            describe(((Masks.NegatedMask) mask).getMask(), childIndent, lines);
+        } else if (mask instanceof OffsetMask) {
+            describe(((OffsetMask) mask).getMask(), childIndent, lines);
+        } else if (mask instanceof CombinedBlockMask) {
+            for (Mask child : ((CombinedBlockMask) mask).getMasks()) {
+                describe(child, childIndent, lines);
+            }
+        }
+    }
+
+    private static String getName(Mask mask) {
+        if (mask == Masks.alwaysTrue()) {
+            return "always";
+        } else if (mask == Masks.alwaysFalse()) {
+            return "never";
+        } else if (mask instanceof MaskUnion) {
+            return "any of";
+        } else if (mask instanceof MaskIntersection) {
+            return "all of";
+        } else if (mask instanceof Masks.NegatedMask) {
+            return "not";
+        } else if (mask instanceof OffsetMask) {
+            return "offset by " + ((OffsetMask) mask).getOffset();
+        } else if (mask instanceof BoundedHeightMask) {
+            BoundedHeightMask heightMask = (BoundedHeightMask) mask;
+            return "height " + heightMask.getMinY() + " to " + heightMask.getMaxY();
+        } else if (mask instanceof CombinedBlockMask) {
+            CombinedBlockMask blockMask = (CombinedBlockMask) mask;
+            return "block states, " + blockMask.getOperator().name().toLowerCase(Locale.ROOT)
+                    + " of (" + blockMask.getStateIds().cardinality() + " states)";
+        } else if (mask instanceof CompiledBlockMask) {
+            return mask.getClass().getSimpleName() + " (" + ((CompiledBlockMask) mask).getStateIds().cardinality() + " states)";
+        } else if (mask instanceof Masks.WrappedMask2D) {
+            return "2D " + mask.toMask2D().getClass().getSimpleName();
+        }
+        String name = mask.getClass().getSimpleName();
+        return name.isEmpty() ? mask.getClass().getName() : name;
+    }
+
+}
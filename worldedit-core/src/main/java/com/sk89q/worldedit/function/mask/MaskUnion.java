@@ -65,6 +65,19 @@ public boolean test(BlockVector3 vector) {
         return false;
     }
 
+    @Override
+    public boolean test(int x, int y, int z) {
+        Collection<Mask> masks = getMasks();
+
+        for (Mask mask : masks) {
+            if (mask.test(x, y, z)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
     @Nullable
     @Override
     public Mask2D toMask2D() {
@@ -46,6 +46,15 @@ public static Mask alwaysTrue() {
         return ALWAYS_TRUE;
     }
 
+    /**
+     * Return a 3D mask that always returns false;
+     *
+     * @return a mask
+     */
+    public static Mask alwaysFalse() {
+        return ALWAYS_FALSE;
+    }
+
     /**
      * Return a 2D mask that always returns true;
      *
@@ -69,23 +78,10 @@ public static Mask negate(final Mask mask) {
         }
 
         checkNotNull(mask);
-        return new AbstractMask() {
-            @Override
-            public boolean test(BlockVector3 vector) {
-                return !mask.test(vector);
-            }
-
-            @Nullable
-            @Override
-            public Mask2D toMask2D() {
-                Mask2D mask2d = mask.toMask2D();
-                if (mask2d != null) {
-                    return negate(mask2d);
-                } else {
-                    return null;
-                }
-            }
-        };
+        if (mask instanceof NegatedMask) {
+            return ((NegatedMask) mask).getMask();
+        }
+        return new NegatedMask(mask);
     }
 
     /**
@@ -117,18 +113,99 @@ public boolean test(BlockVector2 vector) {
      * @return a 3D mask
      */
     public static Mask asMask(final Mask2D mask) {
-        return new AbstractMask() {
-            @Override
-            public boolean test(BlockVector3 vector) {
-                return mask.test(vector.toBlockVector2());
+        checkNotNull(mask);
+        return new WrappedMask2D(mask);
+    }
+
+    /**
+     * Check whether a mask is known to be safe to test from several threads
+     * at once, as long as the extents it reads from are.
+     *
+     * <p>Masks that keep state between tests, such as expression masks,
+     * are not.</p>
+     *
+     * @param mask the mask
+     * @return true if the mask can be tested concurrently
+     */
+    public static boolean isThreadSafe(Mask mask) {
+        checkNotNull(mask);
+        if (mask instanceof MaskIntersection) {
+            for (Mask child : ((MaskIntersection) mask).getMasks()) {
+                if (!isThreadSafe(child)) {
+                    return false;
+                }
             }
+            return true;
+        }
+        if (mask instanceof NegatedMask) {
+            return isThreadSafe(((NegatedMask) mask).getMask());
+        }
+        return mask instanceof AlwaysTrue
+                || mask instanceof AlwaysFalse
+                || mask instanceof CompiledBlockMask
+                || mask instanceof ExistingBlockMask
+                || mask instanceof SolidBlockMask
+                || mask instanceof BoundedHeightMask
+                || mask instanceof RegionMask;
+    }
 
-            @Nullable
-            @Override
-            public Mask2D toMask2D() {
-                return mask;
+    /**
+     * A mask that matches where another mask does not.
+     */
+    static final class NegatedMask extends AbstractMask {
+
+        private final Mask mask;
+
+        private NegatedMask(Mask mask) {
+            this.mask = mask;
+        }
+
+        Mask getMask() {
+            return mask;
+        }
+
+        @Override
+        public boolean test(BlockVector3 vector) {
+            return !mask.test(vector);
+        }
+
+        @Override
+        public boolean test(int x, int y, int z) {
+            return !mask.test(x, y, z);
+        }
+
+        @Nullable
+        @Override
+        public Mask2D toMask2D() {
+            Mask2D mask2d = mask.toMask2D();
+            if (mask2d != null) {
+                return negate(mask2d);
+            } else {
+                return null;
             }
-        };
+        }
+    }
+
+    /**
+     * A 3D mask that tests a 2D mask at the column of each position.
+     */
+    static final class WrappedMask2D extends AbstractMask {
+
+        private final Mask2D mask;
+
+        private WrappedMask2D(Mask2D mask) {
+            this.mask = mask;
+        }
+
+        @Override
+        public boolean test(BlockVector3 vector) {
+            return mask.test(vector.toBlockVector2());
+        }
+
+        @Override
+        public Mask2D toMask2D() {
+            return mask;
+        }
     }
 
     private static class AlwaysTrue implements Mask, Mask2D {
@@ -137,6 +214,11 @@ public boolean test(BlockVector3 vector) {
             return true;
         }
 
+        @Override
+        public boolean test(int x, int y, int z) {
+            return true;
+        }
+
         @Override
         public boolean test(BlockVector2 vector) {
             return true;
@@ -155,6 +237,11 @@ public boolean test(BlockVector3 vector) {
             return false;
         }
 
+        @Override
+        public boolean test(int x, int y, int z) {
+            return false;
+        }
+
         @Override
         public boolean test(BlockVector2 vector) {
             return false;
@@ -22,13 +22,17 @@
 import static com.google.common.base.Preconditions.checkNotNull;
 
 import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.extent.Extent;
 import com.sk89q.worldedit.history.UndoContext;
 import com.sk89q.worldedit.history.change.Change;
 import com.sk89q.worldedit.history.changeset.ChangeSet;
+import com.sk89q.worldedit.history.changeset.SpillingBlockHistory;
 
 import java.util.Iterator;
 import java.util.List;
 
+import javax.annotation.Nullable;
+
 /**
  * Performs an undo or redo from a given {@link ChangeSet}.
  */
@@ -37,6 +41,8 @@ public class ChangeSetExecutor implements Operation {
     public enum Type {UNDO, REDO}
 
     private final Iterator<Change> iterator;
+    @Nullable
+    private final SpillingBlockHistory.BlockCursor blockCursor;
     private final Type type;
     private final UndoContext context;
 
@@ -55,10 +61,17 @@ private ChangeSetExecutor(ChangeSet changeSet, Type type, UndoContext context) {
         this.type = type;
         this.context = context;
 
-        if (type == Type.UNDO) {
+        if (changeSet instanceof SpillingBlockHistory) {
+            // stream block changes straight from the history's buffers
+            SpillingBlockHistory history = (SpillingBlockHistory) changeSet;
+            iterator = history.nonBlockIterator(type == Type.UNDO);
+            blockCursor = history.blockCursor(type == Type.UNDO);
+        } else if (type == Type.UNDO) {
             iterator = changeSet.backwardIterator();
+            blockCursor = null;
         } else {
             iterator = changeSet.forwardIterator();
+            blockCursor = null;
         }
     }
 
@@ -71,6 +84,21 @@ public Operation resume(RunContext run) throws WorldEditException {
             } else {
                 change.redo(context);
             }
+
+            if (!run.shouldContinue()) {
+                return this;
+            }
+        }
+
+        if (blockCursor != null) {
+            Extent extent = checkNotNull(context.getExtent());
+            while (blockCursor.next()) {
+                blockCursor.apply(extent);
+
+                if (!run.shouldContinue()) {
+                    return this;
+                }
+            }
         }
 
         return null;
@@ -0,0 +1,233 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.function.operation;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.sk89q.worldedit.WorldEdit;
+import com.sk89q.worldedit.extension.platform.Capability;
+import com.sk89q.worldedit.extension.platform.Platform;
+import com.sk89q.worldedit.util.task.AbstractTask;
+import com.sk89q.worldedit.util.task.Task;
+import com.sk89q.worldedit.util.task.progress.Progress;
+import com.sk89q.worldedit.util.task.progress.ProgressObservable;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+
+/**
+ * Runs queued {@link Operation}s on the platform's main thread, spending at
+ * most a fixed amount of time on them every tick.
+ *
+ * <p>Operations are resumed with a {@link TimedRunContext}, so operations
+ * that check {@link RunContext#shouldContinue()} will yield once the tick's
+ * budget is used up, and be resumed on the next tick. Operations run one
+ * after another in the order they were submitted.</p>
+ *
+ * <p>The repeating platform task is only scheduled while there are queued
+ * operations, and is cancelled again once the queue is empty, on platforms
+ * that support {@link Platform#cancelTask(int)}.</p>
+ */
+public class OperationScheduler {
+
+    private final WorldEdit worldEdit;
+    private final Deque<ScheduledOperation> queue = new ArrayDeque<>();
+    @Nullable
+    private Platform tickingPlatform;
+    private int taskId = -1;
+
+    /**
+     * Create a new instance.
+     *
+     * @param worldEdit the WorldEdit instance
+     */
+    public OperationScheduler(WorldEdit worldEdit) {
+        checkNotNull(worldEdit);
+        this.worldEdit = worldEdit;
+    }
+
+    /**
+     * Queue an operation to be run over the following ticks.
+     *
+     * <p>If the platform can't schedule tasks, the operation is completed
+     * immediately instead.</p>
+     *
+     * @param operation the operation
+     * @param name the name of the task, for display
+     * @param owner the owner of the task, or {@code null}
+     * @return a task that completes with the operation
+     */
+    public synchronized Task<Operation> submit(Operation operation, String name, @Nullable Object owner) {
+        checkNotNull(operation);
+        ScheduledOperation scheduled = new ScheduledOperation(operation, name, owner);
+        worldEdit.getSupervisor().monitor(scheduled);
+        queue.add(scheduled);
+        if (!ensureTicking()) {
+            // no scheduler available, so run everything now
+            while (!queue.isEmpty()) {
+                run(new RunContext());
+            }
+        }
+        return scheduled;
+    }
+
+    private boolean ensureTicking() {
+        if (taskId == -1) {
+            Platform platform = worldEdit.getPlatformManager().queryCapability(Capability.WORLD_EDITING);
+            taskId = platform.schedule(0, 1, this::tick);
+            tickingPlatform = taskId == -1 ? null : platform;
+        }
+        return taskId != -1;
+    }
+
+    private void stopTicking() {
+        if (taskId != -1 && checkNotNull(tickingPlatform).cancelTask(taskId)) {
+            taskId = -1;
+            tickingPlatform = null;
+        }
+    }
+
+    /**
+     * Check whether the repeating platform task is currently scheduled.
+     *
+     * @return true if ticking
+     */
+    public synchronized boolean isTicking() {
+        return taskId != -1;
+    }
+
+    /**
+     * Get the number of operations that are waiting or running.
+     *
+     * @return the number of operations
+     */
+    public synchronized int getQueueSize() {
+        return queue.size();
+    }
+
+    /**
+     * Run queued operations until the configured tick budget is used up.
+     */
+    public void tick() {
+        run(new TimedRunContext(worldEdit.getConfiguration().operationTickBudget, TimeUnit.MILLISECONDS));
+    }
+
+    private synchronized void run(RunContext run) {
+        ScheduledOperation next;
+        while ((next = queue.peek()) != null) {
+            if (next.step(run)) {
+                queue.poll();
+            }
+            if (!run.shouldContinue()) {
+                break;
+            }
+        }
+        if (queue.isEmpty()) {
+            stopTicking();
+        }
+    }
+
+    /**
+     * Cancel all queued operations.
+     */
+    public synchronized void cancelAll() {
+        for (ScheduledOperation operation : queue) {
+            operation.cancel(false);
+            operation.abort();
+        }
+        queue.clear();
+        stopTicking();
+    }
+
+    private static final class ScheduledOperation extends AbstractTask<Operation> {
+
+        private final Operation original;
+        @Nullable
+        private volatile Operation current;
+        private volatile boolean started;
+        private volatile boolean failed;
+
+        private ScheduledOperation(Operation operation, String name, @Nullable Object owner) {
+            super(name, owner);
+            this.original = operation;
+            this.current = operation;
+        }
+
+        /**
+         * Resume the operation once.
+         *
+         * @return true if the operation is finished
+         */
+        boolean step(RunContext run) {
+            if (isCancelled()) {
+                abort();
+                return true;
+            }
+            started = true;
+            try {
+                current = checkNotNull(current).resume(run);
+            } catch (Throwable t) {
+                current = null;
+                failed = true;
+                setException(t);
+                return true;
+            }
+            if (current == null) {
+                set(original);
+                return true;
+            }
+            return false;
+        }
+
+        void abort() {
+            Operation operation = current;
+            current = null;
+            if (operation != null) {
+                operation.cancel();
+            }
+        }
+
+        @Override
+        public State getState() {
+            if (isCancelled()) {
+                return State.CANCELLED;
+            } else if (isDone()) {
+                return failed ? State.FAILED : State.SUCCEEDED;
+            }
+            return started ? State.RUNNING : State.SCHEDULED;
+        }
+
+        @Override
+        public Progress getProgress() {
+            if (isDone()) {
+                return Progress.completed();
+            }
+            Operation operation = current;
+            if (operation instanceof ProgressObservable) {
+                return ((ProgressObservable) operation).getProgress();
+            }
+            return Progress.indeterminate();
+        }
+    }
+
+}
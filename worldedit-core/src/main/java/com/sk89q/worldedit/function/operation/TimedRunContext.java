@@ -0,0 +1,68 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.function.operation;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A run that should stop once a deadline has passed.
+ */
+public class TimedRunContext extends RunContext {
+
+    private final long deadline;
+
+    /**
+     * Create a new instance with a deadline relative to now.
+     *
+     * @param budget the time available to the run
+     * @param unit the unit of {@code budget}
+     */
+    public TimedRunContext(long budget, TimeUnit unit) {
+        checkArgument(budget >= 0, "budget must be non-negative");
+        this.deadline = System.nanoTime() + unit.toNanos(budget);
+    }
+
+    /**
+     * Get the deadline of this run, comparable to {@link System#nanoTime()}.
+     *
+     * @return the deadline
+     */
+    public long getDeadline() {
+        return deadline;
+    }
+
+    /**
+     * Get the time left before the deadline.
+     *
+     * @param unit the unit to return the time in
+     * @return the remaining time, or zero if the deadline has passed
+     */
+    public long getRemaining(TimeUnit unit) {
+        return unit.convert(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public boolean shouldContinue() {
+        return System.nanoTime() - deadline < 0;
+    }
+
+}
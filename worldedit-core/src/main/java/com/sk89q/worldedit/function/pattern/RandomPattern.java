@@ -20,22 +20,49 @@
 package com.sk89q.worldedit.function.pattern;
 
 import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
 
+import com.sk89q.worldedit.internal.util.AliasTable;
+import com.sk89q.worldedit.internal.util.PositionRandom;
 import com.sk89q.worldedit.math.BlockVector3;
 import com.sk89q.worldedit.world.block.BaseBlock;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Random;
+
+import javax.annotation.Nullable;
 
 /**
  * Uses a random pattern of a weighted list of patterns.
+ *
+ * <p>Patterns are picked in constant time with an alias table, which is
+ * built again after patterns are added. The pattern can be applied from
+ * several threads at once.</p>
  */
 public class RandomPattern extends AbstractPattern {
 
-    private final Random random = new Random();
-    private List<Chance> patterns = new ArrayList<>();
+    private final PositionRandom random;
+    private final List<Chance> patterns = new ArrayList<>();
     private double max = 0;
+    @Nullable
+    private volatile Sampler sampler;
+
+    /**
+     * Create a new random pattern.
+     */
+    public RandomPattern() {
+        this.random = PositionRandom.unseeded();
+    }
+
+    /**
+     * Create a new random pattern that picks the same pattern for the same
+     * position every time, given the same seed and patterns.
+     *
+     * @param seed the seed
+     */
+    public RandomPattern(long seed) {
+        this.random = PositionRandom.seeded(seed);
+    }
 
     /**
      * Add a pattern to the weight list of patterns.
@@ -50,21 +77,39 @@ public void add(Pattern pattern, double chance) {
         checkNotNull(pattern);
         patterns.add(new Chance(pattern, chance));
         max += chance;
+        sampler = null;
+    }
+
+    private Sampler getSampler() {
+        Sampler current = sampler;
+        if (current == null) {
+            checkState(max > 0, "no patterns with a positive chance were added");
+            Pattern[] choices = new Pattern[patterns.size()];
+            double[] weights = new double[patterns.size()];
+            for (int i = 0; i < choices.length; i++) {
+                choices[i] = patterns.get(i).getPattern();
+                weights[i] = patterns.get(i).getChance();
+            }
+            current = new Sampler(choices, new AliasTable(weights));
+            sampler = current;
+        }
+        return current;
     }
 
     @Override
     public BaseBlock apply(BlockVector3 position) {
-        double r = random.nextDouble();
-        double offset = 0;
+        Sampler current = getSampler();
+        return current.choices[current.table.sample(random.nextLong(position))].apply(position);
+    }
 
-        for (Chance chance : patterns) {
-            if (r <= (offset + chance.getChance()) / max) {
-                return chance.getPattern().apply(position);
-            }
-            offset += chance.getChance();
-        }
+    private static final class Sampler {
+        private final Pattern[] choices;
+        private final AliasTable table;
 
-        throw new RuntimeException("ProportionalFillPattern");
+        private Sampler(Pattern[] choices, AliasTable table) {
+            this.choices = choices;
+            this.table = table;
+        }
     }
 
     private static class Chance {
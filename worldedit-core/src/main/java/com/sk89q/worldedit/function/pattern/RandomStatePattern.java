@@ -19,27 +19,41 @@
 
 package com.sk89q.worldedit.function.pattern;
 
+import com.sk89q.worldedit.internal.util.PositionRandom;
 import com.sk89q.worldedit.math.BlockVector3;
 import com.sk89q.worldedit.world.block.BaseBlock;
 import com.sk89q.worldedit.world.block.BlockState;
 import com.sk89q.worldedit.world.block.FuzzyBlockState;
 
-import java.util.List;
-import java.util.Random;
-import java.util.stream.Collectors;
-
 public class RandomStatePattern implements Pattern {
 
-    private final Random rand = new Random();
-    private final List<BaseBlock> blocks;
+    private final PositionRandom random;
+    private final BaseBlock[] blocks;
 
     public RandomStatePattern(FuzzyBlockState state) {
-        blocks = state.getBlockType().getAllStates().stream().filter(state::equalsFuzzy)
-                .map(BlockState::toBaseBlock).collect(Collectors.toList());
+        this(state, PositionRandom.unseeded());
+    }
+
+    /**
+     * Create a pattern that picks the same state for the same position every
+     * time, given the same seed.
+     *
+     * @param state the state to pick matching states of
+     * @param seed the seed
+     */
+    public RandomStatePattern(FuzzyBlockState state, long seed) {
+        this(state, PositionRandom.seeded(seed));
+    }
+
+    private RandomStatePattern(FuzzyBlockState state, PositionRandom random) {
+        this.random = random;
+        this.blocks = state.getBlockType().getAllStates().stream().filter(state::equalsFuzzy)
+                .map(BlockState::toBaseBlock).toArray(BaseBlock[]::new);
     }
 
     @Override
     public BaseBlock apply(BlockVector3 position) {
-        return blocks.get(rand.nextInt(blocks.size()));
+        // all states are equally likely, so no alias table is needed
+        return blocks[random.nextInt(position, blocks.length)];
     }
 }
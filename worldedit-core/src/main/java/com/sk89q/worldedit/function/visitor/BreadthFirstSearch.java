@@ -19,7 +19,12 @@
 
 package com.sk89q.worldedit.function.visitor;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
+import static com.sk89q.worldedit.math.BitMath.mask;
+import static com.sk89q.worldedit.math.BitMath.unpackX;
+import static com.sk89q.worldedit.math.BitMath.unpackY;
+import static com.sk89q.worldedit.math.BitMath.unpackZ;
 
 import com.google.common.collect.ImmutableList;
 import com.sk89q.worldedit.WorldEditException;
@@ -28,18 +33,16 @@
 import com.sk89q.worldedit.function.operation.RunContext;
 import com.sk89q.worldedit.math.BlockVector3;
 import com.sk89q.worldedit.util.Direction;
+import com.sk89q.worldedit.util.collection.SectionedBlockSet;
 import com.sk89q.worldedit.util.formatting.text.Component;
 import com.sk89q.worldedit.util.formatting.text.TextComponent;
 import com.sk89q.worldedit.util.formatting.text.TranslatableComponent;
 import com.sk89q.worldedit.util.formatting.text.format.TextColor;
+import it.unimi.dsi.fastutil.longs.LongArrayFIFOQueue;
 
-import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Queue;
-import java.util.Set;
 
 /**
  * Performs a breadth-first search starting from points added with
@@ -51,12 +54,20 @@
  * <p>As an abstract implementation, this class can be used to implement
  * functionality that starts at certain points and extends outward from
  * those points.</p>
+ *
+ * <p>Queued and visited positions are kept as packed coordinates, so
+ * searches can only reach X and Z coordinates that fit in 26 bits and Y
+ * coordinates that fit in 12 bits. Positions outside of that range are
+ * never visited, and {@link #visit(BlockVector3)} rejects them.</p>
  */
 public abstract class BreadthFirstSearch implements Operation {
 
+    private static final long BITS_26 = mask(26);
+    private static final long BITS_12 = mask(12);
+
     private final RegionFunction function;
-    private final Queue<BlockVector3> queue = new ArrayDeque<>();
-    private final Set<BlockVector3> visited = new HashSet<>();
+    private final LongArrayFIFOQueue queue = new LongArrayFIFOQueue();
+    private final SectionedBlockSet visited = new SectionedBlockSet();
     private final List<BlockVector3> directions = new ArrayList<>();
     private int affected = 0;
 
@@ -122,11 +133,17 @@ protected void addDiagonal() {
      * method will do nothing.</p>
      *
      * @param position the position
+     * @throws IllegalArgumentException if the position is outside the range
+     *     the search can track: X and Z within 26 bits and Y within 12 bits,
+     *     both signed
      */
     public void visit(BlockVector3 position) {
-        if (!visited.contains(position)) {
-            queue.add(position);
-            visited.add(position);
+        int x = position.getBlockX();
+        int y = position.getBlockY();
+        int z = position.getBlockZ();
+        checkArgument(isInBounds(x, y, z), "Position exceeds search limits: %s", position);
+        if (visited.add(x, y, z)) {
+            queue.enqueue(pack(x, y, z));
         }
     }
 
@@ -134,17 +151,24 @@ public void visit(BlockVector3 position) {
      * Try to visit the given 'to' location.
      *
      * @param from the origin block
-     * @param to the block under question
+     * @param x the X coordinate of the block under question
+     * @param y the Y coordinate of the block under question
+     * @param z the Z coordinate of the block under question
      */
-    private void visit(BlockVector3 from, BlockVector3 to) {
-        if (!visited.contains(to)) {
-            visited.add(to);
-            if (isVisitable(from, to)) {
-                queue.add(to);
-            }
+    private void visit(BlockVector3 from, int x, int y, int z) {
+        if (isInBounds(x, y, z) && visited.add(x, y, z) && isVisitable(from, x, y, z)) {
+            queue.enqueue(pack(x, y, z));
         }
     }
 
+    private static boolean isInBounds(int x, int y, int z) {
+        return x == (x << 6 >> 6) && z == (z << 6 >> 6) && y == (y << 20 >> 20);
+    }
+
+    private static long pack(int x, int y, int z) {
+        return (x & BITS_26) | ((z & BITS_26) << 26) | ((y & BITS_12) << (26 + 26));
+    }
+
     /**
      * Return whether the given 'to' block should be visited, starting from the
      * 'from' block.
@@ -155,6 +179,25 @@ private void visit(BlockVector3 from, BlockVector3 to) {
      */
     protected abstract boolean isVisitable(BlockVector3 from, BlockVector3 to);
 
+    /**
+     * Return whether the given 'to' block should be visited, starting from the
+     * 'from' block.
+     *
+     * <p>This is what the search calls for every block it hasn't seen yet.
+     * The default implementation creates a vector for the 'to' block and
+     * calls {@link #isVisitable(BlockVector3, BlockVector3)}. Subclasses can
+     * override it to turn blocks away without creating a vector.</p>
+     *
+     * @param from the origin block
+     * @param x the X coordinate of the block under question
+     * @param y the Y coordinate of the block under question
+     * @param z the Z coordinate of the block under question
+     * @return true if the 'to' block should be visited
+     */
+    protected boolean isVisitable(BlockVector3 from, int x, int y, int z) {
+        return isVisitable(from, BlockVector3.at(x, y, z));
+    }
+
     /**
      * Get the number of affected objects.
      *
@@ -166,15 +209,30 @@ public int getAffected() {
 
     @Override
     public Operation resume(RunContext run) throws WorldEditException {
-        BlockVector3 position;
-        
-        while ((position = queue.poll()) != null) {
+        int[] offsets = new int[directions.size() * 3];
+        int i = 0;
+        for (BlockVector3 dir : directions) {
+            offsets[i++] = dir.getBlockX();
+            offsets[i++] = dir.getBlockY();
+            offsets[i++] = dir.getBlockZ();
+        }
+
+        while (!queue.isEmpty()) {
+            long packed = queue.dequeueLong();
+            int x = unpackX(packed);
+            int y = unpackY(packed);
+            int z = unpackZ(packed);
+            BlockVector3 position = BlockVector3.at(x, y, z);
             if (function.apply(position)) {
                 affected++;
             }
 
-            for (BlockVector3 dir : directions) {
-                visit(position, position.add(dir));
+            for (int j = 0; j < offsets.length; j += 3) {
+                visit(position, x + offsets[j], y + offsets[j + 1], z + offsets[j + 2]);
+            }
+
+            if (!run.shouldContinue()) {
+                return this;
             }
         }
 
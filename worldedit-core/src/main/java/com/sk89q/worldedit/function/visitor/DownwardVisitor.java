@@ -65,4 +65,10 @@ protected boolean isVisitable(BlockVector3 from, BlockVector3 to) {
         int fromY = from.getBlockY();
         return (fromY == baseY || to.subtract(from).getBlockY() < 0) && super.isVisitable(from, to);
     }
+
+    @Override
+    protected boolean isVisitable(BlockVector3 from, int x, int y, int z) {
+        int fromY = from.getBlockY();
+        return (fromY == baseY || y < fromY) && super.isVisitable(from, x, y, z);
+    }
 }
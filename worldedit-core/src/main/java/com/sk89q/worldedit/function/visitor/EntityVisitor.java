@@ -71,6 +71,10 @@ public Operation resume(RunContext run) throws WorldEditException {
             if (function.apply(iterator.next())) {
                 affected++;
             }
+
+            if (!run.shouldContinue()) {
+                return this;
+            }
         }
 
         return null;
@@ -0,0 +1,347 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.function.visitor;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.collect.ImmutableList;
+import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.extent.AbstractBufferingExtent;
+import com.sk89q.worldedit.extent.Extent;
+import com.sk89q.worldedit.function.ForkableRegionFunction;
+import com.sk89q.worldedit.function.RegionFunction;
+import com.sk89q.worldedit.function.operation.Operation;
+import com.sk89q.worldedit.function.operation.RunContext;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.regions.Region;
+import com.sk89q.worldedit.regions.SpanList;
+import com.sk89q.worldedit.util.formatting.text.Component;
+import com.sk89q.worldedit.util.formatting.text.TextComponent;
+import com.sk89q.worldedit.util.formatting.text.TranslatableComponent;
+import com.sk89q.worldedit.util.collection.BlockMap;
+import com.sk89q.worldedit.util.formatting.text.format.TextColor;
+import com.sk89q.worldedit.world.block.BaseBlock;
+import com.sk89q.worldedit.world.block.BlockStateHolder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Function;
+
+import javax.annotation.Nullable;
+
+/**
+ * Applies a region function to a region using several threads.
+ *
+ * <p>The region is split into shards of whole chunk columns, which are
+ * visited on a {@link ForkJoinPool}. Every thread gets its own copy of the
+ * function, and results are merged on the thread that resumes this
+ * operation, in the same order for every run.</p>
+ *
+ * <p>Only functions that can safely run alongside each other can be used:
+ * either a {@link ForkableRegionFunction}, or a function that writes into
+ * the buffer passed to it by {@link #buffered(Region, Extent, Function)}.
+ * Reads from the underlying extents happen on the pool's threads, so those
+ * extents must support being read from several threads while the visit is
+ * running.</p>
+ */
+public class ParallelRegionVisitor implements Operation {
+
+    /**
+     * Regions with fewer blocks than this are visited on the calling thread.
+     */
+    private static final long MIN_PARALLEL_VOLUME = 16 * 16 * 256;
+
+    private final Region region;
+    private final ForkFactory forkFactory;
+    private final ForkJoinPool pool;
+    private volatile boolean cancelled;
+    private int affected = 0;
+
+    /**
+     * Create a new visitor that uses the common fork-join pool.
+     *
+     * @param region the region to visit
+     * @param function the function to apply
+     * @param <F> the type of the function
+     */
+    public <F extends ForkableRegionFunction<F>> ParallelRegionVisitor(Region region, F function) {
+        this(region, function, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Create a new visitor.
+     *
+     * @param region the region to visit
+     * @param function the function to apply
+     * @param pool the pool to run the shards on
+     * @param <F> the type of the function
+     */
+    public <F extends ForkableRegionFunction<F>> ParallelRegionVisitor(Region region, F function, ForkJoinPool pool) {
+        this(region, pool, () -> {
+            F fork = function.fork();
+            return new Fork(fork) {
+                @Override
+                void merge() {
+                    function.join(fork);
+                }
+            };
+        });
+        checkNotNull(function);
+    }
+
+    /**
+     * Create a new visitor for functions that change blocks, using the
+     * common fork-join pool.
+     *
+     * @param region the region to visit
+     * @param extent the extent to read from and write changes to
+     * @param functionFactory creates a function that works on the given buffer
+     * @return the visitor
+     * @see #buffered(Region, Extent, Function, ForkJoinPool)
+     */
+    public static ParallelRegionVisitor buffered(Region region, Extent extent,
+            Function<? super Extent, ? extends RegionFunction> functionFactory) {
+        return buffered(region, extent, functionFactory, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Create a new visitor for functions that change blocks.
+     *
+     * <p>Each shard gets a buffer on top of {@code extent} to create its
+     * function with. Reads from the buffer see the shard's own changes, and
+     * the buffered changes are written to {@code extent} on the calling
+     * thread once every shard is done, one shard after another in the order
+     * of their chunk columns. Functions must only change blocks at the
+     * position they are applied to.</p>
+     *
+     * @param region the region to visit
+     * @param extent the extent to read from and write changes to
+     * @param functionFactory creates a function that works on the given buffer
+     * @param pool the pool to run the shards on
+     * @return the visitor
+     */
+    public static ParallelRegionVisitor buffered(Region region, Extent extent,
+            Function<? super Extent, ? extends RegionFunction> functionFactory, ForkJoinPool pool) {
+        checkNotNull(extent);
+        checkNotNull(functionFactory);
+        return new ParallelRegionVisitor(region, pool, () -> {
+            ShardBuffer buffer = new ShardBuffer(extent);
+            return new Fork(functionFactory.apply(buffer)) {
+                @Override
+                void merge() throws WorldEditException {
+                    buffer.flush();
+                }
+            };
+        });
+    }
+
+    private ParallelRegionVisitor(Region region, ForkJoinPool pool, ForkFactory forkFactory) {
+        checkNotNull(region);
+        checkNotNull(pool);
+        this.region = region;
+        this.pool = pool;
+        this.forkFactory = forkFactory;
+    }
+
+    /**
+     * Get the number of affected objects.
+     *
+     * @return the number of affected
+     */
+    public int getAffected() {
+        return affected;
+    }
+
+    @Override
+    public Operation resume(RunContext run) throws WorldEditException {
+        BlockVector3 min = region.getMinimumPoint();
+        BlockVector3 max = region.getMaximumPoint();
+        int minChunkX = min.getBlockX() >> 4;
+        int minChunkZ = min.getBlockZ() >> 4;
+        int chunksX = (max.getBlockX() >> 4) - minChunkX + 1;
+        int chunksZ = (max.getBlockZ() >> 4) - minChunkZ + 1;
+        int columns = chunksX * chunksZ;
+
+        long volume = (long) (max.getBlockX() - min.getBlockX() + 1)
+                * (max.getBlockY() - min.getBlockY() + 1)
+                * (max.getBlockZ() - min.getBlockZ() + 1);
+        int shardCount = volume < MIN_PARALLEL_VOLUME ? 1 : Math.min(columns, pool.getParallelism() * 4);
+
+        // Forks are created here so that functions don't need to be safe to fork concurrently
+        List<Shard> shards = new ArrayList<>(shardCount);
+        for (int i = 0; i < shardCount; i++) {
+            int from = (int) ((long) columns * i / shardCount);
+            int to = (int) ((long) columns * (i + 1) / shardCount);
+            shards.add(new Shard(forkFactory.create(), minChunkX, minChunkZ, chunksX, from, to));
+        }
+
+        if (shardCount == 1) {
+            shards.get(0).run();
+        } else {
+            List<ForkJoinTask<?>> tasks = new ArrayList<>(shardCount);
+            for (Shard shard : shards) {
+                tasks.add(pool.submit(shard));
+            }
+            for (ForkJoinTask<?> task : tasks) {
+                task.join();
+            }
+        }
+
+        for (Shard shard : shards) {
+            if (shard.error != null) {
+                throw shard.error;
+            }
+        }
+        for (Shard shard : shards) {
+            shard.fork.merge();
+            affected += shard.affected;
+        }
+
+        return null;
+    }
+
+    @Override
+    public void cancel() {
+        cancelled = true;
+    }
+
+    @Override
+    public Iterable<Component> getStatusMessages() {
+        return ImmutableList.of(TranslatableComponent.of(
+                "worldedit.operation.affected.block",
+                TextComponent.of(getAffected())
+        ).color(TextColor.LIGHT_PURPLE));
+    }
+
+    @FunctionalInterface
+    private interface ForkFactory {
+        Fork create();
+    }
+
+    private abstract static class Fork {
+        private final RegionFunction function;
+
+        Fork(RegionFunction function) {
+            this.function = checkNotNull(function);
+        }
+
+        abstract void merge() throws WorldEditException;
+    }
+
+    /**
+     * Holds the changes made by one shard until they are committed.
+     */
+    private static final class ShardBuffer extends AbstractBufferingExtent {
+        private final BlockMap<BaseBlock> buffer = BlockMap.createForBaseBlock();
+
+        private ShardBuffer(Extent extent) {
+            super(extent);
+        }
+
+        @Nullable
+        @Override
+        protected BaseBlock getBufferedFullBlock(BlockVector3 position) {
+            return buffer.get(position);
+        }
+
+        @Override
+        public <T extends BlockStateHolder<T>> boolean setBlock(BlockVector3 location, T block) throws WorldEditException {
+            buffer.put(location, block.toBaseBlock());
+            return true;
+        }
+
+        private void flush() throws WorldEditException {
+            for (Map.Entry<BlockVector3, BaseBlock> entry : buffer.entrySet()) {
+                setDelegateBlock(entry.getKey(), entry.getValue());
+            }
+            buffer.clear();
+        }
+    }
+
+    /**
+     * A range of chunk columns, in the order they are numbered within the
+     * region's bounding box.
+     */
+    private final class Shard implements Runnable {
+        private final Fork fork;
+        private final int minChunkX;
+        private final int minChunkZ;
+        private final int chunksX;
+        private final int from;
+        private final int to;
+        private int affected;
+        @Nullable
+        private WorldEditException error;
+
+        private Shard(Fork fork, int minChunkX, int minChunkZ, int chunksX, int from, int to) {
+            this.fork = fork;
+            this.minChunkX = minChunkX;
+            this.minChunkZ = minChunkZ;
+            this.chunksX = chunksX;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public void run() {
+            try {
+                for (int column = from; column < to && !cancelled; column++) {
+                    visitColumn(minChunkX + column % chunksX, minChunkZ + column / chunksX);
+                }
+            } catch (WorldEditException e) {
+                error = e;
+                cancelled = true;
+            } catch (RuntimeException e) {
+                cancelled = true;
+                throw e;
+            }
+        }
+
+        private void visitColumn(int chunkX, int chunkZ) throws WorldEditException {
+            BlockVector3 min = region.getMinimumPoint();
+            BlockVector3 max = region.getMaximumPoint();
+            int minX = Math.max(min.getBlockX(), chunkX << 4);
+            int maxX = Math.min(max.getBlockX(), (chunkX << 4) + 15);
+            int minZ = Math.max(min.getBlockZ(), chunkZ << 4);
+            int maxZ = Math.min(max.getBlockZ(), (chunkZ << 4) + 15);
+            RegionFunction function = fork.function;
+            SpanList spans = new SpanList();
+
+            for (int y = min.getBlockY(); y <= max.getBlockY(); y++) {
+                for (int z = minZ; z <= maxZ; z++) {
+                    spans.clear();
+                    region.collectSpans(y, z, spans);
+                    for (int i = 0; i < spans.size(); i++) {
+                        int spanMaxX = Math.min(maxX, spans.getMaxX(i));
+                        for (int x = Math.max(minX, spans.getMinX(i)); x <= spanMaxX; x++) {
+                            if (function.apply(BlockVector3.at(x, y, z))) {
+                                affected++;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+}
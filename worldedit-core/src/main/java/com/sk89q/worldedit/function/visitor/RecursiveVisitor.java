@@ -49,4 +49,16 @@ public RecursiveVisitor(Mask mask, RegionFunction function) {
     protected boolean isVisitable(BlockVector3 from, BlockVector3 to) {
         return mask.test(to);
     }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>This tests the mask with {@link Mask#test(int, int, int)}, so
+     * subclasses that override {@link #isVisitable(BlockVector3, BlockVector3)}
+     * must override this method too.</p>
+     */
+    @Override
+    protected boolean isVisitable(BlockVector3 from, int x, int y, int z) {
+        return mask.test(x, y, z);
+    }
 }
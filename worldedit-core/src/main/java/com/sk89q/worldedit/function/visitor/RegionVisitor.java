@@ -30,15 +30,24 @@
 import com.sk89q.worldedit.util.formatting.text.TextComponent;
 import com.sk89q.worldedit.util.formatting.text.TranslatableComponent;
 import com.sk89q.worldedit.util.formatting.text.format.TextColor;
+import com.sk89q.worldedit.util.task.progress.Progress;
+import com.sk89q.worldedit.util.task.progress.ProgressObservable;
+
+import java.util.Iterator;
+
+import javax.annotation.Nullable;
 
 /**
  * Utility class to apply region functions to {@link com.sk89q.worldedit.regions.Region}.
  */
-public class RegionVisitor implements Operation {
+public class RegionVisitor implements Operation, ProgressObservable {
 
     private final Region region;
     private final RegionFunction function;
+    @Nullable
+    private Iterator<BlockVector3> iterator;
     private int affected = 0;
+    private long visited = 0;
 
     public RegionVisitor(Region region, RegionFunction function) {
         this.region = region;
@@ -56,10 +65,19 @@ public int getAffected() {
 
     @Override
     public Operation resume(RunContext run) throws WorldEditException {
-        for (BlockVector3 pt : region) {
-            if (function.apply(pt)) {
+        if (iterator == null) {
+            iterator = region.iterator();
+        }
+
+        while (iterator.hasNext()) {
+            if (function.apply(iterator.next())) {
                 affected++;
             }
+            visited++;
+
+            if (!run.shouldContinue()) {
+                return this;
+            }
         }
 
         return null;
@@ -69,6 +87,12 @@ public Operation resume(RunContext run) throws WorldEditException {
     public void cancel() {
     }
 
+    @Override
+    public Progress getProgress() {
+        int area = region.getArea();
+        return area > 0 ? Progress.of(Math.min(1, visited / (double) area)) : Progress.indeterminate();
+    }
+
     @Override
     public Iterable<Component> getStatusMessages() {
         return ImmutableList.of(TranslatableComponent.of(
@@ -0,0 +1,528 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.history.changeset;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Iterators;
+import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.extent.Extent;
+import com.sk89q.worldedit.history.change.BlockChange;
+import com.sk89q.worldedit.history.change.Change;
+import com.sk89q.worldedit.internal.block.BlockStateIdAccess;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.world.block.BaseBlock;
+import com.sk89q.worldedit.world.block.BlockState;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.Nullable;
+
+/**
+ * An extension of {@link ArrayListHistory} that encodes {@link BlockChange}s
+ * as (packed position, previous state ID, current state ID) entries in
+ * off-heap buffers.
+ *
+ * <p>The first segment starts small and grows as changes are added, so small
+ * edits only use a few kilobytes. Once the buffered entries pass a memory
+ * limit, the oldest segments are
+ * written to a temporary file, and read back when undoing or redoing.
+ * Changes that cannot be encoded, such as blocks with NBT data, are kept as
+ * objects and referenced from their entry so that ordering is preserved.</p>
+ *
+ * <p>This history should be {@linkplain #close() closed} when it is discarded,
+ * to delete the temporary file.</p>
+ */
+public class SpillingBlockHistory extends ArrayListHistory implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(SpillingBlockHistory.class);
+
+    private static final int ENTRY_BYTES = Long.BYTES + Integer.BYTES + Integer.BYTES;
+    private static final int INITIAL_SEGMENT_ENTRIES = 1 << 8;
+    private static final int SEGMENT_ENTRIES = 1 << 16;
+    private static final int SEGMENT_BYTES = SEGMENT_ENTRIES * ENTRY_BYTES;
+    /**
+     * Marks an entry whose change is stored as an object. The position
+     * field then holds the index into {@link #objectChanges}.
+     */
+    private static final int OBJECT_MARKER = Integer.MIN_VALUE;
+
+    private final long memoryLimit;
+    private final List<Segment> segments = new ArrayList<>();
+    private final List<BlockChange> objectChanges = new ArrayList<>();
+    private long memoryUsed;
+    private int blockChangeCount;
+    // the number of distinct changed positions, or -1 if not counted since the last change
+    private int distinctPositions = -1;
+    @Nullable
+    private Path spillPath;
+    @Nullable
+    private FileChannel spillChannel;
+    private long spillChannelSize;
+    private boolean spillFailed;
+
+    /**
+     * Create a new instance.
+     *
+     * @param memoryLimit the number of bytes of entries to keep in memory
+     *     before writing to disk, or a negative number to never write to disk
+     */
+    public SpillingBlockHistory(long memoryLimit) {
+        this.memoryLimit = memoryLimit;
+    }
+
+    @Override
+    public void add(Change change) {
+        checkNotNull(change);
+
+        if (change instanceof BlockChange) {
+            addBlockChange((BlockChange) change);
+        } else {
+            super.add(change);
+        }
+    }
+
+    private void addBlockChange(BlockChange change) {
+        BlockVector3 position = change.getPosition();
+        int previous = encodableId(change.getPrevious());
+        int current = encodableId(change.getCurrent());
+        Segment segment = getWritableSegment();
+        if (BlockStateIdAccess.isValidInternalId(previous)
+            && BlockStateIdAccess.isValidInternalId(current)
+            && BlockVector3.isLongPackable(position)) {
+            segment.put(position.toLongPackedForm(), previous, current);
+        } else {
+            segment.put(objectChanges.size(), OBJECT_MARKER, 0);
+            objectChanges.add(change);
+        }
+        blockChangeCount++;
+        distinctPositions = -1;
+    }
+
+    /**
+     * Get the internal ID of the block if it can be encoded as one.
+     *
+     * @return the internal ID, or {@link BlockStateIdAccess#invalidId()} if not encodable
+     */
+    private static int encodableId(BaseBlock block) {
+        if (block.hasNbtData()) {
+            return BlockStateIdAccess.invalidId();
+        }
+        return BlockStateIdAccess.getBlockStateId(block.toImmutableState());
+    }
+
+    private Segment getWritableSegment() {
+        Segment last = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+        if (last != null && !last.isFull()) {
+            return last;
+        }
+        if (last != null && last.canGrow()) {
+            int grownBytes = Math.min(last.getCapacity() * 2, SEGMENT_ENTRIES) * ENTRY_BYTES;
+            int extraBytes = grownBytes - last.getCapacity() * ENTRY_BYTES;
+            if (memoryLimit < 0 || memoryUsed + extraBytes <= memoryLimit) {
+                last.grow(grownBytes);
+                memoryUsed += extraBytes;
+                return last;
+            }
+        }
+        ByteBuffer buffer = null;
+        if (memoryLimit >= 0 && memoryUsed + SEGMENT_BYTES > memoryLimit) {
+            buffer = spillOldest();
+        }
+        if (buffer == null) {
+            // only the first segment starts small, later ones are for large edits
+            int bytes = segments.isEmpty() ? INITIAL_SEGMENT_ENTRIES * ENTRY_BYTES : SEGMENT_BYTES;
+            buffer = ByteBuffer.allocateDirect(bytes);
+            memoryUsed += bytes;
+        }
+        Segment segment = new Segment(buffer);
+        segments.add(segment);
+        return segment;
+    }
+
+    /**
+     * Write the oldest in-memory segment to disk.
+     *
+     * @return the freed buffer for re-use, or {@code null} if nothing was written
+     */
+    @Nullable
+    private ByteBuffer spillOldest() {
+        if (spillFailed) {
+            return null;
+        }
+        for (Segment segment : segments) {
+            if (segment.buffer != null) {
+                try {
+                    return segment.spill();
+                } catch (IOException e) {
+                    log.warn("Failed to write history to disk, keeping it in memory instead", e);
+                    spillFailed = true;
+                    return null;
+                }
+            }
+        }
+        return null;
+    }
+
+    private FileChannel getSpillChannel() throws IOException {
+        if (spillChannel == null) {
+            spillPath = Files.createTempFile("worldedit-history", ".bin");
+            spillChannel = FileChannel.open(spillPath,
+                StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE);
+        }
+        return spillChannel;
+    }
+
+    /**
+     * Get the number of bytes of history currently held in memory.
+     *
+     * @return the number of bytes
+     */
+    public long getMemoryUsed() {
+        return memoryUsed;
+    }
+
+    /**
+     * Get the number of bytes of history written to disk.
+     *
+     * @return the number of bytes
+     */
+    public long getDiskUsed() {
+        return spillChannelSize;
+    }
+
+    @Override
+    public Iterator<Change> forwardIterator() {
+        return Iterators.concat(super.forwardIterator(), new ChangeIterator(blockCursor(false)));
+    }
+
+    @Override
+    public Iterator<Change> backwardIterator() {
+        return Iterators.concat(super.backwardIterator(), new ChangeIterator(blockCursor(true)));
+    }
+
+    /**
+     * Get the non-block changes in the given direction, which should be
+     * applied before the {@link #blockCursor(boolean) block changes}.
+     *
+     * @param backward true for undo order
+     * @return an iterator of changes
+     */
+    public Iterator<Change> nonBlockIterator(boolean backward) {
+        return backward ? super.backwardIterator() : super.forwardIterator();
+    }
+
+    /**
+     * Create a cursor that applies the block changes in the given direction
+     * without creating a {@link Change} for each one.
+     *
+     * @param backward true to undo, false to redo
+     * @return a new cursor
+     */
+    public BlockCursor blockCursor(boolean backward) {
+        return new BlockCursor(backward);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Like {@link BlockOptimizedHistory}, block changes are counted once
+     * per changed position, however often it was changed. The positions are
+     * counted by reading all entries, so this is slow for large histories,
+     * but the count is kept until the next change is added.</p>
+     */
+    @Override
+    public int size() {
+        return super.size() + getDistinctPositions();
+    }
+
+    private int getDistinctPositions() {
+        if (blockChangeCount == 0) {
+            return 0;
+        }
+        if (distinctPositions < 0) {
+            LongSet packed = new LongOpenHashSet();
+            Set<BlockVector3> unpacked = new HashSet<>();
+            BlockCursor cursor = blockCursor(false);
+            while (cursor.next()) {
+                if (cursor.previousId != OBJECT_MARKER) {
+                    packed.add(cursor.position);
+                    continue;
+                }
+                BlockVector3 position = objectChanges.get((int) cursor.position).getPosition();
+                if (BlockVector3.isLongPackable(position)) {
+                    packed.add(position.toLongPackedForm());
+                } else {
+                    unpacked.add(position);
+                }
+            }
+            distinctPositions = packed.size() + unpacked.size();
+        }
+        return distinctPositions;
+    }
+
+    /**
+     * Get the number of block changes, counting every change to a position.
+     *
+     * @return the number of block changes
+     */
+    public int getBlockChangeCount() {
+        return blockChangeCount;
+    }
+
+    @Override
+    public void close() throws IOException {
+        segments.clear();
+        objectChanges.clear();
+        memoryUsed = 0;
+        blockChangeCount = 0;
+        distinctPositions = -1;
+        if (spillChannel != null) {
+            spillChannel.close();
+            spillChannel = null;
+            // DELETE_ON_CLOSE is best-effort on some platforms
+            Files.deleteIfExists(spillPath);
+        }
+    }
+
+    /**
+     * Applies stored block changes one at a time.
+     */
+    public final class BlockCursor {
+
+        private final boolean backward;
+        private int segmentIndex;
+        private ByteBuffer current;
+        private int entryIndex;
+        private int entryEnd;
+        @Nullable
+        private ByteBuffer readBuffer;
+
+        private long position;
+        private int previousId;
+        private int currentId;
+
+        private BlockCursor(boolean backward) {
+            this.backward = backward;
+            this.segmentIndex = backward ? segments.size() : -1;
+        }
+
+        /**
+         * Move to the next change.
+         *
+         * @return false if there are no more changes
+         * @throws UncheckedIOException if reading history from disk fails
+         */
+        public boolean next() {
+            while (current == null || entryIndex == entryEnd) {
+                segmentIndex += backward ? -1 : 1;
+                if (segmentIndex < 0 || segmentIndex >= segments.size()) {
+                    return false;
+                }
+                Segment segment = segments.get(segmentIndex);
+                current = segment.read(this);
+                entryIndex = backward ? segment.entries - 1 : 0;
+                entryEnd = backward ? -1 : segment.entries;
+            }
+            int offset = entryIndex * ENTRY_BYTES;
+            position = current.getLong(offset);
+            previousId = current.getInt(offset + Long.BYTES);
+            currentId = current.getInt(offset + Long.BYTES + Integer.BYTES);
+            entryIndex += backward ? -1 : 1;
+            return true;
+        }
+
+        /**
+         * Get the current change as an object.
+         *
+         * @return the change
+         */
+        Change getChange() {
+            if (previousId == OBJECT_MARKER) {
+                return objectChanges.get((int) position);
+            }
+            return new BlockChange(getPosition(), getState(previousId), getState(currentId));
+        }
+
+        /**
+         * Apply the current change to the given extent.
+         *
+         * @param extent the extent
+         * @throws WorldEditException thrown by the extent
+         */
+        public void apply(Extent extent) throws WorldEditException {
+            if (previousId == OBJECT_MARKER) {
+                BlockChange change = objectChanges.get((int) position);
+                extent.setBlock(change.getPosition(), backward ? change.getPrevious() : change.getCurrent());
+            } else {
+                extent.setBlock(getPosition(), getState(backward ? previousId : currentId));
+            }
+        }
+
+        private BlockState getState(int id) {
+            BlockState state = BlockStateIdAccess.getBlockStateById(id);
+            if (state == null) {
+                throw new IllegalStateException("No state for ID " + id);
+            }
+            return state;
+        }
+
+        private BlockVector3 getPosition() {
+            return BlockVector3.fromLongPackedForm(position);
+        }
+
+        private ByteBuffer getReadBuffer(int bytes) {
+            if (readBuffer == null || readBuffer.capacity() < bytes) {
+                readBuffer = ByteBuffer.allocateDirect(SEGMENT_BYTES);
+            }
+            return readBuffer;
+        }
+    }
+
+    /**
+     * Adapts a {@link BlockCursor} to the {@link ChangeSet} iterator API.
+     */
+    private static final class ChangeIterator extends AbstractIterator<Change> {
+
+        private final BlockCursor cursor;
+
+        private ChangeIterator(BlockCursor cursor) {
+            this.cursor = cursor;
+        }
+
+        @Override
+        protected Change computeNext() {
+            return cursor.next() ? cursor.getChange() : endOfData();
+        }
+    }
+
+    /**
+     * A run of entries, either in memory or on disk.
+     */
+    private final class Segment {
+
+        @Nullable
+        private ByteBuffer buffer;
+        private long fileOffset = -1;
+        private int capacity;
+        private int entries;
+
+        private Segment(ByteBuffer buffer) {
+            this.buffer = buffer;
+            this.capacity = buffer.capacity() / ENTRY_BYTES;
+        }
+
+        int getCapacity() {
+            return capacity;
+        }
+
+        boolean isFull() {
+            return entries == capacity;
+        }
+
+        boolean canGrow() {
+            return buffer != null && capacity < SEGMENT_ENTRIES;
+        }
+
+        /**
+         * Move the entries to a larger buffer.
+         */
+        void grow(int bytes) {
+            ByteBuffer source = checkNotNull(buffer).duplicate();
+            source.clear().limit(entries * ENTRY_BYTES);
+            ByteBuffer grown = ByteBuffer.allocateDirect(bytes);
+            grown.put(source);
+            buffer = grown;
+            capacity = bytes / ENTRY_BYTES;
+        }
+
+        void put(long position, int previous, int current) {
+            checkNotNull(buffer);
+            int offset = entries * ENTRY_BYTES;
+            buffer.putLong(offset, position);
+            buffer.putInt(offset + Long.BYTES, previous);
+            buffer.putInt(offset + Long.BYTES + Integer.BYTES, current);
+            entries++;
+        }
+
+        /**
+         * Write this segment to disk and release its buffer.
+         *
+         * @return the released buffer
+         */
+        ByteBuffer spill() throws IOException {
+            ByteBuffer released = checkNotNull(buffer);
+            FileChannel channel = getSpillChannel();
+            ByteBuffer source = released.duplicate();
+            source.clear().limit(entries * ENTRY_BYTES);
+            long offset = spillChannelSize;
+            while (source.hasRemaining()) {
+                offset += channel.write(source, offset);
+            }
+            fileOffset = spillChannelSize;
+            spillChannelSize = offset;
+            buffer = null;
+            return released;
+        }
+
+        /**
+         * Get a buffer holding this segment's entries.
+         */
+        ByteBuffer read(BlockCursor cursor) {
+            if (buffer != null) {
+                return buffer;
+            }
+            ByteBuffer target = cursor.getReadBuffer(entries * ENTRY_BYTES);
+            target.clear().limit(entries * ENTRY_BYTES);
+            try {
+                FileChannel channel = checkNotNull(spillChannel, "history has been closed");
+                long offset = fileOffset;
+                while (target.hasRemaining()) {
+                    int read = channel.read(target, offset);
+                    if (read < 0) {
+                        throw new IOException("Unexpected end of history file");
+                    }
+                    offset += read;
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return target;
+        }
+    }
+
+}
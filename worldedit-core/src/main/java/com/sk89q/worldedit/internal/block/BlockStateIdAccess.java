@@ -46,6 +46,7 @@ public interface BlockStateInternalId {
     }
 
     private static BlockStateInternalId blockStateInternalId;
+    private static volatile int generation;
 
     public static void setBlockStateInternalId(BlockStateInternalId blockStateInternalId) {
         BlockStateIdAccess.blockStateInternalId = blockStateInternalId;
@@ -58,6 +59,17 @@ public static int invalidId() {
         return INVALID_ID;
     }
 
+    /**
+     * Get the number of times the IDs were cleared. Anything that caches
+     * data by internal ID should drop it when this changes, because the same
+     * ID may then belong to another state.
+     *
+     * @return the generation of the IDs
+     */
+    public static int getGeneration() {
+        return generation;
+    }
+
     public static boolean isValidInternalId(int internalId) {
         return internalId != INVALID_ID;
     }
@@ -101,6 +113,7 @@ public static void clear() {
         }
         TO_STATE.clear();
         usedIds.clear();
+        generation++;
     }
 
     private BlockStateIdAccess() {
@@ -19,7 +19,9 @@
 
 package com.sk89q.worldedit.internal.expression;
 
+import java.time.Duration;
 import java.time.Instant;
+import java.util.concurrent.TimeUnit;
 
 import static java.util.Objects.requireNonNull;
 
@@ -31,14 +33,37 @@ public class ExecutionData {
      */
     public static final ExecutionData CONSTANT_EVALUATOR = new ExecutionData(null, null, Instant.MAX);
 
+    /**
+     * How many calls to {@link #checkDeadline()} are answered without reading the clock.
+     */
+    private static final int DEADLINE_CHECK_INTERVAL = 32;
+
     private final SlotTable slots;
     private final Functions functions;
-    private final Instant deadline;
+    private boolean bounded;
+    private long deadline;
+    private int checkCountdown;
 
     public ExecutionData(SlotTable slots, Functions functions, Instant deadline) {
         this.slots = slots;
         this.functions = functions;
-        this.deadline = deadline;
+        Duration remaining = Duration.between(Instant.now(), deadline);
+        if (remaining.getSeconds() < TimeUnit.NANOSECONDS.toSeconds(Long.MAX_VALUE / 2)) {
+            setDeadline(System.nanoTime() + remaining.toNanos());
+        }
+    }
+
+    /**
+     * Create a new instance with a deadline.
+     *
+     * @param slots the slots
+     * @param functions the functions
+     * @param deadline the deadline, as a {@link System#nanoTime()} value
+     */
+    public ExecutionData(SlotTable slots, Functions functions, long deadline) {
+        this.slots = slots;
+        this.functions = functions;
+        setDeadline(deadline);
     }
 
     public SlotTable getSlots() {
@@ -50,11 +75,37 @@ public Functions getFunctions() {
     }
 
     public Instant getDeadline() {
-        return deadline;
+        if (!bounded) {
+            return Instant.MAX;
+        }
+        return Instant.now().plusNanos(deadline - System.nanoTime());
+    }
+
+    /**
+     * Move the deadline, so that the same context can be reused for another evaluation.
+     *
+     * <p>The next call to {@link #checkDeadline()} always reads the clock.</p>
+     *
+     * @param deadline the new deadline, as a {@link System#nanoTime()} value
+     */
+    void setDeadline(long deadline) {
+        this.bounded = true;
+        this.deadline = deadline;
+        this.checkCountdown = 1;
     }
 
+    /**
+     * Throw if the deadline has passed.
+     *
+     * <p>This is called on every loop iteration, so the clock is only read
+     * every few calls.</p>
+     */
     public void checkDeadline() {
-        if (Instant.now().isAfter(deadline)) {
+        if (!bounded || --checkCountdown > 0) {
+            return;
+        }
+        checkCountdown = DEADLINE_CHECK_INTERVAL;
+        if (System.nanoTime() - deadline > 0) {
             throw new ExpressionTimeoutException("Calculations exceeded time limit.");
         }
     }
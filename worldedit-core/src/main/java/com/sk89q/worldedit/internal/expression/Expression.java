@@ -30,9 +30,9 @@
 import org.antlr.v4.runtime.misc.ParseCancellationException;
 import org.antlr.v4.runtime.tree.ParseTreeWalker;
 
-import java.time.Instant;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.TimeUnit;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -62,6 +62,8 @@
  * as you want by calling {@link #evaluate(double...)}. You do not need to
  * pass values for all slots specified while compiling.
  * To query slots after evaluation, you can use the {@linkplain #getSlots() slot table}.
+ * To evaluate the equation for many inputs at once, use
+ * {@link #evaluateBatch(double[][], double[], int, int)}.
  */
 public class Expression {
 
@@ -71,6 +73,7 @@ public class Expression {
     private final ExpressionParser.AllStatementsContext root;
     private final Functions functions = Functions.create();
     private final CompiledExpression compiledExpression;
+    private final ExecutionData executionData;
 
     public static Expression compile(String expression, String... variableNames) throws ExpressionException {
         return new Expression(expression, variableNames);
@@ -108,6 +111,7 @@ private Expression(String expression, String... variableNames) throws Expression
         }
         ParseTreeWalker.DEFAULT.walk(new ExpressionValidator(slots.keySet(), functions), root);
         this.compiledExpression = new ExpressionCompiler().compileExpression(root, functions);
+        this.executionData = new ExecutionData(slots, functions, System.nanoTime());
     }
 
     public double evaluate(double... values) throws EvaluationException {
@@ -116,17 +120,64 @@ public double evaluate(double... values) throws EvaluationException {
 
     public double evaluate(double[] values, int timeout) throws EvaluationException {
         for (int i = 0; i < values.length; ++i) {
-            String slotName = providedSlots.get(i);
-            LocalSlot.Variable slot = slots.getVariable(slotName)
-                .orElseThrow(() -> new EvaluationException(-1,
-                    "Tried to assign to non-variable " + slotName + "."));
+            getProvidedVariable(i).setValue(values[i]);
+        }
+
+        return execute(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout));
+    }
+
+    /**
+     * Evaluate the expression once for each of {@code count} sets of values.
+     *
+     * <p>{@code values[v][i]} is the value of the {@code v}-th variable
+     * passed to {@link #compile(String, String...)} for the {@code i}-th
+     * evaluation, and its result is stored in {@code results[i]}. After
+     * each evaluation, the final values of the variables are written back
+     * into {@code values}, so that assignments made by the expression can
+     * be read without going through the slot table.</p>
+     *
+     * <p>Each evaluation has its own time limit of {@code timeout}
+     * milliseconds, as with {@link #evaluate(double[], int)}. If an
+     * evaluation fails, the exception is thrown and the remaining values
+     * are not evaluated.</p>
+     *
+     * @param values the values of the variables, one array per variable
+     * @param results the array to store the results in
+     * @param count the number of evaluations
+     * @param timeout the time limit for each evaluation, in milliseconds
+     * @throws EvaluationException thrown if an evaluation fails
+     */
+    public void evaluateBatch(double[][] values, double[] results, int count, int timeout) throws EvaluationException {
+        checkArgument(results.length >= count, "Not enough space for results");
+        LocalSlot.Variable[] variables = new LocalSlot.Variable[values.length];
+        for (int v = 0; v < values.length; ++v) {
+            checkArgument(values[v].length >= count, "Not enough values for %s", providedSlots.get(v));
+            variables[v] = getProvidedVariable(v);
+        }
 
-            slot.setValue(values[i]);
+        long timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeout);
+        for (int i = 0; i < count; ++i) {
+            for (int v = 0; v < variables.length; ++v) {
+                variables[v].setValue(values[v][i]);
+            }
+            results[i] = execute(System.nanoTime() + timeoutNanos);
+            for (int v = 0; v < variables.length; ++v) {
+                values[v][i] = variables[v].getValue();
+            }
         }
+    }
+
+    private LocalSlot.Variable getProvidedVariable(int index) throws EvaluationException {
+        String slotName = providedSlots.get(index);
+        return slots.getVariable(slotName)
+            .orElseThrow(() -> new EvaluationException(-1,
+                "Tried to assign to non-variable " + slotName + "."));
+    }
 
-        Instant deadline = Instant.now().plusMillis(timeout);
+    private double execute(long deadline) throws EvaluationException {
+        executionData.setDeadline(deadline);
         // evaluation exceptions are thrown out of this method
-        Double result = compiledExpression.execute(new ExecutionData(slots, functions, deadline));
+        Double result = compiledExpression.execute(executionData);
         if (result == null) {
             throw new EvaluationException(-1, "Expression must result in a value");
         }
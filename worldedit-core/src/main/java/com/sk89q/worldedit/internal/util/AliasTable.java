@@ -0,0 +1,115 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.internal.util;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Samples indices with given weights in constant time, with Vose's alias
+ * method.
+ *
+ * <p>Each index owns a column of equal probability. A column is either
+ * kept by its index, or handed to its alias, depending on a threshold.</p>
+ */
+public final class AliasTable {
+
+    private final double[] threshold;
+    private final int[] alias;
+
+    /**
+     * Build a table for the given weights.
+     *
+     * @param weights the weights, which must be non-negative and not all zero
+     */
+    public AliasTable(double[] weights) {
+        checkNotNull(weights);
+        int size = weights.length;
+        checkArgument(size > 0, "no weights given");
+        double total = 0;
+        for (double weight : weights) {
+            checkArgument(weight >= 0 && !Double.isInfinite(weight), "invalid weight %s", weight);
+            total += weight;
+        }
+        checkArgument(total > 0, "weights must not all be zero");
+
+        threshold = new double[size];
+        alias = new int[size];
+        double[] scaled = new double[size];
+        int[] small = new int[size];
+        int[] large = new int[size];
+        int smallCount = 0;
+        int largeCount = 0;
+        for (int i = 0; i < size; i++) {
+            scaled[i] = weights[i] * size / total;
+            if (scaled[i] < 1) {
+                small[smallCount++] = i;
+            } else {
+                large[largeCount++] = i;
+            }
+        }
+        while (smallCount > 0 && largeCount > 0) {
+            int less = small[--smallCount];
+            int more = large[--largeCount];
+            threshold[less] = scaled[less];
+            alias[less] = more;
+            scaled[more] = scaled[more] + scaled[less] - 1;
+            if (scaled[more] < 1) {
+                small[smallCount++] = more;
+            } else {
+                large[largeCount++] = more;
+            }
+        }
+        // whatever is left is full, up to rounding errors
+        while (largeCount > 0) {
+            int index = large[--largeCount];
+            threshold[index] = 1;
+            alias[index] = index;
+        }
+        while (smallCount > 0) {
+            int index = small[--smallCount];
+            threshold[index] = 1;
+            alias[index] = index;
+        }
+    }
+
+    /**
+     * Get the number of indices.
+     *
+     * @return the size
+     */
+    public int size() {
+        return threshold.length;
+    }
+
+    /**
+     * Sample an index from 64 random bits.
+     *
+     * @param bits random bits
+     * @return the index
+     */
+    public int sample(long bits) {
+        // the high half picks the column, the low half decides within it
+        int column = (int) (((bits >>> 32) * threshold.length) >>> 32);
+        double coin = (bits & 0xFFFFFFFFL) * 0x1.0p-32;
+        return coin < threshold[column] ? column : alias[column];
+    }
+
+}
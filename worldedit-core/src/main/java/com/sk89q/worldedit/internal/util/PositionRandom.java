@@ -0,0 +1,131 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.internal.util;
+
+import com.sk89q.worldedit.math.BlockVector3;
+
+import java.util.SplittableRandom;
+
+/**
+ * A source of random bits for patterns that can be applied from several
+ * threads at once.
+ *
+ * <p>Without a seed, each thread draws from its own {@link SplittableRandom},
+ * split from a shared one. With a seed, the bits only depend on the seed and
+ * the position, so the same seed gives the same result regardless of the
+ * order or the threads positions are visited in.</p>
+ */
+public final class PositionRandom {
+
+    private static final SplittableRandom ROOT = new SplittableRandom();
+    private static final ThreadLocal<SplittableRandom> THREAD_RANDOM = ThreadLocal.withInitial(() -> {
+        synchronized (ROOT) {
+            return ROOT.split();
+        }
+    });
+
+    private final boolean seeded;
+    private final long seed;
+
+    private PositionRandom(boolean seeded, long seed) {
+        this.seeded = seeded;
+        this.seed = seed;
+    }
+
+    /**
+     * Create a random source without a fixed seed.
+     *
+     * @return a random source
+     */
+    public static PositionRandom unseeded() {
+        return new PositionRandom(false, 0);
+    }
+
+    /**
+     * Create a random source whose bits only depend on the seed and the
+     * position.
+     *
+     * @param seed the seed
+     * @return a random source
+     */
+    public static PositionRandom seeded(long seed) {
+        return new PositionRandom(true, seed);
+    }
+
+    /**
+     * Derive a seed from another one and a salt, for random sources that
+     * should not make the same picks as the source with the original seed.
+     *
+     * <p>Seeds that only differ by a constant give shifted copies of the
+     * same bits, so the salt is mixed in rather than added.</p>
+     *
+     * @param seed the seed
+     * @param salt the salt
+     * @return the derived seed
+     */
+    public static long salted(long seed, long salt) {
+        return mix(seed ^ mix(salt + 0x9E3779B97F4A7C15L));
+    }
+
+    /**
+     * Get whether this source has a fixed seed.
+     *
+     * @return true if seeded
+     */
+    public boolean isSeeded() {
+        return seeded;
+    }
+
+    /**
+     * Get 64 random bits for a position.
+     *
+     * @param position the position
+     * @return random bits
+     */
+    public long nextLong(BlockVector3 position) {
+        if (!seeded) {
+            return THREAD_RANDOM.get().nextLong();
+        }
+        long bits = seed;
+        bits = mix(bits + position.getX() * 0x9E3779B97F4A7C15L);
+        bits = mix(bits + position.getY() * 0x9E3779B97F4A7C15L);
+        return mix(bits + position.getZ() * 0x9E3779B97F4A7C15L);
+    }
+
+    /**
+     * Get a random number from {@code 0} (inclusive) to {@code bound}
+     * (exclusive) for a position.
+     *
+     * @param position the position
+     * @param bound the bound, which must be positive
+     * @return the random number
+     */
+    public int nextInt(BlockVector3 position, int bound) {
+        return (int) (((nextLong(position) >>> 32) * bound) >>> 32);
+    }
+
+    // the finalizer of SplitMix64
+    private static long mix(long bits) {
+        bits = (bits ^ (bits >>> 30)) * 0xBF58476D1CE4E5B9L;
+        bits = (bits ^ (bits >>> 27)) * 0x94D049BB133111EBL;
+        return bits ^ (bits >>> 31);
+    }
+
+}
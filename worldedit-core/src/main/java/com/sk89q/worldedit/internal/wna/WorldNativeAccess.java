@@ -21,6 +21,7 @@
 
 import com.sk89q.jnbt.CompoundTag;
 import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.extent.ChunkSectionBatch;
 import com.sk89q.worldedit.math.BlockVector3;
 import com.sk89q.worldedit.util.SideEffect;
 import com.sk89q.worldedit.util.SideEffectSet;
@@ -28,6 +29,9 @@
 import com.sk89q.worldedit.world.block.BlockState;
 import com.sk89q.worldedit.world.block.BlockStateHolder;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import javax.annotation.Nullable;
 
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -90,6 +94,84 @@ default <B extends BlockStateHolder<B>> boolean setBlock(BlockVector3 position,
         return successful;
     }
 
+    /**
+     * Set a batch of blocks in one chunk section.
+     *
+     * <p>The chunk is looked up once, all blocks are set, and then lighting
+     * and notifications are applied for the blocks that changed, so that they
+     * see the final state of the section.</p>
+     *
+     * @param batch the blocks to set
+     * @param sideEffects the side effects to apply
+     * @return the number of blocks that were set
+     * @throws WorldEditException thrown on an error
+     */
+    default int setBlocks(ChunkSectionBatch batch, SideEffectSet sideEffects) throws WorldEditException {
+        checkNotNull(batch);
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        setCurrentSideEffectSet(sideEffects);
+
+        NC chunk = getChunk(batch.getChunkX(), batch.getChunkZ());
+        boolean validate = sideEffects.shouldApply(SideEffect.VALIDATION);
+        List<NP> changedPositions = new ArrayList<>(batch.size());
+        List<NBS> oldStates = new ArrayList<>(batch.size());
+        List<NBS> newStates = new ArrayList<>(batch.size());
+
+        // First set the blocks
+        BlockState lastState = null;
+        NBS lastNative = null;
+        for (int i = 0; i < batch.size(); i++) {
+            BaseBlock block = batch.getBlock(i);
+            NP pos = getPosition(batch.getX(i), batch.getY(i), batch.getZ(i));
+            NBS old = getBlockState(chunk, pos);
+            BlockState state = block.toImmutableState();
+            if (state != lastState) {
+                // runs of the same state are common, so skip converting them again
+                lastState = state;
+                lastNative = toNative(state);
+            }
+            NBS newState = lastNative;
+            if (validate) {
+                newState = getValidBlockForPosition(newState, pos);
+            }
+            boolean successful = setBlockState(chunk, pos, newState) != null;
+
+            if (successful || old == newState) {
+                CompoundTag tag = block.getNbtData();
+                if (tag != null) {
+                    tag = tag.createBuilder()
+                        .putString("id", block.getNbtId())
+                        .putInt("x", batch.getX(i))
+                        .putInt("y", batch.getY(i))
+                        .putInt("z", batch.getZ(i))
+                        .build();
+                    successful = updateTileEntity(pos, tag);
+                }
+            }
+
+            if (successful) {
+                changedPositions.add(pos);
+                oldStates.add(old);
+                newStates.add(newState);
+            }
+        }
+
+        if (changedPositions.isEmpty()) {
+            return 0;
+        }
+        if (sideEffects.getState(SideEffect.LIGHTING) == SideEffect.State.ON) {
+            updateLightingForBlocks(changedPositions);
+        }
+        boolean chunkTicking = isChunkTicking(chunk);
+        for (int i = 0; i < changedPositions.size(); i++) {
+            markAndNotifyBlock(changedPositions.get(i), chunk, oldStates.get(i), newStates.get(i), sideEffects, chunkTicking);
+        }
+
+        return changedPositions.size();
+    }
+
     default void applySideEffects(BlockVector3 position, BlockState previousType, SideEffectSet sideEffectSet) {
         setCurrentSideEffectSet(sideEffectSet);
         NP pos = getPosition(position.getX(), position.getY(), position.getZ());
@@ -134,6 +216,17 @@ default void setCurrentSideEffectSet(SideEffectSet sideEffectSet) {
 
     void updateLightingForBlock(NP position);
 
+    /**
+     * Update the lighting for a batch of changed blocks in one chunk.
+     *
+     * @param positions the positions of the blocks
+     */
+    default void updateLightingForBlocks(List<NP> positions) {
+        for (NP position : positions) {
+            updateLightingForBlock(position);
+        }
+    }
+
     boolean updateTileEntity(NP position, CompoundTag tag);
 
     void notifyBlockUpdate(NP position, NBS oldState, NBS newState);
@@ -154,13 +247,22 @@ default void setCurrentSideEffectSet(SideEffectSet sideEffectSet) {
      * See Forge's World.markAndNotifyBlock
      */
     default void markAndNotifyBlock(NP pos, NC chunk, NBS oldState, NBS newState, SideEffectSet sideEffectSet) {
+        markAndNotifyBlock(pos, chunk, oldState, newState, sideEffectSet, isChunkTicking(chunk));
+    }
+
+    /**
+     * Same as {@link #markAndNotifyBlock(Object, Object, Object, Object, SideEffectSet)},
+     * for callers that already know whether the chunk is ticking.
+     */
+    default void markAndNotifyBlock(NP pos, NC chunk, NBS oldState, NBS newState, SideEffectSet sideEffectSet,
+                                    boolean chunkTicking) {
         NBS blockState1 = getBlockState(chunk, pos);
         if (blockState1 != newState) {
             return;
         }
 
         // Remove redundant branches
-        if (isChunkTicking(chunk)) {
+        if (chunkTicking) {
             if (sideEffectSet.shouldApply(SideEffect.ENTITY_AI)) {
                 notifyBlockUpdate(pos, oldState, newState);
             } else {
@@ -70,6 +70,28 @@ public static BlockVector2 at(int x, int z) {
         return new BlockVector2(x, z);
     }
 
+    /**
+     * Pack the given coordinates the same way as {@link #toLongPackedForm()},
+     * without creating a vector.
+     *
+     * @param x the X coordinate
+     * @param z the Z coordinate
+     * @return the packed coordinates
+     */
+    public static long toLongPackedForm(int x, int z) {
+        return ((long) x << 32) | (z & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Unpack a vector packed with {@link #toLongPackedForm()}.
+     *
+     * @param packed the packed vector
+     * @return the vector
+     */
+    public static BlockVector2 fromLongPackedForm(long packed) {
+        return at((int) (packed >> 32), (int) packed);
+    }
+
     private final int x, z;
 
     /**
@@ -83,6 +105,16 @@ private BlockVector2(int x, int z) {
         this.z = z;
     }
 
+    /**
+     * Pack this vector into a long, with X in the upper and Z in the lower
+     * 32 bits. Every vector can be packed.
+     *
+     * @return the packed vector
+     */
+    public long toLongPackedForm() {
+        return toLongPackedForm(x, z);
+    }
+
     /**
      * Get the X coordinate.
      *
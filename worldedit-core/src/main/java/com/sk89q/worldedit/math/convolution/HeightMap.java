@@ -24,11 +24,14 @@
 import com.sk89q.worldedit.EditSession;
 import com.sk89q.worldedit.MaxChangedBlocksException;
 import com.sk89q.worldedit.function.mask.Mask;
+import com.sk89q.worldedit.internal.block.BlockStateIdAccess;
 import com.sk89q.worldedit.math.BlockVector3;
 import com.sk89q.worldedit.regions.Region;
 import com.sk89q.worldedit.world.block.BlockState;
 import com.sk89q.worldedit.world.block.BlockTypes;
 
+import java.util.Arrays;
+
 import javax.annotation.Nullable;
 
 /**
@@ -68,6 +71,10 @@ public HeightMap(EditSession session, Region region, @Nullable Mask mask) {
 
         // Store current heightmap data
         data = new int[width * height];
+        if (mask == null) {
+            readHeights(minX, minY, minZ, maxY);
+            return;
+        }
         for (int z = 0; z < height; ++z) {
             for (int x = 0; x < width; ++x) {
                 data[z * width + x] = session.getHighestTerrainBlock(x + minX, z + minZ, minY, maxY, mask);
@@ -75,6 +82,68 @@ public HeightMap(EditSession session, Region region, @Nullable Mask mask) {
         }
     }
 
+    /**
+     * Find the highest movement blocking block of every column, reading
+     * the blocks a chunk section at a time from the top down.
+     */
+    private void readHeights(int minX, int minY, int minZ, int maxY) {
+        int[] ids = new int[16 * 16 * 16];
+        boolean[] found = new boolean[16 * 16];
+        int maxX = minX + width - 1;
+        int maxZ = minZ + height - 1;
+        for (int chunkZ = minZ >> 4; chunkZ <= maxZ >> 4; chunkZ++) {
+            int fromZ = Math.max(minZ, chunkZ << 4);
+            int toZ = Math.min(maxZ, (chunkZ << 4) + 15);
+            for (int chunkX = minX >> 4; chunkX <= maxX >> 4; chunkX++) {
+                int fromX = Math.max(minX, chunkX << 4);
+                int toX = Math.min(maxX, (chunkX << 4) + 15);
+                int sizeX = toX - fromX + 1;
+                int sizeZ = toZ - fromZ + 1;
+                int remaining = sizeX * sizeZ;
+                Arrays.fill(found, false);
+                for (int z = fromZ; z <= toZ; z++) {
+                    for (int x = fromX; x <= toX; x++) {
+                        data[(z - minZ) * width + (x - minX)] = minY;
+                    }
+                }
+                for (int top = maxY; top >= minY && remaining > 0; ) {
+                    int bottom = Math.max(minY, top & ~15);
+                    session.getBlockStateIds(BlockVector3.at(fromX, bottom, fromZ), BlockVector3.at(toX, top, toZ), ids);
+                    for (int z = fromZ; z <= toZ; z++) {
+                        for (int x = fromX; x <= toX; x++) {
+                            int column = (z - fromZ) * sizeX + (x - fromX);
+                            if (found[column]) {
+                                continue;
+                            }
+                            for (int y = top; y >= bottom; --y) {
+                                BlockState state = BlockStateIdAccess.getBlockStateById(ids[(y - bottom) * sizeX * sizeZ + column]);
+                                if (state == null) {
+                                    state = session.getBlock(BlockVector3.at(x, y, z));
+                                }
+                                if (state.getBlockType().getMaterial().isMovementBlocker()) {
+                                    data[(z - minZ) * width + (x - minX)] = y;
+                                    found[column] = true;
+                                    remaining--;
+                                    break;
+                                }
+                            }
+                        }
+                    }
+                    top = bottom - 1;
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the height of every column, in rows along the X axis.
+     *
+     * @return the heights
+     */
+    int[] getData() {
+        return data;
+    }
+
     /**
      * Apply the filter 'iterations' amount times.
      * 
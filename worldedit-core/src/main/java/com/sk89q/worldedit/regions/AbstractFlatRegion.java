@@ -37,4 +37,9 @@ public int getMaximumY() {
         return getMaximumPoint().getBlockY();
     }
 
+    @Override
+    protected boolean isExtruded() {
+        return true;
+    }
+
 }
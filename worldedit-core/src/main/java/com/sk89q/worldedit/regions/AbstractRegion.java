@@ -25,12 +25,17 @@
 import com.sk89q.worldedit.regions.iterator.RegionIterator;
 import com.sk89q.worldedit.world.World;
 import com.sk89q.worldedit.world.storage.ChunkStore;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
+import java.util.function.IntPredicate;
 
 public abstract class AbstractRegion implements Region {
 
@@ -114,6 +119,78 @@ public int getArea() {
                 (max.getZ() - min.getZ() + 1);
     }
 
+    /**
+     * Add the span of a row in which the region is convex.
+     *
+     * <p>{@code minX} and {@code maxX} estimate where the row enters and
+     * leaves the region, usually by solving the region's equation for X.
+     * The ends are then corrected with {@link #contains(BlockVector3)}, so
+     * that the span matches it exactly even if the estimate is off by
+     * rounding.</p>
+     *
+     * @param y the Y coordinate of the row
+     * @param z the Z coordinate of the row
+     * @param minX the estimated first X coordinate in the region
+     * @param maxX the estimated last X coordinate in the region
+     * @param spans the list to add the span to
+     */
+    protected void collectConvexSpan(int y, int z, double minX, double maxX, SpanList spans) {
+        collectConvexSpan(getMinimumPoint().getBlockX(), getMaximumPoint().getBlockX(), minX, maxX, spans,
+            x -> contains(BlockVector3.at(x, y, z)));
+    }
+
+    /**
+     * Add the span of a row in which a shape is convex, correcting the ends
+     * of the estimate with the given test instead of
+     * {@link #contains(BlockVector3)}.
+     *
+     * @param boxMinX the first X coordinate of the bounding box
+     * @param boxMaxX the last X coordinate of the bounding box
+     * @param minX the estimated first X coordinate in the shape
+     * @param maxX the estimated last X coordinate in the shape
+     * @param spans the list to add the span to
+     * @param containsX tests whether the block at an X coordinate of the row is in the shape
+     */
+    protected static void collectConvexSpan(int boxMinX, int boxMaxX, double minX, double maxX, SpanList spans, IntPredicate containsX) {
+        if (Double.isNaN(minX) || Double.isNaN(maxX) || minX > maxX + 1) {
+            return;
+        }
+
+        int lo = (int) Math.max(boxMinX, Math.min(boxMaxX, Math.ceil(minX)));
+        int hi = (int) Math.max(boxMinX, Math.min(boxMaxX, Math.floor(maxX)));
+        if (lo > hi) {
+            // no whole block in the estimate, so try the blocks on either side
+            int swap = lo;
+            lo = hi;
+            hi = swap;
+        }
+        final int estimateMin = lo;
+        final int estimateMax = hi;
+
+        while (lo <= hi && !containsX.test(lo)) {
+            ++lo;
+        }
+        while (hi >= lo && !containsX.test(hi)) {
+            --hi;
+        }
+        if (lo > hi) {
+            if (estimateMin > boxMinX && containsX.test(estimateMin - 1)) {
+                lo = hi = estimateMin - 1;
+            } else if (estimateMax < boxMaxX && containsX.test(estimateMax + 1)) {
+                lo = hi = estimateMax + 1;
+            } else {
+                return;
+            }
+        }
+        while (lo > boxMinX && containsX.test(lo - 1)) {
+            --lo;
+        }
+        while (hi < boxMaxX && containsX.test(hi + 1)) {
+            ++hi;
+        }
+        spans.add(lo, hi);
+    }
+
     /**
      * Get X-size.
      *
@@ -160,48 +237,92 @@ public int getLength() {
      */
     @Override
     public Set<BlockVector2> getChunks() {
-        final Set<BlockVector2> chunks = new HashSet<>();
-
-        final BlockVector3 min = getMinimumPoint();
-        final BlockVector3 max = getMaximumPoint();
-
-        final int minY = min.getBlockY();
-
-        for (int x = min.getBlockX(); x <= max.getBlockX(); ++x) {
-            for (int z = min.getBlockZ(); z <= max.getBlockZ(); ++z) {
-                if (!contains(BlockVector3.at(x, minY, z))) {
-                    continue;
-                }
-
-                chunks.add(BlockVector2.at(
-                    x >> ChunkStore.CHUNK_SHIFTS,
-                    z >> ChunkStore.CHUNK_SHIFTS
-                ));
-            }
+        final LongSet packed = getPackedChunks();
+        final Set<BlockVector2> chunks = new HashSet<>(packed.size());
+        for (LongIterator it = packed.iterator(); it.hasNext(); ) {
+            chunks.add(BlockVector2.fromLongPackedForm(it.nextLong()));
         }
-
         return chunks;
     }
 
     @Override
     public Set<BlockVector3> getChunkCubes() {
-        final Set<BlockVector3> chunks = new HashSet<>();
+        final LongSet packed = getPackedChunkCubes();
+        final Set<BlockVector3> chunks = new HashSet<>(packed.size());
+        for (LongIterator it = packed.iterator(); it.hasNext(); ) {
+            chunks.add(BlockVector3.fromLongPackedForm(it.nextLong()));
+        }
+        return chunks;
+    }
+
+    @Override
+    public LongSet getPackedChunks() {
+        return collectChunks(false);
+    }
+
+    @Override
+    public LongSet getPackedChunkCubes() {
+        return collectChunks(true);
+    }
+
+    /**
+     * Whether every layer of this region has the same shape, in which case
+     * chunk enumeration only needs to look at the lowest layer.
+     *
+     * @return true if the region is a vertical extrusion of its lowest layer
+     */
+    protected boolean isExtruded() {
+        return false;
+    }
+
+    /**
+     * Find the chunks or chunk cubes that this region overlaps with. The
+     * spans of every row inside a 16 block band of Z (and Y, for cubes) are
+     * merged into a bit set of chunk X coordinates, so each chunk is only
+     * added once and no block is tested individually.
+     *
+     * @param cubes true to collect 16*16*16 chunk cubes instead of columns
+     * @return the packed chunks
+     */
+    private LongSet collectChunks(boolean cubes) {
+        final LongSet chunks = new LongOpenHashSet();
 
         final BlockVector3 min = getMinimumPoint();
         final BlockVector3 max = getMaximumPoint();
-
-        for (int x = min.getBlockX(); x <= max.getBlockX(); ++x) {
-            for (int y = min.getBlockY(); y <= max.getBlockY(); ++y) {
-                for (int z = min.getBlockZ(); z <= max.getBlockZ(); ++z) {
-                    if (!contains(BlockVector3.at(x, y, z))) {
+        final int minChunkX = min.getBlockX() >> ChunkStore.CHUNK_SHIFTS;
+        final int minChunkY = min.getBlockY() >> ChunkStore.CHUNK_SHIFTS;
+        final int maxChunkY = max.getBlockY() >> ChunkStore.CHUNK_SHIFTS;
+        final int minChunkZ = min.getBlockZ() >> ChunkStore.CHUNK_SHIFTS;
+        final int maxChunkZ = max.getBlockZ() >> ChunkStore.CHUNK_SHIFTS;
+        final boolean extruded = isExtruded();
+
+        final SpanList spans = new SpanList();
+        final BitSet row = new BitSet();
+        for (int chunkZ = minChunkZ; chunkZ <= maxChunkZ; ++chunkZ) {
+            final int minZ = Math.max(min.getBlockZ(), chunkZ << ChunkStore.CHUNK_SHIFTS);
+            final int maxZ = Math.min(max.getBlockZ(), (chunkZ << ChunkStore.CHUNK_SHIFTS) + 15);
+
+            if (!cubes || extruded) {
+                final int maxY = extruded ? min.getBlockY() : max.getBlockY();
+                collectChunkRow(min.getBlockY(), maxY, minZ, maxZ, minChunkX, spans, row);
+                for (int i = row.nextSetBit(0); i >= 0; i = row.nextSetBit(i + 1)) {
+                    if (!cubes) {
+                        chunks.add(BlockVector2.toLongPackedForm(minChunkX + i, chunkZ));
                         continue;
                     }
+                    for (int chunkY = minChunkY; chunkY <= maxChunkY; ++chunkY) {
+                        chunks.add(ChunkStore.packChunkCube(minChunkX + i, chunkY, chunkZ));
+                    }
+                }
+                continue;
+            }
 
-                    chunks.add(BlockVector3.at(
-                        x >> ChunkStore.CHUNK_SHIFTS,
-                        y >> ChunkStore.CHUNK_SHIFTS,
-                        z >> ChunkStore.CHUNK_SHIFTS
-                    ));
+            for (int chunkY = minChunkY; chunkY <= maxChunkY; ++chunkY) {
+                final int minY = Math.max(min.getBlockY(), chunkY << ChunkStore.CHUNK_SHIFTS);
+                final int maxY = Math.min(max.getBlockY(), (chunkY << ChunkStore.CHUNK_SHIFTS) + 15);
+                collectChunkRow(minY, maxY, minZ, maxZ, minChunkX, spans, row);
+                for (int i = row.nextSetBit(0); i >= 0; i = row.nextSetBit(i + 1)) {
+                    chunks.add(ChunkStore.packChunkCube(minChunkX + i, chunkY, chunkZ));
                 }
             }
         }
@@ -209,6 +330,20 @@ public Set<BlockVector3> getChunkCubes() {
         return chunks;
     }
 
+    private void collectChunkRow(int minY, int maxY, int minZ, int maxZ, int minChunkX, SpanList spans, BitSet row) {
+        row.clear();
+        for (int y = minY; y <= maxY; ++y) {
+            for (int z = minZ; z <= maxZ; ++z) {
+                spans.clear();
+                collectSpans(y, z, spans);
+                for (int i = 0; i < spans.size(); ++i) {
+                    row.set((spans.getMinX(i) >> ChunkStore.CHUNK_SHIFTS) - minChunkX,
+                        (spans.getMaxX(i) >> ChunkStore.CHUNK_SHIFTS) - minChunkX + 1);
+                }
+            }
+        }
+    }
+
     // Sub-class utilities
 
     protected final int getWorldMinY() {
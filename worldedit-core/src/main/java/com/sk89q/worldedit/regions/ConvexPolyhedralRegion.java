@@ -26,12 +26,14 @@
 import com.sk89q.worldedit.world.World;
 
 import javax.annotation.Nullable;
+import java.lang.ref.SoftReference;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
@@ -68,9 +70,11 @@ public class ConvexPolyhedralRegion extends AbstractRegion {
     private BlockVector3 centerAccum = BlockVector3.ZERO;
 
     /**
-     * The last triangle that caused a {@link #contains(BlockVector3)}} to classify a point as "outside". Used for optimization.
+     * The hull compiled for containment tests, or null if it has to be
+     * compiled again because the triangles changed.
      */
-    private Triangle lastTriangle;
+    @Nullable
+    private volatile CompiledHull compiledHull;
 
     /**
      * Constructs an empty mesh, containing no vertices or triangles.
@@ -95,7 +99,7 @@ public ConvexPolyhedralRegion(ConvexPolyhedralRegion region) {
         minimumPoint = region.minimumPoint;
         maximumPoint = region.maximumPoint;
         centerAccum = region.centerAccum;
-        lastTriangle = region.lastTriangle;
+        compiledHull = region.compiledHull;
     }
 
     /**
@@ -109,7 +113,7 @@ public void clear() {
         minimumPoint = null;
         maximumPoint = null;
         centerAccum = BlockVector3.ZERO;
-        lastTriangle = null;
+        compiledHull = null;
     }
 
     /**
@@ -121,8 +125,6 @@ public void clear() {
     public boolean addVertex(BlockVector3 vertex) {
         checkNotNull(vertex);
 
-        lastTriangle = null; // Probably not necessary
-
         if (vertices.contains(vertex)) {
             return false;
         }
@@ -164,6 +166,7 @@ public boolean addVertex(BlockVector3 vertex) {
 
             triangles.add((new Triangle(v[0].toVector3(), v[1].toVector3(), v[2].toVector3())));
             triangles.add((new Triangle(v[0].toVector3(), v[2].toVector3(), v[1].toVector3())));
+            compiledHull = null;
             return true;
         }
 
@@ -195,6 +198,7 @@ public boolean addVertex(BlockVector3 vertex) {
         for (Edge edge : borderEdges) {
             triangles.add(edge.createTriangle(vertexD));
         }
+        compiledHull = null;
 
         if (!vertexBacklog.isEmpty()) {
             // Remove the new vertex
@@ -260,7 +264,7 @@ public void shift(BlockVector3 change) throws RegionOperationException {
         minimumPoint = change.add(minimumPoint);
         maximumPoint = change.add(maximumPoint);
         centerAccum = change.multiply(vertices.size()).add(centerAccum);
-        lastTriangle = null;
+        compiledHull = null;
     }
 
     private static void shiftCollection(Collection<BlockVector3> collection, BlockVector3 change) {
@@ -277,40 +281,28 @@ public boolean contains(BlockVector3 position) {
             return false;
         }
 
-        final int x = position.getBlockX();
-        final int y = position.getBlockY();
-        final int z = position.getBlockZ();
-
-        final BlockVector3 min = getMinimumPoint();
-        final BlockVector3 max = getMaximumPoint();
+        return getCompiledHull().contains(position.getBlockX(), position.getBlockY(), position.getBlockZ());
+    }
 
-        if (x < min.getBlockX()) return false;
-        if (x > max.getBlockX()) return false;
-        if (y < min.getBlockY()) return false;
-        if (y > max.getBlockY()) return false;
-        if (z < min.getBlockZ()) return false;
-        if (z > max.getBlockZ()) return false;
+    @Override
+    public void collectSpans(int y, int z, SpanList spans) {
+        if (!isDefined()) {
+            return;
+        }
 
-        return containsRaw(position.toVector3());
+        getCompiledHull().collectSpans(y, z, spans);
     }
 
     private boolean containsRaw(Vector3 pt) {
-        if (lastTriangle != null && lastTriangle.above(pt)) {
-            return false;
-        }
-
-        for (Triangle triangle : triangles) {
-            if (lastTriangle == triangle) {
-                continue;
-            }
+        return getCompiledHull().containsRaw(pt.getX(), pt.getY(), pt.getZ());
+    }
 
-            if (triangle.above(pt)) {
-                lastTriangle = triangle;
-                return false;
-            }
+    private CompiledHull getCompiledHull() {
+        CompiledHull hull = compiledHull;
+        if (hull == null) {
+            compiledHull = hull = new CompiledHull(triangles, minimumPoint, maximumPoint);
         }
-
-        return true;
+        return hull;
     }
 
     public Collection<BlockVector3> getVertices() {
@@ -332,4 +324,179 @@ public Collection<Triangle> getTriangles() {
     public AbstractRegion clone() {
         return new ConvexPolyhedralRegion(this);
     }
+
+    /**
+     * The hull compiled for fast containment tests.
+     *
+     * <p>The planes of all triangles are packed into one array. The span of
+     * each row of the bounding box is worked out from the planes a layer at
+     * a time, the first time the layer is needed, after which testing a
+     * block is a bounding box check and two comparisons. The layers are
+     * held softly, so an idle selection does not pin them. Instances are
+     * immutable apart from those lazily filled layers, and may be shared
+     * between threads and copies of the region.</p>
+     */
+    private static final class CompiledHull {
+
+        /**
+         * Rows above which the spans are not cached, to bound the memory
+         * used by huge hulls. Each row takes two ints, so this is 2 MB.
+         */
+        private static final int MAX_CACHED_ROWS = 1 << 18;
+
+        /**
+         * Normal X, Y, Z and offset of each triangle's plane, in sequence.
+         */
+        private final double[] planes;
+        private final int minX;
+        private final int minY;
+        private final int minZ;
+        private final int maxX;
+        private final int maxY;
+        private final int maxZ;
+        /**
+         * Whether the bounding box is small enough to cache the layers.
+         */
+        private final boolean cacheLayers;
+        /**
+         * For each layer, the first and last X of each row.
+         */
+        private volatile SoftReference<AtomicReferenceArray<int[]>> layers = new SoftReference<>(null);
+        /**
+         * Index of the plane that last classified a point as outside. Usually
+         * rejects the next outside point too. Races only cost a plane test.
+         */
+        private int lastPlane;
+
+        private CompiledHull(List<Triangle> triangles, BlockVector3 min, BlockVector3 max) {
+            planes = new double[triangles.size() * 4];
+            for (int i = 0; i < triangles.size(); ++i) {
+                final Triangle triangle = triangles.get(i);
+                final Vector3 normal = triangle.getNormal();
+                planes[i * 4] = normal.getX();
+                planes[i * 4 + 1] = normal.getY();
+                planes[i * 4 + 2] = normal.getZ();
+                planes[i * 4 + 3] = triangle.getOffset();
+            }
+            minX = min.getBlockX();
+            minY = min.getBlockY();
+            minZ = min.getBlockZ();
+            maxX = max.getBlockX();
+            maxY = max.getBlockY();
+            maxZ = max.getBlockZ();
+
+            final long rows = (long) (maxY - minY + 1) * (maxZ - minZ + 1);
+            cacheLayers = rows <= MAX_CACHED_ROWS;
+        }
+
+        /**
+         * Get the cached layers, creating them again if they were collected.
+         *
+         * @return the layers, or {@code null} if they are not cached
+         */
+        @Nullable
+        private AtomicReferenceArray<int[]> getLayers() {
+            if (!cacheLayers) {
+                return null;
+            }
+            AtomicReferenceArray<int[]> layers = this.layers.get();
+            if (layers == null) {
+                // racing threads may each create an array, the last one stays
+                layers = new AtomicReferenceArray<>(maxY - minY + 1);
+                this.layers = new SoftReference<>(layers);
+            }
+            return layers;
+        }
+
+        /**
+         * Test a point against every plane, ignoring the bounding box.
+         */
+        private boolean containsRaw(double x, double y, double z) {
+            final double[] planes = this.planes;
+            final int last = lastPlane;
+            if (last < planes.length && planes[last] * x + planes[last + 1] * y + planes[last + 2] * z > planes[last + 3]) {
+                return false;
+            }
+            for (int i = 0; i < planes.length; i += 4) {
+                if (planes[i] * x + planes[i + 1] * y + planes[i + 2] * z > planes[i + 3]) {
+                    lastPlane = i;
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean contains(int x, int y, int z) {
+            if (x < minX || x > maxX || y < minY || y > maxY || z < minZ || z > maxZ) {
+                return false;
+            }
+            final AtomicReferenceArray<int[]> layers = getLayers();
+            if (layers == null) {
+                return containsRaw(x, y, z);
+            }
+            final int[] layer = getLayer(layers, y);
+            final int row = (z - minZ) * 2;
+            return layer[row] <= x && x <= layer[row + 1];
+        }
+
+        private void collectSpans(int y, int z, SpanList spans) {
+            if (y < minY || y > maxY || z < minZ || z > maxZ) {
+                return;
+            }
+            final AtomicReferenceArray<int[]> layers = getLayers();
+            if (layers == null) {
+                computeSpan(y, z, spans);
+                return;
+            }
+            final int[] layer = getLayer(layers, y);
+            final int row = (z - minZ) * 2;
+            if (layer[row] <= layer[row + 1]) {
+                spans.add(layer[row], layer[row + 1]);
+            }
+        }
+
+        private int[] getLayer(AtomicReferenceArray<int[]> layers, int y) {
+            int[] layer = layers.get(y - minY);
+            if (layer == null) {
+                layer = new int[(maxZ - minZ + 1) * 2];
+                final SpanList spans = new SpanList();
+                for (int z = minZ; z <= maxZ; ++z) {
+                    final int row = (z - minZ) * 2;
+                    spans.clear();
+                    computeSpan(y, z, spans);
+                    if (spans.size() == 0) {
+                        // an empty span
+                        layer[row] = maxX;
+                        layer[row + 1] = minX - 1;
+                    } else {
+                        layer[row] = spans.getMinX(0);
+                        layer[row + 1] = spans.getMaxX(0);
+                    }
+                }
+                // another thread may have computed the same layer, which is fine
+                layers.set(y - minY, layer);
+            }
+            return layer;
+        }
+
+        /**
+         * Clip a row against the plane of every face of the hull.
+         */
+        private void computeSpan(int y, int z, SpanList spans) {
+            double rowMinX = minX;
+            double rowMaxX = maxX;
+            for (int i = 0; i < planes.length; i += 4) {
+                final double nx = planes[i];
+                final double yz = planes[i + 1] * y + planes[i + 2] * z;
+                if (nx > 0) {
+                    rowMaxX = Math.min(rowMaxX, (planes[i + 3] - yz) / nx);
+                } else if (nx < 0) {
+                    rowMinX = Math.max(rowMinX, (planes[i + 3] - yz) / nx);
+                } else if (yz > planes[i + 3]) {
+                    return;
+                }
+            }
+            collectConvexSpan(minX, maxX, rowMinX, rowMaxX, spans, x -> containsRaw(x, y, z));
+        }
+    }
 }
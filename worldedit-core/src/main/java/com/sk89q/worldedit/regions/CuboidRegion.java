@@ -26,11 +26,11 @@
 import com.sk89q.worldedit.math.BlockVector3;
 import com.sk89q.worldedit.world.World;
 import com.sk89q.worldedit.world.storage.ChunkStore;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
 
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
-import java.util.Set;
 
 /**
  * An axis-aligned cuboid. It can be defined using two corners of the cuboid.
@@ -284,15 +284,15 @@ public void shift(BlockVector3 change) throws RegionOperationException {
     }
 
     @Override
-    public Set<BlockVector2> getChunks() {
-        Set<BlockVector2> chunks = new HashSet<>();
+    public LongSet getPackedChunks() {
+        LongSet chunks = new LongOpenHashSet();
 
         BlockVector3 min = getMinimumPoint();
         BlockVector3 max = getMaximumPoint();
 
         for (int x = min.getBlockX() >> ChunkStore.CHUNK_SHIFTS; x <= max.getBlockX() >> ChunkStore.CHUNK_SHIFTS; ++x) {
             for (int z = min.getBlockZ() >> ChunkStore.CHUNK_SHIFTS; z <= max.getBlockZ() >> ChunkStore.CHUNK_SHIFTS; ++z) {
-                chunks.add(BlockVector2.at(x, z));
+                chunks.add(BlockVector2.toLongPackedForm(x, z));
             }
         }
 
@@ -300,8 +300,8 @@ public Set<BlockVector2> getChunks() {
     }
 
     @Override
-    public Set<BlockVector3> getChunkCubes() {
-        Set<BlockVector3> chunks = new HashSet<>();
+    public LongSet getPackedChunkCubes() {
+        LongSet chunks = new LongOpenHashSet();
 
         BlockVector3 min = getMinimumPoint();
         BlockVector3 max = getMaximumPoint();
@@ -309,7 +309,7 @@ public Set<BlockVector3> getChunkCubes() {
         for (int x = min.getBlockX() >> ChunkStore.CHUNK_SHIFTS; x <= max.getBlockX() >> ChunkStore.CHUNK_SHIFTS; ++x) {
             for (int z = min.getBlockZ() >> ChunkStore.CHUNK_SHIFTS; z <= max.getBlockZ() >> ChunkStore.CHUNK_SHIFTS; ++z) {
                 for (int y = min.getBlockY() >> ChunkStore.CHUNK_SHIFTS; y <= max.getBlockY() >> ChunkStore.CHUNK_SHIFTS; ++y) {
-                    chunks.add(BlockVector3.at(x, y, z));
+                    chunks.add(ChunkStore.packChunkCube(x, y, z));
                 }
             }
         }
@@ -325,6 +325,16 @@ public boolean contains(BlockVector3 position) {
         return position.containedWithin(min, max);
     }
 
+    @Override
+    public void collectSpans(int y, int z, SpanList spans) {
+        BlockVector3 min = getMinimumPoint();
+        BlockVector3 max = getMaximumPoint();
+
+        if (y >= min.getBlockY() && y <= max.getBlockY() && z >= min.getBlockZ() && z <= max.getBlockZ()) {
+            spans.add(min.getBlockX(), max.getBlockX());
+        }
+    }
+
     @Override
     public Iterator<BlockVector3> iterator() {
         return new Iterator<BlockVector3>() {
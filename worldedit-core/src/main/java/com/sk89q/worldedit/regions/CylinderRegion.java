@@ -290,6 +290,16 @@ public boolean contains(BlockVector3 position) {
         return position.toBlockVector2().subtract(center).toVector2().divide(radius).lengthSq() <= 1;
     }
 
+    @Override
+    public void collectSpans(int y, int z, SpanList spans) {
+        if (y < minY || y > maxY) {
+            return;
+        }
+        final double dz = (z - center.getBlockZ()) / radius.getZ();
+        final double halfWidth = radius.getX() * Math.sqrt(Math.max(0, 1 - dz * dz));
+        collectConvexSpan(y, z, center.getBlockX() - halfWidth, center.getBlockX() + halfWidth, spans);
+    }
+
 
     /**
      * Sets the height of the cylinder to fit the specified Y.
@@ -24,9 +24,8 @@
 import com.sk89q.worldedit.math.Vector3;
 import com.sk89q.worldedit.world.World;
 import com.sk89q.worldedit.world.storage.ChunkStore;
-
-import java.util.HashSet;
-import java.util.Set;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
 
 /**
  * Represents an ellipsoid region.
@@ -176,34 +175,73 @@ public void setRadius(Vector3 radius) {
     }
 
     @Override
-    public Set<BlockVector2> getChunks() {
-        final Set<BlockVector2> chunks = new HashSet<>();
+    public LongSet getPackedChunks() {
+        final LongSet chunks = new LongOpenHashSet();
 
         final BlockVector3 min = getMinimumPoint();
         final BlockVector3 max = getMaximumPoint();
         final int centerY = center.getBlockY();
 
-        for (int x = min.getBlockX(); x <= max.getBlockX(); ++x) {
-            for (int z = min.getBlockZ(); z <= max.getBlockZ(); ++z) {
-                if (!contains(BlockVector3.at(x, centerY, z))) {
-                    continue;
+        for (int chunkX = min.getBlockX() >> ChunkStore.CHUNK_SHIFTS; chunkX <= max.getBlockX() >> ChunkStore.CHUNK_SHIFTS; ++chunkX) {
+            for (int chunkZ = min.getBlockZ() >> ChunkStore.CHUNK_SHIFTS; chunkZ <= max.getBlockZ() >> ChunkStore.CHUNK_SHIFTS; ++chunkZ) {
+                final int x = nearestInChunk(center.getBlockX(), chunkX, min.getBlockX(), max.getBlockX());
+                final int z = nearestInChunk(center.getBlockZ(), chunkZ, min.getBlockZ(), max.getBlockZ());
+                if (contains(BlockVector3.at(x, centerY, z))) {
+                    chunks.add(BlockVector2.toLongPackedForm(chunkX, chunkZ));
                 }
+            }
+        }
+
+        return chunks;
+    }
+
+    @Override
+    public LongSet getPackedChunkCubes() {
+        final LongSet chunks = new LongOpenHashSet();
 
-                chunks.add(BlockVector2.at(
-                    x >> ChunkStore.CHUNK_SHIFTS,
-                    z >> ChunkStore.CHUNK_SHIFTS
-                ));
+        final BlockVector3 min = getMinimumPoint();
+        final BlockVector3 max = getMaximumPoint();
+
+        for (int chunkX = min.getBlockX() >> ChunkStore.CHUNK_SHIFTS; chunkX <= max.getBlockX() >> ChunkStore.CHUNK_SHIFTS; ++chunkX) {
+            for (int chunkZ = min.getBlockZ() >> ChunkStore.CHUNK_SHIFTS; chunkZ <= max.getBlockZ() >> ChunkStore.CHUNK_SHIFTS; ++chunkZ) {
+                for (int chunkY = min.getBlockY() >> ChunkStore.CHUNK_SHIFTS; chunkY <= max.getBlockY() >> ChunkStore.CHUNK_SHIFTS; ++chunkY) {
+                    final int x = nearestInChunk(center.getBlockX(), chunkX, min.getBlockX(), max.getBlockX());
+                    final int y = nearestInChunk(center.getBlockY(), chunkY, min.getBlockY(), max.getBlockY());
+                    final int z = nearestInChunk(center.getBlockZ(), chunkZ, min.getBlockZ(), max.getBlockZ());
+                    if (contains(BlockVector3.at(x, y, z))) {
+                        chunks.add(ChunkStore.packChunkCube(chunkX, chunkY, chunkZ));
+                    }
+                }
             }
         }
 
         return chunks;
     }
 
+    /**
+     * Get the coordinate closest to the center within one chunk of the
+     * bounding box. The ellipsoid is axis-aligned, so it overlaps a chunk if
+     * and only if it contains the point built from these coordinates.
+     */
+    private static int nearestInChunk(int center, int chunk, int min, int max) {
+        final int chunkMin = Math.max(min, chunk << ChunkStore.CHUNK_SHIFTS);
+        final int chunkMax = Math.min(max, (chunk << ChunkStore.CHUNK_SHIFTS) + 15);
+        return Math.max(chunkMin, Math.min(chunkMax, center));
+    }
+
     @Override
     public boolean contains(BlockVector3 position) {
         return position.subtract(center).toVector3().divide(radius).lengthSq() <= 1;
     }
 
+    @Override
+    public void collectSpans(int y, int z, SpanList spans) {
+        final double dy = (y - center.getBlockY()) / radius.getY();
+        final double dz = (z - center.getBlockZ()) / radius.getZ();
+        final double halfWidth = radius.getX() * Math.sqrt(Math.max(0, 1 - dy * dy - dz * dz));
+        collectConvexSpan(y, z, center.getBlockX() - halfWidth, center.getBlockX() + halfWidth, spans);
+    }
+
     /**
      * Returns string representation in the format
      * "(centerX, centerY, centerZ) - (radiusX, radiusY, radiusZ)".
@@ -23,6 +23,8 @@
 import com.sk89q.worldedit.math.BlockVector3;
 import com.sk89q.worldedit.math.Vector3;
 import com.sk89q.worldedit.world.World;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import it.unimi.dsi.fastutil.longs.LongSets;
 
 import java.util.Collections;
 import java.util.Iterator;
@@ -92,6 +94,10 @@ public boolean contains(BlockVector3 position) {
         return false;
     }
 
+    @Override
+    public void collectSpans(int y, int z, SpanList spans) {
+    }
+
     @Override
     public Set<BlockVector2> getChunks() {
         return Collections.emptySet();
@@ -102,6 +108,16 @@ public Set<BlockVector3> getChunkCubes() {
         return Collections.emptySet();
     }
 
+    @Override
+    public LongSet getPackedChunks() {
+        return LongSets.EMPTY_SET;
+    }
+
+    @Override
+    public LongSet getPackedChunkCubes() {
+        return LongSets.EMPTY_SET;
+    }
+
     @Override
     public World getWorld() {
         return world;
@@ -26,6 +26,7 @@
 import com.sk89q.worldedit.world.World;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
@@ -293,14 +294,16 @@ public static boolean contains(List<BlockVector2> points, int minY, int maxY, Bl
         if (points.size() < 3) {
             return false;
         }
-        int targetX = pt.getBlockX(); //wide
         int targetY = pt.getBlockY(); //height
-        int targetZ = pt.getBlockZ(); //depth
 
         if (targetY < minY || targetY > maxY) {
             return false;
         }
 
+        return contains(points, pt.getBlockX(), pt.getBlockZ());
+    }
+
+    private static boolean contains(List<BlockVector2> points, int targetX, int targetZ) {
         boolean inside = false;
         int npoints = points.size();
         int xNew, zNew;
@@ -347,6 +350,58 @@ public static boolean contains(List<BlockVector2> points, int minY, int maxY, Bl
         return inside;
     }
 
+    @Override
+    public void collectSpans(int y, int z, SpanList spans) {
+        if (points.size() < 3 || y < minY || y > maxY || z < min.getBlockZ() || z > max.getBlockZ()) {
+            return;
+        }
+        final int minX = min.getBlockX();
+        final int maxX = max.getBlockX();
+
+        // contains() can only change where an edge starts or ends, or where
+        // its line crosses the row, so test it once from each of those places
+        final long[] starts = new long[points.size() * 6 + 1];
+        int count = 0;
+        starts[count++] = minX;
+
+        BlockVector2 previous = points.get(points.size() - 1);
+        for (BlockVector2 point : points) {
+            final BlockVector2 left = point.getBlockX() > previous.getBlockX() ? previous : point;
+            final BlockVector2 right = left == point ? previous : point;
+            final long x1 = left.getBlockX();
+            final long x2 = right.getBlockX();
+            starts[count++] = x1;
+            starts[count++] = x1 + 1;
+            starts[count++] = x2;
+            starts[count++] = x2 + 1;
+            final long dz = (long) right.getBlockZ() - left.getBlockZ();
+            if (dz != 0) {
+                final long crossing = x1 + Math.floorDiv(((long) z - left.getBlockZ()) * (x2 - x1), dz);
+                starts[count++] = crossing;
+                starts[count++] = crossing + 1;
+            }
+            previous = point;
+        }
+        Arrays.sort(starts, 0, count);
+
+        for (int i = 0; i < count; ++i) {
+            final long start = starts[i];
+            if (start < minX || start > maxX || (i > 0 && start == starts[i - 1])) {
+                continue;
+            }
+            long end = maxX;
+            for (int j = i + 1; j < count; ++j) {
+                if (starts[j] > start) {
+                    end = Math.min(maxX, starts[j] - 1);
+                    break;
+                }
+            }
+            if (contains(points, (int) start, z)) {
+                spans.add((int) start, (int) end);
+            }
+        }
+    }
+
     /**
      * Return the number of points.
      *
@@ -23,6 +23,9 @@
 import com.sk89q.worldedit.math.BlockVector3;
 import com.sk89q.worldedit.math.Vector3;
 import com.sk89q.worldedit.world.World;
+import com.sk89q.worldedit.world.storage.ChunkStore;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
 
 import java.util.List;
 import java.util.Set;
@@ -117,6 +120,43 @@ public interface Region extends Iterable<BlockVector3>, Cloneable {
      */
     boolean contains(BlockVector3 position);
 
+    /**
+     * Add the spans of blocks in the given row of the region to a list.
+     *
+     * <p>A row holds every block with the given Y and Z coordinates. The
+     * spans are added in order of increasing X, and together contain exactly
+     * the blocks of the row within the bounding box for which
+     * {@link #contains(BlockVector3)} is true.</p>
+     *
+     * <p>The default implementation tests every block of the row within the
+     * bounding box. Regions should override it with something faster.</p>
+     *
+     * @param y the Y coordinate of the row
+     * @param z the Z coordinate of the row
+     * @param spans the list to add spans to
+     */
+    default void collectSpans(int y, int z, SpanList spans) {
+        BlockVector3 min = getMinimumPoint();
+        BlockVector3 max = getMaximumPoint();
+        if (y < min.getBlockY() || y > max.getBlockY() || z < min.getBlockZ() || z > max.getBlockZ()) {
+            return;
+        }
+        int start = Integer.MIN_VALUE;
+        for (int x = min.getBlockX(); x <= max.getBlockX(); x++) {
+            if (contains(BlockVector3.at(x, y, z))) {
+                if (start == Integer.MIN_VALUE) {
+                    start = x;
+                }
+            } else if (start != Integer.MIN_VALUE) {
+                spans.add(start, x - 1);
+                start = Integer.MIN_VALUE;
+            }
+        }
+        if (start != Integer.MIN_VALUE) {
+            spans.add(start, max.getBlockX());
+        }
+    }
+
     /**
      * Get a list of chunks.
      *
@@ -131,6 +171,34 @@ public interface Region extends Iterable<BlockVector3>, Cloneable {
      */
     Set<BlockVector3> getChunkCubes();
 
+    /**
+     * Get the chunks this region overlaps with, packed with
+     * {@link BlockVector2#toLongPackedForm()}.
+     *
+     * @return a set of packed chunk coordinates
+     */
+    default LongSet getPackedChunks() {
+        final LongSet chunks = new LongOpenHashSet();
+        for (BlockVector2 chunk : getChunks()) {
+            chunks.add(chunk.toLongPackedForm());
+        }
+        return chunks;
+    }
+
+    /**
+     * Get the 16*16*16 chunks this region overlaps with, packed with
+     * {@link ChunkStore#packChunkCube(int, int, int)}.
+     *
+     * @return a set of packed chunk cube coordinates
+     */
+    default LongSet getPackedChunkCubes() {
+        final LongSet chunks = new LongOpenHashSet();
+        for (BlockVector3 chunk : getChunkCubes()) {
+            chunks.add(ChunkStore.packChunkCube(chunk.getX(), chunk.getY(), chunk.getZ()));
+        }
+        return chunks;
+    }
+
     /**
      * Sets the world that the selection is in.
      *
@@ -27,6 +27,7 @@
 import com.sk89q.worldedit.world.World;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
@@ -131,6 +132,33 @@ public boolean contains(BlockVector3 position) {
         return false;
     }
 
+    @Override
+    public void collectSpans(int y, int z, SpanList spans) {
+        if (regions.size() == 1) {
+            regions.get(0).collectSpans(y, z, spans);
+            return;
+        }
+
+        // sort the spans of all regions by where they start, then merge them
+        final SpanList regionSpans = new SpanList();
+        long[] packed = new long[16];
+        int count = 0;
+        for (Region region : regions) {
+            regionSpans.clear();
+            region.collectSpans(y, z, regionSpans);
+            for (int i = 0; i < regionSpans.size(); i++) {
+                if (count == packed.length) {
+                    packed = Arrays.copyOf(packed, count * 2);
+                }
+                packed[count++] = ((long) regionSpans.getMinX(i) << 32) | (regionSpans.getMaxX(i) & 0xFFFFFFFFL);
+            }
+        }
+        Arrays.sort(packed, 0, count);
+        for (int i = 0; i < count; i++) {
+            spans.add((int) (packed[i] >> 32), (int) packed[i]);
+        }
+    }
+
     @SuppressWarnings({"unchecked"})
     @Override
     public Iterator<BlockVector3> iterator() {
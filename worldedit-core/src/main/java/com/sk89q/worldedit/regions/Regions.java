@@ -19,6 +19,15 @@
 
 package com.sk89q.worldedit.regions;
 
+import com.sk89q.worldedit.math.BlockVector2;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.world.storage.ChunkStore;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+
+import java.util.function.Consumer;
+
 /**
  * Utility methods relating to {@link Region}s.
  */
@@ -89,4 +98,59 @@ public static FlatRegion asFlatRegion(Region region) {
         }
     }
 
+    /**
+     * Visit the blocks of the given region that lie in one chunk column,
+     * in Y, then Z, then X order. Only the rows of the region that cross
+     * the chunk are looked at.
+     *
+     * @param region the region
+     * @param chunkX the chunk X coordinate
+     * @param chunkZ the chunk Z coordinate
+     * @param consumer the consumer to call for each block
+     */
+    public static void forEachBlockInChunk(Region region, int chunkX, int chunkZ, Consumer<? super BlockVector3> consumer) {
+        final BlockVector3 min = region.getMinimumPoint();
+        final BlockVector3 max = region.getMaximumPoint();
+        final int minX = Math.max(min.getBlockX(), chunkX << ChunkStore.CHUNK_SHIFTS);
+        final int maxX = Math.min(max.getBlockX(), (chunkX << ChunkStore.CHUNK_SHIFTS) + 15);
+        final int minZ = Math.max(min.getBlockZ(), chunkZ << ChunkStore.CHUNK_SHIFTS);
+        final int maxZ = Math.min(max.getBlockZ(), (chunkZ << ChunkStore.CHUNK_SHIFTS) + 15);
+
+        final SpanList spans = new SpanList();
+        for (int y = min.getBlockY(); y <= max.getBlockY(); ++y) {
+            for (int z = minZ; z <= maxZ; ++z) {
+                spans.clear();
+                region.collectSpans(y, z, spans);
+                for (int i = 0; i < spans.size(); ++i) {
+                    final int spanMaxX = Math.min(maxX, spans.getMaxX(i));
+                    for (int x = Math.max(minX, spans.getMinX(i)); x <= spanMaxX; ++x) {
+                        consumer.accept(BlockVector3.at(x, y, z));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the chunks that the given region overlaps with, together with every
+     * chunk next to them, packed with {@link BlockVector2#toLongPackedForm()}.
+     * Useful when chunks have to be generated, which also needs neighbouring
+     * chunks to exist.
+     *
+     * @param region the region
+     * @return a set of packed chunk coordinates
+     */
+    public static LongSet getPackedChunksWithNeighbors(Region region) {
+        final LongSet chunks = new LongOpenHashSet();
+        for (LongIterator it = region.getPackedChunks().iterator(); it.hasNext(); ) {
+            final BlockVector2 chunk = BlockVector2.fromLongPackedForm(it.nextLong());
+            for (int x = chunk.getX() - 1; x <= chunk.getX() + 1; ++x) {
+                for (int z = chunk.getZ() - 1; z <= chunk.getZ() + 1; ++z) {
+                    chunks.add(BlockVector2.toLongPackedForm(x, z));
+                }
+            }
+        }
+        return chunks;
+    }
+
 }
@@ -0,0 +1,135 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.regions;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.Arrays;
+
+/**
+ * A reusable list of spans, which are runs of blocks along the X axis.
+ *
+ * <p>Spans are added in order of their first X coordinate. A span that
+ * overlaps or touches the previous span is merged into it, so the list always holds
+ * sorted, disjoint spans separated by at least one block.</p>
+ *
+ * @see Region#collectSpans(int, int, SpanList)
+ */
+public final class SpanList {
+
+    private int[] bounds = new int[8];
+    private int size;
+
+    /**
+     * Add a span.
+     *
+     * @param minX the first X coordinate of the span
+     * @param maxX the last X coordinate of the span, inclusive
+     */
+    public void add(int minX, int maxX) {
+        if (minX > maxX) {
+            return;
+        }
+        if (size > 0) {
+            int last = bounds[size * 2 - 1];
+            checkArgument(minX >= bounds[size * 2 - 2], "Spans must be added in order");
+            if (minX <= last + 1) {
+                bounds[size * 2 - 1] = Math.max(last, maxX);
+                return;
+            }
+        }
+        if (size * 2 == bounds.length) {
+            bounds = Arrays.copyOf(bounds, bounds.length * 2);
+        }
+        bounds[size * 2] = minX;
+        bounds[size * 2 + 1] = maxX;
+        size++;
+    }
+
+    /**
+     * Remove all spans.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Get the number of spans.
+     *
+     * @return the number of spans
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get the first X coordinate of a span.
+     *
+     * @param index the index of the span
+     * @return the first X coordinate
+     */
+    public int getMinX(int index) {
+        checkIndex(index);
+        return bounds[index * 2];
+    }
+
+    /**
+     * Get the last X coordinate of a span, inclusive.
+     *
+     * @param index the index of the span
+     * @return the last X coordinate
+     */
+    public int getMaxX(int index) {
+        checkIndex(index);
+        return bounds[index * 2 + 1];
+    }
+
+    /**
+     * Get the total number of blocks in all spans.
+     *
+     * @return the number of blocks
+     */
+    public long getVolume() {
+        long volume = 0;
+        for (int i = 0; i < size; i++) {
+            volume += (long) bounds[i * 2 + 1] - bounds[i * 2] + 1;
+        }
+        return volume;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("[");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            builder.append(bounds[i * 2]).append("..").append(bounds[i * 2 + 1]);
+        }
+        return builder.append(']').toString();
+    }
+
+}
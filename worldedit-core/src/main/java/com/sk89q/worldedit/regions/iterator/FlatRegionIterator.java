@@ -24,6 +24,7 @@
 import com.sk89q.worldedit.math.BlockVector2;
 import com.sk89q.worldedit.math.BlockVector3;
 import com.sk89q.worldedit.regions.Region;
+import com.sk89q.worldedit.regions.SpanList;
 
 import java.util.Iterator;
 import java.util.NoSuchElementException;
@@ -32,11 +33,12 @@ public class FlatRegionIterator implements Iterator<BlockVector2>  {
 
     private Region region;
     private int y;
-    private int minX;
+    private int maxZ;
+    private final SpanList spans = new SpanList();
+    private int span;
     private int nextX;
     private int nextZ;
-    private int maxX;
-    private int maxZ;
+    private boolean hasNext = true;
 
     public FlatRegionIterator(Region region) {
         checkNotNull(region);
@@ -48,26 +50,30 @@ public FlatRegionIterator(Region region) {
 
         this.y = min.getBlockY();
 
-        this.minX = min.getBlockX();
-
-        this.nextX = minX;
         this.nextZ = min.getBlockZ();
 
-        this.maxX = max.getBlockX();
         this.maxZ = max.getBlockZ();
 
-        forward();
+        forwardRow();
     }
 
     @Override
     public boolean hasNext() {
-        return nextX != Integer.MIN_VALUE;
+        return hasNext;
     }
 
-    private void forward() {
-        while (hasNext() && !region.contains(BlockVector3.at(nextX, y, nextZ))) {
-            forwardOne();
+    private void forwardRow() {
+        while (nextZ <= maxZ) {
+            spans.clear();
+            region.collectSpans(y, nextZ, spans);
+            if (spans.size() > 0) {
+                span = 0;
+                nextX = spans.getMinX(0);
+                return;
+            }
+            ++nextZ;
         }
+        hasNext = false;
     }
 
     @Override
@@ -78,22 +84,16 @@ public BlockVector2 next() {
 
         BlockVector2 answer = BlockVector2.at(nextX, nextZ);
 
-        forwardOne();
-        forward();
-
-        return answer;
-    }
-
-    private void forwardOne() {
-        if (++nextX <= maxX) {
-            return;
+        if (nextX < spans.getMaxX(span)) {
+            ++nextX;
+        } else if (++span < spans.size()) {
+            nextX = spans.getMinX(span);
+        } else {
+            ++nextZ;
+            forwardRow();
         }
-        nextX = minX;
 
-        if (++nextZ <= maxZ) {
-            return;
-        }
-        nextX = Integer.MIN_VALUE;
+        return answer;
     }
 
 }
@@ -23,47 +23,69 @@
 
 import com.sk89q.worldedit.math.BlockVector3;
 import com.sk89q.worldedit.regions.Region;
+import com.sk89q.worldedit.regions.SpanList;
 
 import java.util.Iterator;
 
+/**
+ * Iterates over the blocks of a region in order of X, then Y, then Z,
+ * walking the {@linkplain Region#collectSpans(int, int, SpanList) spans} of
+ * each row.
+ */
 public class RegionIterator implements Iterator<BlockVector3> {
 
     private final Region region;
-    private final int maxX;
+    private final int minY;
     private final int maxY;
     private final int maxZ;
-    private final BlockVector3 min;
+    private final SpanList spans = new SpanList();
+    private int span;
     private int nextX;
     private int nextY;
     private int nextZ;
+    private boolean hasNext = true;
 
     public RegionIterator(Region region) {
         checkNotNull(region);
 
         this.region = region;
 
+        BlockVector3 min = region.getMinimumPoint();
         BlockVector3 max = region.getMaximumPoint();
-        this.maxX = max.getBlockX();
+        this.minY = min.getBlockY();
         this.maxY = max.getBlockY();
         this.maxZ = max.getBlockZ();
 
-        this.min = region.getMinimumPoint();
-        this.nextX = min.getBlockX();
-        this.nextY = min.getBlockY();
+        this.nextY = minY;
         this.nextZ = min.getBlockZ();
 
-        forward();
+        forwardRow();
     }
 
     @Override
     public boolean hasNext() {
-        return nextX != Integer.MIN_VALUE;
+        return hasNext;
     }
 
-    private void forward() {
-        while (hasNext() && !region.contains(BlockVector3.at(nextX, nextY, nextZ))) {
-            forwardOne();
+    /**
+     * Move to the first block of the current row or, if it is empty, of the
+     * next row that is not.
+     */
+    private void forwardRow() {
+        while (nextZ <= maxZ) {
+            spans.clear();
+            region.collectSpans(nextY, nextZ, spans);
+            if (spans.size() > 0) {
+                span = 0;
+                nextX = spans.getMinX(0);
+                return;
+            }
+            if (++nextY > maxY) {
+                nextY = minY;
+                ++nextZ;
+            }
         }
+        hasNext = false;
     }
 
     @Override
@@ -72,27 +94,19 @@ public BlockVector3 next() {
 
         BlockVector3 answer = BlockVector3.at(nextX, nextY, nextZ);
 
-        forwardOne();
-        forward();
-
-        return answer;
-    }
-
-    private void forwardOne() {
-        if (++nextX <= maxX) {
-            return;
+        if (nextX < spans.getMaxX(span)) {
+            ++nextX;
+        } else if (++span < spans.size()) {
+            nextX = spans.getMinX(span);
+        } else {
+            if (++nextY > maxY) {
+                nextY = minY;
+                ++nextZ;
+            }
+            forwardRow();
         }
-        nextX = min.getBlockX();
 
-        if (++nextY <= maxY) {
-            return;
-        }
-        nextY = min.getBlockY();
-
-        if (++nextZ <= maxZ) {
-            return;
-        }
-        nextX = Integer.MIN_VALUE;
+        return answer;
     }
 
     @Override
@@ -71,6 +71,26 @@ public Edge getEdge(int index) {
         return new Edge(vertices[index], vertices[index + 1]);
     }
 
+    /**
+     * Returns the unit normal of the plane the triangle is in.
+     *
+     * @return the normal
+     */
+    public Vector3 getNormal() {
+        return normal;
+    }
+
+    /**
+     * Returns the offset of the plane the triangle is in, such that points
+     * on the plane have a dot product of this value with the
+     * {@linkplain #getNormal() normal}.
+     *
+     * @return the offset
+     */
+    public double getOffset() {
+        return b;
+    }
+
     /**
      * Returns whether the given point is above the plane the triangle is in.
      *
@@ -27,7 +27,9 @@
 import com.sk89q.worldedit.regions.NullRegion;
 import com.sk89q.worldedit.regions.Region;
 import com.sk89q.worldedit.regions.RegionOperationException;
+import com.sk89q.worldedit.regions.SpanList;
 import com.sk89q.worldedit.world.World;
+import it.unimi.dsi.fastutil.longs.LongSet;
 
 import java.util.Iterator;
 import java.util.List;
@@ -117,6 +119,11 @@ public boolean contains(BlockVector3 position) {
         return getRegion().contains(position);
     }
 
+    @Override
+    public void collectSpans(int y, int z, SpanList spans) {
+        getRegion().collectSpans(y, z, spans);
+    }
+
     @Override
     public Set<BlockVector2> getChunks() {
         return getRegion().getChunks();
@@ -127,6 +134,16 @@ public Set<BlockVector3> getChunkCubes() {
         return getRegion().getChunkCubes();
     }
 
+    @Override
+    public LongSet getPackedChunks() {
+        return getRegion().getPackedChunks();
+    }
+
+    @Override
+    public LongSet getPackedChunkCubes() {
+        return getRegion().getPackedChunkCubes();
+    }
+
     @Override
     public World getWorld() {
         return getRegion().getWorld();
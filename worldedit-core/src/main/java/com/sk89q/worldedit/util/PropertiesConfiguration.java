@@ -118,6 +118,10 @@ public void load() {
         scriptTimeout = getInt("scripting-timeout", scriptTimeout);
         calculationTimeout = getInt("calculation-timeout", calculationTimeout);
         maxCalculationTimeout = getInt("max-calculation-timeout", maxCalculationTimeout);
+        operationTickBudget = getInt("calculation-tick-budget", operationTickBudget);
+        parallelWorldReads = getBool("calculation-parallel-world-reads", parallelWorldReads);
+        spreadRelighting = getBool("calculation-spread-relighting", spreadRelighting);
+        spreadEdits = getBool("calculation-spread-edits", spreadEdits);
         saveDir = getString("schematic-save-dir", saveDir);
         scriptsDir = getString("craftscript-dir", scriptsDir);
         butcherDefaultRadius = getInt("butcher-default-radius", butcherDefaultRadius);
@@ -128,6 +132,7 @@ public void load() {
         setDefaultLocaleName(getString("default-locale", defaultLocaleName));
 
         LocalSession.MAX_HISTORY_SIZE = Math.max(15, getInt("history-size", 15));
+        historyMemoryLimit = getInt("history-memory-limit", historyMemoryLimit);
 
         String snapshotsDir = getString("snapshots-dir", "");
         boolean experimentalSnapshots = getBool("snapshots-experimental", false);
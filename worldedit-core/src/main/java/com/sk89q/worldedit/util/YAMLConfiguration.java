@@ -109,12 +109,17 @@ public void load() {
 
         calculationTimeout = config.getInt("calculation.timeout", calculationTimeout);
         maxCalculationTimeout = config.getInt("calculation.max-timeout", maxCalculationTimeout);
+        operationTickBudget = config.getInt("calculation.tick-budget", operationTickBudget);
+        parallelWorldReads = config.getBoolean("calculation.parallel-world-reads", parallelWorldReads);
+        spreadRelighting = config.getBoolean("calculation.spread-relighting", spreadRelighting);
+        spreadEdits = config.getBoolean("calculation.spread-edits", spreadEdits);
 
         saveDir = config.getString("saving.dir", saveDir);
 
         allowSymlinks = config.getBoolean("files.allow-symbolic-links", false);
         LocalSession.MAX_HISTORY_SIZE = Math.max(0, config.getInt("history.size", 15));
         SessionManager.EXPIRATION_GRACE = config.getInt("history.expiration", 10) * 60 * 1000;
+        historyMemoryLimit = config.getInt("history.memory-limit", historyMemoryLimit);
 
         showHelpInfo = config.getBoolean("show-help-on-first-use", true);
         serverSideCUI = config.getBoolean("server-side-cui", true);
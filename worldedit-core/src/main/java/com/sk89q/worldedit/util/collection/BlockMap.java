@@ -28,11 +28,14 @@
 import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
 import it.unimi.dsi.fastutil.longs.Long2ObjectMaps;
 import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrays;
+import it.unimi.dsi.fastutil.longs.LongComparator;
 import it.unimi.dsi.fastutil.objects.ObjectIterator;
 
 import java.util.AbstractCollection;
 import java.util.AbstractMap;
 import java.util.AbstractSet;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.Map;
@@ -108,14 +111,23 @@ private static int toInnerKey(BlockVector3 location) {
     private static final int INNER_Z = BITS_6 << 6;
     private static final int INNER_Y = BITS_8 << (6 + 6);
 
-    private static BlockVector3 reconstructLocation(long group, int inner) {
+    private static int reconstructX(long group, int inner) {
         int groupX = (int) ((group & GROUP_X) << 6);
-        int x = fixSign(groupX | (inner & INNER_X), 26);
-        int groupZ = (int) ((group & GROUP_Z) >>> (20 - 6));
-        int z = fixSign(groupZ | ((inner & INNER_Z) >>> 6), 26);
+        return fixSign(groupX | (inner & INNER_X), 26);
+    }
+
+    private static int reconstructY(long group, int inner) {
         int groupY = (int) ((group & GROUP_Y) >>> (20 + 20 - 8));
-        int y = groupY | ((inner & INNER_Y) >>> (6 + 6));
-        return BlockVector3.at(x, y, z);
+        return groupY | ((inner & INNER_Y) >>> (6 + 6));
+    }
+
+    private static int reconstructZ(long group, int inner) {
+        int groupZ = (int) ((group & GROUP_Z) >>> (20 - 6));
+        return fixSign(groupZ | ((inner & INNER_Z) >>> 6), 26);
+    }
+
+    private static BlockVector3 reconstructLocation(long group, int inner) {
+        return BlockVector3.at(reconstructX(group, inner), reconstructY(group, inner), reconstructZ(group, inner));
     }
 
     private final Long2ObjectMap<Int2ObjectMap<V>> maps = new Long2ObjectOpenHashMap<>(4, 0.75f);
@@ -422,6 +434,190 @@ public int size() {
         return vs;
     }
 
+    /**
+     * Create a cursor over the entries of this map, grouped by region and
+     * then by chunk, and from the top of each chunk to the bottom.
+     *
+     * <p>This is close to the order of
+     * {@link com.sk89q.worldedit.internal.util.RegionOptimizedVectorSorter},
+     * without building a list of positions or looking up values again.
+     * The map must not be modified while the cursor is in use.</p>
+     *
+     * @return a new cursor
+     */
+    public ChunkCursor<V> chunkCursor() {
+        return new ChunkCursor<>(maps);
+    }
+
+    /**
+     * Visits the entries of a {@link BlockMap} chunk by chunk.
+     *
+     * <p>The chunks of a 64 by 64 column of blocks are visited in turn, and
+     * columns are ordered by region.</p>
+     *
+     * @param <V> the value type
+     */
+    public static final class ChunkCursor<V> {
+
+        private static final LongComparator GROUP_ORDER = (a, b) -> {
+            int ax = fixSign((int) (a & GROUP_X), 20);
+            int az = fixSign((int) ((a & GROUP_Z) >>> 20), 20);
+            int bx = fixSign((int) (b & GROUP_X), 20);
+            int bz = fixSign((int) ((b & GROUP_Z) >>> 20), 20);
+            // 8 groups per region along each axis
+            int result = Integer.compare(ax >> 3, bx >> 3);
+            if (result == 0) {
+                result = Integer.compare(az >> 3, bz >> 3);
+            }
+            if (result == 0) {
+                result = Integer.compare(ax, bx);
+            }
+            if (result == 0) {
+                result = Integer.compare(az, bz);
+            }
+            if (result == 0) {
+                // top to bottom
+                result = Long.compare(b & GROUP_Y, a & GROUP_Y);
+            }
+            return result;
+        };
+
+        private final Long2ObjectMap<? extends Int2ObjectMap<V>> maps;
+        private final long[] groupKeys;
+        private int nextGroup;
+        // the groups of the current column, top to bottom
+        private int columnStart;
+        private int layerCount;
+        private int[] counts = new int[0];
+        private int[] innerKeys = new int[0];
+        private int[] layers = new int[0];
+        private Object[] values = new Object[0];
+        private int size;
+        private int index = -1;
+        private long groupKey;
+        private int innerKey;
+        private V value;
+
+        private ChunkCursor(Long2ObjectMap<? extends Int2ObjectMap<V>> maps) {
+            this.maps = maps;
+            this.groupKeys = maps.keySet().toLongArray();
+            LongArrays.quickSort(groupKeys, GROUP_ORDER);
+        }
+
+        /**
+         * Bucket by chunk, then by group from the top down, then by Y from
+         * the top down.
+         */
+        private int bucket(int layer, int inner) {
+            int chunk = ((inner >>> 4) & 3) << 2 | ((inner >>> 10) & 3);
+            return (chunk * layerCount + layer) << 8 | (BITS_8 - ((inner & INNER_Y) >>> (6 + 6)));
+        }
+
+        private void loadColumn() {
+            columnStart = nextGroup;
+            long column = groupKeys[columnStart] & (GROUP_X | GROUP_Z);
+            int total = 0;
+            do {
+                total += maps.get(groupKeys[nextGroup]).size();
+                nextGroup++;
+            } while (nextGroup < groupKeys.length && (groupKeys[nextGroup] & (GROUP_X | GROUP_Z)) == column);
+            layerCount = nextGroup - columnStart;
+            size = total;
+            if (innerKeys.length < size) {
+                innerKeys = new int[size];
+                layers = new int[size];
+                values = new Object[size];
+            }
+            int buckets = 16 * layerCount << 8;
+            if (counts.length < buckets + 1) {
+                counts = new int[buckets + 1];
+            } else {
+                Arrays.fill(counts, 0, buckets + 1, 0);
+            }
+            // counting sort by chunk and Y
+            for (int layer = 0; layer < layerCount; layer++) {
+                Int2ObjectMap<V> map = maps.get(groupKeys[columnStart + layer]);
+                for (ObjectIterator<Int2ObjectMap.Entry<V>> it = Int2ObjectMaps.fastIterator(map); it.hasNext(); ) {
+                    counts[bucket(layer, it.next().getIntKey()) + 1]++;
+                }
+            }
+            for (int i = 0; i < buckets; i++) {
+                counts[i + 1] += counts[i];
+            }
+            for (int layer = 0; layer < layerCount; layer++) {
+                Int2ObjectMap<V> map = maps.get(groupKeys[columnStart + layer]);
+                for (ObjectIterator<Int2ObjectMap.Entry<V>> it = Int2ObjectMaps.fastIterator(map); it.hasNext(); ) {
+                    Int2ObjectMap.Entry<V> entry = it.next();
+                    int slot = counts[bucket(layer, entry.getIntKey())]++;
+                    innerKeys[slot] = entry.getIntKey();
+                    layers[slot] = layer;
+                    values[slot] = entry.getValue();
+                }
+            }
+        }
+
+        /**
+         * Move to the next entry.
+         *
+         * @return false if there are no more entries
+         */
+        @SuppressWarnings("unchecked")
+        public boolean next() {
+            index++;
+            while (index >= size) {
+                if (nextGroup >= groupKeys.length) {
+                    value = null;
+                    return false;
+                }
+                loadColumn();
+                index = 0;
+            }
+            groupKey = groupKeys[columnStart + layers[index]];
+            innerKey = innerKeys[index];
+            value = (V) values[index];
+            values[index] = null;
+            return true;
+        }
+
+        public int getX() {
+            return reconstructX(groupKey, innerKey);
+        }
+
+        public int getY() {
+            return reconstructY(groupKey, innerKey);
+        }
+
+        public int getZ() {
+            return reconstructZ(groupKey, innerKey);
+        }
+
+        public int getChunkX() {
+            return getX() >> 4;
+        }
+
+        public int getChunkZ() {
+            return getZ() >> 4;
+        }
+
+        /**
+         * Get the index of the current entry within its 16 by 16 by 16 chunk
+         * section, in Y, Z, X order.
+         *
+         * @return the index
+         */
+        public int getSectionIndex() {
+            return (getY() & 15) << 8 | (getZ() & 15) << 4 | (getX() & 15);
+        }
+
+        public BlockVector3 getPosition() {
+            return reconstructLocation(groupKey, innerKey);
+        }
+
+        public V getValue() {
+            return value;
+        }
+    }
+
     @Override
     public boolean equals(Object o) {
         if (o == this) {
@@ -0,0 +1,163 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.util.collection;
+
+import com.sk89q.worldedit.math.BlockVector3;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+
+import javax.annotation.Nullable;
+
+/**
+ * A set of block positions, stored as one bit per block in 16x16x16
+ * sections.
+ *
+ * <p>Densely packed positions, such as those visited by a flood fill, take
+ * little more than a bit each, and no objects are created to add or look up
+ * positions.</p>
+ *
+ * <p>X and Z coordinates must fit in 26 bits, as they do for
+ * {@link BlockVector3#toLongPackedForm()}.</p>
+ */
+public class SectionedBlockSet {
+
+    private static final int SECTION_WORDS = 16 * 16 * 16 / Long.SIZE;
+
+    private final Long2ObjectOpenHashMap<long[]> sections = new Long2ObjectOpenHashMap<>();
+    private long lastKey;
+    @Nullable
+    private long[] lastSection;
+    private long size;
+
+    private static long sectionKey(int x, int y, int z) {
+        // 22 bits each for the x and z section, and 20 bits for y
+        return ((long) (x >> 4) & 0x3FFFFF)
+                | (((long) (z >> 4) & 0x3FFFFF) << 22)
+                | (((long) (y >> 4) & 0xFFFFF) << 44);
+    }
+
+    private static int bitIndex(int x, int y, int z) {
+        return (y & 15) << 8 | (z & 15) << 4 | (x & 15);
+    }
+
+    @Nullable
+    private long[] getSection(int x, int y, int z, boolean create) {
+        long key = sectionKey(x, y, z);
+        if (lastSection != null && lastKey == key) {
+            return lastSection;
+        }
+        long[] section = sections.get(key);
+        if (section == null) {
+            if (!create) {
+                return null;
+            }
+            section = new long[SECTION_WORDS];
+            sections.put(key, section);
+        }
+        lastKey = key;
+        lastSection = section;
+        return section;
+    }
+
+    /**
+     * Add a position to the set.
+     *
+     * @param x the X coordinate
+     * @param y the Y coordinate
+     * @param z the Z coordinate
+     * @return true if the position was not in the set before
+     */
+    public boolean add(int x, int y, int z) {
+        long[] section = getSection(x, y, z, true);
+        int index = bitIndex(x, y, z);
+        long bit = 1L << index;
+        long word = section[index >>> 6];
+        if ((word & bit) != 0) {
+            return false;
+        }
+        section[index >>> 6] = word | bit;
+        size++;
+        return true;
+    }
+
+    /**
+     * Add a position to the set.
+     *
+     * @param position the position
+     * @return true if the position was not in the set before
+     */
+    public boolean add(BlockVector3 position) {
+        return add(position.getBlockX(), position.getBlockY(), position.getBlockZ());
+    }
+
+    /**
+     * Check whether a position is in the set.
+     *
+     * @param x the X coordinate
+     * @param y the Y coordinate
+     * @param z the Z coordinate
+     * @return true if the position is in the set
+     */
+    public boolean contains(int x, int y, int z) {
+        long[] section = getSection(x, y, z, false);
+        if (section == null) {
+            return false;
+        }
+        int index = bitIndex(x, y, z);
+        return (section[index >>> 6] & (1L << index)) != 0;
+    }
+
+    /**
+     * Check whether a position is in the set.
+     *
+     * @param position the position
+     * @return true if the position is in the set
+     */
+    public boolean contains(BlockVector3 position) {
+        return contains(position.getBlockX(), position.getBlockY(), position.getBlockZ());
+    }
+
+    /**
+     * Get the number of positions in the set.
+     *
+     * @return the number of positions
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Get an estimate of the memory used by the set, in bytes.
+     *
+     * @return the memory used
+     */
+    public long getMemoryUsage() {
+        return (long) sections.size() * (SECTION_WORDS * Long.BYTES + 16);
+    }
+
+    /**
+     * Remove all positions from the set.
+     */
+    public void clear() {
+        sections.clear();
+        lastSection = null;
+        size = 0;
+    }
+
+}
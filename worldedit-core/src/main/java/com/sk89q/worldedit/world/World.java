@@ -25,6 +25,7 @@
 import com.sk89q.worldedit.blocks.BaseItem;
 import com.sk89q.worldedit.blocks.BaseItemStack;
 import com.sk89q.worldedit.extension.platform.Platform;
+import com.sk89q.worldedit.extent.ChunkSectionBatch;
 import com.sk89q.worldedit.extent.Extent;
 import com.sk89q.worldedit.function.mask.Mask;
 import com.sk89q.worldedit.math.BlockVector2;
@@ -140,6 +141,33 @@ default <B extends BlockStateHolder<B>> boolean setBlock(BlockVector3 position,
      */
     <B extends BlockStateHolder<B>> boolean setBlock(BlockVector3 position, B block, SideEffectSet sideEffects) throws WorldEditException;
 
+    /**
+     * Similar to {@link #setBlock(BlockVector3, BlockStateHolder, SideEffectSet)},
+     * but sets a batch of blocks in one chunk section at once.
+     *
+     * <p>Implementations may look up the chunk once and apply the side effects
+     * for the whole batch after all of its blocks are set.</p>
+     *
+     * @param batch the blocks to set
+     * @param sideEffects which side effects to perform
+     * @return the number of blocks that were probably set
+     * @throws WorldEditException thrown on an error
+     */
+    default int setBlocks(ChunkSectionBatch batch, SideEffectSet sideEffects) throws WorldEditException {
+        int changed = 0;
+        for (int i = 0; i < batch.size(); i++) {
+            if (setBlock(batch.getPosition(i), batch.getBlock(i), sideEffects)) {
+                changed++;
+            }
+        }
+        return changed;
+    }
+
+    @Override
+    default int setBlocks(ChunkSectionBatch batch) throws WorldEditException {
+        return setBlocks(batch, SideEffectSet.defaults());
+    }
+
     /**
      * Notifies the simulation that the block at the given location has
      * been changed and it must be re-lighted (and issue other events).
@@ -31,12 +31,10 @@
 
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.Set;
 
 /**
  * An immutable class that represents the state a block can be in.
@@ -176,23 +174,11 @@ public boolean equalsFuzzy(BlockStateHolder<?> o) {
             return false;
         }
 
-        Set<Property<?>> differingProperties = new HashSet<>();
-        for (Object state : o.getStates().keySet()) {
-            if (getState((Property<?>) state) == null) {
-                differingProperties.add((Property<?>) state);
-            }
-        }
-        for (Property<?> property : getStates().keySet()) {
-            if (o.getState(property) == null) {
-                differingProperties.add(property);
-            }
-        }
-
-        for (Property<?> property : getStates().keySet()) {
-            if (differingProperties.contains(property)) {
-                continue;
-            }
-            if (!Objects.equals(getState(property), o.getState(property))) {
+        for (Property<?> property : this.values.keySet()) {
+            // properties missing on either side don't count as differing
+            Object value = getState(property);
+            Object other = o.getState(property);
+            if (value != null && other != null && !value.equals(other)) {
                 return false;
             }
         }
@@ -21,27 +21,41 @@
 
 import com.sk89q.worldedit.EditSession;
 import com.sk89q.worldedit.MaxChangedBlocksException;
+import com.sk89q.worldedit.function.mask.Mask;
 import com.sk89q.worldedit.math.BlockVector2;
 import com.sk89q.worldedit.math.BlockVector3;
-import com.sk89q.worldedit.regions.CuboidRegion;
 import com.sk89q.worldedit.regions.Region;
+import com.sk89q.worldedit.regions.Regions;
 import com.sk89q.worldedit.world.DataException;
 import com.sk89q.worldedit.world.chunk.Chunk;
 import com.sk89q.worldedit.world.storage.ChunkStore;
 import com.sk89q.worldedit.world.storage.MissingChunkException;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongSet;
 
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.LinkedHashMap;
+import java.util.BitSet;
 import java.util.List;
-import java.util.Map;
+
+import javax.annotation.Nullable;
 
 /**
  * A snapshot restore operation.
  */
 public class SnapshotRestore {
 
-    private final Map<BlockVector2, ArrayList<BlockVector3>> neededChunks = new LinkedHashMap<>();
+    private final Region region;
+    private final LongSet neededChunks;
+    /**
+     * The blocks of each needed chunk that the mask of the edit session
+     * matched, by their index in {@link Regions#forEachBlockInChunk} order,
+     * or null if the edit session has no mask.
+     */
+    @Nullable
+    private final Long2ObjectMap<BitSet> maskedBlocks;
     private final ChunkStore chunkStore;
     private final EditSession editSession;
     private ArrayList<BlockVector2> missingChunks;
@@ -58,64 +72,70 @@ public class SnapshotRestore {
     public SnapshotRestore(ChunkStore chunkStore, EditSession editSession, Region region) {
         this.chunkStore = chunkStore;
         this.editSession = editSession;
-
-        if (region instanceof CuboidRegion) {
-            findNeededCuboidChunks(region);
+        this.region = region.clone();
+        Mask mask = editSession.getMask();
+        if (mask == null) {
+            this.maskedBlocks = null;
+            this.neededChunks = this.region.getPackedChunks();
         } else {
-            findNeededChunks(region);
+            // the mask is tested before anything is restored, as restoring may change what it matches
+            this.maskedBlocks = findMaskedBlocks(mask);
+            this.neededChunks = maskedBlocks.keySet();
         }
     }
 
     /**
-     * Find needed chunks in the axis-aligned bounding box of the region.
+     * Test the mask for every block of the region, and keep the chunks
+     * where it matches at least one block.
      *
-     * @param region The {@link Region} to iterate
+     * @param mask the mask
+     * @return the matched blocks of each chunk
      */
-    private void findNeededCuboidChunks(Region region) {
-        BlockVector3 min = region.getMinimumPoint();
-        BlockVector3 max = region.getMaximumPoint();
-
-        // First, we need to group points by chunk so that we only need
-        // to keep one chunk in memory at any given moment
-        for (int x = min.getBlockX(); x <= max.getBlockX(); ++x) {
-            for (int y = min.getBlockY(); y <= max.getBlockY(); ++y) {
-                for (int z = min.getBlockZ(); z <= max.getBlockZ(); ++z) {
-                    BlockVector3 pos = BlockVector3.at(x, y, z);
-                    checkAndAddBlock(pos);
+    private Long2ObjectMap<BitSet> findMaskedBlocks(Mask mask) {
+        Long2ObjectMap<BitSet> masked = new Long2ObjectOpenHashMap<>();
+        for (LongIterator it = region.getPackedChunks().iterator(); it.hasNext(); ) {
+            long packed = it.nextLong();
+            BlockVector2 chunkPos = BlockVector2.fromLongPackedForm(packed);
+            BitSet matches = new BitSet();
+            int[] index = {0};
+            Regions.forEachBlockInChunk(region, chunkPos.getBlockX(), chunkPos.getBlockZ(), pos -> {
+                if (mask.test(pos)) {
+                    matches.set(index[0]);
                 }
+                index[0]++;
+            });
+            if (!matches.isEmpty()) {
+                masked.put(packed, matches);
             }
         }
+        return masked;
     }
 
     /**
-     * Find needed chunks in the region.
+     * Find the blocks to restore in a chunk, leaving out those that the
+     * mask of the edit session didn't match when this operation was
+     * created.
      *
-     * @param region The {@link Region} to iterate
+     * @param chunkPos the chunk
+     * @return the blocks to restore
      */
-    private void findNeededChunks(Region region) {
-        // First, we need to group points by chunk so that we only need
-        // to keep one chunk in memory at any given moment
-        for (BlockVector3 pos : region) {
-            checkAndAddBlock(pos);
-        }
-    }
-
-    private void checkAndAddBlock(BlockVector3 pos) {
-        if (editSession.getMask() != null && !editSession.getMask().test(pos))
-            return;
-
-        BlockVector2 chunkPos = ChunkStore.toChunk(pos);
-
-        // Unidentified chunk
-        if (!neededChunks.containsKey(chunkPos)) {
-            neededChunks.put(chunkPos, new ArrayList<>());
-        }
-
-        neededChunks.get(chunkPos).add(pos);
+    private List<BlockVector3> findNeededBlocks(BlockVector2 chunkPos) {
+        BitSet matches = maskedBlocks == null ? null : maskedBlocks.get(chunkPos.toLongPackedForm());
+        List<BlockVector3> positions = new ArrayList<>();
+        int[] index = {0};
+        Regions.forEachBlockInChunk(region, chunkPos.getBlockX(), chunkPos.getBlockZ(), pos -> {
+            if (matches == null || matches.get(index[0])) {
+                positions.add(pos);
+            }
+            index[0]++;
+        });
+        return positions;
     }
 
     /**
-     * Get the number of chunks that are needed.
+     * Get the number of chunks to restore: those that the region overlaps
+     * with, leaving out chunks where the mask of the edit session matched no
+     * block when this operation was created.
      *
      * @return a number of chunks
      */
@@ -134,8 +154,9 @@ public void restore() throws MaxChangedBlocksException {
         errorChunks = new ArrayList<>();
 
         // Now let's start restoring!
-        for (Map.Entry<BlockVector2, ArrayList<BlockVector3>> entry : neededChunks.entrySet()) {
-            BlockVector2 chunkPos = entry.getKey();
+        for (LongIterator it = neededChunks.iterator(); it.hasNext(); ) {
+            BlockVector2 chunkPos = BlockVector2.fromLongPackedForm(it.nextLong());
+            List<BlockVector3> positions = findNeededBlocks(chunkPos);
             Chunk chunk;
 
             try {
@@ -143,7 +164,7 @@ public void restore() throws MaxChangedBlocksException {
                 // Good, the chunk could be at least loaded
 
                 // Now just copy blocks!
-                for (BlockVector3 pos : entry.getValue()) {
+                for (BlockVector3 pos : positions) {
                     try {
                         editSession.setBlock(pos, chunk.getBlock(pos));
                     } catch (DataException e) {
@@ -186,7 +207,7 @@ public List<BlockVector2> getErrorChunks() {
      * @return true if there was total failure
      */
     public boolean hadTotalFailure() {
-        return missingChunks.size() + errorChunks.size() == getChunksAffected();
+        return missingChunks.size() + errorChunks.size() == neededChunks.size();
     }
 
     /**
@@ -20,6 +20,7 @@
 package com.sk89q.worldedit.world.snapshot.experimental;
 
 import com.sk89q.jnbt.CompoundTag;
+import com.sk89q.jnbt.NBTFilter;
 import com.sk89q.worldedit.math.BlockVector3;
 import com.sk89q.worldedit.world.DataException;
 import com.sk89q.worldedit.world.chunk.Chunk;
@@ -45,13 +46,27 @@ public interface Snapshot extends Closeable {
     CompoundTag getChunkTag(BlockVector3 position) throws DataException, IOException;
 
     /**
-     * Get the chunk information for the given position.
+     * Get the chunk information for the given position, leaving out the tags
+     * that the filter doesn't accept. Implementations that can't filter while
+     * reading return the whole tag.
      *
+     * @param position the position of the chunk
+     * @param filter the filter
+     * @return the tag containing chunk data
      * @see #getChunkTag(BlockVector3)
+     */
+    default CompoundTag getChunkTag(BlockVector3 position, NBTFilter filter) throws DataException, IOException {
+        return getChunkTag(position);
+    }
+
+    /**
+     * Get the chunk information for the given position.
+     *
+     * @see #getChunkTag(BlockVector3, NBTFilter)
      * @see ChunkStoreHelper#getChunk(CompoundTag)
      */
     default Chunk getChunk(BlockVector3 position) throws DataException, IOException {
-        return ChunkStoreHelper.getChunk(getChunkTag(position));
+        return ChunkStoreHelper.getChunk(getChunkTag(position, ChunkStoreHelper.BLOCKS_FILTER));
     }
 
     /**
@@ -19,29 +19,61 @@
 
 package com.sk89q.worldedit.world.snapshot.experimental;
 
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.Uninterruptibles;
 import com.sk89q.worldedit.EditSession;
 import com.sk89q.worldedit.MaxChangedBlocksException;
+import com.sk89q.worldedit.function.mask.Mask;
+import com.sk89q.worldedit.internal.util.RegionOptimizedVectorSorter;
 import com.sk89q.worldedit.math.BlockVector2;
 import com.sk89q.worldedit.math.BlockVector3;
-import com.sk89q.worldedit.regions.CuboidRegion;
 import com.sk89q.worldedit.regions.Region;
+import com.sk89q.worldedit.regions.Regions;
 import com.sk89q.worldedit.world.DataException;
+import com.sk89q.worldedit.world.block.BaseBlock;
 import com.sk89q.worldedit.world.chunk.Chunk;
-import com.sk89q.worldedit.world.storage.ChunkStore;
 import com.sk89q.worldedit.world.storage.MissingChunkException;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongSet;
 
 import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.LinkedHashMap;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.annotation.Nullable;
 
 /**
  * A snapshot restore operation.
+ *
+ * <p>Chunks are loaded and decoded by a few worker threads, a bounded number
+ * of chunks ahead of the calling thread, which writes the decoded blocks to
+ * the edit session in region file order.</p>
  */
 public class SnapshotRestore {
 
-    private final Map<BlockVector2, ArrayList<BlockVector3>> neededChunks = new LinkedHashMap<>();
+    private static final int MAX_DECODE_THREADS = 4;
+    private static final int CHUNKS_AHEAD_PER_THREAD = 2;
+
+    private final Region region;
+    private final LongSet neededChunks;
+    /**
+     * The blocks of each needed chunk that the mask of the edit session
+     * matched, by their index in {@link Regions#forEachBlockInChunk} order,
+     * or null if the edit session has no mask.
+     */
+    @Nullable
+    private final Long2ObjectMap<BitSet> maskedBlocks;
     private final Snapshot snapshot;
     private final EditSession editSession;
     private ArrayList<BlockVector2> missingChunks;
@@ -58,64 +90,70 @@ public class SnapshotRestore {
     public SnapshotRestore(Snapshot snapshot, EditSession editSession, Region region) {
         this.snapshot = snapshot;
         this.editSession = editSession;
-
-        if (region instanceof CuboidRegion) {
-            findNeededCuboidChunks(region);
+        this.region = region.clone();
+        Mask mask = editSession.getMask();
+        if (mask == null) {
+            this.maskedBlocks = null;
+            this.neededChunks = this.region.getPackedChunks();
         } else {
-            findNeededChunks(region);
+            // the mask is tested before anything is restored, as restoring may change what it matches
+            this.maskedBlocks = findMaskedBlocks(mask);
+            this.neededChunks = maskedBlocks.keySet();
         }
     }
 
     /**
-     * Find needed chunks in the axis-aligned bounding box of the region.
+     * Test the mask for every block of the region, and keep the chunks
+     * where it matches at least one block.
      *
-     * @param region The {@link Region} to iterate
+     * @param mask the mask
+     * @return the matched blocks of each chunk
      */
-    private void findNeededCuboidChunks(Region region) {
-        BlockVector3 min = region.getMinimumPoint();
-        BlockVector3 max = region.getMaximumPoint();
-
-        // First, we need to group points by chunk so that we only need
-        // to keep one chunk in memory at any given moment
-        for (int x = min.getBlockX(); x <= max.getBlockX(); ++x) {
-            for (int y = min.getBlockY(); y <= max.getBlockY(); ++y) {
-                for (int z = min.getBlockZ(); z <= max.getBlockZ(); ++z) {
-                    BlockVector3 pos = BlockVector3.at(x, y, z);
-                    checkAndAddBlock(pos);
+    private Long2ObjectMap<BitSet> findMaskedBlocks(Mask mask) {
+        Long2ObjectMap<BitSet> masked = new Long2ObjectOpenHashMap<>();
+        for (LongIterator it = region.getPackedChunks().iterator(); it.hasNext(); ) {
+            long packed = it.nextLong();
+            BlockVector2 chunkPos = BlockVector2.fromLongPackedForm(packed);
+            BitSet matches = new BitSet();
+            int[] index = {0};
+            Regions.forEachBlockInChunk(region, chunkPos.getBlockX(), chunkPos.getBlockZ(), pos -> {
+                if (mask.test(pos)) {
+                    matches.set(index[0]);
                 }
+                index[0]++;
+            });
+            if (!matches.isEmpty()) {
+                masked.put(packed, matches);
             }
         }
+        return masked;
     }
 
     /**
-     * Find needed chunks in the region.
+     * Find the blocks to restore in a chunk, leaving out those that the
+     * mask of the edit session didn't match when this operation was
+     * created.
      *
-     * @param region The {@link Region} to iterate
+     * @param chunkPos the chunk
+     * @return the blocks to restore
      */
-    private void findNeededChunks(Region region) {
-        // First, we need to group points by chunk so that we only need
-        // to keep one chunk in memory at any given moment
-        for (BlockVector3 pos : region) {
-            checkAndAddBlock(pos);
-        }
-    }
-
-    private void checkAndAddBlock(BlockVector3 pos) {
-        if (editSession.getMask() != null && !editSession.getMask().test(pos))
-            return;
-
-        BlockVector2 chunkPos = ChunkStore.toChunk(pos);
-
-        // Unidentified chunk
-        if (!neededChunks.containsKey(chunkPos)) {
-            neededChunks.put(chunkPos, new ArrayList<>());
-        }
-
-        neededChunks.get(chunkPos).add(pos);
+    private ArrayList<BlockVector3> findNeededBlocks(BlockVector2 chunkPos) {
+        BitSet matches = maskedBlocks == null ? null : maskedBlocks.get(chunkPos.toLongPackedForm());
+        ArrayList<BlockVector3> positions = new ArrayList<>();
+        int[] index = {0};
+        Regions.forEachBlockInChunk(region, chunkPos.getBlockX(), chunkPos.getBlockZ(), pos -> {
+            if (matches == null || matches.get(index[0])) {
+                positions.add(pos);
+            }
+            index[0]++;
+        });
+        return positions;
     }
 
     /**
-     * Get the number of chunks that are needed.
+     * Get the number of chunks to restore: those that the region overlaps
+     * with, leaving out chunks where the mask of the edit session matched no
+     * block when this operation was created.
      *
      * @return a number of chunks
      */
@@ -133,29 +171,98 @@ public void restore() throws MaxChangedBlocksException {
         missingChunks = new ArrayList<>();
         errorChunks = new ArrayList<>();
 
-        // Now let's start restoring!
-        for (Map.Entry<BlockVector2, ArrayList<BlockVector3>> entry : neededChunks.entrySet()) {
-            BlockVector2 chunkPos = entry.getKey();
-            Chunk chunk;
-
-            try {
-                // This will need to be changed if we start officially supporting 3d snapshots.
-                chunk = snapshot.getChunk(chunkPos.toBlockVector3());
-                // Good, the chunk could be at least loaded
-
-                // Now just copy blocks!
-                for (BlockVector3 pos : entry.getValue()) {
-                    try {
-                        editSession.setBlock(pos, chunk.getBlock(pos));
-                    } catch (DataException e) {
-                        // this is a workaround: just ignore for now
-                    }
+        List<BlockVector2> chunks = getChunksInRegionOrder();
+        if (chunks.isEmpty()) {
+            return;
+        }
+        int threads = Math.max(1, Math.min(Math.min(MAX_DECODE_THREADS,
+                Runtime.getRuntime().availableProcessors() - 1), chunks.size()));
+        ExecutorService decoders = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder()
+                .setDaemon(true)
+                .setNameFormat("worldedit-snapshot-decode-%d")
+                .build());
+
+        try {
+            // Now let's start restoring!
+            Deque<Future<DecodedChunk>> pending = new ArrayDeque<>();
+            Iterator<BlockVector2> next = chunks.iterator();
+            int window = threads * CHUNKS_AHEAD_PER_THREAD;
+            while (true) {
+                while (pending.size() < window && next.hasNext()) {
+                    BlockVector2 chunkPos = next.next();
+                    List<BlockVector3> positions = findNeededBlocks(chunkPos);
+                    pending.add(decoders.submit(() -> decode(chunkPos, positions)));
+                }
+                Future<DecodedChunk> future = pending.poll();
+                if (future == null) {
+                    break;
+                }
+                DecodedChunk decoded;
+                try {
+                    decoded = Uninterruptibles.getUninterruptibly(future);
+                } catch (ExecutionException e) {
+                    Throwables.throwIfUnchecked(e.getCause());
+                    throw new RuntimeException(e.getCause());
+                }
+                write(decoded);
+            }
+        } finally {
+            decoders.shutdownNow();
+        }
+    }
+
+    private List<BlockVector2> getChunksInRegionOrder() {
+        List<BlockVector3> corners = new ArrayList<>(neededChunks.size());
+        for (LongIterator it = neededChunks.iterator(); it.hasNext(); ) {
+            BlockVector2 chunkPos = BlockVector2.fromLongPackedForm(it.nextLong());
+            corners.add(BlockVector3.at(chunkPos.getBlockX() << 4, 0, chunkPos.getBlockZ() << 4));
+        }
+        RegionOptimizedVectorSorter.sort(corners);
+        List<BlockVector2> chunks = new ArrayList<>(corners.size());
+        for (BlockVector3 corner : corners) {
+            chunks.add(BlockVector2.at(corner.getBlockX() >> 4, corner.getBlockZ() >> 4));
+        }
+        return chunks;
+    }
+
+    /**
+     * Load a chunk and look up the blocks to restore from it. Runs on a
+     * decoder thread.
+     */
+    private DecodedChunk decode(BlockVector2 chunkPos, List<BlockVector3> positions) {
+        try {
+            // This will need to be changed if we start officially supporting 3d snapshots.
+            Chunk chunk = snapshot.getChunk(chunkPos.toBlockVector3());
+            // Good, the chunk could be at least loaded
+
+            RegionOptimizedVectorSorter.sort(positions);
+            BaseBlock[] blocks = new BaseBlock[positions.size()];
+            for (int i = 0; i < blocks.length; i++) {
+                try {
+                    blocks[i] = chunk.getBlock(positions.get(i));
+                } catch (DataException e) {
+                    // this is a workaround: just ignore for now
+                }
+            }
+            return new DecodedChunk(chunkPos, positions, blocks, null);
+        } catch (IOException | DataException e) {
+            return new DecodedChunk(chunkPos, positions, null, e);
+        }
+    }
+
+    private void write(DecodedChunk decoded) throws MaxChangedBlocksException {
+        if (decoded.error instanceof MissingChunkException) {
+            missingChunks.add(decoded.chunkPos);
+        } else if (decoded.error != null) {
+            errorChunks.add(decoded.chunkPos);
+            lastErrorMessage = decoded.error.getMessage();
+        } else if (decoded.blocks != null) {
+            // Now just copy blocks!
+            for (int i = 0; i < decoded.blocks.length; i++) {
+                BaseBlock block = decoded.blocks[i];
+                if (block != null) {
+                    editSession.setBlock(decoded.positions.get(i), block);
                 }
-            } catch (MissingChunkException me) {
-                missingChunks.add(chunkPos);
-            } catch (IOException | DataException me) {
-                errorChunks.add(chunkPos);
-                lastErrorMessage = me.getMessage();
             }
         }
     }
@@ -187,7 +294,7 @@ public List<BlockVector2> getErrorChunks() {
      * @return true if there was total failure
      */
     public boolean hadTotalFailure() {
-        return missingChunks.size() + errorChunks.size() == getChunksAffected();
+        return missingChunks.size() + errorChunks.size() == neededChunks.size();
     }
 
     /**
@@ -199,4 +306,21 @@ public String getLastErrorMessage() {
         return lastErrorMessage;
     }
 
+    private static final class DecodedChunk {
+        private final BlockVector2 chunkPos;
+        private final List<BlockVector3> positions;
+        @Nullable
+        private final BaseBlock[] blocks;
+        @Nullable
+        private final Exception error;
+
+        private DecodedChunk(BlockVector2 chunkPos, List<BlockVector3> positions,
+                             @Nullable BaseBlock[] blocks, @Nullable Exception error) {
+            this.chunkPos = chunkPos;
+            this.positions = positions;
+            this.blocks = blocks;
+            this.error = error;
+        }
+    }
+
 }
@@ -20,6 +20,7 @@
 package com.sk89q.worldedit.world.snapshot.experimental.fs;
 
 import com.sk89q.jnbt.CompoundTag;
+import com.sk89q.jnbt.NBTFilter;
 import com.sk89q.worldedit.math.BlockVector2;
 import com.sk89q.worldedit.math.BlockVector3;
 import com.sk89q.worldedit.util.io.Closer;
@@ -29,12 +30,11 @@
 import com.sk89q.worldedit.world.storage.ChunkStoreHelper;
 import com.sk89q.worldedit.world.storage.LegacyChunkStore;
 import com.sk89q.worldedit.world.storage.McRegionChunkStore;
-import com.sk89q.worldedit.world.storage.McRegionReader;
 import com.sk89q.worldedit.world.storage.MissingChunkException;
+import com.sk89q.worldedit.world.storage.RegionFileCache;
 
 import javax.annotation.Nullable;
 import java.io.IOException;
-import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Optional;
@@ -130,6 +130,11 @@ private Optional<Path> getRegionFolder() throws IOException {
 
     @Override
     public CompoundTag getChunkTag(BlockVector3 position) throws DataException, IOException {
+        return getChunkTag(position, NBTFilter.ALL);
+    }
+
+    @Override
+    public CompoundTag getChunkTag(BlockVector3 position, NBTFilter filter) throws DataException, IOException {
         BlockVector2 pos = position.toBlockVector2();
         Optional<Path> regFolder = getRegionFolder();
         if (!regFolder.isPresent()) {
@@ -138,7 +143,7 @@ public CompoundTag getChunkTag(BlockVector3 position) throws DataException, IOEx
                 throw new MissingChunkException();
             }
             return ChunkStoreHelper.readCompoundTag(() ->
-                new GZIPInputStream(Files.newInputStream(chunkFile))
+                new GZIPInputStream(Files.newInputStream(chunkFile)), filter
             );
         }
         Path regionFile = regFolder.get().resolve(McRegionChunkStore.getFilename(pos));
@@ -151,14 +156,15 @@ public CompoundTag getChunkTag(BlockVector3 position) throws DataException, IOEx
                 throw new MissingChunkException();
             }
         }
-        try (InputStream stream = Files.newInputStream(regionFile)) {
-            McRegionReader regionReader = new McRegionReader(stream);
-            return ChunkStoreHelper.readCompoundTag(() -> regionReader.getChunkInputStream(pos));
-        }
+        Path finalRegionFile = regionFile;
+        return ChunkStoreHelper.readCompoundTag(() ->
+            RegionFileCache.getShared().getChunkInputStream(finalRegionFile, pos), filter
+        );
     }
 
     @Override
     public void close() throws IOException {
+        RegionFileCache.getShared().invalidateUnder(folder);
         if (closeCallback != null) {
             closeCallback.close();
         }
@@ -20,6 +20,8 @@
 package com.sk89q.worldedit.world.storage;
 
 import com.sk89q.jnbt.CompoundTag;
+import com.sk89q.jnbt.NBTFilter;
+import com.sk89q.worldedit.math.BitMath;
 import com.sk89q.worldedit.math.BlockVector2;
 import com.sk89q.worldedit.math.BlockVector3;
 import com.sk89q.worldedit.world.DataException;
@@ -66,6 +68,24 @@ public static BlockVector2 toChunk(BlockVector3 position) {
         return BlockVector2.at(position.getX() >> CHUNK_SHIFTS, position.getZ() >> CHUNK_SHIFTS);
     }
 
+    /**
+     * Pack the coordinates of a 16*16*16 chunk cube into a long, using the
+     * layout of {@link BlockVector3#toLongPackedForm()}. Unlike block
+     * positions, negative Y values are allowed. The result can be unpacked
+     * with {@link BlockVector3#fromLongPackedForm(long)}.
+     *
+     * @param x the chunk cube X
+     * @param y the chunk cube Y
+     * @param z the chunk cube Z
+     * @return the packed chunk cube
+     */
+    public static long packChunkCube(int x, int y, int z) {
+        return (x & CUBE_BITS_XZ) | ((z & CUBE_BITS_XZ) << 26) | ((y & CUBE_BITS_Y) << (26 + 26));
+    }
+
+    private static final long CUBE_BITS_XZ = BitMath.mask(26);
+    private static final long CUBE_BITS_Y = BitMath.mask(12);
+
     /**
      * Get the tag for a chunk.
      *
@@ -76,6 +96,20 @@ public static BlockVector2 toChunk(BlockVector3 position) {
      */
     public abstract CompoundTag getChunkTag(BlockVector2 position, World world) throws DataException, IOException;
 
+    /**
+     * Get the tag for a chunk, leaving out the tags that the filter doesn't
+     * accept. Stores that can't filter while reading return the whole tag.
+     *
+     * @param position the position of the chunk
+     * @param filter the filter
+     * @return tag
+     * @throws DataException thrown on data error
+     * @throws IOException thrown on I/O error
+     */
+    public CompoundTag getChunkTag(BlockVector2 position, World world, NBTFilter filter) throws DataException, IOException {
+        return getChunkTag(position, world);
+    }
+
     /**
      * Get a chunk at a location.
      *
@@ -86,7 +120,7 @@ public static BlockVector2 toChunk(BlockVector3 position) {
      * @throws IOException thrown on I/O error
      */
     public Chunk getChunk(BlockVector2 position, World world) throws DataException, IOException {
-        CompoundTag rootTag = getChunkTag(position, world);
+        CompoundTag rootTag = getChunkTag(position, world, ChunkStoreHelper.BLOCKS_FILTER);
         return ChunkStoreHelper.getChunk(rootTag);
     }
 
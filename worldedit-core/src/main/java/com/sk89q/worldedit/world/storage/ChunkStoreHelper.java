@@ -20,6 +20,7 @@
 package com.sk89q.worldedit.world.storage;
 
 import com.sk89q.jnbt.CompoundTag;
+import com.sk89q.jnbt.NBTFilter;
 import com.sk89q.jnbt.NBTInputStream;
 import com.sk89q.jnbt.Tag;
 import com.sk89q.worldedit.WorldEdit;
@@ -45,10 +46,35 @@ public interface ChunkDataInputSupplier {
 
     }
 
+    /**
+     * A filter that skips the parts of a chunk tag that aren't needed to
+     * read its blocks and tile entities, such as entities, lighting and
+     * scheduled ticks.
+     */
+    public static final NBTFilter BLOCKS_FILTER = NBTFilter.skipping(
+        "Level.Entities", "Level.TileTicks", "Level.LiquidTicks", "Level.Heightmaps",
+        "Level.HeightMap", "Level.Lights", "Level.PostProcessing", "Level.Structures",
+        "Level.CarvingMasks", "Level.ToBeTicked", "Level.LiquidsToBeTicked", "Level.Biomes",
+        "Level.SkyLight", "Level.BlockLight", "Level.Sections.SkyLight", "Level.Sections.BlockLight"
+    );
+
     public static CompoundTag readCompoundTag(ChunkDataInputSupplier input) throws DataException, IOException {
+        return readCompoundTag(input, NBTFilter.ALL);
+    }
+
+    /**
+     * Read a chunk tag, skipping the tags that the filter doesn't accept.
+     *
+     * @param input the supplier of the chunk data
+     * @param filter the filter
+     * @return the chunk tag
+     * @throws DataException if the data is not a compound tag
+     * @throws IOException on I/O error
+     */
+    public static CompoundTag readCompoundTag(ChunkDataInputSupplier input, NBTFilter filter) throws DataException, IOException {
         try (InputStream stream = input.openInputStream();
              NBTInputStream nbt = new NBTInputStream(stream)) {
-            Tag tag = nbt.readNamedTag().getTag();
+            Tag tag = nbt.readNamedTag(filter).getTag();
             if (!(tag instanceof CompoundTag)) {
                 throw new ChunkStoreException("CompoundTag expected for chunk; got "
                     + tag.getClass().getName());
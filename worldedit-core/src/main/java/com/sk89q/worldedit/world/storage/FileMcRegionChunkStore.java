@@ -26,11 +26,16 @@
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
 import java.util.regex.Pattern;
 
 public class FileMcRegionChunkStore extends McRegionChunkStore {
 
     private File path;
+    private Map<String, File> regionFiles;
 
     /**
      * Create an instance. The passed path is the folder to read the
@@ -44,29 +49,53 @@ public FileMcRegionChunkStore(File path) {
 
     @Override
     protected InputStream getInputStream(String name, String world) throws IOException, DataException {
-        Pattern ext = Pattern.compile(".*\\.mc[ra]$"); // allow either file extension, both work the same
-        File file = null;
-        File[] files = new File(path, "region").listFiles();
+        try {
+            return new FileInputStream(findFile(name));
+        } catch (FileNotFoundException e) {
+            throw new MissingChunkException();
+        }
+    }
 
-        if (files == null) {
-            throw new FileNotFoundException();
+    @Override
+    protected Path getRegionFile(String name, String worldName) throws IOException, DataException {
+        return findFile(name).toPath().toAbsolutePath();
+    }
+
+    private File findFile(String name) throws IOException, DataException {
+        File file = getRegionFiles().get(name.toLowerCase(Locale.ROOT));
+        if (file == null) {
+            throw new MissingChunkException();
         }
+        return file;
+    }
 
-        for (File f : files) {
-            String tempName = f.getName().replaceFirst("mcr$", "mca"); // matcher only does one at a time
-            if (ext.matcher(f.getName()).matches() && name.equalsIgnoreCase(tempName)) {
-                // get full original path now
-                file = new File(path + File.separator + "region" + File.separator + f.getName());
-                break;
+    private synchronized Map<String, File> getRegionFiles() throws IOException {
+        if (regionFiles == null) {
+            Pattern ext = Pattern.compile(".*\\.mc[ra]$"); // allow either file extension, both work the same
+            File[] files = new File(path, "region").listFiles();
+
+            if (files == null) {
+                throw new FileNotFoundException();
             }
-        }
 
-        try {
-            if (file == null) throw new FileNotFoundException();
-            return new FileInputStream(file);
-        } catch (FileNotFoundException e) {
-            throw new MissingChunkException();
+            Map<String, File> found = new HashMap<>();
+            for (File f : files) {
+                String tempName = f.getName().replaceFirst("mcr$", "mca"); // matcher only does one at a time
+                if (ext.matcher(f.getName()).matches()) {
+                    // get full original path now
+                    found.putIfAbsent(tempName.toLowerCase(Locale.ROOT),
+                            new File(path + File.separator + "region" + File.separator + f.getName()));
+                }
+            }
+            regionFiles = found;
         }
+        return regionFiles;
+    }
+
+    @Override
+    public void close() throws IOException {
+        super.close();
+        RegionFileCache.getShared().invalidateUnder(path.toPath().toAbsolutePath());
     }
 
     @Override
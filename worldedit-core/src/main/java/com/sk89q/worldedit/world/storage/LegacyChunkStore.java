@@ -20,6 +20,7 @@
 package com.sk89q.worldedit.world.storage;
 
 import com.sk89q.jnbt.CompoundTag;
+import com.sk89q.jnbt.NBTFilter;
 import com.sk89q.worldedit.math.BlockVector2;
 import com.sk89q.worldedit.world.DataException;
 import com.sk89q.worldedit.world.World;
@@ -68,6 +69,11 @@ public static String getFilename(BlockVector2 position) {
 
     @Override
     public CompoundTag getChunkTag(BlockVector2 position, World world) throws DataException, IOException {
+        return getChunkTag(position, world, NBTFilter.ALL);
+    }
+
+    @Override
+    public CompoundTag getChunkTag(BlockVector2 position, World world, NBTFilter filter) throws DataException, IOException {
         int x = position.getBlockX();
         int z = position.getBlockZ();
 
@@ -77,7 +83,7 @@ public CompoundTag getChunkTag(BlockVector2 position, World world) throws DataEx
                 + "." + Integer.toString(z, 36) + ".dat";
 
         return ChunkStoreHelper.readCompoundTag(() ->
-            new GZIPInputStream(getInputStream(folder1, folder2, filename))
+            new GZIPInputStream(getInputStream(folder1, folder2, filename)), filter
         );
     }
 
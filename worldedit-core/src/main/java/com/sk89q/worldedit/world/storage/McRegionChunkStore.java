@@ -20,12 +20,16 @@
 package com.sk89q.worldedit.world.storage;
 
 import com.sk89q.jnbt.CompoundTag;
+import com.sk89q.jnbt.NBTFilter;
 import com.sk89q.worldedit.math.BlockVector2;
 import com.sk89q.worldedit.world.DataException;
 import com.sk89q.worldedit.world.World;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Path;
+
+import javax.annotation.Nullable;
 
 public abstract class McRegionChunkStore extends ChunkStore {
 
@@ -59,17 +63,30 @@ protected McRegionReader getReader(BlockVector2 pos, String worldname) throws Da
         }
         InputStream stream = getInputStream(filename, worldname);
         cachedReader = new McRegionReader(stream);
+        // The reader can only seek forward, so it can't be reused for the next chunk.
+        // Stores with region files on disk go through the RegionFileCache instead.
         //curFilename = filename;
         return cachedReader;
     }
 
     @Override
     public CompoundTag getChunkTag(BlockVector2 position, World world) throws DataException, IOException {
+        return getChunkTag(position, world, NBTFilter.ALL);
+    }
+
+    @Override
+    public CompoundTag getChunkTag(BlockVector2 position, World world, NBTFilter filter) throws DataException, IOException {
+        Path regionFile = getRegionFile(getFilename(position), world.getName());
+        if (regionFile != null) {
+            return ChunkStoreHelper.readCompoundTag(() ->
+                RegionFileCache.getShared().getChunkInputStream(regionFile, position), filter
+            );
+        }
         return ChunkStoreHelper.readCompoundTag(() -> {
             McRegionReader reader = getReader(position, world.getName());
 
             return reader.getChunkInputStream(position);
-        });
+        }, filter);
     }
 
     /**
@@ -82,6 +99,24 @@ public CompoundTag getChunkTag(BlockVector2 position, World world) throws DataEx
      */
     protected abstract InputStream getInputStream(String name, String worldName) throws IOException, DataException;
 
+    /**
+     * Get the path of a region file, if this store reads region files from
+     * a file system that supports random access.
+     *
+     * <p>Chunks in such files are read through the shared
+     * {@link RegionFileCache}, instead of {@link #getInputStream(String, String)}.</p>
+     *
+     * @param name the name of the region file
+     * @param worldName the world name
+     * @return the path, or {@code null} to read chunks from a stream
+     * @throws IOException
+     * @throws DataException
+     */
+    @Nullable
+    protected Path getRegionFile(String name, String worldName) throws IOException, DataException {
+        return null;
+    }
+
     @Override
     public void close() throws IOException {
         if (cachedReader != null) {
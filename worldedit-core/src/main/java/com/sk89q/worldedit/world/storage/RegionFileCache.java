@@ -0,0 +1,349 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.world.storage;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.sk89q.worldedit.math.BlockVector2;
+import com.sk89q.worldedit.world.DataException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Keeps recently used MCRegion files open, so that chunks can be read from
+ * them without opening the file and parsing its header every time.
+ *
+ * <p>Files are kept as channels, and chunks are read with positional reads,
+ * so several threads can read from the same file at once. When more files
+ * are open than the cache allows, the least recently used one is closed
+ * once nobody is reading from it anymore.</p>
+ */
+public class RegionFileCache {
+
+    private static final Logger log = LoggerFactory.getLogger(RegionFileCache.class);
+
+    private static final RegionFileCache shared = new RegionFileCache(16);
+
+    /**
+     * Get the cache shared by the snapshot and chunk store code.
+     *
+     * @return the shared cache
+     */
+    public static RegionFileCache getShared() {
+        return shared;
+    }
+
+    private final int capacity;
+    private final ChannelOpener opener;
+    private final LinkedHashMap<Path, RegionFile> files;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Create a new cache.
+     *
+     * @param capacity the number of files to keep open
+     */
+    public RegionFileCache(int capacity) {
+        this(capacity, path -> Files.newByteChannel(path, StandardOpenOption.READ));
+    }
+
+    @VisibleForTesting
+    RegionFileCache(int capacity, ChannelOpener opener) {
+        checkArgument(capacity > 0, "capacity must be positive");
+        checkNotNull(opener);
+        this.capacity = capacity;
+        this.opener = opener;
+        this.files = new LinkedHashMap<Path, RegionFile>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Path, RegionFile> eldest) {
+                if (size() > RegionFileCache.this.capacity) {
+                    evictions.incrementAndGet();
+                    retire(eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Gets the uncompressed data input stream for a chunk.
+     *
+     * @param path the region file
+     * @param position chunk position
+     * @return an input stream
+     * @throws IOException if the file can't be read
+     * @throws DataException if the chunk is missing or invalid
+     */
+    public InputStream getChunkInputStream(Path path, BlockVector2 position) throws IOException, DataException {
+        RegionFile file = acquire(path);
+        try {
+            return file.getChunkInputStream(position);
+        } finally {
+            release(file);
+        }
+    }
+
+    /**
+     * Close all open files inside the given directory.
+     *
+     * <p>This should be called once the files are no longer needed, such
+     * as when a snapshot is closed, so that they aren't kept open.</p>
+     *
+     * @param directory the directory
+     */
+    public void invalidateUnder(Path directory) {
+        checkNotNull(directory);
+        List<RegionFile> removed = new ArrayList<>();
+        synchronized (this) {
+            Iterator<RegionFile> it = files.values().iterator();
+            while (it.hasNext()) {
+                RegionFile file = it.next();
+                if (file.path.startsWith(directory)) {
+                    it.remove();
+                    removed.add(file);
+                }
+            }
+            for (RegionFile file : removed) {
+                retire(file);
+            }
+        }
+        if (!removed.isEmpty()) {
+            log.debug("Closed {} region files under {} ({} hits, {} misses so far)",
+                    removed.size(), directory, getHits(), getMisses());
+        }
+    }
+
+    /**
+     * Get the number of reads that found their file already open.
+     *
+     * @return the number of hits
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Get the number of reads that had to open their file.
+     *
+     * @return the number of misses
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Get the number of files that were closed to make room for others.
+     *
+     * @return the number of evictions
+     */
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    /**
+     * Get the number of files that are currently open.
+     *
+     * @return the number of open files
+     */
+    public synchronized int getOpenFileCount() {
+        return files.size();
+    }
+
+    private RegionFile acquire(Path path) throws IOException {
+        synchronized (this) {
+            RegionFile file = files.get(path);
+            if (file != null) {
+                hits.incrementAndGet();
+                file.users++;
+                return file;
+            }
+        }
+        misses.incrementAndGet();
+        RegionFile opened = RegionFile.open(path, opener);
+        synchronized (this) {
+            RegionFile file = files.get(path);
+            if (file == null) {
+                file = opened;
+                files.put(path, file);
+            } else {
+                // another thread opened it first
+                opened.close();
+            }
+            file.users++;
+            return file;
+        }
+    }
+
+    private synchronized void release(RegionFile file) {
+        file.users--;
+        if (file.retired && file.users == 0) {
+            file.close();
+        }
+    }
+
+    // must hold the lock
+    private void retire(RegionFile file) {
+        file.retired = true;
+        if (file.users == 0) {
+            file.close();
+        }
+    }
+
+    /**
+     * Opens the channel of a region file.
+     */
+    @VisibleForTesting
+    interface ChannelOpener {
+
+        SeekableByteChannel open(Path path) throws IOException;
+
+    }
+
+    private static final class RegionFile {
+
+        private final Path path;
+        private final SeekableByteChannel channel;
+        private final int[] offsets = new int[McRegionReader.SECTOR_INTS];
+        // guarded by the cache
+        private int users;
+        private boolean retired;
+
+        static RegionFile open(Path path, ChannelOpener opener) throws IOException {
+            SeekableByteChannel channel = opener.open(path);
+            try {
+                return new RegionFile(path, channel);
+            } catch (IOException | RuntimeException e) {
+                try {
+                    channel.close();
+                } catch (IOException ignored) {
+                }
+                throw e;
+            }
+        }
+
+        private RegionFile(Path path, SeekableByteChannel channel) throws IOException {
+            this.path = path;
+            this.channel = channel;
+            ByteBuffer header = ByteBuffer.allocate(McRegionReader.SECTOR_BYTES);
+            read(header, 0);
+            header.flip();
+            header.asIntBuffer().get(offsets);
+        }
+
+        private void read(ByteBuffer buffer, long position) throws IOException {
+            if (channel instanceof FileChannel) {
+                FileChannel fileChannel = (FileChannel) channel;
+                long offset = position;
+                while (buffer.hasRemaining()) {
+                    int read = fileChannel.read(buffer, offset);
+                    if (read < 0) {
+                        throw new EOFException();
+                    }
+                    offset += read;
+                }
+            } else {
+                synchronized (channel) {
+                    channel.position(position);
+                    while (buffer.hasRemaining()) {
+                        if (channel.read(buffer) < 0) {
+                            throw new EOFException();
+                        }
+                    }
+                }
+            }
+        }
+
+        InputStream getChunkInputStream(BlockVector2 position) throws IOException, DataException {
+            int x = position.getBlockX() & 31;
+            int z = position.getBlockZ() & 31;
+
+            int offset = offsets[x + z * 32];
+
+            // The chunk hasn't been generated
+            if (offset == 0) {
+                throw new DataException("The chunk at " + x + "," + z + " is not generated");
+            }
+
+            int sectorNumber = offset >> 8;
+            int numSectors = offset & 0xFF;
+            long start = (long) sectorNumber * McRegionReader.SECTOR_BYTES;
+
+            ByteBuffer header = ByteBuffer.allocate(McRegionReader.CHUNK_HEADER_SIZE);
+            read(header, start);
+            header.flip();
+            int length = header.getInt();
+            byte version = header.get();
+
+            if (length < 1 || length > McRegionReader.SECTOR_BYTES * numSectors) {
+                throw new DataException("MCRegion chunk at "
+                        + x + "," + z + " has an invalid length of " + length);
+            }
+
+            byte[] data = new byte[length - 1];
+            try {
+                read(ByteBuffer.wrap(data), start + McRegionReader.CHUNK_HEADER_SIZE);
+            } catch (EOFException e) {
+                throw new DataException("MCRegion file does not contain "
+                        + x + "," + z + " in full");
+            }
+
+            if (version == McRegionReader.VERSION_GZIP) {
+                return new GZIPInputStream(new ByteArrayInputStream(data));
+            } else if (version == McRegionReader.VERSION_DEFLATE) {
+                return new InflaterInputStream(new ByteArrayInputStream(data));
+            } else {
+                throw new DataException("MCRegion chunk at "
+                        + x + "," + z + " has an unsupported version of " + version);
+            }
+        }
+
+        void close() {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+}
@@ -0,0 +1,99 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.jnbt;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayName("An NBT stream reader")
+class NBTStreamReaderTest {
+
+    private static CompoundTag createChunk() {
+        CompoundTag section = new CompoundTag(ImmutableMap.of(
+            "Y", new ByteTag((byte) 3),
+            "SkyLight", new ByteArrayTag(new byte[2048]),
+            "Palette", new ListTag(StringTag.class, ImmutableList.of(new StringTag("a"), new StringTag("b")))
+        ));
+        CompoundTag level = new CompoundTag(ImmutableMap.of(
+            "Sections", new ListTag(CompoundTag.class, ImmutableList.of(section, section)),
+            "Entities", new ListTag(CompoundTag.class, ImmutableList.of(section)),
+            "Heightmap", new LongArrayTag(new long[] { 1, 2, 3 }),
+            "Motion", new ListTag(DoubleTag.class, ImmutableList.of(new DoubleTag(1), new DoubleTag(2)))
+        ));
+        return new CompoundTag(ImmutableMap.of("Level", level, "DataVersion", new IntTag(1519)));
+    }
+
+    private static byte[] write(CompoundTag tag) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (NBTOutputStream out = new NBTOutputStream(bytes)) {
+            out.writeNamedTag("", tag);
+        }
+        return bytes.toByteArray();
+    }
+
+    @Test
+    @DisplayName("reads the same tree as was written")
+    void roundTrip() throws IOException {
+        CompoundTag chunk = createChunk();
+        NamedTag read = new NBTInputStream(new ByteArrayInputStream(write(chunk))).readNamedTag();
+        assertEquals("", read.getName());
+        assertEquals(chunk.toString(), read.getTag().toString());
+    }
+
+    @Test
+    @DisplayName("leaves out the tags that the filter skips")
+    void filtered() throws IOException {
+        NBTFilter filter = NBTFilter.skipping("Level.Entities", "Level.Sections.SkyLight");
+        CompoundTag read = (CompoundTag) new NBTInputStream(new ByteArrayInputStream(write(createChunk())))
+            .readNamedTag(filter).getTag();
+        CompoundTag level = (CompoundTag) read.getValue().get("Level");
+        assertFalse(level.containsKey("Entities"));
+        assertTrue(level.containsKey("Heightmap"));
+        for (Tag section : level.getList("Sections")) {
+            assertFalse(((CompoundTag) section).containsKey("SkyLight"));
+            assertTrue(((CompoundTag) section).containsKey("Palette"));
+        }
+        assertEquals(1519, read.getInt("DataVersion"));
+    }
+
+    @Test
+    @DisplayName("skips a whole tag without reading past it")
+    void skip() throws IOException {
+        NBTStreamReader reader = new NBTStreamReader(new ByteArrayInputStream(write(createChunk())));
+        int type = reader.readTagHeader();
+        assertEquals(NBTConstants.TYPE_COMPOUND, type);
+        assertTrue(reader.nameEquals(""));
+        reader.skipPayload(type);
+        assertThrows(EOFException.class, reader::readByte);
+    }
+
+}
@@ -0,0 +1,147 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.extent;
+
+import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.extent.clipboard.SectionedClipboard;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.regions.CuboidRegion;
+import com.sk89q.worldedit.util.FakePlatform;
+import com.sk89q.worldedit.world.block.BaseBlock;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayName("A chunk section batch")
+class ChunkSectionBatchTest {
+
+    private static BaseBlock stone;
+    private static BaseBlock dirt;
+
+    @BeforeAll
+    static void setupFakePlatform() {
+        FakePlatform.setUp();
+        stone = FakePlatform.registerBlock("minecraft:stone").toBaseBlock();
+        dirt = FakePlatform.registerBlock("minecraft:dirt").toBaseBlock();
+    }
+
+    @AfterAll
+    static void tearDownFakePlatform() throws Exception {
+        FakePlatform.tearDown();
+    }
+
+    @Test
+    @DisplayName("orders section indices by Y, then Z, then X")
+    void sectionIndex() {
+        assertEquals(0, ChunkSectionBatch.getSectionIndex(0, 0, 0));
+        assertEquals(1, ChunkSectionBatch.getSectionIndex(1, 0, 0));
+        assertEquals(16, ChunkSectionBatch.getSectionIndex(0, 0, 1));
+        assertEquals(256, ChunkSectionBatch.getSectionIndex(0, 1, 0));
+        assertEquals(ChunkSectionBatch.SECTION_VOLUME - 1, ChunkSectionBatch.getSectionIndex(-1, -1, -1));
+        assertEquals(ChunkSectionBatch.getSectionIndex(3, 5, 7), ChunkSectionBatch.getSectionIndex(-13, 21, -25));
+    }
+
+    @Test
+    @DisplayName("gives back the positions and blocks that were added")
+    void positions() {
+        ChunkSectionBatch batch = new ChunkSectionBatch();
+        batch.reset(-2, 3, 5);
+        BlockVector3[] positions = {
+            BlockVector3.at(-32, 48, 80),
+            BlockVector3.at(-17, 63, 95),
+            BlockVector3.at(-20, 50, 90),
+        };
+        for (BlockVector3 position : positions) {
+            assertTrue(batch.isInSection(position.getX(), position.getY(), position.getZ()));
+            batch.add(ChunkSectionBatch.getSectionIndex(position.getX(), position.getY(), position.getZ()), stone);
+        }
+        batch.add(ChunkSectionBatch.getSectionIndex(-31, 48, 80), dirt);
+
+        assertEquals(4, batch.size());
+        for (int i = 0; i < positions.length; i++) {
+            assertEquals(positions[i], batch.getPosition(i));
+            assertEquals(stone, batch.getBlock(i));
+        }
+        assertEquals(BlockVector3.at(-31, 48, 80), batch.getPosition(3));
+        assertEquals(dirt, batch.getBlock(3));
+        assertFalse(batch.isInSection(-33, 48, 80));
+        assertFalse(batch.isInSection(-32, 64, 80));
+        assertFalse(batch.isInSection(-32, 48, 79));
+    }
+
+    @Test
+    @DisplayName("is emptied by a reset or a clear")
+    void reuse() {
+        ChunkSectionBatch batch = new ChunkSectionBatch();
+        batch.reset(0, 0, 0);
+        batch.add(5, stone);
+        batch.clear();
+        assertTrue(batch.isEmpty());
+        assertTrue(batch.isInSection(0, 0, 0));
+
+        batch.add(6, stone);
+        batch.reset(1, 1, 1);
+        assertTrue(batch.isEmpty());
+        assertEquals(1, batch.getChunkX());
+        assertEquals(1, batch.getSectionY());
+        assertEquals(1, batch.getChunkZ());
+        batch.add(7, dirt);
+        assertEquals(BlockVector3.at(23, 16, 16), batch.getPosition(0));
+        assertEquals(dirt, batch.getBlock(0));
+    }
+
+    @Test
+    @DisplayName("rejects indices outside of a section, and more blocks than a section has")
+    void bounds() {
+        ChunkSectionBatch batch = new ChunkSectionBatch();
+        assertThrows(IllegalArgumentException.class, () -> batch.add(-1, stone));
+        assertThrows(IllegalArgumentException.class, () -> batch.add(ChunkSectionBatch.SECTION_VOLUME, stone));
+        for (int i = 0; i < ChunkSectionBatch.SECTION_VOLUME; i++) {
+            batch.add(i, stone);
+        }
+        assertThrows(IllegalStateException.class, () -> batch.add(0, stone));
+    }
+
+    @Test
+    @DisplayName("is set block by block by extents without a bulk path")
+    void defaultSetBlocks() throws WorldEditException {
+        SectionedClipboard clipboard = new SectionedClipboard(
+            new CuboidRegion(BlockVector3.at(-16, 0, -16), BlockVector3.at(15, 15, 15)));
+        ChunkSectionBatch batch = new ChunkSectionBatch();
+        // outside of the clipboard
+        batch.reset(-2, 0, 0);
+        batch.add(ChunkSectionBatch.getSectionIndex(-17, 2, 3), stone);
+        assertEquals(0, clipboard.setBlocks(batch));
+
+        batch.reset(-1, 0, 0);
+        batch.add(ChunkSectionBatch.getSectionIndex(-1, 2, 3), stone);
+        batch.add(ChunkSectionBatch.getSectionIndex(-16, 15, 15), dirt);
+        assertEquals(2, clipboard.setBlocks(batch));
+        assertEquals(stone, clipboard.getFullBlock(BlockVector3.at(-1, 2, 3)));
+        assertEquals(dirt, clipboard.getFullBlock(BlockVector3.at(-16, 15, 15)));
+    }
+
+}
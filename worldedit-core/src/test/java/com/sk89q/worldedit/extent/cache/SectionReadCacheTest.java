@@ -0,0 +1,250 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.extent.cache;
+
+import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.extent.ChunkSectionBatch;
+import com.sk89q.worldedit.extent.Extent;
+import com.sk89q.worldedit.extent.clipboard.SectionedClipboard;
+import com.sk89q.worldedit.function.block.BlockDistributionCounter;
+import com.sk89q.worldedit.function.block.Counter;
+import com.sk89q.worldedit.function.mask.BlockTypeMask;
+import com.sk89q.worldedit.function.operation.Operations;
+import com.sk89q.worldedit.function.visitor.ParallelRegionVisitor;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.regions.CuboidRegion;
+import com.sk89q.worldedit.util.Countable;
+import com.sk89q.worldedit.util.FakePlatform;
+import com.sk89q.worldedit.world.block.BlockState;
+import com.sk89q.worldedit.world.block.BlockTypes;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DisplayName("A section read cache")
+class SectionReadCacheTest {
+
+    private static BlockState stone;
+    private static BlockState dirt;
+
+    @BeforeAll
+    static void setupFakePlatform() {
+        FakePlatform.setUp();
+        stone = FakePlatform.registerBlock("minecraft:stone");
+        dirt = FakePlatform.registerBlock("minecraft:dirt");
+    }
+
+    @AfterAll
+    static void tearDownFakePlatform() throws Exception {
+        FakePlatform.tearDown();
+    }
+
+    private final BlockState air = checkNotNull(BlockTypes.AIR).getDefaultState();
+    private final ForkJoinPool pool = new ForkJoinPool(4);
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+    }
+
+    private SectionedClipboard createWorld() {
+        return new SectionedClipboard(new CuboidRegion(BlockVector3.at(-32, 0, -32), BlockVector3.at(31, 63, 31)));
+    }
+
+    @Test
+    @DisplayName("answers repeated reads from the cache")
+    void repeatedReads() throws WorldEditException {
+        SectionedClipboard world = createWorld();
+        BlockVector3 position = BlockVector3.at(-3, 20, 5);
+        world.setBlock(position, stone);
+        SectionReadCache cache = new SectionReadCache(world);
+
+        assertEquals(stone, cache.getBlock(position));
+        assertEquals(air, cache.getBlock(position.add(1, 0, 0)));
+        assertEquals(stone, cache.getBlock(position));
+        assertEquals(air, cache.getBlock(position.add(1, 0, 0)));
+        assertEquals(2, cache.getMisses());
+        assertEquals(2, cache.getHits());
+        assertEquals(0.5, cache.getHitRate());
+    }
+
+    @Test
+    @DisplayName("reads blocks again after they are written through it")
+    void invalidatedByWrites() throws WorldEditException {
+        SectionedClipboard world = createWorld();
+        BlockVector3 position = BlockVector3.at(7, 40, -9);
+        SectionReadCache cache = new SectionReadCache(world);
+        assertEquals(air, cache.getBlock(position));
+
+        cache.setBlock(position, stone);
+        assertEquals(stone, cache.getBlock(position));
+
+        ChunkSectionBatch batch = new ChunkSectionBatch();
+        batch.reset(position.getX() >> 4, position.getY() >> 4, position.getZ() >> 4);
+        batch.add(ChunkSectionBatch.getSectionIndex(position.getX(), position.getY(), position.getZ()), dirt.toBaseBlock());
+        cache.setBlocks(batch);
+        assertEquals(dirt, cache.getBlock(position));
+        assertEquals(0, cache.getHits());
+    }
+
+    @Test
+    @DisplayName("reads the rest of a section at once after many misses in it")
+    void fillsBusySections() throws WorldEditException {
+        SectionedClipboard world = createWorld();
+        BlockVector3 position = BlockVector3.at(15, 31, 15);
+        world.setBlock(position, stone);
+        SectionReadCache cache = new SectionReadCache(world);
+        for (int i = 0; i < 64; i++) {
+            cache.getBlock(BlockVector3.at(i & 15, 16, i >> 4));
+        }
+        assertEquals(64, cache.getMisses());
+
+        assertEquals(stone, cache.getBlock(position));
+        assertEquals(air, cache.getBlock(BlockVector3.at(8, 24, 8)));
+        assertEquals(64, cache.getMisses());
+        assertEquals(2, cache.getHits());
+    }
+
+    @Test
+    @DisplayName("drops the least recently used section when full")
+    void bounded() {
+        SectionedClipboard world = createWorld();
+        SectionReadCache cache = new SectionReadCache(world, 2);
+        BlockVector3 first = BlockVector3.at(0, 0, 0);
+        cache.getBlock(first);
+        cache.getBlock(BlockVector3.at(16, 0, 0));
+        cache.getBlock(BlockVector3.at(0, 16, 0));
+        cache.getBlock(first);
+        assertEquals(0, cache.getHits());
+        assertEquals(4, cache.getMisses());
+    }
+
+    private SectionedClipboard createFilledWorld() throws WorldEditException {
+        SectionedClipboard world = createWorld();
+        for (BlockVector3 position : world.getRegion()) {
+            int hash = position.getX() * 31 + position.getY() * 7 + position.getZ() * 13;
+            if ((hash & 3) == 0) {
+                world.setBlock(position, stone);
+            } else if ((hash & 3) == 1) {
+                world.setBlock(position, dirt);
+            }
+        }
+        return world;
+    }
+
+    private int countStone(Extent extent, ForkJoinPool pool) {
+        Counter counter = new Counter(new BlockTypeMask(extent, stone.getBlockType()));
+        Operations.completeBlindly(new ParallelRegionVisitor(createWorld().getRegion(), counter, pool));
+        return counter.getCount();
+    }
+
+    @Test
+    @DisplayName("can be read from several threads at once")
+    void parallelReads() throws WorldEditException {
+        SectionedClipboard world = createFilledWorld();
+        int expected = countStone(world, pool);
+        assertEquals(world.getRegion().getArea() / 4, expected);
+
+        // owned by this thread while the pool reads through it
+        SectionReadCache owned = new SectionReadCache(world);
+        owned.getBlock(BlockVector3.at(0, 0, 0));
+        assertEquals(expected, countStone(owned, pool));
+
+        // claimed by one of the pool's threads
+        SectionReadCache unowned = new SectionReadCache(world);
+        for (int i = 0; i < 5; i++) {
+            assertEquals(expected, countStone(unowned, pool));
+        }
+
+        BlockDistributionCounter sequential = new BlockDistributionCounter(world, false);
+        sequential.countRegion(world.getRegion());
+        BlockDistributionCounter parallel = new BlockDistributionCounter(unowned, false);
+        Operations.completeBlindly(new ParallelRegionVisitor(world.getRegion(), parallel, pool));
+        assertEquals(toMap(sequential.getDistribution()), toMap(parallel.getDistribution()));
+    }
+
+    private static Map<BlockState, Integer> toMap(List<Countable<BlockState>> distribution) {
+        Map<BlockState, Integer> map = new HashMap<>();
+        for (Countable<BlockState> countable : distribution) {
+            map.put(countable.getID(), countable.getAmount());
+        }
+        return map;
+    }
+
+    @Test
+    @DisplayName("drops the cache after writes from other threads")
+    void writesFromOtherThreads() throws Exception {
+        SectionedClipboard world = createWorld();
+        BlockVector3 position = BlockVector3.at(3, 3, 3);
+        SectionReadCache cache = new SectionReadCache(world);
+        assertEquals(air, cache.getBlock(position));
+
+        pool.submit(() -> cache.setBlock(position, stone)).get();
+        assertEquals(stone, cache.getBlock(position));
+        assertEquals(0, cache.getHits());
+    }
+
+    @Test
+    @DisplayName("updates the cached state when reading a full block")
+    void fullBlockReads() throws WorldEditException {
+        SectionedClipboard world = createWorld();
+        BlockVector3 position = BlockVector3.at(-10, 50, 20);
+        SectionReadCache cache = new SectionReadCache(world);
+        assertEquals(air, cache.getBlock(position));
+
+        // changed below the cache, e.g. by a block update
+        world.setBlock(position, dirt);
+        assertEquals(air, cache.getBlock(position));
+        assertEquals(dirt.toBaseBlock(), cache.getFullBlock(position));
+        assertEquals(dirt, cache.getBlock(position));
+    }
+
+    @Test
+    @DisplayName("can be used by another thread after its owner clears it")
+    void handOver() throws Exception {
+        SectionedClipboard world = createWorld();
+        BlockVector3 position = BlockVector3.at(1, 2, 3);
+        SectionReadCache cache = new SectionReadCache(world);
+        cache.getBlock(position);
+        cache.clear();
+
+        pool.submit(() -> {
+            cache.getBlock(position);
+            cache.getBlock(position);
+        }).get();
+        assertEquals(1, cache.getHits());
+
+        // not the owner any more, so this is read from the world
+        world.setBlock(position, stone);
+        assertEquals(stone, cache.getBlock(position));
+        assertEquals(1, cache.getHits());
+    }
+
+}
@@ -0,0 +1,116 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.extent.clipboard;
+
+import com.google.common.collect.ImmutableMap;
+import com.sk89q.jnbt.CompoundTag;
+import com.sk89q.jnbt.StringTag;
+import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.extent.Extent;
+import com.sk89q.worldedit.internal.block.BlockStateIdAccess;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.math.Vector2;
+import com.sk89q.worldedit.regions.CuboidRegion;
+import com.sk89q.worldedit.regions.CylinderRegion;
+import com.sk89q.worldedit.regions.Region;
+import com.sk89q.worldedit.util.FakePlatform;
+import com.sk89q.worldedit.world.block.BlockState;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DisplayName("A block array clipboard")
+class BlockArrayClipboardTest {
+
+    private static final int STATE_COUNT = 10;
+
+    private static final List<BlockState> states = new ArrayList<>();
+
+    @BeforeAll
+    static void setupFakePlatform() {
+        FakePlatform.setUp();
+        for (int i = 0; i < STATE_COUNT; i++) {
+            states.add(FakePlatform.registerBlock("worldedit:test_" + i));
+        }
+    }
+
+    @AfterAll
+    static void tearDownFakePlatform() throws Exception {
+        FakePlatform.tearDown();
+    }
+
+    private static void fill(BlockArrayClipboard clipboard) throws WorldEditException {
+        int i = 0;
+        for (BlockVector3 position : clipboard.getRegion()) {
+            if (i % 11 == 0) {
+                clipboard.setBlock(position, states.get(i % STATE_COUNT)
+                    .toBaseBlock(new CompoundTag(ImmutableMap.of("id", new StringTag("test")))));
+            } else if (i % 3 != 0) {
+                clipboard.setBlock(position, states.get(i % STATE_COUNT));
+            }
+            i++;
+        }
+    }
+
+    /**
+     * Assert that a bulk read of a cuboid gives the IDs of single reads.
+     */
+    static void assertBulkReadMatches(Extent extent, BlockVector3 min, BlockVector3 max) {
+        BlockVector3 size = max.subtract(min).add(1, 1, 1);
+        int[] ids = new int[size.getBlockX() * size.getBlockY() * size.getBlockZ()];
+        extent.getBlockStateIds(min, max, ids);
+        int index = 0;
+        for (int y = min.getBlockY(); y <= max.getBlockY(); y++) {
+            for (int z = min.getBlockZ(); z <= max.getBlockZ(); z++) {
+                for (int x = min.getBlockX(); x <= max.getBlockX(); x++) {
+                    BlockVector3 position = BlockVector3.at(x, y, z);
+                    assertEquals(BlockStateIdAccess.getBlockStateId(extent.getBlock(position)), ids[index++],
+                        "ID at " + position);
+                }
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("reads block state IDs of a cuboid in bulk like single blocks")
+    void bulkReadCuboid() throws WorldEditException {
+        BlockArrayClipboard clipboard = new BlockArrayClipboard(
+            new CuboidRegion(BlockVector3.at(-5, 10, 3), BlockVector3.at(20, 40, 20)));
+        fill(clipboard);
+        // overlaps the clipboard, so some of the cuboid is outside of it
+        assertBulkReadMatches(clipboard, BlockVector3.at(-8, 9, 2), BlockVector3.at(12, 30, 25));
+    }
+
+    @Test
+    @DisplayName("reads block state IDs of a cylinder in bulk like single blocks")
+    void bulkReadCylinder() throws WorldEditException {
+        Region region = new CylinderRegion(BlockVector3.at(4, 0, -3), Vector2.at(9.5, 6), 5, 24);
+        BlockArrayClipboard clipboard = new BlockArrayClipboard(region);
+        fill(clipboard);
+        assertBulkReadMatches(clipboard, region.getMinimumPoint().subtract(1, 1, 1), region.getMaximumPoint().add(1, 1, 1));
+    }
+
+}
@@ -0,0 +1,184 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.extent.clipboard;
+
+import com.google.common.collect.ImmutableMap;
+import com.sk89q.jnbt.CompoundTag;
+import com.sk89q.jnbt.StringTag;
+import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.internal.block.BlockStateIdAccess;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.regions.CuboidRegion;
+import com.sk89q.worldedit.util.FakePlatform;
+import com.sk89q.worldedit.world.block.BaseBlock;
+import com.sk89q.worldedit.world.block.BlockState;
+import com.sk89q.worldedit.world.block.BlockTypes;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayName("A sectioned clipboard")
+class SectionedClipboardTest {
+
+    private static final int STATE_COUNT = 40;
+
+    private static final List<BlockState> states = new ArrayList<>();
+
+    @BeforeAll
+    static void setupFakePlatform() {
+        FakePlatform.setUp();
+        for (int i = 0; i < STATE_COUNT; i++) {
+            states.add(FakePlatform.registerBlock("worldedit:test_" + i));
+        }
+    }
+
+    @AfterAll
+    static void tearDownFakePlatform() throws Exception {
+        FakePlatform.tearDown();
+    }
+
+    private final BlockState air = checkNotNull(BlockTypes.AIR).getDefaultState();
+
+    private SectionedClipboard createClipboard() {
+        return new SectionedClipboard(new CuboidRegion(BlockVector3.at(-5, 10, 3), BlockVector3.at(36, 50, 20)));
+    }
+
+    @Test
+    @DisplayName("returns air where nothing was set")
+    void emptyIsAir() {
+        SectionedClipboard clipboard = createClipboard();
+        assertEquals(air, clipboard.getBlock(BlockVector3.at(0, 20, 10)));
+        assertEquals(air.toBaseBlock(), clipboard.getFullBlock(BlockVector3.at(0, 20, 10)));
+    }
+
+    @Test
+    @DisplayName("rejects blocks outside of its region")
+    void outsideRegion() throws WorldEditException {
+        SectionedClipboard clipboard = createClipboard();
+        assertFalse(clipboard.setBlock(BlockVector3.at(37, 20, 10), states.get(0)));
+        assertEquals(air, clipboard.getBlock(BlockVector3.at(37, 20, 10)));
+    }
+
+    @Test
+    @DisplayName("stores more states than fit in the initial palette")
+    void paletteGrowth() throws WorldEditException {
+        SectionedClipboard clipboard = createClipboard();
+        BlockVector3 min = clipboard.getMinimumPoint();
+        BlockVector3 max = clipboard.getMaximumPoint();
+        int i = 0;
+        for (int y = min.getBlockY(); y <= max.getBlockY(); y++) {
+            for (int z = min.getBlockZ(); z <= max.getBlockZ(); z++) {
+                for (int x = min.getBlockX(); x <= max.getBlockX(); x++) {
+                    assertTrue(clipboard.setBlock(BlockVector3.at(x, y, z), states.get(i++ % STATE_COUNT)));
+                }
+            }
+        }
+        i = 0;
+        for (int y = min.getBlockY(); y <= max.getBlockY(); y++) {
+            for (int z = min.getBlockZ(); z <= max.getBlockZ(); z++) {
+                for (int x = min.getBlockX(); x <= max.getBlockX(); x++) {
+                    assertEquals(states.get(i++ % STATE_COUNT), clipboard.getBlock(BlockVector3.at(x, y, z)));
+                }
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("keeps NBT data for blocks that have it")
+    void nbtBlocks() throws WorldEditException {
+        SectionedClipboard clipboard = createClipboard();
+        BlockVector3 position = BlockVector3.at(1, 11, 4);
+        BaseBlock block = states.get(3).toBaseBlock(new CompoundTag(ImmutableMap.of("id", new StringTag("test"))));
+        clipboard.setBlock(position, block);
+        assertEquals(block, clipboard.getFullBlock(position));
+        assertEquals(states.get(3), clipboard.getBlock(position));
+
+        clipboard.setBlock(position, states.get(4));
+        assertEquals(states.get(4).toBaseBlock(), clipboard.getFullBlock(position));
+    }
+
+    @Test
+    @DisplayName("writes block state IDs in bulk like single blocks")
+    void bulkStateIds() throws WorldEditException {
+        SectionedClipboard clipboard = createClipboard();
+        SectionedClipboard expected = createClipboard();
+        BlockVector3 nbtPosition = BlockVector3.at(1, 11, 4);
+        clipboard.setBlock(nbtPosition, states.get(3).toBaseBlock(new CompoundTag(ImmutableMap.of("id", new StringTag("test")))));
+
+        // overlaps the clipboard, so some of the cuboid is skipped
+        BlockVector3 min = BlockVector3.at(-8, 9, 2);
+        BlockVector3 max = BlockVector3.at(20, 30, 12);
+        int[] ids = new int[29 * 22 * 11];
+        int i = 0;
+        for (int y = min.getBlockY(); y <= max.getBlockY(); y++) {
+            for (int z = min.getBlockZ(); z <= max.getBlockZ(); z++) {
+                for (int x = min.getBlockX(); x <= max.getBlockX(); x++) {
+                    BlockState state = (i / 7) % 5 == 0 ? air : states.get((i / 3) % STATE_COUNT);
+                    ids[i++] = BlockStateIdAccess.getBlockStateId(state);
+                    expected.setBlock(BlockVector3.at(x, y, z), state);
+                }
+            }
+        }
+        clipboard.setBlockStateIds(min, max, ids);
+
+        for (BlockVector3 position : clipboard.getRegion()) {
+            assertEquals(expected.getFullBlock(position), clipboard.getFullBlock(position));
+        }
+    }
+
+    @Test
+    @DisplayName("reads block state IDs in bulk like single blocks")
+    void bulkReads() throws WorldEditException {
+        SectionedClipboard clipboard = createClipboard();
+        int i = 0;
+        for (BlockVector3 position : clipboard.getRegion()) {
+            if (i % 13 == 0) {
+                clipboard.setBlock(position, states.get(i % STATE_COUNT)
+                    .toBaseBlock(new CompoundTag(ImmutableMap.of("id", new StringTag("test")))));
+            } else if (i % 4 != 0) {
+                clipboard.setBlock(position, states.get((i / 5) % STATE_COUNT));
+            }
+            i++;
+        }
+        // overlaps the clipboard, so some of the cuboid is outside of it
+        BlockArrayClipboardTest.assertBulkReadMatches(clipboard, BlockVector3.at(-8, 9, 2), BlockVector3.at(20, 52, 12));
+    }
+
+    @Test
+    @DisplayName("does not allocate sections that are only air")
+    void airSectionsUnallocated() throws WorldEditException {
+        SectionedClipboard clipboard = createClipboard();
+        long empty = clipboard.estimateBlockMemoryUsage();
+        clipboard.setBlock(BlockVector3.at(0, 20, 10), air);
+        assertEquals(empty, clipboard.estimateBlockMemoryUsage());
+        clipboard.setBlock(BlockVector3.at(0, 20, 10), states.get(0));
+        assertTrue(clipboard.estimateBlockMemoryUsage() > empty);
+    }
+
+}
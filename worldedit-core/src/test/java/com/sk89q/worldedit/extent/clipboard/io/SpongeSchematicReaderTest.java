@@ -0,0 +1,250 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.extent.clipboard.io;
+
+import com.google.common.collect.ImmutableMap;
+import com.sk89q.jnbt.ByteArrayTag;
+import com.sk89q.jnbt.CompoundTag;
+import com.sk89q.jnbt.IntTag;
+import com.sk89q.jnbt.NBTInputStream;
+import com.sk89q.jnbt.NBTOutputStream;
+import com.sk89q.jnbt.NamedTag;
+import com.sk89q.jnbt.StringTag;
+import com.sk89q.jnbt.Tag;
+import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.extent.clipboard.Clipboard;
+import com.sk89q.worldedit.extent.clipboard.SectionedClipboard;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.regions.CuboidRegion;
+import com.sk89q.worldedit.util.FakePlatform;
+import com.sk89q.worldedit.world.block.BaseBlock;
+import com.sk89q.worldedit.world.block.BlockState;
+import com.sk89q.worldedit.world.block.BlockTypes;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayName("A Sponge schematic reader")
+class SpongeSchematicReaderTest {
+
+    // more than 128 states, so that palette indices need multi-byte VarInts
+    private static final int STATE_COUNT = 200;
+
+    private static final List<BlockState> states = new ArrayList<>();
+
+    @BeforeAll
+    static void setupFakePlatform() {
+        FakePlatform.setUp();
+        for (int i = 0; i < STATE_COUNT; i++) {
+            states.add(FakePlatform.registerBlock("worldedit:schematic_" + i));
+        }
+    }
+
+    @AfterAll
+    static void tearDownFakePlatform() throws Exception {
+        FakePlatform.tearDown();
+    }
+
+    // a height of 21 leaves a partial section at the top
+    private static final BlockVector3 MIN = BlockVector3.at(-3, 10, 5);
+    private static final BlockVector3 MAX = BlockVector3.at(14, 30, 12);
+    private static final BlockVector3 ORIGIN = BlockVector3.at(2, 15, 8);
+
+    private final BlockState air = checkNotNull(BlockTypes.AIR).getDefaultState();
+
+    private SectionedClipboard createClipboard() throws WorldEditException {
+        SectionedClipboard clipboard = new SectionedClipboard(new CuboidRegion(MIN, MAX));
+        clipboard.setOrigin(ORIGIN);
+        for (BlockVector3 pt : clipboard.getRegion()) {
+            int n = pt.getX() * 7 + pt.getY() * 3 + pt.getZ();
+            if (Math.floorMod(n, 11) != 0) {
+                clipboard.setBlock(pt, states.get(Math.floorMod(n, STATE_COUNT)));
+            }
+        }
+        for (BlockVector3 pt : blockEntityPositions()) {
+            clipboard.setBlock(pt, states.get(0).toBaseBlock(new CompoundTag(ImmutableMap.of(
+                    "id", new StringTag("worldedit:test_entity"),
+                    "Custom", new StringTag(pt.toString())))));
+        }
+        return clipboard;
+    }
+
+    private static List<BlockVector3> blockEntityPositions() {
+        List<BlockVector3> positions = new ArrayList<>();
+        positions.add(MIN);
+        positions.add(BlockVector3.at(0, 12, 6));
+        positions.add(BlockVector3.at(5, 20, 9));
+        positions.add(BlockVector3.at(9, 26, 11));
+        positions.add(MAX);
+        return positions;
+    }
+
+    private static int indexOf(BlockVector3 pt) {
+        BlockVector3 rel = pt.subtract(MIN);
+        BlockVector3 size = MAX.subtract(MIN).add(1, 1, 1);
+        return (rel.getY() * size.getZ() + rel.getZ()) * size.getX() + rel.getX();
+    }
+
+    private static byte[] write(Clipboard clipboard) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (SpongeSchematicWriter writer = new SpongeSchematicWriter(new NBTOutputStream(bytes))) {
+            writer.write(clipboard);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Clipboard read(byte[] bytes) throws IOException {
+        try (SpongeSchematicReader reader = new SpongeSchematicReader(new NBTInputStream(new ByteArrayInputStream(bytes)))) {
+            return reader.read();
+        }
+    }
+
+    private static Map<String, Tag> readTag(byte[] bytes) throws IOException {
+        try (NBTInputStream in = new NBTInputStream(new ByteArrayInputStream(bytes))) {
+            NamedTag root = in.readNamedTag();
+            return new HashMap<>(((CompoundTag) root.getTag()).getValue());
+        }
+    }
+
+    private static byte[] replaceBlockData(byte[] bytes, byte[] blockData) throws IOException {
+        Map<String, Tag> schematic = readTag(bytes);
+        schematic.put("BlockData", new ByteArrayTag(blockData));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (NBTOutputStream nbt = new NBTOutputStream(out)) {
+            nbt.writeNamedTag("Schematic", new CompoundTag(schematic));
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] blockData(byte[] bytes) throws IOException {
+        return ((ByteArrayTag) readTag(bytes).get("BlockData")).getValue();
+    }
+
+    private void assertBlockEntity(BlockVector3 pt, BaseBlock block) {
+        assertEquals(states.get(0), block.toImmutableState(), pt::toString);
+        assertTrue(block.hasNbtData(), pt::toString);
+        CompoundTag nbt = checkNotNull(block.getNbtData());
+        assertEquals("worldedit:test_entity", nbt.getString("id"));
+        assertEquals(pt.toString(), nbt.getString("Custom"));
+        // block entity positions are relative to the schematic
+        BlockVector3 rel = pt.subtract(MIN);
+        assertEquals(rel.getX(), (int) ((IntTag) nbt.getValue().get("x")).getValue());
+        assertEquals(rel.getY(), (int) ((IntTag) nbt.getValue().get("y")).getValue());
+        assertEquals(rel.getZ(), (int) ((IntTag) nbt.getValue().get("z")).getValue());
+    }
+
+    @Test
+    @DisplayName("reads back what the writer wrote")
+    void roundTrip() throws Exception {
+        SectionedClipboard original = createClipboard();
+        byte[] bytes = write(original);
+
+        Map<String, Tag> schematic = readTag(bytes);
+        assertTrue(((IntTag) schematic.get("PaletteMax")).getValue() > 128);
+        boolean multiByte = false;
+        for (byte b : blockData(bytes)) {
+            multiByte |= (b & 128) != 0;
+        }
+        assertTrue(multiByte);
+
+        Clipboard clipboard = read(bytes);
+        assertEquals(original.getRegion().getMinimumPoint(), clipboard.getRegion().getMinimumPoint());
+        assertEquals(original.getRegion().getMaximumPoint(), clipboard.getRegion().getMaximumPoint());
+        assertEquals(ORIGIN, clipboard.getOrigin());
+        List<BlockVector3> blockEntities = blockEntityPositions();
+        for (BlockVector3 pt : original.getRegion()) {
+            assertEquals(original.getBlock(pt), clipboard.getBlock(pt), pt::toString);
+            BaseBlock block = clipboard.getFullBlock(pt);
+            if (blockEntities.contains(pt)) {
+                assertBlockEntity(pt, block);
+            } else {
+                assertFalse(block.hasNbtData(), pt::toString);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("leaves air after block data that ends early")
+    void truncated() throws Exception {
+        SectionedClipboard original = createClipboard();
+        byte[] bytes = write(original);
+        byte[] data = blockData(bytes);
+
+        // cut after the VarInt that ends the block with the middle block entity
+        int kept = indexOf(BlockVector3.at(5, 20, 9)) + 1;
+        int end = 0;
+        for (int count = 0; count < kept; end++) {
+            if ((data[end] & 128) == 0) {
+                count++;
+            }
+        }
+        byte[] cut = new byte[end];
+        System.arraycopy(data, 0, cut, 0, end);
+
+        Clipboard clipboard = read(replaceBlockData(bytes, cut));
+        for (BlockVector3 pt : original.getRegion()) {
+            if (indexOf(pt) < kept) {
+                assertEquals(original.getBlock(pt), clipboard.getBlock(pt), pt::toString);
+            } else {
+                assertEquals(air, clipboard.getBlock(pt), pt::toString);
+            }
+        }
+        for (BlockVector3 pt : blockEntityPositions()) {
+            if (indexOf(pt) < kept) {
+                assertBlockEntity(pt, clipboard.getFullBlock(pt));
+            } else {
+                assertFalse(clipboard.getFullBlock(pt).hasNbtData(), pt::toString);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("rejects block data that ends in the middle of a VarInt")
+    void truncatedVarInt() throws Exception {
+        byte[] bytes = write(createClipboard());
+        byte[] data = blockData(bytes);
+
+        int end = data.length / 2;
+        while ((data[end - 1] & 128) == 0) {
+            end++;
+        }
+        byte[] cut = new byte[end];
+        System.arraycopy(data, 0, cut, 0, end);
+
+        byte[] truncated = replaceBlockData(bytes, cut);
+        assertThrows(IOException.class, () -> read(truncated));
+    }
+
+}
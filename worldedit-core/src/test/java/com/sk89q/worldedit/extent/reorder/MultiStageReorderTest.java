@@ -0,0 +1,288 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.extent.reorder;
+
+import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.extent.AbstractDelegateExtent;
+import com.sk89q.worldedit.extent.ChunkSectionBatch;
+import com.sk89q.worldedit.extent.Extent;
+import com.sk89q.worldedit.extent.clipboard.SectionedClipboard;
+import com.sk89q.worldedit.function.operation.Operation;
+import com.sk89q.worldedit.function.operation.Operations;
+import com.sk89q.worldedit.function.operation.RunContext;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.regions.CuboidRegion;
+import com.sk89q.worldedit.util.FakePlatform;
+import com.sk89q.worldedit.world.block.BlockState;
+import com.sk89q.worldedit.world.block.BlockStateHolder;
+import com.sk89q.worldedit.world.block.BlockType;
+import com.sk89q.worldedit.world.block.BlockTypes;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayName("A multi-stage reorder")
+class MultiStageReorderTest {
+
+    private static BlockState stone;
+    private static BlockState dirt;
+    private static BlockState falling;
+    private static BlockState torch;
+    private static BlockState door;
+
+    @BeforeAll
+    static void setupFakePlatform() {
+        FakePlatform.setUp();
+        stone = FakePlatform.registerBlock("minecraft:stone");
+        dirt = FakePlatform.registerBlock("minecraft:dirt");
+        falling = FakePlatform.registerBlock("worldedit:test_falling");
+        torch = FakePlatform.registerBlock("worldedit:test_torch");
+        door = FakePlatform.registerBlock("worldedit:test_door");
+    }
+
+    @AfterAll
+    static void tearDownFakePlatform() throws Exception {
+        FakePlatform.tearDown();
+    }
+
+    private final BlockState air = checkNotNull(BlockTypes.AIR).getDefaultState();
+
+    /**
+     * A reorder with stages for the test blocks, which do not depend on the
+     * blocks that were registered when the reorder was loaded.
+     */
+    private static final class TestReorder extends MultiStageReorder {
+
+        private TestReorder(Extent extent) {
+            super(extent, true);
+        }
+
+        @Override
+        protected PlacementPriority getPlacementPriority(BlockType type) {
+            if (type.equals(falling.getBlockType())) {
+                return PlacementPriority.LATE;
+            } else if (type.equals(torch.getBlockType())) {
+                return PlacementPriority.LAST;
+            } else if (type.equals(door.getBlockType())) {
+                return PlacementPriority.FINAL;
+            }
+            return PlacementPriority.FIRST;
+        }
+
+    }
+
+    /**
+     * An extent that records how blocks reach it.
+     */
+    private static final class RecordingExtent extends AbstractDelegateExtent {
+
+        private final Set<BlockVector3> batchedSections = new HashSet<>();
+        private final List<String> placements = new ArrayList<>();
+        private int singleBlocks;
+        private int batches;
+        private int batchedBlocks;
+
+        private RecordingExtent(Extent extent) {
+            super(extent);
+        }
+
+        @Override
+        public <T extends BlockStateHolder<T>> boolean setBlock(BlockVector3 location, T block) throws WorldEditException {
+            singleBlocks++;
+            return super.setBlock(location, block);
+        }
+
+        @Override
+        public int setBlocks(ChunkSectionBatch batch) throws WorldEditException {
+            batches++;
+            batchedSections.add(BlockVector3.at(batch.getChunkX(), batch.getSectionY(), batch.getChunkZ()));
+            int changed = 0;
+            for (int i = 0; i < batch.size(); i++) {
+                assertTrue(batch.isInSection(batch.getX(i), batch.getY(i), batch.getZ(i)));
+                batchedBlocks++;
+                placements.add(batch.getPosition(i) + " " + batch.getBlock(i).getBlockType().getId());
+                if (getExtent().setBlock(batch.getPosition(i), batch.getBlock(i))) {
+                    changed++;
+                }
+            }
+            return changed;
+        }
+
+    }
+
+    private static SectionedClipboard createWorld() {
+        return new SectionedClipboard(new CuboidRegion(BlockVector3.at(-32, 0, -32), BlockVector3.at(31, 63, 31)));
+    }
+
+    @Test
+    @DisplayName("places buffered blocks section by section in batches")
+    void placesInBatches() throws WorldEditException {
+        SectionedClipboard world = createWorld();
+        RecordingExtent recorder = new RecordingExtent(world);
+        MultiStageReorder reorder = new MultiStageReorder(recorder, true);
+
+        // not aligned to sections, so some sections are only partly set
+        BlockVector3 min = BlockVector3.at(-20, 5, -3);
+        BlockVector3 max = BlockVector3.at(12, 40, 17);
+        Set<BlockVector3> sections = new HashSet<>();
+        int count = 0;
+        for (int y = min.getBlockY(); y <= max.getBlockY(); y++) {
+            for (int z = min.getBlockZ(); z <= max.getBlockZ(); z++) {
+                for (int x = min.getBlockX(); x <= max.getBlockX(); x++) {
+                    reorder.setBlock(BlockVector3.at(x, y, z), (x + y + z) % 3 == 0 ? dirt : stone);
+                    sections.add(BlockVector3.at(x >> 4, y >> 4, z >> 4));
+                    count++;
+                }
+            }
+        }
+        assertEquals(0, recorder.singleBlocks + recorder.batches);
+
+        Operations.completeBlindly(reorder.commit());
+        assertEquals(0, recorder.singleBlocks);
+        assertEquals(count, recorder.batchedBlocks);
+        // every block is placed in the first stage, so every section is one batch
+        assertEquals(sections.size(), recorder.batches);
+        assertEquals(sections, recorder.batchedSections);
+        for (int y = min.getBlockY(); y <= max.getBlockY(); y++) {
+            for (int z = min.getBlockZ(); z <= max.getBlockZ(); z++) {
+                for (int x = min.getBlockX(); x <= max.getBlockX(); x++) {
+                    assertEquals((x + y + z) % 3 == 0 ? dirt : stone, world.getBlock(BlockVector3.at(x, y, z)));
+                }
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("passes batches straight through when it is disabled")
+    void disabledPassesBatches() throws WorldEditException {
+        RecordingExtent recorder = new RecordingExtent(createWorld());
+        MultiStageReorder reorder = new MultiStageReorder(recorder, false);
+        ChunkSectionBatch batch = new ChunkSectionBatch();
+        batch.reset(0, 1, -1);
+        batch.add(ChunkSectionBatch.getSectionIndex(3, 17, -4), stone.toBaseBlock());
+        batch.add(ChunkSectionBatch.getSectionIndex(4, 17, -4), dirt.toBaseBlock());
+
+        assertEquals(2, reorder.setBlocks(batch));
+        assertEquals(1, recorder.batches);
+        assertEquals(0, recorder.singleBlocks);
+    }
+
+    @Test
+    @DisplayName("places blocks stage by stage")
+    void stageOrder() throws WorldEditException {
+        RecordingExtent recorder = new RecordingExtent(createWorld());
+        MultiStageReorder reorder = new TestReorder(recorder);
+        reorder.setBlock(BlockVector3.at(0, 12, 0), door);
+        reorder.setBlock(BlockVector3.at(0, 11, 0), torch);
+        reorder.setBlock(BlockVector3.at(0, 10, 0), falling);
+        reorder.setBlock(BlockVector3.at(0, 9, 0), stone);
+
+        Operations.completeBlindly(reorder.commit());
+        assertEquals(Arrays.asList(
+            BlockVector3.at(0, 9, 0) + " minecraft:stone",
+            BlockVector3.at(0, 10, 0) + " worldedit:test_falling",
+            BlockVector3.at(0, 11, 0) + " worldedit:test_torch",
+            BlockVector3.at(0, 12, 0) + " worldedit:test_door"
+        ), recorder.placements);
+    }
+
+    @Test
+    @DisplayName("removes attached blocks before the blocks they are attached to")
+    void clearsAttachedBlocks() throws WorldEditException {
+        SectionedClipboard world = createWorld();
+        BlockVector3 wall = BlockVector3.at(5, 30, -7);
+        BlockVector3 attached = wall.add(1, 0, 0);
+        world.setBlock(wall, stone);
+        world.setBlock(attached, torch);
+        RecordingExtent recorder = new RecordingExtent(world);
+        MultiStageReorder reorder = new TestReorder(recorder);
+        reorder.setBlock(wall, air);
+        reorder.setBlock(attached, dirt);
+
+        Operations.completeBlindly(reorder.commit());
+        assertEquals(3, recorder.placements.size());
+        assertEquals(attached + " minecraft:air", recorder.placements.get(0));
+        // both are placed in the first stage
+        assertEquals(new HashSet<>(Arrays.asList(wall + " minecraft:air", attached + " minecraft:dirt")),
+            new HashSet<>(recorder.placements.subList(1, 3)));
+        assertEquals(air, world.getBlock(wall));
+        assertEquals(dirt, world.getBlock(attached));
+    }
+
+    @Test
+    @DisplayName("replaces attached blocks with air once when they are removed")
+    void removesAttachedBlocksOnce() throws WorldEditException {
+        SectionedClipboard world = createWorld();
+        BlockVector3 position = BlockVector3.at(-9, 2, 14);
+        world.setBlock(position, door);
+        RecordingExtent recorder = new RecordingExtent(world);
+        MultiStageReorder reorder = new TestReorder(recorder);
+        reorder.setBlock(position, air);
+
+        Operations.completeBlindly(reorder.commit());
+        assertEquals(Collections.singletonList(position + " minecraft:air"), recorder.placements);
+    }
+
+    @Test
+    @DisplayName("pauses between batches when the run context says so")
+    void pauses() throws WorldEditException {
+        SectionedClipboard world = createWorld();
+        RecordingExtent recorder = new RecordingExtent(world);
+        MultiStageReorder reorder = new TestReorder(recorder);
+        for (int x = -32; x < 32; x += 16) {
+            reorder.setBlock(BlockVector3.at(x, 1, 0), stone);
+            reorder.setBlock(BlockVector3.at(x, 2, 0), torch);
+        }
+
+        Operation operation = reorder.commit();
+        RunContext stop = new RunContext() {
+            @Override
+            public boolean shouldContinue() {
+                return false;
+            }
+        };
+        int runs = 0;
+        while (operation != null) {
+            int batches = recorder.batches;
+            operation = operation.resume(stop);
+            assertTrue(recorder.batches - batches <= 1, "more than one batch in a run");
+            runs++;
+        }
+        assertEquals(8, recorder.batches);
+        assertTrue(runs >= 8);
+        for (int x = -32; x < 32; x += 16) {
+            assertEquals(stone, world.getBlock(BlockVector3.at(x, 1, 0)));
+            assertEquals(torch, world.getBlock(BlockVector3.at(x, 2, 0)));
+        }
+    }
+
+}
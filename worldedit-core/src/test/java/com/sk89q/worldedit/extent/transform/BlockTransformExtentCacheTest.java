@@ -0,0 +1,196 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.extent.transform;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.sk89q.jnbt.CompoundTag;
+import com.sk89q.jnbt.StringTag;
+import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.extent.clipboard.SectionedClipboard;
+import com.sk89q.worldedit.internal.block.BlockStateIdAccess;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.math.transform.AffineTransform;
+import com.sk89q.worldedit.math.transform.Transform;
+import com.sk89q.worldedit.regions.CuboidRegion;
+import com.sk89q.worldedit.registry.state.DirectionalProperty;
+import com.sk89q.worldedit.registry.state.EnumProperty;
+import com.sk89q.worldedit.registry.state.IntegerProperty;
+import com.sk89q.worldedit.util.Direction;
+import com.sk89q.worldedit.util.FakePlatform;
+import com.sk89q.worldedit.world.block.BaseBlock;
+import com.sk89q.worldedit.world.block.BlockState;
+import com.sk89q.worldedit.world.block.BlockType;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+@DisplayName("A block transform extent's state table")
+class BlockTransformExtentCacheTest {
+
+    private static final List<BlockState> states = new ArrayList<>();
+
+    @BeforeAll
+    static void setupFakePlatform() {
+        FakePlatform.setUp();
+        List<BlockState> blocks = ImmutableList.of(
+            FakePlatform.registerBlock("worldedit:test_stone"),
+            FakePlatform.registerBlock("worldedit:test_stairs",
+                new DirectionalProperty("facing",
+                    ImmutableList.of(Direction.NORTH, Direction.SOUTH, Direction.WEST, Direction.EAST)),
+                new EnumProperty("shape",
+                    ImmutableList.of("straight", "inner_left", "inner_right", "outer_left", "outer_right"))),
+            FakePlatform.registerBlock("worldedit:test_log",
+                new EnumProperty("axis", ImmutableList.of("x", "y", "z"))),
+            FakePlatform.registerBlock("worldedit:test_sign",
+                new IntegerProperty("rotation", IntStream.range(0, 16).boxed().collect(Collectors.toList())))
+        );
+        for (BlockState block : blocks) {
+            states.addAll(block.getBlockType().getAllStates());
+        }
+    }
+
+    @AfterAll
+    static void tearDownFakePlatform() throws Exception {
+        FakePlatform.tearDown();
+    }
+
+    private static List<Transform> transforms() {
+        return ImmutableList.of(
+            new AffineTransform().rotateY(90),
+            new AffineTransform().rotateY(180),
+            new AffineTransform().rotateY(-90),
+            new AffineTransform().scale(-1, 1, 1),
+            new AffineTransform().rotateY(90).scale(1, 1, -1)
+        );
+    }
+
+    @Test
+    @DisplayName("transforms states like the uncached transform")
+    void statesMatchUncached() {
+        for (Transform transform : transforms()) {
+            for (BlockState state : states) {
+                BlockState expected = BlockTransformExtent.transformUncached(state, transform);
+                // the first call fills the table, the second reads it
+                assertSame(expected, BlockTransformExtent.transform(state, transform), state::toString);
+                assertSame(expected, BlockTransformExtent.transform(state, transform), state::toString);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("transforms blocks with NBT like the uncached transform")
+    void blocksMatchUncached() {
+        CompoundTag nbt = new CompoundTag(ImmutableMap.of("id", new StringTag("worldedit:test_entity")));
+        for (Transform transform : transforms()) {
+            for (BlockState state : states) {
+                BaseBlock block = state.toBaseBlock(nbt);
+                BaseBlock expected = BlockTransformExtent.transformUncached(block, transform);
+                BaseBlock cached = BlockTransformExtent.transform(block, transform);
+                assertEquals(expected, cached, state::toString);
+                assertSame(expected.toImmutableState(), cached.toImmutableState(), state::toString);
+                assertSame(nbt, cached.getNbtData(), state::toString);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("forgets cached states when the internal IDs are reassigned")
+    void idsReassigned() {
+        Transform transform = new AffineTransform().rotateY(90);
+        for (BlockState state : states) {
+            BlockTransformExtent.transform(state, transform);
+        }
+
+        // give every state another ID
+        BlockStateIdAccess.clear();
+        BlockStateIdAccess.register(BlockType.REGISTRY.get("minecraft:air").getDefaultState(),
+            BlockStateIdAccess.invalidId());
+        for (BlockState state : Lists.reverse(states)) {
+            BlockStateIdAccess.register(state, BlockStateIdAccess.invalidId());
+        }
+
+        for (BlockState state : states) {
+            assertSame(BlockTransformExtent.transformUncached(state, transform),
+                BlockTransformExtent.transform(state, transform), state::toString);
+        }
+    }
+
+    @Test
+    @DisplayName("places blocks with the inverse transform")
+    void inverseRoundTrips() throws WorldEditException {
+        BlockVector3 min = BlockVector3.at(-4, 0, 2);
+        for (Transform transform : transforms()) {
+            SectionedClipboard clipboard = new SectionedClipboard(
+                new CuboidRegion(min, min.add(states.size() - 1, 0, 0)));
+            BlockTransformExtent extent = new BlockTransformExtent(clipboard, transform);
+            for (int i = 0; i < states.size(); i++) {
+                extent.setBlock(min.add(i, 0, 0), states.get(i));
+            }
+            for (int i = 0; i < states.size(); i++) {
+                BlockState state = states.get(i);
+                BlockVector3 pt = min.add(i, 0, 0);
+                assertSame(BlockTransformExtent.transformUncached(state, transform.inverse()), clipboard.getBlock(pt),
+                    state::toString);
+                assertSame(state, extent.getBlock(pt), state::toString);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("reads state IDs like single blocks")
+    void bulkReads() throws WorldEditException {
+        BlockVector3 min = BlockVector3.at(-7, 3, 5);
+        BlockVector3 max = BlockVector3.at(4, 6, 9);
+        SectionedClipboard clipboard = new SectionedClipboard(new CuboidRegion(min, max));
+        int n = 0;
+        for (BlockVector3 pt : clipboard.getRegion()) {
+            clipboard.setBlock(pt, states.get(n++ % states.size()));
+        }
+
+        Transform transform = new AffineTransform().rotateY(90);
+        BlockTransformExtent extent = new BlockTransformExtent(clipboard, transform);
+        int[] ids = new int[clipboard.getRegion().getArea()];
+        extent.getBlockStateIds(min, max, ids);
+        int changed = 0;
+        for (BlockVector3 pt : clipboard.getRegion()) {
+            BlockVector3 rel = pt.subtract(min);
+            int index = (rel.getY() * (max.getZ() - min.getZ() + 1) + rel.getZ()) * (max.getX() - min.getX() + 1) + rel.getX();
+            BlockState state = extent.getBlock(pt);
+            assertEquals(BlockStateIdAccess.getBlockStateId(state), ids[index], pt::toString);
+            if (state != clipboard.getBlock(pt)) {
+                changed++;
+            }
+        }
+        assertNotEquals(0, changed);
+    }
+
+}
@@ -0,0 +1,114 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.extent.world;
+
+import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.function.operation.Operation;
+import com.sk89q.worldedit.function.operation.RunContext;
+import com.sk89q.worldedit.math.BlockVector2;
+import com.sk89q.worldedit.world.World;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+@DisplayName("A chunk relight operation")
+class ChunkRelightOperationTest {
+
+    private final List<List<BlockVector2>> calls = new ArrayList<>();
+
+    private World createWorld() {
+        World world = mock(World.class);
+        doAnswer(invocation -> {
+            List<BlockVector2> batch = new ArrayList<>();
+            for (BlockVector2 chunk : invocation.<Iterable<BlockVector2>>getArgument(0)) {
+                batch.add(chunk);
+            }
+            calls.add(batch);
+            return null;
+        }).when(world).fixAfterFastMode(any());
+        return world;
+    }
+
+    private Set<BlockVector2> createChunks() {
+        Set<BlockVector2> chunks = new HashSet<>();
+        for (int x = -8; x < 8; x++) {
+            for (int z = -4; z < 4; z++) {
+                chunks.add(BlockVector2.at(x, z));
+            }
+        }
+        return chunks;
+    }
+
+    @Test
+    @DisplayName("fixes every chunk once, a tile of chunks at a time")
+    void batchesByTile() throws WorldEditException {
+        Set<BlockVector2> chunks = createChunks();
+        ChunkRelightOperation operation = new ChunkRelightOperation(createWorld(), chunks, 4);
+        assertEquals(8, operation.getBatchCount());
+        assertNull(operation.resume(new RunContext()));
+
+        assertEquals(8, calls.size());
+        Set<BlockVector2> relit = new HashSet<>();
+        for (List<BlockVector2> batch : calls) {
+            assertEquals(16, batch.size());
+            for (BlockVector2 chunk : batch) {
+                assertEquals(batch.get(0).getBlockX() >> 2, chunk.getBlockX() >> 2);
+                assertEquals(batch.get(0).getBlockZ() >> 2, chunk.getBlockZ() >> 2);
+                assertTrue(relit.add(chunk));
+            }
+        }
+        assertEquals(chunks, relit);
+    }
+
+    @Test
+    @DisplayName("yields between batches when asked to")
+    void yields() throws WorldEditException {
+        ChunkRelightOperation operation = new ChunkRelightOperation(createWorld(), createChunks(), 4);
+        RunContext once = new RunContext() {
+            @Override
+            public boolean shouldContinue() {
+                return false;
+            }
+        };
+        Operation next = operation.resume(once);
+        assertNotNull(next);
+        assertEquals(1, calls.size());
+        assertEquals(16, operation.getRelitChunks());
+        for (int i = 1; i < 8; i++) {
+            next = next.resume(once);
+        }
+        assertNull(next);
+        assertEquals(8, calls.size());
+        assertEquals(1.0, operation.getProgress().getProgress());
+    }
+
+}
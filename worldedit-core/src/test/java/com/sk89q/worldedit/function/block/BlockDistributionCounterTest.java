@@ -0,0 +1,114 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.function.block;
+
+import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.extent.clipboard.SectionedClipboard;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.math.Vector2;
+import com.sk89q.worldedit.regions.CuboidRegion;
+import com.sk89q.worldedit.regions.CylinderRegion;
+import com.sk89q.worldedit.regions.Region;
+import com.sk89q.worldedit.util.Countable;
+import com.sk89q.worldedit.util.FakePlatform;
+import com.sk89q.worldedit.world.block.BlockState;
+import com.sk89q.worldedit.world.block.BlockType;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DisplayName("A block distribution counter")
+class BlockDistributionCounterTest {
+
+    private static BlockState stone;
+    private static BlockState dirt;
+    private static BlockState unregistered;
+
+    @BeforeAll
+    static void setupFakePlatform() {
+        FakePlatform.setUp();
+        stone = FakePlatform.registerBlock("minecraft:stone");
+        dirt = FakePlatform.registerBlock("minecraft:dirt");
+        // has no internal ID, so bulk reads have to read it again
+        unregistered = new BlockType("worldedit:unregistered").getDefaultState();
+    }
+
+    @AfterAll
+    static void tearDownFakePlatform() throws Exception {
+        FakePlatform.tearDown();
+    }
+
+    private SectionedClipboard createWorld() throws WorldEditException {
+        SectionedClipboard world = new SectionedClipboard(
+            new CuboidRegion(BlockVector3.at(-40, 0, -40), BlockVector3.at(39, 63, 39)));
+        Random random = new Random(42);
+        for (BlockVector3 position : world.getRegion()) {
+            int pick = random.nextInt(10);
+            if (pick < 4) {
+                world.setBlock(position, stone);
+            } else if (pick < 6) {
+                world.setBlock(position, dirt);
+            } else if (pick < 7) {
+                world.setBlock(position, unregistered);
+            }
+        }
+        return world;
+    }
+
+    private static Map<BlockState, Integer> toMap(BlockDistributionCounter counter) {
+        Map<BlockState, Integer> counts = new HashMap<>();
+        for (Countable<BlockState> countable : counter.getDistribution()) {
+            counts.put(countable.getID(), countable.getAmount());
+        }
+        return counts;
+    }
+
+    private void assertCountsMatch(Region region, boolean separateStates) throws WorldEditException {
+        SectionedClipboard world = createWorld();
+        BlockDistributionCounter expected = new BlockDistributionCounter(world, separateStates);
+        for (BlockVector3 position : region) {
+            expected.apply(position);
+        }
+        BlockDistributionCounter actual = new BlockDistributionCounter(world, separateStates);
+        actual.countRegion(region);
+        assertEquals(toMap(expected), toMap(actual));
+    }
+
+    @Test
+    @DisplayName("counts a cuboid region like single blocks")
+    void cuboid() throws WorldEditException {
+        // not aligned to chunk sections, and partly outside of the world
+        assertCountsMatch(new CuboidRegion(BlockVector3.at(-37, 5, -20), BlockVector3.at(45, 50, 11)), true);
+    }
+
+    @Test
+    @DisplayName("counts a cylinder region like single blocks")
+    void cylinder() throws WorldEditException {
+        assertCountsMatch(new CylinderRegion(BlockVector3.at(3, 0, -6), Vector2.at(21.5, 17), 3, 40), false);
+    }
+
+}
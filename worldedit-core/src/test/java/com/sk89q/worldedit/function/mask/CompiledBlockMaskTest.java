@@ -0,0 +1,90 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.function.mask;
+
+import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.extent.clipboard.SectionedClipboard;
+import com.sk89q.worldedit.internal.block.BlockStateIdAccess;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.regions.CuboidRegion;
+import com.sk89q.worldedit.util.FakePlatform;
+import com.sk89q.worldedit.world.block.BlockState;
+import com.sk89q.worldedit.world.block.BlockType;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayName("A compiled block mask")
+class CompiledBlockMaskTest {
+
+    private static BlockState stone;
+    private static BlockState dirt;
+    private static BlockState unregistered;
+
+    @BeforeAll
+    static void setupFakePlatform() {
+        FakePlatform.setUp();
+        stone = FakePlatform.registerBlock("minecraft:stone");
+        dirt = FakePlatform.registerBlock("minecraft:dirt");
+        BlockType type = new BlockType("worldedit:unregistered");
+        BlockType.REGISTRY.register(type.getId(), type);
+        // a state without an ID, which has to be tested directly
+        unregistered = type.getDefaultState();
+    }
+
+    @AfterAll
+    static void tearDownFakePlatform() throws Exception {
+        FakePlatform.tearDown();
+    }
+
+    private SectionedClipboard createExtent() throws WorldEditException {
+        SectionedClipboard extent = new SectionedClipboard(new CuboidRegion(BlockVector3.ZERO, BlockVector3.at(3, 0, 0)));
+        extent.setBlock(BlockVector3.at(1, 0, 0), stone);
+        extent.setBlock(BlockVector3.at(2, 0, 0), dirt);
+        extent.setBlock(BlockVector3.at(3, 0, 0), unregistered);
+        return extent;
+    }
+
+    @Test
+    @DisplayName("matches the same blocks as its criteria")
+    void matchesCriteria() throws WorldEditException {
+        BlockMask mask = new BlockMask(createExtent(), stone.toBaseBlock(), unregistered.toBaseBlock());
+        assertFalse(mask.test(BlockVector3.at(0, 0, 0)));
+        assertTrue(mask.test(BlockVector3.at(1, 0, 0)));
+        assertFalse(mask.test(BlockVector3.at(2, 0, 0)));
+        assertTrue(mask.test(BlockVector3.at(3, 0, 0)));
+        assertTrue(mask.getStateIds().get(BlockStateIdAccess.getBlockStateId(stone)));
+    }
+
+    @Test
+    @DisplayName("compiles again after criteria are added")
+    void invalidatedByAdd() throws WorldEditException {
+        BlockTypeMask mask = new BlockTypeMask(createExtent(), stone.getBlockType());
+        assertFalse(mask.test(BlockVector3.at(2, 0, 0)));
+        mask.add(dirt.getBlockType());
+        assertTrue(mask.test(BlockVector3.at(2, 0, 0)));
+        assertTrue(mask.test(BlockVector3.at(1, 0, 0)));
+    }
+
+}
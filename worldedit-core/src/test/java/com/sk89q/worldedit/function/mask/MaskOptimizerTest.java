@@ -0,0 +1,118 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.function.mask;
+
+import com.sk89q.worldedit.extent.Extent;
+import com.sk89q.worldedit.extent.clipboard.SectionedClipboard;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.regions.CuboidRegion;
+import com.sk89q.worldedit.util.FakePlatform;
+import com.sk89q.worldedit.world.block.BlockState;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayName("The mask optimizer")
+class MaskOptimizerTest {
+
+    private static BlockState stone;
+    private static BlockState dirt;
+
+    @BeforeAll
+    static void setupFakePlatform() {
+        FakePlatform.setUp();
+        stone = FakePlatform.registerBlock("minecraft:stone");
+        dirt = FakePlatform.registerBlock("minecraft:dirt");
+    }
+
+    @AfterAll
+    static void tearDownFakePlatform() throws Exception {
+        FakePlatform.tearDown();
+    }
+
+    private final Extent extent = new SectionedClipboard(new CuboidRegion(BlockVector3.ZERO, BlockVector3.at(15, 15, 15)));
+
+    @Test
+    @DisplayName("folds constant masks")
+    void foldsConstants() {
+        Mask height = new BoundedHeightMask(0, 10);
+        assertSame(height, MaskOptimizer.optimize(new MaskIntersection(Masks.alwaysTrue(), height)));
+        assertSame(Masks.alwaysFalse(), MaskOptimizer.optimize(new MaskIntersection(Masks.alwaysFalse(), height)));
+        assertSame(Masks.alwaysTrue(), MaskOptimizer.optimize(new MaskUnion(Masks.alwaysTrue(), height)));
+        assertSame(height, MaskOptimizer.optimize(Masks.negate(Masks.negate(height))));
+    }
+
+    @Test
+    @DisplayName("flattens nested intersections and merges heights")
+    void flattens() {
+        Mask optimized = MaskOptimizer.optimize(new MaskIntersection(
+            new BoundedHeightMask(0, 10),
+            new MaskIntersection(new BoundedHeightMask(5, 20), new ExistingBlockMask(extent))
+        ));
+        assertTrue(optimized instanceof MaskIntersection);
+        List<Mask> children = new ArrayList<>(((MaskIntersection) optimized).getMasks());
+        assertEquals(2, children.size());
+        // the height check is cheaper, so it comes first
+        BoundedHeightMask height = (BoundedHeightMask) children.get(0);
+        assertEquals(5, height.getMinY());
+        assertEquals(10, height.getMaxY());
+        assertTrue(children.get(1) instanceof ExistingBlockMask);
+
+        Mask disjoint = new MaskIntersection(new BoundedHeightMask(0, 4), new BoundedHeightMask(5, 9));
+        assertSame(Masks.alwaysFalse(), MaskOptimizer.optimize(disjoint));
+    }
+
+    @Test
+    @DisplayName("merges block masks on the same extent")
+    void mergesBlockMasks() {
+        Mask optimized = MaskOptimizer.optimize(new MaskUnion(
+            new BlockMask(extent, stone.toBaseBlock()),
+            new BlockTypeMask(extent, dirt.getBlockType())
+        ));
+        assertTrue(optimized instanceof CombinedBlockMask);
+        CombinedBlockMask combined = (CombinedBlockMask) optimized;
+        assertTrue(combined.test(stone));
+        assertTrue(combined.test(dirt));
+        assertEquals(2, combined.getStateIds().cardinality());
+
+        Mask negated = MaskOptimizer.optimize(Masks.negate(new BlockMask(extent, stone.toBaseBlock())));
+        assertTrue(negated instanceof CombinedBlockMask);
+        assertFalse(((CombinedBlockMask) negated).test(stone));
+        assertTrue(((CombinedBlockMask) negated).test(dirt));
+
+        Mask both = MaskOptimizer.optimize(new MaskIntersection(
+            new BlockMask(extent, stone.toBaseBlock()),
+            new BlockTypeMask(extent, stone.getBlockType(), dirt.getBlockType())
+        ));
+        assertTrue(both instanceof CombinedBlockMask);
+        assertTrue(((CombinedBlockMask) both).test(stone));
+        assertFalse(((CombinedBlockMask) both).test(dirt));
+    }
+
+}
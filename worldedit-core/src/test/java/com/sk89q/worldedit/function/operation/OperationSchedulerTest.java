@@ -0,0 +1,197 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.function.operation;
+
+import com.sk89q.worldedit.WorldEdit;
+import com.sk89q.worldedit.extension.platform.Platform;
+import com.sk89q.worldedit.util.FakePlatform;
+import com.sk89q.worldedit.util.task.Task;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@DisplayName("An operation scheduler")
+class OperationSchedulerTest {
+
+    private static final int TASK_ID = 7;
+
+    @BeforeAll
+    static void setupFakePlatform() {
+        FakePlatform.setUp();
+    }
+
+    @AfterAll
+    static void tearDownFakePlatform() throws Exception {
+        FakePlatform.tearDown();
+    }
+
+    private final Platform platform = FakePlatform.getPlatform();
+    private final OperationScheduler scheduler = new OperationScheduler(WorldEdit.getInstance());
+    private final List<String> steps = new ArrayList<>();
+    private Runnable ticker;
+    private int scheduled;
+
+    @BeforeEach
+    void setUp() {
+        // one step per tick
+        FakePlatform.getConfiguration().operationTickBudget = 0;
+        clearInvocations(platform);
+        when(platform.schedule(anyLong(), anyLong(), any())).thenAnswer(invocation -> {
+            ticker = invocation.getArgument(2);
+            scheduled++;
+            return TASK_ID;
+        });
+        when(platform.cancelTask(TASK_ID)).thenReturn(true);
+    }
+
+    private void tick() {
+        assertNotNull(ticker, "no task was scheduled");
+        ticker.run();
+    }
+
+    @Test
+    @DisplayName("drains queued operations over several ticks, in order")
+    void drains() throws Exception {
+        Task<Operation> first = scheduler.submit(new Steps("a", 3), "a", null);
+        Task<Operation> second = scheduler.submit(new Steps("b", 2), "b", null);
+        assertTrue(steps.isEmpty());
+        assertEquals(2, scheduler.getQueueSize());
+
+        tick();
+        assertEquals(Arrays.asList("a0"), steps);
+        tick();
+        tick();
+        assertTrue(first.isDone());
+        assertFalse(second.isDone());
+        assertEquals(1, scheduler.getQueueSize());
+        tick();
+        tick();
+        assertEquals(Arrays.asList("a0", "a1", "a2", "b0", "b1"), steps);
+        assertTrue(second.isDone());
+        assertEquals(0, scheduler.getQueueSize());
+        assertTrue(first.get() instanceof Steps);
+        assertEquals("a", ((Steps) first.get()).name);
+        assertEquals(1, scheduled);
+    }
+
+    @Test
+    @DisplayName("cancels its platform task once the queue is empty")
+    void cancelsWhenEmpty() {
+        scheduler.submit(new Steps("a", 2), "a", null);
+        assertTrue(scheduler.isTicking());
+        tick();
+        verify(platform, never()).cancelTask(TASK_ID);
+        tick();
+        verify(platform).cancelTask(TASK_ID);
+        assertFalse(scheduler.isTicking());
+
+        scheduler.submit(new Steps("b", 1), "b", null);
+        assertTrue(scheduler.isTicking());
+        assertEquals(2, scheduled);
+        tick();
+        assertEquals(Arrays.asList("a0", "a1", "b0"), steps);
+        verify(platform, times(2)).cancelTask(TASK_ID);
+    }
+
+    @Test
+    @DisplayName("keeps its platform task if the platform can't cancel it")
+    void keepsTaskWithoutCancel() {
+        when(platform.cancelTask(TASK_ID)).thenReturn(false);
+        scheduler.submit(new Steps("a", 1), "a", null);
+        tick();
+        assertTrue(scheduler.isTicking());
+        scheduler.submit(new Steps("b", 1), "b", null);
+        tick();
+        assertEquals(1, scheduled);
+        assertEquals(Arrays.asList("a0", "b0"), steps);
+    }
+
+    @Test
+    @DisplayName("completes operations right away if the platform can't schedule")
+    void withoutScheduler() {
+        when(platform.schedule(anyLong(), anyLong(), any())).thenReturn(-1);
+        Task<Operation> task = scheduler.submit(new Steps("a", 3), "a", null);
+        assertTrue(task.isDone());
+        assertEquals(Arrays.asList("a0", "a1", "a2"), steps);
+        assertFalse(scheduler.isTicking());
+    }
+
+    @Test
+    @DisplayName("aborts cancelled operations")
+    void cancel() {
+        Steps operation = new Steps("a", 3);
+        Task<Operation> task = scheduler.submit(operation, "a", null);
+        tick();
+        task.cancel(false);
+        tick();
+        assertEquals(Arrays.asList("a0"), steps);
+        assertTrue(operation.cancelled);
+        assertEquals(0, scheduler.getQueueSize());
+        assertSame(Task.State.CANCELLED, task.getState());
+    }
+
+    /**
+     * An operation that takes a fixed number of resumes to finish.
+     */
+    private final class Steps implements Operation {
+
+        private final String name;
+        private final int count;
+        private int done;
+        private boolean cancelled;
+
+        private Steps(String name, int count) {
+            this.name = name;
+            this.count = count;
+        }
+
+        @Override
+        public Operation resume(RunContext run) {
+            steps.add(name + done++);
+            return done < count ? this : null;
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+
+    }
+
+}
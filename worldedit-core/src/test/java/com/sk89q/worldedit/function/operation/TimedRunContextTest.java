@@ -0,0 +1,69 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.function.operation;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayName("A timed run context")
+class TimedRunContextTest {
+
+    @Test
+    @DisplayName("continues until its budget is used up")
+    void expires() {
+        long start = System.nanoTime();
+        TimedRunContext run = new TimedRunContext(5, TimeUnit.MILLISECONDS);
+        assertTrue(run.getRemaining(TimeUnit.NANOSECONDS) > 0);
+        while (run.shouldContinue()) {
+            Thread.yield();
+        }
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(5));
+        assertFalse(run.shouldContinue());
+        assertEquals(0, run.getRemaining(TimeUnit.NANOSECONDS));
+    }
+
+    @Test
+    @DisplayName("does not continue with a budget of zero")
+    void zeroBudget() {
+        assertFalse(new TimedRunContext(0, TimeUnit.MILLISECONDS).shouldContinue());
+    }
+
+    @Test
+    @DisplayName("continues with a budget that is not used up")
+    void largeBudget() {
+        TimedRunContext run = new TimedRunContext(1, TimeUnit.HOURS);
+        assertTrue(run.shouldContinue());
+        assertTrue(run.getRemaining(TimeUnit.MINUTES) > 58);
+    }
+
+    @Test
+    @DisplayName("rejects a negative budget")
+    void negativeBudget() {
+        assertThrows(IllegalArgumentException.class, () -> new TimedRunContext(-1, TimeUnit.MILLISECONDS));
+    }
+
+}
@@ -0,0 +1,159 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.function.pattern;
+
+import com.sk89q.worldedit.extension.input.ParserContext;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.util.FakePlatform;
+import com.sk89q.worldedit.world.block.BaseBlock;
+import com.sk89q.worldedit.world.block.BlockState;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+@DisplayName("A seeded random pattern")
+class RandomPatternTest {
+
+    private static final int SIZE = 40;
+
+    private static BlockState stone;
+    private static BlockState dirt;
+    private static BlockState sand;
+
+    @BeforeAll
+    static void setupFakePlatform() {
+        FakePlatform.setUp();
+        stone = FakePlatform.registerBlock("minecraft:stone");
+        dirt = FakePlatform.registerBlock("minecraft:dirt");
+        sand = FakePlatform.registerBlock("minecraft:sand");
+    }
+
+    @AfterAll
+    static void tearDownFakePlatform() throws Exception {
+        FakePlatform.tearDown();
+    }
+
+    private static List<BlockVector3> positions() {
+        List<BlockVector3> positions = new ArrayList<>();
+        for (int y = 0; y < SIZE; y++) {
+            for (int z = 0; z < SIZE; z++) {
+                for (int x = 0; x < SIZE; x++) {
+                    positions.add(BlockVector3.at(x, y, z));
+                }
+            }
+        }
+        return positions;
+    }
+
+    private static RandomPattern create(long seed) {
+        RandomPattern pattern = new RandomPattern(seed);
+        pattern.add(stone, 1);
+        pattern.add(dirt, 3);
+        return pattern;
+    }
+
+    @Test
+    @DisplayName("places the same blocks for the same seed, in any order")
+    void repeatable() {
+        List<BlockVector3> positions = positions();
+        RandomPattern first = create(42);
+        List<BaseBlock> expected = new ArrayList<>();
+        for (BlockVector3 position : positions) {
+            expected.add(first.apply(position));
+        }
+        RandomPattern second = create(42);
+        for (int i = positions.size() - 1; i >= 0; i--) {
+            assertEquals(expected.get(i), second.apply(positions.get(i)));
+        }
+    }
+
+    @Test
+    @DisplayName("places blocks in proportion to their chances")
+    void proportional() {
+        RandomPattern pattern = create(7);
+        int stones = 0;
+        List<BlockVector3> positions = positions();
+        for (BlockVector3 position : positions) {
+            if (pattern.apply(position).equals(stone.toBaseBlock())) {
+                stones++;
+            }
+        }
+        assertEquals(0.25, stones / (double) positions.size(), 0.01);
+    }
+
+    @Test
+    @DisplayName("places different blocks for different seeds")
+    void seedsDiffer() {
+        RandomPattern first = create(1);
+        RandomPattern second = create(2);
+        int differ = 0;
+        for (BlockVector3 position : positions()) {
+            if (!first.apply(position).equals(second.apply(position))) {
+                differ++;
+            }
+        }
+        assertNotEquals(0, differ);
+    }
+
+    @Test
+    @DisplayName("picks independently when nested with seeds from a parser context")
+    void nested() {
+        ParserContext context = new ParserContext();
+        context.setRandomSeed(1234L);
+        Long outerSeed = context.nextRandomSeed();
+        Long innerSeed = context.nextRandomSeed();
+        assertNotNull(outerSeed);
+        assertNotNull(innerSeed);
+        assertNotEquals(outerSeed, innerSeed);
+
+        RandomPattern inner = new RandomPattern(innerSeed);
+        inner.add(dirt, 1);
+        inner.add(sand, 1);
+        RandomPattern outer = new RandomPattern(outerSeed);
+        outer.add(stone, 1);
+        outer.add(inner, 1);
+
+        int dirts = 0;
+        int sands = 0;
+        for (BlockVector3 position : positions()) {
+            BaseBlock block = outer.apply(position);
+            if (block.equals(dirt.toBaseBlock())) {
+                dirts++;
+            } else if (block.equals(sand.toBaseBlock())) {
+                sands++;
+            }
+        }
+        assertEquals(0.5, dirts / (double) (dirts + sands), 0.02);
+
+        // parsing again from the same seed gives the same seeds
+        context.setRandomSeed(1234L);
+        assertEquals(outerSeed, context.nextRandomSeed());
+        assertEquals(innerSeed, context.nextRandomSeed());
+    }
+
+}
@@ -0,0 +1,147 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.function.visitor;
+
+import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.extent.AbstractDelegateExtent;
+import com.sk89q.worldedit.extent.Extent;
+import com.sk89q.worldedit.extent.clipboard.SectionedClipboard;
+import com.sk89q.worldedit.function.block.Counter;
+import com.sk89q.worldedit.function.operation.Operations;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.math.Vector2;
+import com.sk89q.worldedit.regions.CuboidRegion;
+import com.sk89q.worldedit.regions.CylinderRegion;
+import com.sk89q.worldedit.regions.Region;
+import com.sk89q.worldedit.util.FakePlatform;
+import com.sk89q.worldedit.world.block.BlockState;
+import com.sk89q.worldedit.world.block.BlockStateHolder;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayName("A parallel region visitor")
+class ParallelRegionVisitorTest {
+
+    private static BlockState stone;
+
+    @BeforeAll
+    static void setupFakePlatform() {
+        FakePlatform.setUp();
+        stone = FakePlatform.registerBlock("worldedit:parallel_stone");
+    }
+
+    @AfterAll
+    static void tearDownFakePlatform() throws Exception {
+        FakePlatform.tearDown();
+    }
+
+    private final ForkJoinPool pool = new ForkJoinPool(4);
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+    }
+
+    private int countSequentially(Region region) throws WorldEditException {
+        Counter counter = new Counter();
+        Operations.complete(new RegionVisitor(region, counter));
+        return counter.getCount();
+    }
+
+    private int countInParallel(Region region) throws WorldEditException {
+        Counter counter = new Counter();
+        Operations.complete(new ParallelRegionVisitor(region, counter, pool));
+        return counter.getCount();
+    }
+
+    @Test
+    @DisplayName("visits every position of a cuboid once")
+    void cuboid() throws WorldEditException {
+        Region region = new CuboidRegion(BlockVector3.at(-37, 3, -5), BlockVector3.at(70, 40, 91));
+        assertEquals(region.getArea(), countInParallel(region));
+    }
+
+    @Test
+    @DisplayName("visits only positions contained in other regions")
+    void cylinder() throws WorldEditException {
+        Region region = new CylinderRegion(BlockVector3.at(5, 0, -9), Vector2.at(40.5, 23.5), 10, 50);
+        assertEquals(countSequentially(region), countInParallel(region));
+    }
+
+    @Test
+    @DisplayName("commits buffered changes on the calling thread, one shard after another")
+    void buffered() throws WorldEditException {
+        // 4 by 4 chunk columns, so that each of the 16 shards gets one column
+        Region region = new CuboidRegion(BlockVector3.at(-32, 0, 16), BlockVector3.at(31, 63, 79));
+        RecordingExtent extent = new RecordingExtent(new SectionedClipboard(region));
+        ParallelRegionVisitor visitor = ParallelRegionVisitor.buffered(region, extent,
+            buffer -> position -> buffer.setBlock(position, stone) && buffer.getBlock(position) == stone, pool);
+        Operations.complete(visitor);
+
+        assertEquals(region.getArea(), visitor.getAffected());
+        assertEquals(region.getArea(), extent.writes.size());
+        Thread caller = Thread.currentThread();
+        for (Thread thread : extent.threads) {
+            assertSame(caller, thread);
+        }
+        int lastColumn = -1;
+        for (BlockVector3 position : extent.writes) {
+            int column = ((position.getBlockZ() >> 4) - 1) * 4 + (position.getBlockX() >> 4) + 2;
+            assertTrue(column >= lastColumn, position::toString);
+            lastColumn = column;
+        }
+        for (BlockVector3 position : region) {
+            assertSame(stone, extent.getBlock(position), position::toString);
+        }
+    }
+
+    /**
+     * An extent that records which positions are written, and from which thread.
+     */
+    private static final class RecordingExtent extends AbstractDelegateExtent {
+
+        private final List<BlockVector3> writes = new ArrayList<>();
+        private final List<Thread> threads = new ArrayList<>();
+
+        private RecordingExtent(Extent extent) {
+            super(extent);
+        }
+
+        @Override
+        public <T extends BlockStateHolder<T>> boolean setBlock(BlockVector3 location, T block) throws WorldEditException {
+            writes.add(location);
+            threads.add(Thread.currentThread());
+            return super.setBlock(location, block);
+        }
+
+    }
+
+}
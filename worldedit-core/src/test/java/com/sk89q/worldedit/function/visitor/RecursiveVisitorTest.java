@@ -0,0 +1,132 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.function.visitor;
+
+import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.function.block.Counter;
+import com.sk89q.worldedit.function.mask.AbstractMask;
+import com.sk89q.worldedit.function.mask.Mask;
+import com.sk89q.worldedit.function.mask.Mask2D;
+import com.sk89q.worldedit.function.mask.RegionMask;
+import com.sk89q.worldedit.function.operation.Operations;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.regions.CuboidRegion;
+import com.sk89q.worldedit.regions.Region;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.annotation.Nullable;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@DisplayName("A recursive visitor")
+class RecursiveVisitorTest {
+
+    private int flood(Region region, BlockVector3 start) throws WorldEditException {
+        Counter counter = new Counter();
+        RecursiveVisitor visitor = new RecursiveVisitor(new RegionMask(region), counter);
+        visitor.visit(start);
+        Operations.complete(visitor);
+        return counter.getCount();
+    }
+
+    @Test
+    @DisplayName("visits every connected position once")
+    void fillsRegion() throws WorldEditException {
+        Region region = new CuboidRegion(BlockVector3.at(-20, 5, -3), BlockVector3.at(40, 70, 19));
+        assertEquals(region.getArea(), flood(region, BlockVector3.at(0, 10, 0)));
+    }
+
+    /**
+     * A box that can only be tested by coordinates.
+     */
+    private static final class CoordinateMask extends AbstractMask {
+
+        private final BlockVector3 min;
+        private final BlockVector3 max;
+
+        CoordinateMask(BlockVector3 min, BlockVector3 max) {
+            this.min = min;
+            this.max = max;
+        }
+
+        @Override
+        public boolean test(BlockVector3 vector) {
+            throw new AssertionError("The mask was tested with a vector");
+        }
+
+        @Override
+        public boolean test(int x, int y, int z) {
+            return x >= min.getX() && x <= max.getX()
+                && y >= min.getY() && y <= max.getY()
+                && z >= min.getZ() && z <= max.getZ();
+        }
+
+        @Nullable
+        @Override
+        public Mask2D toMask2D() {
+            return null;
+        }
+    }
+
+    @Test
+    @DisplayName("tests the mask by coordinates")
+    void testsByCoordinates() throws WorldEditException {
+        BlockVector3 min = BlockVector3.at(-5, 10, 3);
+        BlockVector3 max = BlockVector3.at(12, 20, 9);
+        CoordinateMask mask = new CoordinateMask(min, max);
+        Counter counter = new Counter();
+        RecursiveVisitor visitor = new RecursiveVisitor(mask, counter);
+        visitor.visit(BlockVector3.at(0, 15, 5));
+        Operations.complete(visitor);
+        assertEquals(new CuboidRegion(min, max).getArea(), counter.getCount());
+    }
+
+    @Test
+    @DisplayName("visits downwards with a mask tested by coordinates")
+    void downwardByCoordinates() throws WorldEditException {
+        BlockVector3 min = BlockVector3.at(-5, 10, 3);
+        BlockVector3 max = BlockVector3.at(12, 20, 9);
+        Mask mask = new CoordinateMask(min, max);
+        Counter counter = new Counter();
+        RecursiveVisitor visitor = new DownwardVisitor(mask, counter, 15);
+        visitor.visit(BlockVector3.at(0, 15, 5));
+        Operations.complete(visitor);
+        assertEquals(new CuboidRegion(min, max.withY(15)).getArea(), counter.getCount());
+    }
+
+    @Test
+    @DisplayName("rejects start positions outside the searchable range")
+    void rejectsOutOfRange() {
+        Region region = new CuboidRegion(BlockVector3.ZERO, BlockVector3.ZERO);
+        RecursiveVisitor visitor = new RecursiveVisitor(new RegionMask(region), new Counter());
+        assertThrows(IllegalArgumentException.class, () -> visitor.visit(BlockVector3.at(1 << 25, 0, 0)));
+        assertThrows(IllegalArgumentException.class, () -> visitor.visit(BlockVector3.at(0, 1 << 11, 0)));
+    }
+
+    @Test
+    @DisplayName("visits positions below zero")
+    void belowZero() throws WorldEditException {
+        Region region = new CuboidRegion(BlockVector3.at(-1000, -64, -1000), BlockVector3.at(-990, -40, -985));
+        assertEquals(region.getArea(), flood(region, BlockVector3.at(-995, -50, -990)));
+    }
+
+}
@@ -0,0 +1,113 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.function.visitor;
+
+import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.function.operation.Operation;
+import com.sk89q.worldedit.function.operation.RunContext;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.regions.CuboidRegion;
+import com.sk89q.worldedit.regions.Region;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+@DisplayName("A region visitor")
+class RegionVisitorTest {
+
+    private final Region region = new CuboidRegion(BlockVector3.at(-2, 5, 3), BlockVector3.at(3, 8, 6));
+
+    /**
+     * A run context that allows a fixed number of blocks per resume.
+     */
+    private static final class CountingRunContext extends RunContext {
+
+        private final int limit;
+        private int remaining;
+
+        private CountingRunContext(int limit) {
+            this.limit = limit;
+        }
+
+        void reset() {
+            remaining = limit;
+        }
+
+        @Override
+        public boolean shouldContinue() {
+            return --remaining > 0;
+        }
+
+    }
+
+    @Test
+    @DisplayName("yields when the run should not continue, and resumes where it stopped")
+    void yieldAndResume() throws WorldEditException {
+        List<BlockVector3> visited = new ArrayList<>();
+        RegionVisitor visitor = new RegionVisitor(region, position -> {
+            visited.add(position);
+            return position.getBlockX() % 2 == 0;
+        });
+
+        CountingRunContext run = new CountingRunContext(7);
+        int resumes = 0;
+        Operation operation = visitor;
+        while (operation != null) {
+            run.reset();
+            int before = visited.size();
+            operation = operation.resume(run);
+            resumes++;
+            if (operation != null) {
+                assertSame(visitor, operation);
+                assertEquals(7, visited.size() - before);
+            }
+        }
+
+        int area = region.getArea();
+        assertEquals((area + 6) / 7, resumes);
+        assertEquals(area, visited.size());
+        assertEquals(area, new HashSet<>(visited).size());
+        int expected = 0;
+        for (BlockVector3 position : region) {
+            if (position.getBlockX() % 2 == 0) {
+                expected++;
+            }
+        }
+        assertEquals(expected, visitor.getAffected());
+    }
+
+    @Test
+    @DisplayName("finishes in one resume when the run may continue")
+    void unlimited() throws WorldEditException {
+        List<BlockVector3> visited = new ArrayList<>();
+        RegionVisitor visitor = new RegionVisitor(region, visited::add);
+        assertNull(visitor.resume(new RunContext()));
+        assertEquals(region.getArea(), visited.size());
+        assertEquals(region.getArea(), visitor.getAffected());
+    }
+
+}
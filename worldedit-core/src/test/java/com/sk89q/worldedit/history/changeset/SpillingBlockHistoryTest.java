@@ -0,0 +1,168 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.history.changeset;
+
+import com.google.common.collect.ImmutableMap;
+import com.sk89q.jnbt.CompoundTag;
+import com.sk89q.jnbt.StringTag;
+import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.extent.clipboard.SectionedClipboard;
+import com.sk89q.worldedit.function.operation.ChangeSetExecutor;
+import com.sk89q.worldedit.function.operation.Operations;
+import com.sk89q.worldedit.history.UndoContext;
+import com.sk89q.worldedit.history.change.BlockChange;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.regions.CuboidRegion;
+import com.sk89q.worldedit.util.FakePlatform;
+import com.sk89q.worldedit.world.block.BaseBlock;
+import com.sk89q.worldedit.world.block.BlockState;
+import com.sk89q.worldedit.world.block.BlockTypes;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayName("A spilling block history")
+class SpillingBlockHistoryTest {
+
+    private static final int SIZE = 64;
+
+    private static BlockState stone;
+    private static BlockState dirt;
+
+    @BeforeAll
+    static void setupFakePlatform() {
+        FakePlatform.setUp();
+        stone = FakePlatform.registerBlock("minecraft:stone");
+        dirt = FakePlatform.registerBlock("minecraft:dirt");
+    }
+
+    @AfterAll
+    static void tearDownFakePlatform() throws Exception {
+        FakePlatform.tearDown();
+    }
+
+    private final BlockState air = checkNotNull(BlockTypes.AIR).getDefaultState();
+
+    private SectionedClipboard createTarget() {
+        return new SectionedClipboard(new CuboidRegion(BlockVector3.ZERO, BlockVector3.at(SIZE - 1, SIZE - 1, SIZE - 1)));
+    }
+
+    /**
+     * Record air -> stone for every position, then stone -> dirt for every
+     * position, so that the order of entries matters.
+     */
+    private void record(SpillingBlockHistory history) {
+        for (BlockState[] step : new BlockState[][] {{air, stone}, {stone, dirt}}) {
+            for (int y = 0; y < SIZE; y++) {
+                for (int z = 0; z < SIZE; z++) {
+                    for (int x = 0; x < SIZE; x++) {
+                        history.add(new BlockChange(BlockVector3.at(x, y, z), step[0], step[1]));
+                    }
+                }
+            }
+        }
+    }
+
+    private void assertAll(SectionedClipboard target, BlockState expected) {
+        for (int y = 0; y < SIZE; y++) {
+            for (int z = 0; z < SIZE; z++) {
+                for (int x = 0; x < SIZE; x++) {
+                    assertEquals(expected, target.getBlock(BlockVector3.at(x, y, z)));
+                }
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("undoes and redoes changes that were written to disk")
+    void spilledUndoRedo() throws IOException {
+        try (SpillingBlockHistory history = new SpillingBlockHistory(0)) {
+            record(history);
+            assertEquals(SIZE * SIZE * SIZE, history.size());
+            assertEquals(SIZE * SIZE * SIZE * 2, history.getBlockChangeCount());
+            assertTrue(history.getDiskUsed() > 0);
+
+            SectionedClipboard target = createTarget();
+            UndoContext context = new UndoContext();
+            context.setExtent(target);
+
+            Operations.completeBlindly(ChangeSetExecutor.createRedo(history, context));
+            assertAll(target, dirt);
+            Operations.completeBlindly(ChangeSetExecutor.createUndo(history, context));
+            assertAll(target, air);
+        }
+    }
+
+    @Test
+    @DisplayName("keeps blocks with NBT data in order with encoded blocks")
+    void nbtInOrder() throws WorldEditException, IOException {
+        try (SpillingBlockHistory history = new SpillingBlockHistory(-1)) {
+            BlockVector3 position = BlockVector3.at(1, 2, 3);
+            BaseBlock withNbt = stone.toBaseBlock(new CompoundTag(ImmutableMap.of("id", new StringTag("test"))));
+            history.add(new BlockChange(position, air, withNbt));
+            history.add(new BlockChange(position, withNbt, dirt));
+            assertEquals(0, history.getDiskUsed());
+            assertEquals(1, history.size());
+
+            SectionedClipboard target = createTarget();
+            target.setBlock(position, dirt);
+
+            SpillingBlockHistory.BlockCursor cursor = history.blockCursor(true);
+            assertTrue(cursor.next());
+            cursor.apply(target);
+            assertEquals(withNbt, target.getFullBlock(position));
+            assertTrue(cursor.next());
+            cursor.apply(target);
+            assertEquals(air, target.getBlock(position));
+        }
+    }
+
+    @Test
+    @DisplayName("starts with a small buffer and grows it")
+    void growsBuffer() throws IOException {
+        try (SpillingBlockHistory history = new SpillingBlockHistory(-1)) {
+            assertEquals(0, history.getMemoryUsed());
+            history.add(new BlockChange(BlockVector3.ZERO, air, stone));
+            long initial = history.getMemoryUsed();
+            assertTrue(initial > 0 && initial <= 4096, "initial buffer is small");
+
+            record(history);
+            assertTrue(history.getMemoryUsed() > initial);
+            assertEquals(0, history.getDiskUsed());
+            assertEquals(SIZE * SIZE * SIZE, history.size());
+
+            SectionedClipboard target = createTarget();
+            UndoContext context = new UndoContext();
+            context.setExtent(target);
+            Operations.completeBlindly(ChangeSetExecutor.createRedo(history, context));
+            assertAll(target, dirt);
+            Operations.completeBlindly(ChangeSetExecutor.createUndo(history, context));
+            assertAll(target, air);
+        }
+    }
+
+}
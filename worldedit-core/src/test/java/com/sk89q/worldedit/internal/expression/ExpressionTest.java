@@ -31,6 +31,7 @@
 import static com.sk89q.worldedit.internal.expression.ExpressionTestCase.testCase;
 import static java.lang.Math.atan2;
 import static java.lang.Math.sin;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
@@ -424,4 +425,25 @@ public void testTimeout() {
         assertTrue(e.getMessage().contains("Calculations exceeded time limit"));
     }
 
+    @Test
+    public void testBatch() {
+        Expression expression = compile("y = x * 2; x + 1", "x", "y");
+        double[][] values = {{1, 2, 3}, {0, 0, 0}};
+        double[] results = new double[3];
+        expression.evaluateBatch(values, results, 3, 1_000);
+        assertArrayEquals(new double[] {2, 3, 4}, results, 0);
+        assertArrayEquals(new double[] {2, 4, 6}, values[1], 0);
+    }
+
+    @Test
+    public void testBatchTimeout() {
+        Expression expression = compile("for(i=0;i<256;i++){for(j=0;j<256;j++){for(k=0;k<256;k++){x+1}}}", "x");
+        double[][] values = {{1, 2}};
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () ->
+            assertThrows(ExpressionTimeoutException.class,
+                () -> expression.evaluateBatch(values, new double[2], 2, 50),
+                "Loop was not stopped.")
+        );
+    }
+
 }
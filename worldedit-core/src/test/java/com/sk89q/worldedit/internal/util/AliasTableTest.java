@@ -0,0 +1,58 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.internal.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@DisplayName("An alias table")
+class AliasTableTest {
+
+    private static final int SAMPLES = 1_000_000;
+
+    @Test
+    @DisplayName("samples indices in proportion to their weights")
+    void proportional() {
+        double[] weights = {5, 3, 0, 1, 1, 10, 0.5};
+        double total = 20.5;
+        AliasTable table = new AliasTable(weights);
+        int[] counts = new int[weights.length];
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < SAMPLES; i++) {
+            counts[table.sample(random.nextLong())]++;
+        }
+        for (int i = 0; i < weights.length; i++) {
+            assertEquals(weights[i] / total, counts[i] / (double) SAMPLES, 0.005, "index " + i);
+        }
+        assertEquals(0, counts[2]);
+    }
+
+    @Test
+    @DisplayName("rejects weights that are all zero")
+    void allZero() {
+        assertThrows(IllegalArgumentException.class, () -> new AliasTable(new double[] {0, 0}));
+    }
+
+}
@@ -0,0 +1,139 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.internal.util;
+
+import com.sk89q.worldedit.math.BlockVector3;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayName("A position random")
+class PositionRandomTest {
+
+    private static final int SIZE = 40;
+
+    private static List<BlockVector3> positions() {
+        List<BlockVector3> positions = new ArrayList<>();
+        for (int y = 0; y < SIZE; y++) {
+            for (int z = 0; z < SIZE; z++) {
+                for (int x = 0; x < SIZE; x++) {
+                    positions.add(BlockVector3.at(x - SIZE / 2, y, z - SIZE / 2));
+                }
+            }
+        }
+        return positions;
+    }
+
+    @Test
+    @DisplayName("gives the same bits for the same seed and position in any order")
+    void seededIsRepeatable() {
+        PositionRandom first = PositionRandom.seeded(1234);
+        PositionRandom second = PositionRandom.seeded(1234);
+        assertTrue(first.isSeeded());
+        List<BlockVector3> positions = positions();
+        List<Long> expected = new ArrayList<>();
+        for (BlockVector3 position : positions) {
+            expected.add(first.nextLong(position));
+        }
+        List<BlockVector3> shuffled = new ArrayList<>(positions);
+        Collections.reverse(shuffled);
+        for (int i = 0; i < shuffled.size(); i++) {
+            assertEquals((long) expected.get(shuffled.size() - 1 - i), second.nextLong(shuffled.get(i)));
+        }
+    }
+
+    @Test
+    @DisplayName("gives different bits for different seeds")
+    void seedsDiffer() {
+        PositionRandom first = PositionRandom.seeded(1);
+        PositionRandom second = PositionRandom.seeded(2);
+        int same = 0;
+        for (BlockVector3 position : positions()) {
+            if (first.nextLong(position) == second.nextLong(position)) {
+                same++;
+            }
+        }
+        assertEquals(0, same);
+    }
+
+    @Test
+    @DisplayName("spreads bounded numbers evenly over positions")
+    void uniform() {
+        PositionRandom random = PositionRandom.seeded(99);
+        int bound = 10;
+        int[] counts = new int[bound];
+        List<BlockVector3> positions = positions();
+        for (BlockVector3 position : positions) {
+            int value = random.nextInt(position, bound);
+            assertTrue(value >= 0 && value < bound);
+            counts[value]++;
+        }
+        for (int count : counts) {
+            assertEquals(1.0 / bound, count / (double) positions.size(), 0.01);
+        }
+    }
+
+    @Test
+    @DisplayName("gives uncorrelated bits for salted seeds")
+    void salted() {
+        long seed = 5678;
+        assertNotEquals(PositionRandom.salted(seed, 0), PositionRandom.salted(seed, 1));
+        assertEquals(PositionRandom.salted(seed, 3), PositionRandom.salted(seed, 3));
+
+        PositionRandom first = PositionRandom.seeded(PositionRandom.salted(seed, 0));
+        PositionRandom second = PositionRandom.seeded(PositionRandom.salted(seed, 1));
+        // both halves of a pair should agree about half of the time, also for shifted positions
+        for (int shift = 0; shift < 3; shift++) {
+            int agree = 0;
+            List<BlockVector3> positions = positions();
+            for (BlockVector3 position : positions) {
+                boolean a = first.nextLong(position) < 0;
+                boolean b = second.nextLong(position.add(shift, 0, 0)) < 0;
+                if (a == b) {
+                    agree++;
+                }
+            }
+            assertEquals(0.5, agree / (double) positions.size(), 0.01, "shift " + shift);
+        }
+    }
+
+    @Test
+    @DisplayName("does not repeat itself without a seed")
+    void unseeded() {
+        PositionRandom random = PositionRandom.unseeded();
+        assertFalse(random.isSeeded());
+        BlockVector3 position = BlockVector3.at(1, 2, 3);
+        long first = random.nextLong(position);
+        boolean differs = false;
+        for (int i = 0; i < 10 && !differs; i++) {
+            differs = random.nextLong(position) != first;
+        }
+        assertTrue(differs);
+    }
+
+}
@@ -0,0 +1,241 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.internal.wna;
+
+import com.google.common.collect.ImmutableMap;
+import com.sk89q.jnbt.CompoundTag;
+import com.sk89q.jnbt.StringTag;
+import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.extent.ChunkSectionBatch;
+import com.sk89q.worldedit.math.BlockVector2;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.util.FakePlatform;
+import com.sk89q.worldedit.util.SideEffect;
+import com.sk89q.worldedit.util.SideEffectSet;
+import com.sk89q.worldedit.world.block.BlockState;
+import com.sk89q.worldedit.world.block.BlockTypes;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayName("Native world access")
+class WorldNativeAccessTest {
+
+    private static BlockState stone;
+    private static BlockState dirt;
+
+    @BeforeAll
+    static void setupFakePlatform() {
+        FakePlatform.setUp();
+        stone = FakePlatform.registerBlock("minecraft:stone");
+        dirt = FakePlatform.registerBlock("minecraft:dirt");
+    }
+
+    @AfterAll
+    static void tearDownFakePlatform() throws Exception {
+        FakePlatform.tearDown();
+    }
+
+    /**
+     * Native access to a world in a map, which counts what is done to it.
+     */
+    private static final class FakeNativeAccess implements WorldNativeAccess<BlockVector2, BlockState, BlockVector3> {
+
+        private final BlockState air = checkNotNull(BlockTypes.AIR).getDefaultState();
+        private final Map<BlockVector3, BlockState> blocks = new HashMap<>();
+        private final Map<BlockVector3, CompoundTag> tileEntities = new HashMap<>();
+        private final List<List<BlockVector3>> lightingUpdates = new ArrayList<>();
+        private final List<BlockVector3> notified = new ArrayList<>();
+        private int chunkLookups;
+        private int conversions;
+        private int tickingChecks;
+        private int writes;
+        private int writesBeforeNotifying = -1;
+
+        @Override
+        public BlockVector2 getChunk(int x, int z) {
+            chunkLookups++;
+            return BlockVector2.at(x, z);
+        }
+
+        @Override
+        public BlockState toNative(BlockState state) {
+            conversions++;
+            return state;
+        }
+
+        @Override
+        public BlockState getBlockState(BlockVector2 chunk, BlockVector3 position) {
+            return blocks.getOrDefault(position, air);
+        }
+
+        @Override
+        public BlockState setBlockState(BlockVector2 chunk, BlockVector3 position, BlockState state) {
+            writes++;
+            BlockState old = blocks.put(position, state);
+            // like the game, nothing is returned if nothing changed
+            return state.equals(old) ? null : (old == null ? air : old);
+        }
+
+        @Override
+        public BlockState getValidBlockForPosition(BlockState block, BlockVector3 position) {
+            return block;
+        }
+
+        @Override
+        public BlockVector3 getPosition(int x, int y, int z) {
+            return BlockVector3.at(x, y, z);
+        }
+
+        @Override
+        public void updateLightingForBlock(BlockVector3 position) {
+            updateLightingForBlocks(Collections.singletonList(position));
+        }
+
+        @Override
+        public void updateLightingForBlocks(List<BlockVector3> positions) {
+            lightingUpdates.add(new ArrayList<>(positions));
+        }
+
+        @Override
+        public boolean updateTileEntity(BlockVector3 position, CompoundTag tag) {
+            tileEntities.put(position, tag);
+            return true;
+        }
+
+        @Override
+        public void notifyBlockUpdate(BlockVector3 position, BlockState oldState, BlockState newState) {
+        }
+
+        @Override
+        public boolean isChunkTicking(BlockVector2 chunk) {
+            tickingChecks++;
+            return true;
+        }
+
+        @Override
+        public void markBlockChanged(BlockVector3 position) {
+        }
+
+        @Override
+        public void notifyNeighbors(BlockVector3 pos, BlockState oldState, BlockState newState) {
+            if (writesBeforeNotifying < 0) {
+                writesBeforeNotifying = writes;
+            }
+            notified.add(pos);
+        }
+
+        @Override
+        public void updateNeighbors(BlockVector3 pos, BlockState oldState, BlockState newState) {
+        }
+
+        @Override
+        public void onBlockStateChange(BlockVector3 pos, BlockState oldState, BlockState newState) {
+        }
+
+    }
+
+    private static ChunkSectionBatch createBatch(BlockState... states) {
+        ChunkSectionBatch batch = new ChunkSectionBatch();
+        batch.reset(-1, 4, 2);
+        for (int i = 0; i < states.length; i++) {
+            batch.add(ChunkSectionBatch.getSectionIndex(i, 70, 35), states[i].toBaseBlock());
+        }
+        return batch;
+    }
+
+    @Test
+    @DisplayName("looks a batch's chunk up once, and converts runs of a state once")
+    void groupsLookups() throws WorldEditException {
+        FakeNativeAccess access = new FakeNativeAccess();
+        ChunkSectionBatch batch = createBatch(stone, stone, stone, dirt, dirt, stone);
+
+        assertEquals(6, access.setBlocks(batch, SideEffectSet.defaults()));
+        assertEquals(1, access.chunkLookups);
+        assertEquals(1, access.tickingChecks);
+        assertEquals(3, access.conversions);
+        for (int i = 0; i < batch.size(); i++) {
+            assertEquals(batch.getBlock(i).toImmutableState(), access.blocks.get(batch.getPosition(i)));
+        }
+    }
+
+    @Test
+    @DisplayName("updates lighting and notifies once the whole batch is set, only for changed blocks")
+    void updatesAfterSetting() throws WorldEditException {
+        FakeNativeAccess access = new FakeNativeAccess();
+        ChunkSectionBatch batch = createBatch(stone, dirt, stone, dirt);
+        access.blocks.put(batch.getPosition(1), dirt);
+
+        assertEquals(3, access.setBlocks(batch, SideEffectSet.defaults()));
+        List<BlockVector3> changed = new ArrayList<>();
+        changed.add(batch.getPosition(0));
+        changed.add(batch.getPosition(2));
+        changed.add(batch.getPosition(3));
+        assertEquals(Collections.singletonList(changed), access.lightingUpdates);
+        assertEquals(changed, access.notified);
+        assertEquals(batch.size(), access.writesBeforeNotifying);
+    }
+
+    @Test
+    @DisplayName("skips lighting when it is turned off")
+    void noLighting() throws WorldEditException {
+        FakeNativeAccess access = new FakeNativeAccess();
+        access.setBlocks(createBatch(stone, dirt), SideEffectSet.defaults().with(SideEffect.LIGHTING, SideEffect.State.OFF));
+        assertTrue(access.lightingUpdates.isEmpty());
+        assertEquals(2, access.notified.size());
+    }
+
+    @Test
+    @DisplayName("writes block entities with their position")
+    void blockEntities() throws WorldEditException {
+        FakeNativeAccess access = new FakeNativeAccess();
+        ChunkSectionBatch batch = new ChunkSectionBatch();
+        batch.reset(-1, 4, 2);
+        batch.add(ChunkSectionBatch.getSectionIndex(-7, 70, 35),
+            stone.toBaseBlock(new CompoundTag(ImmutableMap.of("id", new StringTag("minecraft:chest")))));
+
+        assertEquals(1, access.setBlocks(batch, SideEffectSet.defaults()));
+        CompoundTag tag = access.tileEntities.get(BlockVector3.at(-7, 70, 35));
+        assertEquals("minecraft:chest", tag.getString("id"));
+        assertEquals(-7, tag.getInt("x"));
+        assertEquals(70, tag.getInt("y"));
+        assertEquals(35, tag.getInt("z"));
+    }
+
+    @Test
+    @DisplayName("does nothing for an empty batch")
+    void emptyBatch() throws WorldEditException {
+        FakeNativeAccess access = new FakeNativeAccess();
+        assertEquals(0, access.setBlocks(new ChunkSectionBatch(), SideEffectSet.defaults()));
+        assertEquals(0, access.chunkLookups);
+    }
+
+}
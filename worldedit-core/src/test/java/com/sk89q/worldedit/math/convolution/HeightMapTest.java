@@ -0,0 +1,142 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.math.convolution;
+
+import com.sk89q.worldedit.EditSession;
+import com.sk89q.worldedit.WorldEdit;
+import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.extent.clipboard.SectionedClipboard;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.regions.CuboidRegion;
+import com.sk89q.worldedit.regions.Region;
+import com.sk89q.worldedit.util.FakePlatform;
+import com.sk89q.worldedit.util.SideEffectSet;
+import com.sk89q.worldedit.world.NullWorld;
+import com.sk89q.worldedit.world.block.BaseBlock;
+import com.sk89q.worldedit.world.block.BlockState;
+import com.sk89q.worldedit.world.block.BlockStateHolder;
+import com.sk89q.worldedit.world.block.BlockType;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DisplayName("A height map")
+class HeightMapTest {
+
+    private static BlockState stone;
+    private static BlockState leaves;
+    private static BlockState torch;
+    private static BlockState dirt;
+
+    @BeforeAll
+    static void setupFakePlatform() {
+        FakePlatform.setUp();
+        stone = FakePlatform.registerBlock("minecraft:stone");
+        leaves = FakePlatform.registerBlock("minecraft:oak_leaves");
+        torch = FakePlatform.registerBlock("minecraft:torch");
+        // has no internal ID, so bulk reads have to read it again
+        dirt = new BlockType("minecraft:dirt").getDefaultState();
+    }
+
+    @AfterAll
+    static void tearDownFakePlatform() throws Exception {
+        FakePlatform.tearDown();
+    }
+
+    /**
+     * A world that keeps its blocks in a clipboard.
+     */
+    private static final class ClipboardWorld extends NullWorld {
+
+        private final SectionedClipboard clipboard = new SectionedClipboard(
+            new CuboidRegion(BlockVector3.at(-48, 0, -48), BlockVector3.at(47, 95, 47)));
+
+        @Override
+        public <B extends BlockStateHolder<B>> boolean setBlock(BlockVector3 position, B block, SideEffectSet sideEffects)
+                throws WorldEditException {
+            return clipboard.setBlock(position, block);
+        }
+
+        @Override
+        public BlockState getBlock(BlockVector3 position) {
+            return clipboard.getBlock(position);
+        }
+
+        @Override
+        public BaseBlock getFullBlock(BlockVector3 position) {
+            return clipboard.getFullBlock(position);
+        }
+
+        @Override
+        public void getBlockStateIds(BlockVector3 min, BlockVector3 max, int[] ids) {
+            clipboard.getBlockStateIds(min, max, ids);
+        }
+
+    }
+
+    private ClipboardWorld createWorld() throws WorldEditException {
+        ClipboardWorld world = new ClipboardWorld();
+        Random random = new Random(42);
+        for (int z = -48; z < 48; z++) {
+            for (int x = -48; x < 48; x++) {
+                // some columns stay empty, and some reach above the region
+                int top = random.nextInt(100) - 5;
+                for (int y = 0; y <= top; y++) {
+                    world.setBlock(BlockVector3.at(x, y, z), y == top && random.nextBoolean() ? dirt : stone,
+                        SideEffectSet.none());
+                }
+                if (random.nextInt(4) == 0) {
+                    world.setBlock(BlockVector3.at(x, top + 1, z), torch, SideEffectSet.none());
+                }
+                if (random.nextInt(6) == 0) {
+                    world.setBlock(BlockVector3.at(x, top + 8, z), leaves, SideEffectSet.none());
+                }
+            }
+        }
+        return world;
+    }
+
+    @Test
+    @DisplayName("reads the same heights in bulk as column by column")
+    void bulkHeights() throws WorldEditException {
+        ClipboardWorld world = createWorld();
+        // not aligned to chunk sections, and not a multiple of 16 high
+        Region region = new CuboidRegion(BlockVector3.at(-37, 7, -21), BlockVector3.at(30, 77, 13));
+        BlockVector3 min = region.getMinimumPoint();
+        BlockVector3 max = region.getMaximumPoint();
+        try (EditSession session = WorldEdit.getInstance().getEditSessionFactory().getEditSession(world, -1)) {
+            int[] heights = new HeightMap(session, region, null).getData();
+            int width = region.getWidth();
+            for (int z = min.getBlockZ(); z <= max.getBlockZ(); z++) {
+                for (int x = min.getBlockX(); x <= max.getBlockX(); x++) {
+                    assertEquals(session.getHighestTerrainBlock(x, z, min.getBlockY(), max.getBlockY()),
+                        heights[(z - min.getBlockZ()) * width + (x - min.getBlockX())],
+                        "height at " + x + ", " + z);
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,118 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.regions;
+
+import com.google.common.collect.ImmutableList;
+import com.sk89q.worldedit.math.BlockVector2;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.math.Vector2;
+import com.sk89q.worldedit.math.Vector3;
+import com.sk89q.worldedit.world.World;
+import com.sk89q.worldedit.world.storage.ChunkStore;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DisplayName("The chunks of a region")
+class RegionChunksTest {
+
+    /**
+     * Check the packed chunks and chunk cubes of a region against the chunks
+     * of every block in its bounding box that it contains, and that the
+     * blocks found chunk by chunk add up to the volume.
+     */
+    private static void assertChunksMatch(Region region) {
+        BlockVector3 min = region.getMinimumPoint();
+        BlockVector3 max = region.getMaximumPoint();
+        LongSet chunks = new LongOpenHashSet();
+        LongSet cubes = new LongOpenHashSet();
+        long volume = 0;
+        for (int x = min.getBlockX(); x <= max.getBlockX(); x++) {
+            for (int y = min.getBlockY(); y <= max.getBlockY(); y++) {
+                for (int z = min.getBlockZ(); z <= max.getBlockZ(); z++) {
+                    if (region.contains(BlockVector3.at(x, y, z))) {
+                        chunks.add(BlockVector2.toLongPackedForm(x >> 4, z >> 4));
+                        cubes.add(ChunkStore.packChunkCube(x >> 4, y >> 4, z >> 4));
+                        volume++;
+                    }
+                }
+            }
+        }
+        assertEquals(chunks, region.getPackedChunks());
+        assertEquals(cubes, region.getPackedChunkCubes());
+        assertEquals(chunks.size(), region.getChunks().size());
+        assertEquals(cubes.size(), region.getChunkCubes().size());
+
+        long[] found = new long[1];
+        for (LongIterator it = chunks.iterator(); it.hasNext(); ) {
+            BlockVector2 chunk = BlockVector2.fromLongPackedForm(it.nextLong());
+            Regions.forEachBlockInChunk(region, chunk.getX(), chunk.getZ(), position -> found[0]++);
+        }
+        assertEquals(volume, found[0]);
+    }
+
+    @Test
+    @DisplayName("match a cuboid")
+    void cuboid() {
+        assertChunksMatch(new CuboidRegion(BlockVector3.at(-20, -5, 3), BlockVector3.at(18, 40, 35)));
+    }
+
+    @Test
+    @DisplayName("match a cylinder")
+    void cylinder() {
+        assertChunksMatch(new CylinderRegion(BlockVector3.at(7, 0, -9), Vector2.at(30.5, 21.5), 0, 20));
+    }
+
+    @Test
+    @DisplayName("match an ellipsoid")
+    void ellipsoid() {
+        assertChunksMatch(new EllipsoidRegion(null, BlockVector3.at(-3, 20, 11), Vector3.at(37.5, 18.5, 26.5)));
+    }
+
+    @Test
+    @DisplayName("match a concave polygon")
+    void polygon() {
+        assertChunksMatch(new Polygonal2DRegion(null, ImmutableList.of(
+            BlockVector2.at(-30, -2),
+            BlockVector2.at(40, 6),
+            BlockVector2.at(10, 18),
+            BlockVector2.at(38, 45),
+            BlockVector2.at(-4, 50),
+            BlockVector2.at(3, 20)
+        ), -3, 17));
+    }
+
+    @Test
+    @DisplayName("match a tilted convex polyhedron")
+    void convexPolyhedron() {
+        ConvexPolyhedralRegion region = new ConvexPolyhedralRegion((World) null);
+        region.addVertex(BlockVector3.at(-10, 0, -4));
+        region.addVertex(BlockVector3.at(50, 9, 15));
+        region.addVertex(BlockVector3.at(8, 44, 6));
+        region.addVertex(BlockVector3.at(5, 3, 40));
+        region.addVertex(BlockVector3.at(33, 30, 37));
+        assertChunksMatch(region);
+    }
+
+}
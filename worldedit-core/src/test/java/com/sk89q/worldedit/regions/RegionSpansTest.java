@@ -0,0 +1,148 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.regions;
+
+import com.google.common.collect.ImmutableList;
+import com.sk89q.worldedit.math.BlockVector2;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.math.Vector2;
+import com.sk89q.worldedit.math.Vector3;
+import com.sk89q.worldedit.world.World;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayName("The spans of a region")
+class RegionSpansTest {
+
+    /**
+     * Check that the spans of every row in the bounding box match
+     * {@link Region#contains(BlockVector3)},
+     * and that iteration agrees with them.
+     */
+    private static void assertSpansMatch(Region region) {
+        BlockVector3 min = region.getMinimumPoint();
+        BlockVector3 max = region.getMaximumPoint();
+        SpanList spans = new SpanList();
+        long volume = 0;
+        for (int y = min.getBlockY(); y <= max.getBlockY(); y++) {
+            for (int z = min.getBlockZ(); z <= max.getBlockZ(); z++) {
+                spans.clear();
+                region.collectSpans(y, z, spans);
+                SpanList expected = new SpanList();
+                for (int x = min.getBlockX(); x <= max.getBlockX(); x++) {
+                    if (region.contains(BlockVector3.at(x, y, z))) {
+                        expected.add(x, x);
+                    }
+                }
+                assertEquals(expected.toString(), spans.toString(), "Row at y=" + y + ", z=" + z);
+                volume += expected.getVolume();
+            }
+        }
+
+        if (region instanceof RegionIntersection) {
+            // iteration may repeat blocks in more than one region
+            return;
+        }
+        long iterated = 0;
+        for (BlockVector3 position : region) {
+            iterated++;
+        }
+        assertEquals(volume, iterated);
+    }
+
+    @Test
+    @DisplayName("match a cuboid")
+    void cuboid() {
+        assertSpansMatch(new CuboidRegion(BlockVector3.at(-3, 2, 5), BlockVector3.at(7, 9, -4)));
+    }
+
+    @Test
+    @DisplayName("match cylinders")
+    void cylinder() {
+        assertSpansMatch(new CylinderRegion(BlockVector3.at(3, 0, -2), Vector2.at(7.5, 4.5), 0, 3));
+        assertSpansMatch(new CylinderRegion(BlockVector3.at(0, 0, 0), Vector2.at(0.5, 12.5), -2, 2));
+    }
+
+    @Test
+    @DisplayName("match ellipsoids")
+    void ellipsoid() {
+        assertSpansMatch(new EllipsoidRegion(null, BlockVector3.at(1, 10, -1), Vector3.at(9.5, 4.5, 6.5)));
+        assertSpansMatch(new EllipsoidRegion(null, BlockVector3.at(0, 0, 0), Vector3.at(3, 7, 2)));
+    }
+
+    @Test
+    @DisplayName("match a concave polygon")
+    void polygon() {
+        assertSpansMatch(new Polygonal2DRegion(null, ImmutableList.of(
+            BlockVector2.at(0, 0),
+            BlockVector2.at(20, 3),
+            BlockVector2.at(8, 8),
+            BlockVector2.at(19, 15),
+            BlockVector2.at(2, 17),
+            BlockVector2.at(5, 9)
+        ), 0, 2));
+    }
+
+    @Test
+    @DisplayName("match a tilted convex polyhedron")
+    void convexPolyhedron() {
+        ConvexPolyhedralRegion region = new ConvexPolyhedralRegion((World) null);
+        region.addVertex(BlockVector3.at(0, 0, 0));
+        region.addVertex(BlockVector3.at(17, 3, 5));
+        region.addVertex(BlockVector3.at(4, 14, 2));
+        region.addVertex(BlockVector3.at(3, 1, 12));
+        region.addVertex(BlockVector3.at(11, 9, 13));
+        assertSpansMatch(region);
+    }
+
+    @Test
+    @DisplayName("follow a convex polyhedron as it changes")
+    void changedConvexPolyhedron() throws RegionOperationException {
+        ConvexPolyhedralRegion region = new ConvexPolyhedralRegion((World) null);
+        region.addVertex(BlockVector3.at(0, 0, 0));
+        region.addVertex(BlockVector3.at(10, 0, 0));
+        region.addVertex(BlockVector3.at(0, 10, 0));
+        region.addVertex(BlockVector3.at(0, 0, 10));
+        assertSpansMatch(region);
+        assertFalse(region.contains(BlockVector3.at(9, 9, 9)));
+
+        region.addVertex(BlockVector3.at(10, 10, 10));
+        assertSpansMatch(region);
+        assertTrue(region.contains(BlockVector3.at(9, 9, 9)));
+
+        region.shift(BlockVector3.at(1, 0, 0));
+        assertSpansMatch(region);
+        assertFalse(region.contains(BlockVector3.at(0, 0, 0)));
+    }
+
+    @Test
+    @DisplayName("match a union of regions")
+    void intersection() {
+        assertSpansMatch(new RegionIntersection(
+            new CuboidRegion(BlockVector3.at(0, 0, 0), BlockVector3.at(4, 4, 4)),
+            new EllipsoidRegion(null, BlockVector3.at(6, 2, 2), Vector3.at(3.5, 2.5, 2.5))
+        ));
+    }
+
+}
@@ -0,0 +1,151 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.util;
+
+import com.google.common.collect.ImmutableMap;
+import com.sk89q.worldedit.LocalConfiguration;
+import com.sk89q.worldedit.WorldEdit;
+import com.sk89q.worldedit.extension.platform.Capability;
+import com.sk89q.worldedit.extension.platform.Platform;
+import com.sk89q.worldedit.extension.platform.Preference;
+import com.sk89q.worldedit.internal.block.BlockStateIdAccess;
+import com.sk89q.worldedit.registry.Registry;
+import com.sk89q.worldedit.registry.state.Property;
+import com.sk89q.worldedit.world.block.BlockState;
+import com.sk89q.worldedit.world.block.BlockType;
+import com.sk89q.worldedit.world.registry.BlockRegistry;
+import com.sk89q.worldedit.world.registry.BundledBlockRegistry;
+import com.sk89q.worldedit.world.registry.BundledRegistries;
+
+import java.lang.reflect.Field;
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * A mocked platform with the bundled registries, for tests that need block
+ * types and internal block state IDs.
+ *
+ * <p>Call {@link #setUp()} before the tests of a class and
+ * {@link #tearDown()} after them. Blocks registered in between are removed
+ * again by the tear down.</p>
+ */
+public final class FakePlatform {
+
+    private static Platform platform;
+    private static LocalConfiguration configuration;
+    private static final Map<String, Map<String, Property<?>>> properties = new HashMap<>();
+
+    /**
+     * Register the platform, and {@code minecraft:air}.
+     */
+    public static void setUp() {
+        checkState(platform == null, "The fake platform is already set up");
+        platform = mock(Platform.class);
+        configuration = new LocalConfiguration() {
+            @Override
+            public void load() {
+            }
+        };
+        when(platform.getConfiguration()).thenReturn(configuration);
+        when(platform.getRegistries()).thenReturn(new BundledRegistries() {
+            private final BlockRegistry blockRegistry = new BundledBlockRegistry() {
+                @Override
+                public Map<String, ? extends Property<?>> getProperties(BlockType blockType) {
+                    return properties.getOrDefault(blockType.getId(), ImmutableMap.of());
+                }
+            };
+
+            @Override
+            public BlockRegistry getBlockRegistry() {
+                return blockRegistry;
+            }
+        });
+        when(platform.getCapabilities()).thenReturn(ImmutableMap.of(
+            Capability.WORLD_EDITING, Preference.PREFERRED,
+            Capability.GAME_HOOKS, Preference.PREFERRED
+        ));
+        WorldEdit.getInstance().getPlatformManager().register(platform);
+
+        registerBlock("minecraft:air");
+    }
+
+    /**
+     * Unregister the platform, and clear the block registry and the internal
+     * block state IDs.
+     */
+    public static void tearDown() throws Exception {
+        WorldEdit.getInstance().getPlatformManager().unregister(platform);
+        platform = null;
+        configuration = null;
+        properties.clear();
+        BlockStateIdAccess.clear();
+        Field map = Registry.class.getDeclaredField("map");
+        map.setAccessible(true);
+        ((Map<?, ?>) map.get(BlockType.REGISTRY)).clear();
+    }
+
+    /**
+     * Get the mocked platform, to stub more of it.
+     *
+     * @return the platform
+     */
+    public static Platform getPlatform() {
+        return checkNotNull(platform, "The fake platform is not set up");
+    }
+
+    /**
+     * Get the configuration of the platform, which tests may change.
+     *
+     * @return the configuration
+     */
+    public static LocalConfiguration getConfiguration() {
+        return checkNotNull(configuration, "The fake platform is not set up");
+    }
+
+    /**
+     * Register a block type, and give each of its states an internal ID.
+     *
+     * @param id the ID of the block type
+     * @param blockProperties the properties of the block type
+     * @return the default state
+     */
+    public static BlockState registerBlock(String id, Property<?>... blockProperties) {
+        ImmutableMap.Builder<String, Property<?>> byName = ImmutableMap.builder();
+        for (Property<?> property : blockProperties) {
+            byName.put(property.getName(), property);
+        }
+        properties.put(id, byName.build());
+        BlockType type = new BlockType(id);
+        BlockType.REGISTRY.register(id, type);
+        for (BlockState state : type.getAllStates()) {
+            BlockStateIdAccess.register(state, BlockStateIdAccess.invalidId());
+        }
+        return type.getDefaultState();
+    }
+
+    private FakePlatform() {
+    }
+
+}
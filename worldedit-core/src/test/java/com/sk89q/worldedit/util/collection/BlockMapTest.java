@@ -45,6 +45,7 @@
 
 import java.lang.reflect.Field;
 import java.util.AbstractMap;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.function.BiConsumer;
@@ -585,4 +586,36 @@ void containsAllInsertedVectors() {
         }
     }
 
+    @Test
+    @DisplayName("visits every entry once, chunk by chunk, with the chunk cursor")
+    void chunkCursorVisitsChunksInOrder() {
+        Set<BlockVector3> allVectors = VariedVectorsProvider.makeVectorsStream().collect(Collectors.toSet());
+        for (BlockVector3 vec : allVectors) {
+            map.put(vec, vec.getY() % 2 == 0 ? air : oakWood);
+        }
+        Set<BlockVector3> visited = new HashSet<>();
+        Set<BlockVector3> finishedChunks = new HashSet<>();
+        BlockVector3 chunk = null;
+        int lastY = Integer.MAX_VALUE;
+        BlockMap.ChunkCursor<BaseBlock> cursor = map.chunkCursor();
+        while (cursor.next()) {
+            BlockVector3 position = cursor.getPosition();
+            assertTrue(visited.add(position));
+            assertEquals(map.get(position), cursor.getValue());
+            assertEquals(BlockVector3.at(cursor.getX(), cursor.getY(), cursor.getZ()), position);
+            assertEquals((position.getY() & 15) << 8 | (position.getZ() & 15) << 4 | (position.getX() & 15),
+                cursor.getSectionIndex());
+            BlockVector3 currentChunk = BlockVector3.at(cursor.getChunkX(), 0, cursor.getChunkZ());
+            assertEquals(BlockVector3.at(position.getX() >> 4, 0, position.getZ() >> 4), currentChunk);
+            if (!currentChunk.equals(chunk)) {
+                assertTrue(finishedChunks.add(currentChunk), "chunk visited twice");
+                chunk = currentChunk;
+                lastY = Integer.MAX_VALUE;
+            }
+            assertTrue(position.getY() <= lastY, "not top to bottom");
+            lastY = position.getY();
+        }
+        assertEquals(allVectors, visited);
+    }
+
 }
@@ -0,0 +1,345 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.world.storage;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.ByteStreams;
+import com.sk89q.worldedit.math.BlockVector2;
+import com.sk89q.worldedit.world.DataException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.DeflaterOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayName("A region file cache")
+class RegionFileCacheTest {
+
+    private static final List<BlockVector2> CHUNKS = ImmutableList.of(
+        BlockVector2.at(0, 0), BlockVector2.at(1, 0), BlockVector2.at(5, 7), BlockVector2.at(31, 31)
+    );
+
+    @TempDir
+    Path directory;
+
+    /**
+     * The expected data of a chunk, long enough to span several sectors.
+     */
+    private static byte[] chunkData(Path file, BlockVector2 chunk) {
+        StringBuilder data = new StringBuilder();
+        for (int i = 0; data.length() < 10000; i++) {
+            data.append(file.getFileName()).append(' ').append(chunk).append(' ').append(i).append('\n');
+        }
+        return data.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static Path writeRegion(Path file) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(McRegionReader.SECTOR_BYTES * 2);
+        ByteArrayOutputStream sectors = new ByteArrayOutputStream();
+        int sector = 2;
+        for (BlockVector2 chunk : CHUNKS) {
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+            try (DeflaterOutputStream out = new DeflaterOutputStream(compressed)) {
+                out.write(chunkData(file, chunk));
+            }
+            ByteBuffer data = ByteBuffer.allocate(McRegionReader.CHUNK_HEADER_SIZE + compressed.size());
+            data.putInt(compressed.size() + 1);
+            data.put((byte) McRegionReader.VERSION_DEFLATE);
+            data.put(compressed.toByteArray());
+            int count = (data.capacity() + McRegionReader.SECTOR_BYTES - 1) / McRegionReader.SECTOR_BYTES;
+            sectors.write(data.array());
+            sectors.write(new byte[count * McRegionReader.SECTOR_BYTES - data.capacity()]);
+            header.putInt((chunk.getX() + chunk.getZ() * 32) * 4, sector << 8 | count);
+            sector += count;
+        }
+        Files.write(file, header.array());
+        Files.write(file, sectors.toByteArray(), StandardOpenOption.APPEND);
+        return file;
+    }
+
+    private static void assertChunk(RegionFileCache cache, Path file, BlockVector2 chunk) throws Exception {
+        try (InputStream in = cache.getChunkInputStream(file, chunk)) {
+            assertArrayEquals(chunkData(file, chunk), ByteStreams.toByteArray(in), chunk::toString);
+        }
+    }
+
+    /**
+     * Opens channels that remember whether they were closed, and that can
+     * hold reads of chunk data until released.
+     */
+    private static final class TrackingOpener implements RegionFileCache.ChannelOpener {
+
+        private final Map<Path, List<TrackingChannel>> opened = new ConcurrentHashMap<>();
+        private volatile CountDownLatch gate;
+        private final CountDownLatch waiting = new CountDownLatch(1);
+
+        @Override
+        public SeekableByteChannel open(Path path) throws IOException {
+            TrackingChannel channel = new TrackingChannel(Files.newByteChannel(path, StandardOpenOption.READ));
+            opened.computeIfAbsent(path, p -> new ArrayList<>()).add(channel);
+            return channel;
+        }
+
+        int openCount(Path path) {
+            return opened.getOrDefault(path, ImmutableList.of()).size();
+        }
+
+        boolean isOpen(Path path) {
+            return opened.getOrDefault(path, ImmutableList.of()).stream().anyMatch(SeekableByteChannel::isOpen);
+        }
+
+        private final class TrackingChannel implements SeekableByteChannel {
+
+            private final SeekableByteChannel channel;
+
+            TrackingChannel(SeekableByteChannel channel) {
+                this.channel = channel;
+            }
+
+            @Override
+            public int read(ByteBuffer dst) throws IOException {
+                CountDownLatch gate = TrackingOpener.this.gate;
+                if (gate != null && channel.position() >= McRegionReader.SECTOR_BYTES * 2) {
+                    waiting.countDown();
+                    try {
+                        gate.await();
+                    } catch (InterruptedException e) {
+                        throw new IOException(e);
+                    }
+                }
+                return channel.read(dst);
+            }
+
+            @Override
+            public int write(ByteBuffer src) throws IOException {
+                return channel.write(src);
+            }
+
+            @Override
+            public long position() throws IOException {
+                return channel.position();
+            }
+
+            @Override
+            public SeekableByteChannel position(long newPosition) throws IOException {
+                channel.position(newPosition);
+                return this;
+            }
+
+            @Override
+            public long size() throws IOException {
+                return channel.size();
+            }
+
+            @Override
+            public SeekableByteChannel truncate(long size) throws IOException {
+                channel.truncate(size);
+                return this;
+            }
+
+            @Override
+            public boolean isOpen() {
+                return channel.isOpen();
+            }
+
+            @Override
+            public void close() throws IOException {
+                channel.close();
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("reads chunks from a file it keeps open")
+    void reusesFiles() throws Exception {
+        TrackingOpener opener = new TrackingOpener();
+        RegionFileCache cache = new RegionFileCache(4, opener);
+        Path file = writeRegion(directory.resolve("r.0.0.mca"));
+
+        for (BlockVector2 chunk : CHUNKS) {
+            assertChunk(cache, file, chunk);
+        }
+
+        assertEquals(1, opener.openCount(file));
+        assertTrue(opener.isOpen(file));
+        assertEquals(1, cache.getMisses());
+        assertEquals(CHUNKS.size() - 1, cache.getHits());
+        assertEquals(1, cache.getOpenFileCount());
+    }
+
+    @Test
+    @DisplayName("reports chunks that are not generated")
+    void missingChunk() throws Exception {
+        RegionFileCache cache = new RegionFileCache(4);
+        Path file = writeRegion(directory.resolve("r.0.0.mca"));
+
+        assertThrows(DataException.class, () -> cache.getChunkInputStream(file, BlockVector2.at(2, 2)));
+        assertEquals(1, cache.getOpenFileCount());
+    }
+
+    @Test
+    @DisplayName("closes the least recently used file when full")
+    void evictsLeastRecentlyUsed() throws Exception {
+        TrackingOpener opener = new TrackingOpener();
+        RegionFileCache cache = new RegionFileCache(2, opener);
+        Path a = writeRegion(directory.resolve("r.0.0.mca"));
+        Path b = writeRegion(directory.resolve("r.0.1.mca"));
+        Path c = writeRegion(directory.resolve("r.1.0.mca"));
+
+        assertChunk(cache, a, CHUNKS.get(0));
+        assertChunk(cache, b, CHUNKS.get(0));
+        assertChunk(cache, a, CHUNKS.get(1));
+        assertChunk(cache, c, CHUNKS.get(0));
+
+        assertEquals(1, cache.getEvictions());
+        assertEquals(2, cache.getOpenFileCount());
+        assertTrue(opener.isOpen(a));
+        assertFalse(opener.isOpen(b));
+        assertTrue(opener.isOpen(c));
+
+        // b has to be opened again
+        assertChunk(cache, b, CHUNKS.get(1));
+        assertEquals(2, opener.openCount(b));
+        assertEquals(4, cache.getMisses());
+        assertFalse(opener.isOpen(a));
+    }
+
+    @Test
+    @DisplayName("closes an evicted file only once its reads are done")
+    void evictsFilesInUse() throws Exception {
+        TrackingOpener opener = new TrackingOpener();
+        RegionFileCache cache = new RegionFileCache(1, opener);
+        Path a = writeRegion(directory.resolve("r.0.0.mca"));
+        Path b = writeRegion(directory.resolve("r.0.1.mca"));
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            opener.gate = new CountDownLatch(1);
+            Future<?> read = executor.submit(() -> {
+                assertChunk(cache, a, CHUNKS.get(2));
+                return null;
+            });
+            assertTrue(opener.waiting.await(10, TimeUnit.SECONDS));
+
+            // reading b evicts a while a is still being read
+            CountDownLatch gate = opener.gate;
+            opener.gate = null;
+            assertChunk(cache, b, CHUNKS.get(2));
+            assertEquals(1, cache.getEvictions());
+            assertTrue(opener.isOpen(a));
+
+            gate.countDown();
+            read.get(10, TimeUnit.SECONDS);
+            assertFalse(opener.isOpen(a));
+            assertTrue(opener.isOpen(b));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("closes the files under a directory")
+    void invalidatesDirectories() throws Exception {
+        TrackingOpener opener = new TrackingOpener();
+        RegionFileCache cache = new RegionFileCache(4, opener);
+        Path first = Files.createDirectory(directory.resolve("first"));
+        Path second = Files.createDirectory(directory.resolve("second"));
+        Path a = writeRegion(first.resolve("r.0.0.mca"));
+        Path b = writeRegion(first.resolve("r.0.1.mca"));
+        Path c = writeRegion(second.resolve("r.0.0.mca"));
+        for (Path file : ImmutableList.of(a, b, c)) {
+            assertChunk(cache, file, CHUNKS.get(3));
+        }
+
+        cache.invalidateUnder(first);
+
+        assertEquals(1, cache.getOpenFileCount());
+        assertFalse(opener.isOpen(a));
+        assertFalse(opener.isOpen(b));
+        assertTrue(opener.isOpen(c));
+        assertEquals(0, cache.getEvictions());
+    }
+
+    @Test
+    @DisplayName("serves concurrent readers")
+    void concurrentReaders() throws Exception {
+        int threads = 8;
+        int readsPerThread = 200;
+        RegionFileCache cache = new RegionFileCache(2);
+        List<Path> files = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            files.add(writeRegion(directory.resolve("r.0." + i + ".mca")));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int seed = t;
+                results.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < readsPerThread; i++) {
+                        // threads mostly share a file, and now and then move on to the next
+                        Path file = files.get((seed + i / 16) % files.size());
+                        assertChunk(cache, file, CHUNKS.get((seed + i) % CHUNKS.size()));
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> result : results) {
+                result.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(threads * readsPerThread, cache.getHits() + cache.getMisses());
+        assertTrue(cache.getOpenFileCount() <= 2);
+        cache.invalidateUnder(directory);
+        assertEquals(0, cache.getOpenFileCount());
+    }
+
+}
@@ -31,9 +31,11 @@
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.world.World;
 import net.minecraft.world.chunk.WorldChunk;
+import net.minecraft.world.chunk.light.LightingProvider;
 
 import javax.annotation.Nullable;
 import java.lang.ref.WeakReference;
+import java.util.List;
 import java.util.Objects;
 
 public class FabricWorldNativeAccess implements WorldNativeAccess<WorldChunk, BlockState, BlockPos> {
@@ -88,6 +90,14 @@ public void updateLightingForBlock(BlockPos position) {
         getWorld().getChunkManager().getLightingProvider().checkBlock(position);
     }
 
+    @Override
+    public void updateLightingForBlocks(List<BlockPos> positions) {
+        LightingProvider lightingProvider = getWorld().getChunkManager().getLightingProvider();
+        for (BlockPos position : positions) {
+            lightingProvider.checkBlock(position);
+        }
+    }
+
     @Override
     public boolean updateTileEntity(BlockPos position, com.sk89q.jnbt.CompoundTag tag) {
         CompoundTag nativeTag = NBTConverter.toNative(tag);
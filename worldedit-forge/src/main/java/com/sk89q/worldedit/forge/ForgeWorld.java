@@ -32,6 +32,7 @@
 import com.sk89q.worldedit.blocks.BaseItemStack;
 import com.sk89q.worldedit.entity.BaseEntity;
 import com.sk89q.worldedit.entity.Entity;
+import com.sk89q.worldedit.extent.ChunkSectionBatch;
 import com.sk89q.worldedit.forge.internal.ForgeWorldNativeAccess;
 import com.sk89q.worldedit.forge.internal.NBTConverter;
 import com.sk89q.worldedit.forge.internal.TileEntityUtils;
@@ -41,8 +42,8 @@
 import com.sk89q.worldedit.math.BlockVector2;
 import com.sk89q.worldedit.math.BlockVector3;
 import com.sk89q.worldedit.math.Vector3;
-import com.sk89q.worldedit.regions.CuboidRegion;
 import com.sk89q.worldedit.regions.Region;
+import com.sk89q.worldedit.regions.Regions;
 import com.sk89q.worldedit.util.Direction;
 import com.sk89q.worldedit.util.Location;
 import com.sk89q.worldedit.util.SideEffect;
@@ -56,7 +57,9 @@
 import com.sk89q.worldedit.world.item.ItemTypes;
 import com.sk89q.worldedit.world.weather.WeatherType;
 import com.sk89q.worldedit.world.weather.WeatherTypes;
+import it.unimi.dsi.fastutil.longs.LongIterator;
 import net.minecraft.block.Block;
+import net.minecraft.block.Blocks;
 import net.minecraft.entity.EntityType;
 import net.minecraft.entity.item.ItemEntity;
 import net.minecraft.inventory.IClearable;
@@ -74,6 +77,7 @@
 import net.minecraft.world.biome.BiomeContainer;
 import net.minecraft.world.biome.DefaultBiomeFeatures;
 import net.minecraft.world.chunk.AbstractChunkProvider;
+import net.minecraft.world.chunk.ChunkSection;
 import net.minecraft.world.chunk.ChunkStatus;
 import net.minecraft.world.chunk.IChunk;
 import net.minecraft.world.chunk.listener.IChunkStatusListener;
@@ -100,6 +104,7 @@
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.stream.Collectors;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
@@ -177,6 +182,11 @@ public <B extends BlockStateHolder<B>> boolean setBlock(BlockVector3 position, B
         return nativeAccess.setBlock(position, block, sideEffects);
     }
 
+    @Override
+    public int setBlocks(ChunkSectionBatch batch, SideEffectSet sideEffects) throws WorldEditException {
+        return nativeAccess.setBlocks(batch, sideEffects);
+    }
+
     @Override
     public Set<SideEffect> applySideEffects(BlockVector3 position, BlockState previousType, SideEffectSet sideEffectSet) throws WorldEditException {
         nativeAccess.applySideEffects(position, previousType, sideEffectSet);
@@ -301,8 +311,8 @@ public boolean regenerate(Region region, EditSession editSession) {
 
                 // Pre-gen all the chunks
                 // We need to also pull one more chunk in every direction
-                CuboidRegion expandedPreGen = new CuboidRegion(region.getMinimumPoint().subtract(16, 0, 16), region.getMaximumPoint().add(16, 0, 16));
-                for (BlockVector2 chunk : expandedPreGen.getChunks()) {
+                for (LongIterator it = Regions.getPackedChunksWithNeighbors(region).iterator(); it.hasNext(); ) {
+                    BlockVector2 chunk = BlockVector2.fromLongPackedForm(it.nextLong());
                     freshWorld.getChunk(chunk.getBlockX(), chunk.getBlockZ());
                 }
 
@@ -458,6 +468,44 @@ public BlockState getBlock(BlockVector3 position) {
         return ForgeAdapter.adapt(mcState);
     }
 
+    @Override
+    public void getBlockStateIds(BlockVector3 min, BlockVector3 max, int[] ids) {
+        int sizeX = max.getBlockX() - min.getBlockX() + 1;
+        int sizeZ = max.getBlockZ() - min.getBlockZ() + 1;
+        checkArgument(ids.length >= (long) sizeX * sizeZ * (max.getBlockY() - min.getBlockY() + 1),
+                "ids is too small for the cuboid");
+        net.minecraft.block.BlockState air = Blocks.AIR.getDefaultState();
+        // read straight from the chunk sections, one chunk at a time
+        for (int chunkX = min.getBlockX() >> 4; chunkX <= max.getBlockX() >> 4; chunkX++) {
+            int fromX = Math.max(min.getBlockX(), chunkX << 4);
+            int toX = Math.min(max.getBlockX(), (chunkX << 4) + 15);
+            for (int chunkZ = min.getBlockZ() >> 4; chunkZ <= max.getBlockZ() >> 4; chunkZ++) {
+                int fromZ = Math.max(min.getBlockZ(), chunkZ << 4);
+                int toZ = Math.min(max.getBlockZ(), (chunkZ << 4) + 15);
+                ChunkSection[] sections = getWorld().getChunk(chunkX, chunkZ).getSections();
+                for (int y = min.getBlockY(); y <= max.getBlockY(); y++) {
+                    ChunkSection section = y >= 0 && y >> 4 < sections.length ? sections[y >> 4] : null;
+                    boolean empty = section == null || section.isEmpty();
+                    for (int z = fromZ; z <= toZ; z++) {
+                        int index = ((y - min.getBlockY()) * sizeZ + (z - min.getBlockZ())) * sizeX - min.getBlockX();
+                        for (int x = fromX; x <= toX; x++) {
+                            net.minecraft.block.BlockState mcState = empty ? air : section.getBlockState(x & 15, y & 15, z & 15);
+                            ids[index + x] = getBlockStateId(mcState);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static int getBlockStateId(net.minecraft.block.BlockState mcState) {
+        int id = Block.getStateId(mcState);
+        if (BlockStateIdAccess.getBlockStateById(id) != null) {
+            return id;
+        }
+        return BlockStateIdAccess.getBlockStateId(ForgeAdapter.adapt(mcState));
+    }
+
     @Override
     public BaseBlock getFullBlock(BlockVector3 position) {
         BlockPos pos = new BlockPos(position.getBlockX(), position.getBlockY(), position.getBlockZ());
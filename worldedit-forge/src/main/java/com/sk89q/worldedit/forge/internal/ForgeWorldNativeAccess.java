@@ -31,11 +31,13 @@
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.world.World;
 import net.minecraft.world.chunk.Chunk;
+import net.minecraft.world.lighting.WorldLightManager;
 import net.minecraft.world.server.ChunkHolder;
 import net.minecraft.world.server.ServerChunkProvider;
 
 import javax.annotation.Nullable;
 import java.lang.ref.WeakReference;
+import java.util.List;
 import java.util.Objects;
 
 public class ForgeWorldNativeAccess implements WorldNativeAccess<Chunk, BlockState, BlockPos> {
@@ -96,6 +98,14 @@ public void updateLightingForBlock(BlockPos position) {
         getWorld().getChunkProvider().getLightManager().checkBlock(position);
     }
 
+    @Override
+    public void updateLightingForBlocks(List<BlockPos> positions) {
+        WorldLightManager lightManager = getWorld().getChunkProvider().getLightManager();
+        for (BlockPos position : positions) {
+            lightManager.checkBlock(position);
+        }
+    }
+
     @Override
     public boolean updateTileEntity(BlockPos position, CompoundTag tag) {
         CompoundNBT nativeTag = NBTConverter.toNative(tag);
@@ -120,6 +120,11 @@ public void load() {
         allowSymlinks = node.getNode("files", "allow-symbolic-links").getBoolean(false);
         LocalSession.MAX_HISTORY_SIZE = Math.max(0, node.getNode("history", "size").getInt(15));
         SessionManager.EXPIRATION_GRACE = node.getNode("history", "expiration").getInt(10) * 60 * 1000;
+        historyMemoryLimit = node.getNode("history", "memory-limit").getInt(historyMemoryLimit);
+        operationTickBudget = node.getNode("calculation", "tick-budget").getInt(operationTickBudget);
+        parallelWorldReads = node.getNode("calculation", "parallel-world-reads").getBoolean(parallelWorldReads);
+        spreadRelighting = node.getNode("calculation", "spread-relighting").getBoolean(spreadRelighting);
+        spreadEdits = node.getNode("calculation", "spread-edits").getBoolean(spreadEdits);
 
         showHelpInfo = node.getNode("show-help-on-first-use").getBoolean(true);
         serverSideCUI = node.getNode("server-side-cui").getBoolean(true);